@@ -0,0 +1,74 @@
+package com.marklogic.appdeployer;
+
+import com.marklogic.mgmt.util.SimplePropertySource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building an AppConfig from roughly 200 properties, as is done at the start of every Gradle task that
+ * deploys or undeploys an application. Most of the properties are ones that DefaultAppConfigFactory recognizes; the
+ * rest are unrelated properties of the sort that a Gradle project typically defines as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefaultAppConfigFactoryBenchmark {
+
+	private final static int PROPERTY_COUNT = 200;
+
+	private SimplePropertySource propertySource;
+
+	@Setup
+	public void setup() {
+		Properties props = new Properties();
+		props.setProperty("mlHost", "localhost");
+		props.setProperty("mlAppName", "benchmark-app");
+		props.setProperty("mlUsername", "admin");
+		props.setProperty("mlPassword", "admin");
+		props.setProperty("mlRestPort", "8010");
+		props.setProperty("mlTestRestPort", "8011");
+		props.setProperty("mlContentForestsPerHost", "3");
+		props.setProperty("mlForestsPerHost", "some-db,2,other-db,3");
+		props.setProperty("mlModulePermissions", "rest-reader,read,rest-writer,update");
+		props.setProperty("mlModulePaths", "src/main/ml-modules,src/main/more-modules");
+		props.setProperty("mlConfigPaths", "src/main/ml-config");
+		props.setProperty("mlSchemaPaths", "src/main/ml-schemas");
+		props.setProperty("mlDataPaths", "src/main/ml-data");
+		props.setProperty("mlDataCollections", "apple,banana");
+		props.setProperty("mlDataPermissions", "rest-reader,read,rest-writer,update");
+		props.setProperty("mlModulesLoaderThreadCount", "8");
+		props.setProperty("mlModulesLoaderBatchSize", "100");
+		props.setProperty("mlResourceFilenamesToIgnore", "role1.json,role2.xml");
+		props.setProperty("mlResourceSaveThreadCounts", "DeployUsersCommand,4,DeployPrivilegesCommand,8");
+		props.setProperty("mlDatabaseNamesAndReplicaCounts", "Documents,1,Security,2");
+		props.setProperty("mlDatabaseHosts", "Documents,host1|host2|host3,Security,host1|host2");
+		props.setProperty("mlDatabaseGroups", "Documents,group1|group2,Security,group1");
+		props.setProperty("mlDatabaseDataDirectories", "Documents,/data/documents,Security,/data/security");
+		props.setProperty("mlDatabaseReplicaDataDirectories", "Documents,/data/replicas|/data/replicas2,Security,/data/security/replicas");
+		props.setProperty("mlHostGroups", "host1,Default,host2,other-group");
+		props.setProperty("mlForestDataDirectory", "/data/path");
+		props.setProperty("mlReplicaForestDataDirectory", "/var/data");
+		props.setProperty("mlContentDatabaseName", "benchmark-content");
+		props.setProperty("mlModulesDatabaseName", "benchmark-modules");
+		props.setProperty("mlSchemasDatabaseName", "benchmark-schemas");
+		props.setProperty("mlTriggersDatabaseName", "benchmark-triggers");
+		props.setProperty("mlDeployWithCma", "true");
+		props.setProperty("mlSkipUnchangedResources", "true");
+
+		// Gradle passes along every project property, most of which are unrelated to deploying an application
+		for (int i = 0; props.size() < PROPERTY_COUNT; i++) {
+			props.setProperty(i % 2 == 0 ? "mlCustomToken" + i : "someProjectProperty" + i, "value-" + i);
+		}
+		propertySource = new SimplePropertySource(props);
+	}
+
+	@Benchmark
+	public AppConfig newAppConfig() {
+		return new DefaultAppConfigFactory(propertySource).newAppConfig();
+	}
+}
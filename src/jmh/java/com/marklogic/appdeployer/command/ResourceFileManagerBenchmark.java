@@ -0,0 +1,65 @@
+package com.marklogic.appdeployer.command;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a manifest of 10,000 resource file hashes, which ResourceFileManagerImpl does once per deployment,
+ * and then checking every one of those files against the loaded manifest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceFileManagerBenchmark {
+
+	private final static int ENTRY_COUNT = 10000;
+
+	private File[] files;
+	private String[] payloads;
+	private ResourceFileManagerImpl manager;
+
+	@Setup
+	public void setup() throws Exception {
+		File dir = Files.createTempDirectory("resource-file-manager-benchmark").toFile();
+		String propertiesFilePath = new File(dir, "resource-hashes.properties").getAbsolutePath();
+
+		files = new File[ENTRY_COUNT];
+		payloads = new String[ENTRY_COUNT];
+		ResourceFileManagerImpl writer = new ResourceFileManagerImpl(propertiesFilePath);
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			files[i] = new File(dir, "ml-config/security/users/user-" + i + ".json");
+			payloads[i] = "{\"user-name\":\"user-" + i + "\", \"password\":\"password\", \"role\":[\"rest-reader\"]}";
+			writer.shouldResourceFileBeProcessed(files[i], payloads[i]);
+		}
+		writer.flush();
+
+		manager = new ResourceFileManagerImpl(propertiesFilePath);
+	}
+
+	@Benchmark
+	public boolean loadManifest() {
+		manager.initialize();
+		return manager.shouldResourceFileBeProcessed(files[0], payloads[0]);
+	}
+
+	@Benchmark
+	public int loadManifestAndCheckEveryFile() {
+		manager.initialize();
+		int unchanged = 0;
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			if (!manager.shouldResourceFileBeProcessed(files[i], payloads[i])) {
+				unchanged++;
+			}
+		}
+		return unchanged;
+	}
+}
@@ -0,0 +1,85 @@
+package com.marklogic.appdeployer.command;
+
+import com.marklogic.appdeployer.AppConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares replacing 500 custom tokens in a 200KB payload via a single TokenReplacementEngine scan with the previous
+ * approach of calling String.replace once per token, and measures DefaultPayloadTokenReplacer with the same tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenReplacementBenchmark {
+
+	private final static int TOKEN_COUNT = 500;
+	private final static int PAYLOAD_SIZE = 200 * 1024;
+
+	private Map<String, String> tokens;
+	private TokenReplacementEngine engine;
+	private String payload;
+	private AppConfig appConfig;
+	private DefaultPayloadTokenReplacer payloadTokenReplacer;
+
+	@Setup
+	public void setup() {
+		tokens = new LinkedHashMap<>();
+		for (int i = 0; i < TOKEN_COUNT; i++) {
+			tokens.put("%%customToken" + i + "%%", "value-for-custom-token-" + i);
+		}
+		engine = new TokenReplacementEngine(tokens);
+		appConfig = new AppConfig();
+		appConfig.getCustomTokens().putAll(tokens);
+		payloadTokenReplacer = new DefaultPayloadTokenReplacer();
+
+		// Resembles a large database payload, with a token in roughly one of every three property values
+		StringBuilder sb = new StringBuilder("{\"database-name\":\"%%customToken0%%\", \"range-element-index\":[");
+		int i = 0;
+		while (sb.length() < PAYLOAD_SIZE) {
+			String localname = i % 3 == 0 ? "%%customToken" + (i % TOKEN_COUNT) + "%%" : "element" + i;
+			sb.append("{\"scalar-type\":\"string\", \"namespace-uri\":\"http://example.org\", \"localname\":\"")
+				.append(localname).append("\", \"collation\":\"http://marklogic.com/collation/\", ")
+				.append("\"range-value-positions\":false, \"invalid-values\":\"reject\"},");
+			i++;
+		}
+		sb.append("{}]}");
+		payload = sb.toString();
+	}
+
+	@Benchmark
+	public String singleScan() {
+		return engine.replaceTokens(payload);
+	}
+
+	@Benchmark
+	public String stringReplacePerToken() {
+		String result = payload;
+		for (Map.Entry<String, String> entry : tokens.entrySet()) {
+			result = result.replace(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Includes the cost of building the engine, which DefaultPayloadTokenReplacer only incurs when the tokens change.
+	 */
+	@Benchmark
+	public String buildEngineAndScan() {
+		return new TokenReplacementEngine(tokens).replaceTokens(payload);
+	}
+
+	/**
+	 * Replaces the default tokens and then the custom tokens, as is done for every resource file that's read.
+	 */
+	@Benchmark
+	public String defaultPayloadTokenReplacer() {
+		return payloadTokenReplacer.replaceTokens(payload, appConfig, false);
+	}
+}
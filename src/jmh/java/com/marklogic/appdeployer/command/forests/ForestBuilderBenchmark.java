@@ -0,0 +1,56 @@
+package com.marklogic.appdeployer.command.forests;
+
+import com.marklogic.appdeployer.AppConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures planning the forests for a database with 3 forests in each of 2 data directories on every host, both
+ * without replicas and with a replica of each forest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ForestBuilderBenchmark {
+
+	@Param({"1", "10", "100", "500"})
+	public int hostCount;
+
+	private List<String> hostNames;
+	private AppConfig appConfig;
+	private ForestBuilder forestBuilder;
+
+	@Setup
+	public void setup() {
+		hostNames = new ArrayList<>();
+		for (int i = 0; i < hostCount; i++) {
+			hostNames.add("host-" + i);
+		}
+		appConfig = new AppConfig();
+		Map<String, List<String>> dataDirectories = new HashMap<>();
+		dataDirectories.put("my-database", Arrays.asList("/var/opt/data1", "/var/opt/data2"));
+		appConfig.setDatabaseDataDirectories(dataDirectories);
+		forestBuilder = new ForestBuilder();
+	}
+
+	@Benchmark
+	public Object buildForests() {
+		return forestBuilder.buildForests(new ForestPlan("my-database", hostNames).withForestsPerDataDirectory(3), appConfig);
+	}
+
+	@Benchmark
+	public Object buildForestsWithReplicas() {
+		int replicaCount = hostCount > 1 ? 1 : 0;
+		return forestBuilder.buildForests(new ForestPlan("my-database", hostNames).withForestsPerDataDirectory(3)
+			.withReplicaCount(replicaCount), appConfig);
+	}
+}
@@ -0,0 +1,73 @@
+package com.marklogic.mgmt;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a field from, and including a subset of properties in, JSON and XML database payloads with 200
+ * range element indexes, which is typical of the payloads that are read when a database is deployed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadParserBenchmark {
+
+	private final static int INDEX_COUNT = 200;
+
+	private PayloadParser parser;
+	private String json;
+	private String xml;
+
+	@Setup
+	public void setup() {
+		parser = new PayloadParser();
+
+		StringBuilder sb = new StringBuilder("{\"database-name\":\"my-database\", \"triple-index\":true, " +
+			"\"schema-database\":\"my-schemas\", \"range-element-index\":[");
+		for (int i = 0; i < INDEX_COUNT; i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append("{\"scalar-type\":\"string\", \"namespace-uri\":\"http://example.org\", \"localname\":\"element")
+				.append(i).append("\", \"collation\":\"http://marklogic.com/collation/\", ")
+				.append("\"range-value-positions\":false, \"invalid-values\":\"reject\"}");
+		}
+		json = sb.append("]}").toString();
+
+		sb = new StringBuilder("<database-properties xmlns='http://marklogic.com/manage/database/properties'>" +
+			"<database-name>my-database</database-name><triple-index>true</triple-index>" +
+			"<schema-database>my-schemas</schema-database><range-element-indexes>");
+		for (int i = 0; i < INDEX_COUNT; i++) {
+			sb.append("<range-element-index><scalar-type>string</scalar-type>")
+				.append("<namespace-uri>http://example.org</namespace-uri><localname>element").append(i)
+				.append("</localname><collation>http://marklogic.com/collation/</collation>")
+				.append("<range-value-positions>false</range-value-positions><invalid-values>reject</invalid-values>")
+				.append("</range-element-index>");
+		}
+		xml = sb.append("</range-element-indexes></database-properties>").toString();
+	}
+
+	@Benchmark
+	public String getJsonFieldValue() {
+		return parser.getPayloadFieldValue(json, "database-name");
+	}
+
+	@Benchmark
+	public String getXmlFieldValue() {
+		return parser.getPayloadFieldValue(xml, "database-name");
+	}
+
+	@Benchmark
+	public String includeJsonProperties() {
+		return parser.includeProperties(json, "database-name", "triple-index");
+	}
+
+	@Benchmark
+	public String includeXmlProperties() {
+		return parser.includeProperties(xml, "database-name", "triple-index");
+	}
+}
@@ -0,0 +1,50 @@
+package com.marklogic.mgmt.api.database;
+
+import com.marklogic.mgmt.util.ObjectMapperFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing a Database with every property populated via the pretty-printing ObjectMapper - which is how
+ * every payload used to be sent to MarkLogic - with the compact wire writer, as well as converting it into an
+ * ObjectNode via valueToTree instead of serializing it to a String and parsing that String.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseSerializationBenchmark {
+
+	private Database database;
+
+	@Setup
+	public void setup() throws Exception {
+		try (InputStream in = DatabaseSerializationBenchmark.class.getResourceAsStream("populated-database.json")) {
+			database = ObjectMapperFactory.getObjectMapper().readerFor(Database.class).readValue(in);
+		}
+	}
+
+	@Benchmark
+	public String prettyPrintedJson() {
+		return database.getJson();
+	}
+
+	@Benchmark
+	public String wireJson() {
+		return database.getWireJson();
+	}
+
+	@Benchmark
+	public Object objectNodeViaString() throws Exception {
+		return ObjectMapperFactory.getObjectMapper().readTree(database.getJson());
+	}
+
+	@Benchmark
+	public Object objectNode() {
+		return database.toObjectNode();
+	}
+}
@@ -0,0 +1,110 @@
+package com.marklogic.mgmt.api.security;
+
+import com.marklogic.mgmt.util.TopologicalSorter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sorting roles via RoleObjectNodesSorter, which uses LayeredTopologicalSorter, with the previous approach of
+ * looking up each dependency via List.indexOf and sorting via the adjacency matrix in TopologicalSorter. Each role
+ * depends on up to 3 randomly chosen roles that precede it in a shuffled order.
+ * <p>
+ * The matrix-based approach is only run with 100 and 1,000 roles, as 10,000 roles would require a 400MB matrix and
+ * take minutes per sort.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoleSortBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Roles {
+
+		@Param({"100", "1000", "10000"})
+		public int roleCount;
+
+		public List<Role> roles;
+
+		@Setup
+		public void setup() {
+			roles = buildRoles(roleCount);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class MatrixRoles {
+
+		@Param({"100", "1000"})
+		public int roleCount;
+
+		public List<Role> roles;
+
+		@Setup
+		public void setup() {
+			roles = buildRoles(roleCount);
+		}
+	}
+
+	@Benchmark
+	public Object layeredSort(Roles state) {
+		return new RoleObjectNodesSorter().sortRoles(state.roles);
+	}
+
+	@Benchmark
+	public Object layeredSortIntoLayers(Roles state) {
+		return new RoleObjectNodesSorter().sortRolesIntoLayers(state.roles);
+	}
+
+	@Benchmark
+	public Object matrixSort(MatrixRoles state) {
+		List<Role> roles = state.roles;
+		final int count = roles.size();
+		final TopologicalSorter sorter = new TopologicalSorter(count);
+		final List<String> roleNames = new ArrayList<>();
+		final Map<String, Role> map = new HashMap<>();
+		roles.forEach(role -> {
+			sorter.addVertex(role.getRoleName());
+			roleNames.add(role.getRoleName());
+			map.put(role.getRoleName(), role);
+		});
+		for (int i = 0; i < count; i++) {
+			for (String dependency : roles.get(i).getDependentRoleNames()) {
+				int index = roleNames.indexOf(dependency);
+				if (index > -1 && index != i) {
+					sorter.addEdge(index, i);
+				}
+			}
+		}
+		List<Role> sorted = new ArrayList<>();
+		for (String name : sorter.sort()) {
+			sorted.add(map.get(name));
+		}
+		return sorted;
+	}
+
+	private static List<Role> buildRoles(int roleCount) {
+		Random random = new Random(roleCount);
+		List<Role> created = new ArrayList<>();
+		for (int i = 0; i < roleCount; i++) {
+			Role role = new Role("role-" + i);
+			int dependencyCount = i == 0 ? 0 : random.nextInt(Math.min(i, 3) + 1);
+			for (int j = 0; j < dependencyCount; j++) {
+				role.addRole("role-" + random.nextInt(i));
+			}
+			created.add(role);
+		}
+		List<Role> roles = new ArrayList<>(created);
+		Collections.shuffle(roles, random);
+		return roles;
+	}
+}
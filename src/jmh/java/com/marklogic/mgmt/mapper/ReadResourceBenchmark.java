@@ -0,0 +1,80 @@
+package com.marklogic.mgmt.mapper;
+
+import com.marklogic.mgmt.api.API;
+import com.marklogic.mgmt.api.database.Database;
+import com.marklogic.mgmt.api.forest.Forest;
+import com.marklogic.mgmt.api.server.Server;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.bind.JAXBContext;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of DefaultResourceMapper.readResource for XML and JSON payloads, compared to the previous
+ * approach of creating a new Unmarshaller for every XML payload. Run with "-t 4" or similar to measure contention
+ * between threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadResourceBenchmark {
+
+	private final static String DATABASE_XML = "<database-properties xmlns=\"http://marklogic.com/manage/database/properties\">" +
+		"<database-name>my-database</database-name><triggers-database>my-triggers</triggers-database>" +
+		"<schema-database>my-schemas</schema-database><range-element-index><scalar-type>string</scalar-type>" +
+		"<namespace-uri/><localname>id</localname><collation>http://marklogic.com/collation/</collation>" +
+		"<range-value-positions>false</range-value-positions><invalid-values>reject</invalid-values>" +
+		"</range-element-index></database-properties>";
+
+	private final static String DATABASE_JSON = "{\"database-name\":\"my-database\", \"triggers-database\":\"my-triggers\", " +
+		"\"schema-database\":\"my-schemas\", \"range-element-index\":[{\"scalar-type\":\"string\", \"namespace-uri\":\"\", " +
+		"\"localname\":\"id\", \"collation\":\"http://marklogic.com/collation/\", \"range-value-positions\":false, " +
+		"\"invalid-values\":\"reject\"}]}";
+
+	private final static String SERVER_XML = "<xdbc-server-properties xmlns=\"http://marklogic.com/manage\">" +
+		"<server-name>my-xdbc</server-name><group-name>Default</group-name><port>8020</port>" +
+		"<content-database>my-database</content-database></xdbc-server-properties>";
+
+	private final static String FOREST_XML = "<forest-properties xmlns=\"http://marklogic.com/manage\">" +
+		"<forest-name>my-forest-1</forest-name><host>localhost</host><database>my-database</database>" +
+		"</forest-properties>";
+
+	private DefaultResourceMapper mapper;
+	private JAXBContext databaseContext;
+
+	@Setup
+	public void setup() throws Exception {
+		mapper = new DefaultResourceMapper(new API(null, ObjectMapperFactory.getObjectMapper()));
+		databaseContext = JAXBContext.newInstance(Database.class);
+	}
+
+	@Benchmark
+	public Object databaseXml() {
+		return mapper.readResource(DATABASE_XML, Database.class);
+	}
+
+	@Benchmark
+	public Object databaseXmlWithNewUnmarshaller() throws Exception {
+		return databaseContext.createUnmarshaller().unmarshal(new StringReader(DATABASE_XML));
+	}
+
+	@Benchmark
+	public Object databaseJson() {
+		return mapper.readResource(DATABASE_JSON, Database.class);
+	}
+
+	@Benchmark
+	public Object serverXml() {
+		return mapper.readResource(SERVER_XML, Server.class);
+	}
+
+	@Benchmark
+	public Object forestXml() {
+		return mapper.readResource(FOREST_XML, Forest.class);
+	}
+}
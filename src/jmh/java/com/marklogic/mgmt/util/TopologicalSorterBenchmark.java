@@ -0,0 +1,52 @@
+package com.marklogic.mgmt.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sorting a graph via the adjacency matrix in TopologicalSorter, where each vertex depends on up to 3
+ * randomly chosen vertices that precede it. The sorter can only be used once, so building it is included in the
+ * measurement. RoleSortBenchmark compares this sorter with LayeredTopologicalSorter for larger graphs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopologicalSorterBenchmark {
+
+	@Param({"1", "10", "100", "500"})
+	public int vertexCount;
+
+	private int[][] edges;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		edges = new int[vertexCount][];
+		for (int i = 0; i < vertexCount; i++) {
+			int edgeCount = i == 0 ? 0 : Math.min(i, 1 + random.nextInt(3));
+			edges[i] = new int[edgeCount];
+			for (int j = 0; j < edgeCount; j++) {
+				edges[i][j] = random.nextInt(i);
+			}
+		}
+	}
+
+	@Benchmark
+	public String[] sort() {
+		TopologicalSorter sorter = new TopologicalSorter(vertexCount);
+		for (int i = 0; i < vertexCount; i++) {
+			sorter.addVertex("vertex-" + i);
+		}
+		for (int i = 0; i < vertexCount; i++) {
+			for (int end : edges[i]) {
+				sorter.addEdge(i, end);
+			}
+		}
+		return sorter.sort();
+	}
+}
@@ -0,0 +1,66 @@
+package com.marklogic.rest.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures XPath evaluation against a 1,000 role list response, both via Fragment directly and via
+ * ResourcesFragment.resourceExists, which is how a resource's existence was checked before ResourceList was
+ * introduced and is still used by several managers. Each lookup is for the last role in the list, or for a role that
+ * doesn't exist, as those require the entire list to be scanned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FragmentBenchmark {
+
+	private final static int LIST_SIZE = 1000;
+
+	private String xml;
+	private ResourcesFragment resourcesFragment;
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder("<role-default-list xmlns='http://marklogic.com/manage/role/properties'>");
+		sb.append("<meta><uri>/manage/v2/roles</uri><elapsed-time units='sec'>0.1</elapsed-time></meta><list-items>");
+		sb.append("<list-count units='quantity'>").append(LIST_SIZE).append("</list-count>");
+		for (int i = 0; i < LIST_SIZE; i++) {
+			sb.append("<list-item><uriref>/manage/v2/roles/role-").append(i).append("</uriref>")
+				.append("<idref>").append(1000000000000000000L + i).append("</idref>")
+				.append("<nameref>role-").append(i).append("</nameref></list-item>");
+		}
+		sb.append("</list-items></role-default-list>");
+		xml = sb.toString();
+		resourcesFragment = new ResourcesFragment(new Fragment(xml));
+	}
+
+	@Benchmark
+	public Object parse() {
+		return new Fragment(xml);
+	}
+
+	@Benchmark
+	public boolean elementExists() {
+		return resourcesFragment.elementExists("/node()/*[local-name(.) = 'list-items']/node()[*[local-name(.) = 'nameref'] = 'role-999']");
+	}
+
+	@Benchmark
+	public List<String> getElementValues() {
+		return resourcesFragment.getElementValues("/node()/*[local-name(.) = 'list-items']/node()/*[local-name(.) = 'nameref']");
+	}
+
+	@Benchmark
+	public boolean resourceExists() {
+		return resourcesFragment.resourceExists("role-" + (LIST_SIZE - 1));
+	}
+
+	@Benchmark
+	public boolean resourceDoesNotExist() {
+		return resourcesFragment.resourceExists("missing-role");
+	}
+}
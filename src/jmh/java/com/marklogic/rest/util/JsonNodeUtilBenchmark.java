@@ -0,0 +1,60 @@
+package com.marklogic.rest.util;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.marklogic.appdeployer.command.ResourceReference;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures merging 500 role payloads, spread across 100 roles, the way resources are merged when they're read from
+ * multiple config directories. Merging modifies the given references, so a new list is built before each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonNodeUtilBenchmark {
+
+	private final static int PAYLOAD_COUNT = 500;
+	private final static int ROLE_COUNT = 100;
+
+	private List<ObjectNode> payloads;
+	private List<ResourceReference> references;
+	private PropertyBasedBiPredicate predicate = new PropertyBasedBiPredicate("role-name");
+
+	@Setup
+	public void setup() {
+		payloads = new ArrayList<>();
+		for (int i = 0; i < PAYLOAD_COUNT; i++) {
+			ObjectNode role = ObjectMapperFactory.getObjectMapper().createObjectNode();
+			role.put("role-name", "role-" + (i % ROLE_COUNT));
+			role.put("description", "Description from payload " + i);
+			role.putArray("role").add("rest-reader").add("other-role-" + i);
+			role.putArray("privilege").addObject()
+				.put("privilege-name", "privilege-" + i)
+				.put("action", "http://example.org/privilege-" + i)
+				.put("kind", "execute");
+			payloads.add(role);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void buildReferences() {
+		references = new ArrayList<>();
+		for (ObjectNode payload : payloads) {
+			references.add(new ResourceReference(new File("role.json"), payload.deepCopy()));
+		}
+	}
+
+	@Benchmark
+	public Object mergeObjectNodeList() {
+		return JsonNodeUtil.mergeObjectNodeList(references, predicate);
+	}
+}
@@ -0,0 +1,53 @@
+package com.marklogic.rest.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a 5,000 forest list response into a ResourcesFragment - which builds a JDOM2 document - with
+ * streaming it into a ResourceList via StaxResourceListReader. Each benchmark produces the list of names, as that's
+ * what most callers need.
+ * <p>
+ * Run with the GC profiler to compare allocation rates - e.g. by adding profilers = ['gc'] to the jmh block in
+ * build.gradle, or by passing "-prof gc" to the JMH jar - and compare the gc.alloc.rate.norm value of each benchmark.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceListBenchmark {
+
+	private final static int LIST_SIZE = 5000;
+
+	private String xml;
+	private StaxResourceListReader reader;
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder("<forest-default-list xmlns='http://marklogic.com/manage/forests'>");
+		sb.append("<meta><uri>/manage/v2/forests</uri><elapsed-time units='sec'>0.1</elapsed-time></meta><list-items>");
+		sb.append("<list-count units='quantity'>").append(LIST_SIZE).append("</list-count>");
+		for (int i = 0; i < LIST_SIZE; i++) {
+			sb.append("<list-item><uriref>/manage/v2/forests/forest-").append(i).append("</uriref>")
+				.append("<idref>").append(1000000000000000000L + i).append("</idref>")
+				.append("<nameref>forest-").append(i).append("</nameref></list-item>");
+		}
+		sb.append("</list-items></forest-default-list>");
+		xml = sb.toString();
+		reader = new StaxResourceListReader();
+	}
+
+	@Benchmark
+	public Object resourcesFragment() {
+		return new ResourcesFragment(new Fragment(xml)).getListItemNameRefs();
+	}
+
+	@Benchmark
+	public Object staxResourceList() {
+		return reader.read(xml).getNameRefs();
+	}
+}
@@ -0,0 +1,85 @@
+package com.marklogic.rest.util;
+
+import org.jdom2.Element;
+import org.jdom2.filter.Filters;
+import org.jdom2.xpath.XPathExpression;
+import org.jdom2.xpath.XPathFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares 10,000 lookups of resources in a 5,000 item list via ResourcesFragment - which indexes the list the first
+ * time a resource is looked up - with the previous approach of formatting each value into an XPath expression and
+ * compiling and evaluating it for every lookup.
+ * <p>
+ * Each lookup in the previous approach scans the entire list, so that benchmark takes minutes per shot and is only run
+ * once, without warmup; the difference between the two is several orders of magnitude. The benchmark for
+ * ResourcesFragment wraps the parsed document in a new fragment for each shot so that the cost of building the
+ * index is included.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(2)
+public class ResourcesFragmentBenchmark {
+
+	private final static int LIST_SIZE = 5000;
+	private final static int LOOKUPS = 10_000;
+
+	private final static String FORMATTED_XPATH = "/node()/*[local-name(.) = 'list-items']/node()"
+		+ "[*[local-name(.) = 'nameref'] = '%s' or *[local-name(.) = 'idref'] = '%s']";
+
+	private ResourcesFragment fragment;
+	private String[] names;
+
+	@Setup
+	public void setup() {
+		StringBuilder xml = new StringBuilder("<role-default-list xmlns='http://marklogic.com/manage/role'><list-items>");
+		xml.append("<list-count units='quantity'>").append(LIST_SIZE).append("</list-count>");
+		for (int i = 0; i < LIST_SIZE; i++) {
+			xml.append("<list-item><idref>").append(i).append("</idref><nameref>role-").append(i).append("</nameref></list-item>");
+		}
+		xml.append("</list-items></role-default-list>");
+		fragment = new ResourcesFragment(new Fragment(xml.toString()));
+
+		names = new String[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			names[i] = "role-" + ((i * 7919) % (LIST_SIZE * 2));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int indexedResourcesFragment() {
+		ResourcesFragment resourcesFragment = new ResourcesFragment(fragment);
+		int found = 0;
+		for (String name : names) {
+			if (resourcesFragment.resourceExists(name)) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	@Fork(1)
+	public int formattedXPathCompiledPerLookup() {
+		int found = 0;
+		for (String name : names) {
+			XPathExpression<Element> expr = XPathFactory.instance().compile(String.format(FORMATTED_XPATH, name, name),
+				Filters.element(), new HashMap<>());
+			if (!expr.evaluate(fragment.getInternalDoc()).isEmpty()) {
+				found++;
+			}
+		}
+		return found;
+	}
+}
@@ -233,6 +233,14 @@ public class AppConfig {
 	private Pattern resourceFilenamesExcludePattern;
 	private Pattern resourceFilenamesIncludePattern;
 
+	// Maps the simple class name of a resource command to the number of resources it may save at the same time
+	private Map<String, Integer> resourceSaveThreadCounts = new HashMap<>();
+
+	// If true, an existing resource is only updated when its payload would change at least one of its properties
+	private boolean skipUnchangedResources = false;
+	// The number of threads used to fetch the properties of existing resources when skipUnchangedResources is true
+	private int remoteStateThreadCount = 8;
+
 	// Properties to exclude from resource payloads
 	private String[] excludeProperties;
 	// Properties to include in resource payloads
@@ -1047,6 +1055,30 @@ public class AppConfig {
 		this.resourceFilenamesIncludePattern = resourceFilenamesIncludePattern;
 	}
 
+	public Map<String, Integer> getResourceSaveThreadCounts() {
+		return resourceSaveThreadCounts;
+	}
+
+	public void setResourceSaveThreadCounts(Map<String, Integer> resourceSaveThreadCounts) {
+		this.resourceSaveThreadCounts = resourceSaveThreadCounts;
+	}
+
+	public boolean isSkipUnchangedResources() {
+		return skipUnchangedResources;
+	}
+
+	public void setSkipUnchangedResources(boolean skipUnchangedResources) {
+		this.skipUnchangedResources = skipUnchangedResources;
+	}
+
+	public int getRemoteStateThreadCount() {
+		return remoteStateThreadCount;
+	}
+
+	public void setRemoteStateThreadCount(int remoteStateThreadCount) {
+		this.remoteStateThreadCount = remoteStateThreadCount;
+	}
+
 	public int getModulesLoaderThreadCount() {
 		return modulesLoaderThreadCount;
 	}
@@ -1,5 +1,7 @@
 package com.marklogic.appdeployer;
 
+import com.marklogic.mgmt.api.configuration.ConfigurationChunker;
+
 public class CmaConfig {
 
 	private boolean combineRequests;
@@ -13,6 +15,10 @@ public class CmaConfig {
 	private boolean deployServers;
 	private boolean deployUsers;
 
+	private int maxResourcesPerRequest;
+	private long maxBytesPerRequest;
+	private int submitThreadCount = 4;
+
 	public CmaConfig() {
 	}
 
@@ -35,6 +41,15 @@ public class CmaConfig {
 		setDeployUsers(true);
 	}
 
+	/**
+	 * @return a ConfigurationChunker based on the maximum resources and bytes per request and the submit thread count
+	 */
+	public ConfigurationChunker newConfigurationChunker() {
+		ConfigurationChunker chunker = new ConfigurationChunker(maxResourcesPerRequest, maxBytesPerRequest);
+		chunker.setThreadCount(submitThreadCount);
+		return chunker;
+	}
+
 	public boolean isDeployAmps() {
 		return deployAmps;
 	}
@@ -114,4 +129,41 @@ public class CmaConfig {
 	public void setDeployQueryRolesets(boolean deployQueryRolesets) {
 		this.deployQueryRolesets = deployQueryRolesets;
 	}
+
+	public int getMaxResourcesPerRequest() {
+		return maxResourcesPerRequest;
+	}
+
+	/**
+	 * @param maxResourcesPerRequest the maximum number of resources submitted in a single CMA request; a larger
+	 *                               configuration is split into multiple requests. 0 or less means no maximum, which
+	 *                               is the default, so a configuration is only split if a maximum is set.
+	 */
+	public void setMaxResourcesPerRequest(int maxResourcesPerRequest) {
+		this.maxResourcesPerRequest = maxResourcesPerRequest;
+	}
+
+	public long getMaxBytesPerRequest() {
+		return maxBytesPerRequest;
+	}
+
+	/**
+	 * @param maxBytesPerRequest the maximum size of the resources submitted in a single CMA request; a larger
+	 *                           configuration is split into multiple requests. 0 or less means no maximum.
+	 */
+	public void setMaxBytesPerRequest(long maxBytesPerRequest) {
+		this.maxBytesPerRequest = maxBytesPerRequest;
+	}
+
+	public int getSubmitThreadCount() {
+		return submitThreadCount;
+	}
+
+	/**
+	 * @param submitThreadCount the maximum number of CMA requests submitted at the same time when a configuration
+	 *                          is split into multiple requests
+	 */
+	public void setSubmitThreadCount(int submitThreadCount) {
+		this.submitThreadCount = submitThreadCount;
+	}
 }
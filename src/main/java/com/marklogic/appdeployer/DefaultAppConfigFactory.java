@@ -90,6 +90,21 @@ public class DefaultAppConfigFactory extends PropertySourceFactory implements Ap
 			config.getCmaConfig().setCombineRequests(Boolean.parseBoolean(prop));
 		});
 
+		propertyConsumerMap.put("mlCmaMaxResourcesPerRequest", (config, prop) -> {
+			logger.info("Maximum number of resources per request" + cmaMessage + prop);
+			config.getCmaConfig().setMaxResourcesPerRequest(Integer.parseInt(prop));
+		});
+
+		propertyConsumerMap.put("mlCmaMaxBytesPerRequest", (config, prop) -> {
+			logger.info("Maximum number of bytes per request" + cmaMessage + prop);
+			config.getCmaConfig().setMaxBytesPerRequest(Long.parseLong(prop));
+		});
+
+		propertyConsumerMap.put("mlCmaSubmitThreadCount", (config, prop) -> {
+			logger.info("Number of threads for submitting requests" + cmaMessage + prop);
+			config.getCmaConfig().setSubmitThreadCount(Integer.parseInt(prop));
+		});
+
 		propertyConsumerMap.put("mlDeployAmpsWithCma", (config, prop) -> {
 			logger.info("Deploy amps" + cmaMessage + prop);
 			config.getCmaConfig().setDeployAmps(Boolean.parseBoolean(prop));
@@ -773,6 +788,36 @@ public class DefaultAppConfigFactory extends PropertySourceFactory implements Ap
 			config.setResourceFilenamesIncludePattern(Pattern.compile(prop));
 		});
 
+		/**
+		 * Comma-delimited list of resource command class names and thread counts - e.g.
+		 * DeployUsersCommand,4,DeployPrivilegesCommand,4. Each of those commands will then save up to that many
+		 * resources at the same time. Only use this for commands whose resources don't depend on each other.
+		 */
+		propertyConsumerMap.put("mlResourceSaveThreadCounts", (config, prop) -> {
+			logger.info("Resource command names and save thread counts: " + prop);
+			String[] tokens = prop.split(",");
+			Map<String, Integer> map = new HashMap<>();
+			for (int i = 0; i < tokens.length; i += 2) {
+				map.put(tokens[i], Integer.parseInt(tokens[i + 1]));
+			}
+			config.setResourceSaveThreadCounts(map);
+		});
+
+		/**
+		 * When true, the properties of existing resources are fetched before they're saved, and a resource is only
+		 * updated if its payload would change at least one of its properties. This avoids unnecessary updates, some of
+		 * which cause MarkLogic to restart.
+		 */
+		propertyConsumerMap.put("mlSkipUnchangedResources", (config, prop) -> {
+			logger.info("Skip updating resources whose properties are unchanged: " + prop);
+			config.setSkipUnchangedResources(Boolean.parseBoolean(prop));
+		});
+
+		propertyConsumerMap.put("mlRemoteStateThreadCount", (config, prop) -> {
+			logger.info("Thread count for fetching the properties of existing resources: " + prop);
+			config.setRemoteStateThreadCount(Integer.parseInt(prop));
+		});
+
 		propertyConsumerMap.put("mlExcludeProperties", (config, prop) -> {
 			String[] values = prop.split(",");
 			logger.info("Will exclude these properties from all resource payloads: " + Arrays.asList(values));
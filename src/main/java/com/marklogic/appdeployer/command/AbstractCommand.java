@@ -10,9 +10,10 @@ import com.marklogic.mgmt.api.API;
 import com.marklogic.mgmt.api.Resource;
 import com.marklogic.mgmt.api.configuration.Configuration;
 import com.marklogic.mgmt.api.configuration.Configurations;
-import com.marklogic.mgmt.cma.ConfigurationManager;
 import com.marklogic.mgmt.mapper.DefaultResourceMapper;
 import com.marklogic.mgmt.mapper.ResourceMapper;
+import com.marklogic.mgmt.resource.AbstractResourceManager;
+import com.marklogic.mgmt.resource.RemoteStateSnapshot;
 import com.marklogic.mgmt.resource.ResourceManager;
 import com.marklogic.mgmt.resource.databases.DatabaseManager;
 import com.marklogic.mgmt.util.ObjectMapperFactory;
@@ -27,7 +28,9 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 /**
@@ -48,6 +51,10 @@ public abstract class AbstractCommand extends LoggingObject implements Command {
 	private ResourceMapper resourceMapper;
 	private boolean supportsResourceMerging = false;
 
+	// The filter's own settings while incremental mode temporarily overrides them during an execution
+	private ResourceFileManager filterResourceFileManager;
+	private Function<File, String> filterPayloadReader;
+
 	/**
 	 * A subclass can set the executeSortOrder attribute to whatever value it needs.
 	 */
@@ -144,8 +151,42 @@ public abstract class AbstractCommand extends LoggingObject implements Command {
 	 * @return
 	 */
 	protected String copyFileToString(File f, CommandContext context) {
+		Map<File, String> cachedPayloads = getCachedPayloads(context);
+		if (cachedPayloads != null && cachedPayloads.containsKey(f)) {
+			return cachedPayloads.get(f);
+		}
 		String str = copyFileToString(f);
-		return str != null ? payloadTokenReplacer.replaceTokens(str, context.getAppConfig(), false) : str;
+		str = str != null ? payloadTokenReplacer.replaceTokens(str, context.getAppConfig(), false) : str;
+		if (cachedPayloads != null && str != null) {
+			cachedPayloads.put(f, str);
+		}
+		return str;
+	}
+
+	/**
+	 * While a command is processing its resource files, the payload of each file - with tokens replaced - can be
+	 * cached so that the incremental check, the fetching of remote state, and the save of a resource don't each read
+	 * the file and replace its tokens again. The cache is not used when resource IDs are stored as custom tokens, as a
+	 * payload may then depend on a token that's only added once another resource has been saved.
+	 *
+	 * @param context
+	 */
+	protected void enablePayloadCache(CommandContext context) {
+		if (!storeResourceIdsAsCustomTokens) {
+			context.getContextMap().put(getContextKeyForCachedPayloads(), new ConcurrentHashMap<File, String>());
+		}
+	}
+
+	protected void disablePayloadCache(CommandContext context) {
+		context.getContextMap().remove(getContextKeyForCachedPayloads());
+	}
+
+	protected Map<File, String> getCachedPayloads(CommandContext context) {
+		return context.getContextMap() != null ? (Map<File, String>) context.getContextMap().get(getContextKeyForCachedPayloads()) : null;
+	}
+
+	protected String getContextKeyForCachedPayloads() {
+		return getClass().getName() + "-cached-payloads";
 	}
 
 	/**
@@ -260,7 +301,7 @@ public abstract class AbstractCommand extends LoggingObject implements Command {
 		if (resourceMapper == null) {
 			resourceMapper = new DefaultResourceMapper(new API(context.getManageClient()));
 		}
-		return resourceMapper.readResource(payload, resourceClassType).getJson();
+		return resourceMapper.readResource(payload, resourceClassType).getWireJson();
 	}
 
 	/**
@@ -296,6 +337,10 @@ public abstract class AbstractCommand extends LoggingObject implements Command {
 	 */
 	protected SaveReceipt saveResource(ResourceManager mgr, CommandContext context, String payload) {
 		mgr = adjustResourceManagerForPayload(mgr, context, payload);
+		RemoteStateSnapshot snapshot = context.getRemoteStateSnapshot(this);
+		if (snapshot != null && mgr instanceof AbstractResourceManager) {
+			((AbstractResourceManager) mgr).setRemoteStateSnapshot(snapshot);
+		}
 
 		// A subclass may decide that the resource shouldn't be saved by returning a null payload
 		if (payload == null) {
@@ -383,7 +428,7 @@ public abstract class AbstractCommand extends LoggingObject implements Command {
 				if (uri != null && "/admin/v1/timestamp".equals(uri.getPath())) {
 					AdminManager adminManager = context.getAdminManager();
 					if (adminManager != null) {
-						adminManager.waitForRestart();
+						adminManager.waitForRestart(response);
 					} else {
 						logger.warn("Location header indicates ML is restarting, but no AdminManager available to support waiting for a restart");
 					}
@@ -477,11 +522,14 @@ public abstract class AbstractCommand extends LoggingObject implements Command {
 	}
 
 	/**
+	 * The endpoint is only probed the first time this is called for the context's ManageClient; the result is then
+	 * memoized as part of the ManageClient's CmaCapabilities.
+	 *
 	 * @param context
 	 * @return true if the ML server has the CMA endpoint - /manage/v3
 	 */
 	protected boolean cmaEndpointExists(CommandContext context) {
-		return new ConfigurationManager(context.getManageClient()).endpointExists();
+		return context.getManageClient().getCmaCapabilities().isEndpointAvailable();
 	}
 
 	/**
@@ -493,7 +541,55 @@ public abstract class AbstractCommand extends LoggingObject implements Command {
 	 */
 	protected void deployConfiguration(CommandContext context, Configuration config) {
 		if (config.hasResources()) {
-			new Configurations(config).submit(context.getManageClient());
+			new Configurations(config).submit(context.getManageClient(),
+				context.getAppConfig().getCmaConfig().newConfigurationChunker());
+		}
+	}
+
+	/**
+	 * When enabling incremental mode, this also configures the resource filename filter - if it's a
+	 * ResourceFilenameFilter - to decide whether a file has changed based on the file's contents after tokens have been
+	 * replaced. If the given context has a ResourceFileManager, the filter uses it so that every command in a
+	 * deployment shares the same manifest; otherwise, the filter's own ResourceFileManager is reinitialized. Either
+	 * way, the filter is restored to its own ResourceFileManager and payload reader by
+	 * finishIncrementalMode, so a deployment does not change how this command behaves afterwards.
+	 *
+	 * @param incrementalMode
+	 * @param context
+	 */
+	protected void setIncrementalMode(boolean incrementalMode, CommandContext context) {
+		setIncrementalMode(incrementalMode);
+		if (incrementalMode && resourceFilenameFilter instanceof ResourceFilenameFilter) {
+			ResourceFilenameFilter filter = (ResourceFilenameFilter) resourceFilenameFilter;
+			filterResourceFileManager = filter.getResourceFileManager();
+			filterPayloadReader = filter.getPayloadReader();
+			if (context.getResourceFileManager() != null) {
+				filter.setResourceFileManager(context.getResourceFileManager());
+			} else {
+				filter.getResourceFileManager().initialize();
+			}
+			filter.setPayloadReader(file -> copyFileToString(file, context));
+		}
+	}
+
+	/**
+	 * If the given context doesn't have a ResourceFileManager, then the command is responsible for flushing the one
+	 * used by its resource filename filter. The filter's own ResourceFileManager and payload reader are then restored.
+	 *
+	 * @param context
+	 */
+	protected void finishIncrementalMode(CommandContext context) {
+		if (resourceFilenameFilter instanceof ResourceFilenameFilter) {
+			ResourceFilenameFilter filter = (ResourceFilenameFilter) resourceFilenameFilter;
+			if (filterResourceFileManager != null) {
+				filter.setResourceFileManager(filterResourceFileManager);
+				filter.setPayloadReader(filterPayloadReader);
+				filterResourceFileManager = null;
+				filterPayloadReader = null;
+			}
+			if (context.getResourceFileManager() == null && filter.getResourceFileManager() != null) {
+				filter.getResourceFileManager().flush();
+			}
 		}
 	}
 
@@ -5,11 +5,23 @@ import com.marklogic.appdeployer.AppConfig;
 import com.marklogic.appdeployer.ConfigDir;
 import com.marklogic.mgmt.SaveReceipt;
 import com.marklogic.mgmt.api.configuration.Configuration;
+import com.marklogic.mgmt.resource.AbstractResourceManager;
+import com.marklogic.mgmt.resource.RemoteStateSnapshot;
+import com.marklogic.mgmt.resource.ResourceListCache;
 import com.marklogic.mgmt.resource.ResourceManager;
+import com.marklogic.mgmt.util.ConcurrentTaskRunner;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Provides a basic implementation for creating/updating a resource while an app is being deployed and then deleting it
@@ -25,8 +37,28 @@ public abstract class AbstractResourceCommand extends AbstractUndoableCommand {
 
 	protected abstract ResourceManager getResourceManager(CommandContext context);
 
+	/**
+	 * Sets a new ResourceListCache for this command in the given context, as resources may have been created by a
+	 * previous command without a cache knowing about them. For the same reason, if unchanged resources should be
+	 * skipped, a new RemoteStateSnapshot is set for this command. Both are removed once the command finishes, and
+	 * neither is visible to any other command, including one that's executed at the same time with the same context.
+	 *
+	 * @param context
+	 */
 	@Override
 	public void execute(CommandContext context) {
+		context.setResourceListCache(this, new ResourceListCache());
+		initializeRemoteStateSnapshot(context);
+		try {
+			executeOnResourceDirs(context);
+		} finally {
+			logRemoteStateSnapshotSummary(context);
+			context.setRemoteStateSnapshot(this, null);
+			context.setResourceListCache(this, null);
+		}
+	}
+
+	protected void executeOnResourceDirs(CommandContext context) {
 		final boolean isIncrementalDeploy = context.getAppConfig().isIncrementalDeploy();
 		final boolean mergeResourcesBeforeSaving = resourceMergingIsSupported(context);
 
@@ -37,11 +69,19 @@ public abstract class AbstractResourceCommand extends AbstractUndoableCommand {
 				logger.info("Incremental deploy will not be enabled since files are being read and merged first");
 			}
 		} else {
-			setIncrementalMode(isIncrementalDeploy);
+			setIncrementalMode(isIncrementalDeploy, context);
 		}
 
-		for (File resourceDir : getResourceDirs(context)) {
-			processExecuteOnResourceDir(context, resourceDir);
+		enablePayloadCache(context);
+		try {
+			for (File resourceDir : getResourceDirs(context)) {
+				processExecuteOnResourceDir(context, resourceDir);
+			}
+		} finally {
+			disablePayloadCache(context);
+			if (isIncrementalDeploy && !mergeResourcesBeforeSaving) {
+				finishIncrementalMode(context);
+			}
 		}
 
 		if (mergeResourcesBeforeSaving) {
@@ -51,7 +91,10 @@ public abstract class AbstractResourceCommand extends AbstractUndoableCommand {
 				if (useCmaForDeployingResources(context)) {
 					saveMergedResourcesViaCma(context, mergedReferences);
 				} else {
-					saveMergedResources(context, getResourceManager(context), mergedReferences);
+					ResourceManager mgr = useRemoteStateSnapshot(context, useResourceListCache(context, getResourceManager(context)));
+					prefetchRemoteState(mgr, context, mergedReferences.stream()
+						.map(reference -> reference.getObjectNode().toString()).collect(Collectors.toList()));
+					saveMergedResources(context, mgr, mergedReferences);
 				}
 			}
 		}
@@ -109,13 +152,34 @@ public abstract class AbstractResourceCommand extends AbstractUndoableCommand {
 				}
 				deployResourcesViaCma(context, resourceDir);
 			} else {
-				ResourceManager mgr = getResourceManager(context);
-				for (File resourceFile : listFilesInDirectory(resourceDir, context)) {
-					if (logger.isInfoEnabled()) {
-						logger.info("Processing file: " + resourceFile.getAbsolutePath());
+				ResourceManager mgr = useRemoteStateSnapshot(context, useResourceListCache(context, getResourceManager(context)));
+				// Only list the files once, as an incremental check records each file that's accepted
+				final File[] resourceFiles = listFilesInDirectory(resourceDir, context);
+				if (context.getRemoteStateSnapshot(this) != null) {
+					List<String> payloads = new ArrayList<>();
+					for (File resourceFile : resourceFiles) {
+						payloads.add(copyFileToString(resourceFile, context));
+					}
+					prefetchRemoteState(mgr, context, payloads);
+				}
+				final int threadCount = getResourceSaveThreadCount(context);
+				if (threadCount > 1 && !resourceMergingIsSupported(context)) {
+					Map<ResourceReference, Supplier<SaveReceipt>> saves = new LinkedHashMap<>();
+					for (File resourceFile : resourceFiles) {
+						if (logger.isInfoEnabled()) {
+							logger.info("Processing file: " + resourceFile.getAbsolutePath());
+						}
+						saves.put(new ResourceReference(resourceFile, null), () -> saveResource(mgr, context, resourceFile));
+					}
+					saveResourcesConcurrently(mgr, context, saves, threadCount);
+				} else {
+					for (File resourceFile : resourceFiles) {
+						if (logger.isInfoEnabled()) {
+							logger.info("Processing file: " + resourceFile.getAbsolutePath());
+						}
+						SaveReceipt receipt = saveResource(mgr, context, resourceFile);
+						afterResourceSaved(mgr, context, new ResourceReference(resourceFile, null), receipt);
 					}
-					SaveReceipt receipt = saveResource(mgr, context, resourceFile);
-					afterResourceSaved(mgr, context, new ResourceReference(resourceFile, null), receipt);
 				}
 			}
 		} else {
@@ -123,6 +187,238 @@ public abstract class AbstractResourceCommand extends AbstractUndoableCommand {
 		}
 	}
 
+	/**
+	 * Saves merged resources concurrently when a save thread count greater than 1 has been configured for this
+	 * command; otherwise, defers to the parent method.
+	 */
+	@Override
+	protected List<SaveReceipt> saveMergedResources(CommandContext context, ResourceManager resourceManager,
+	                                                List<ResourceReference> mergedReferences) {
+		final int threadCount = getResourceSaveThreadCount(context);
+		if (threadCount < 2) {
+			return super.saveMergedResources(context, resourceManager, mergedReferences);
+		}
+		Map<ResourceReference, Supplier<SaveReceipt>> saves = new LinkedHashMap<>();
+		for (ResourceReference reference : mergedReferences) {
+			saves.put(reference, () -> saveResource(resourceManager, context, reference.getObjectNode().toString()));
+		}
+		return saveResourcesConcurrently(resourceManager, context, saves, threadCount);
+	}
+
+	/**
+	 * The number of resources this command may save at the same time is defined by the AppConfig map of resource save
+	 * thread counts, keyed on the simple name of this command's class. Saving concurrently is not supported when
+	 * resource IDs are stored as custom tokens, as a resource may then depend on the ID of another resource, or when
+	 * supportsConcurrentSaves returns false.
+	 * <p>
+	 * The thread count is capped to the number of requests the ManageClient can have in flight at once, as any
+	 * additional thread would only wait on a connection.
+	 * </p>
+	 *
+	 * @param context
+	 * @return
+	 */
+	protected int getResourceSaveThreadCount(CommandContext context) {
+		Map<String, Integer> threadCounts = context.getAppConfig().getResourceSaveThreadCounts();
+		if (threadCounts == null) {
+			return 1;
+		}
+		Integer threadCount = threadCounts.get(getClass().getSimpleName());
+		if (threadCount == null || threadCount < 2) {
+			return 1;
+		}
+		if (isStoreResourceIdsAsCustomTokens()) {
+			logger.warn(format("Command [%s] stores resource IDs as custom tokens, so it will not save resources concurrently", getClass().getSimpleName()));
+			return 1;
+		}
+		if (!supportsConcurrentSaves()) {
+			logger.warn(format("Command [%s] does not support saving resources concurrently", getClass().getSimpleName()));
+			return 1;
+		}
+		final int limit = context.getManageClient() != null ? context.getManageClient().getMaxConcurrentRequests() : threadCount;
+		if (threadCount > limit) {
+			logger.info(format("Command [%s] has a resource save thread count of %d, but the ManageClient allows %d concurrent " +
+				"requests, so %d will be used", getClass().getSimpleName(), threadCount, limit, limit));
+			return limit;
+		}
+		return threadCount;
+	}
+
+	/**
+	 * A subclass should override this to return false if its resources must be saved one at a time. This isn't needed
+	 * just because afterResourceSaved is overridden, as saveResourcesConcurrently only invokes that on the calling
+	 * thread.
+	 *
+	 * @return
+	 */
+	protected boolean supportsConcurrentSaves() {
+		return true;
+	}
+
+	/**
+	 * Performs each save on a pool of the given number of threads. As each save finishes, afterResourceSaved is
+	 * invoked on the calling thread before another save is submitted, so that a subclass's handling of a saved
+	 * resource - such as waiting for a restart - is never done concurrently, and at most the saves that were already
+	 * running are in flight while it happens. Any failures are thrown, once every save has been attempted, in a single
+	 * exception that identifies each resource that could not be saved.
+	 *
+	 * @param mgr
+	 * @param context
+	 * @param saves       maps each resource to the function that saves it
+	 * @param threadCount
+	 * @return the receipt of each saved resource, in the order in which the resources were given
+	 */
+	protected List<SaveReceipt> saveResourcesConcurrently(ResourceManager mgr, CommandContext context,
+	                                                      Map<ResourceReference, Supplier<SaveReceipt>> saves, int threadCount) {
+		if (saves.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		final int poolSize = Math.min(threadCount, saves.size());
+		if (logger.isInfoEnabled()) {
+			logger.info(format("Saving %d resources using %d threads", saves.size(), poolSize));
+		}
+		Map<ResourceReference, SaveReceipt> savedResources = new HashMap<>();
+		List<String> errorMessages = new ArrayList<>();
+		RuntimeException firstError = null;
+
+		Map<Future<SaveReceipt>, ResourceReference> running = new HashMap<>();
+		Iterator<Map.Entry<ResourceReference, Supplier<SaveReceipt>>> pending = saves.entrySet().iterator();
+		try (ConcurrentTaskRunner<SaveReceipt> runner = new ConcurrentTaskRunner<>(poolSize)) {
+			while (running.size() < poolSize && pending.hasNext()) {
+				submitSave(runner, running, pending.next());
+			}
+			while (!running.isEmpty()) {
+				Future<SaveReceipt> future = runner.takeCompleted();
+				ResourceReference reference = running.remove(future);
+				SaveReceipt receipt = null;
+				try {
+					receipt = runner.get(future);
+				} catch (RuntimeException ex) {
+					if (Thread.currentThread().isInterrupted()) {
+						throw ex;
+					}
+					errorMessages.add(format("%s: %s", reference.getFiles(), ex.getMessage()));
+					if (firstError == null) {
+						firstError = ex;
+					} else {
+						firstError.addSuppressed(ex);
+					}
+				}
+				if (receipt != null) {
+					savedResources.put(reference, receipt);
+					afterResourceSaved(mgr, context, reference, receipt);
+				}
+				if (pending.hasNext()) {
+					submitSave(runner, running, pending.next());
+				}
+			}
+		}
+
+		if (firstError != null) {
+			throw new RuntimeException(format("Unable to save %d of %d resources; errors: %s",
+				errorMessages.size(), saves.size(), errorMessages), firstError);
+		}
+
+		List<SaveReceipt> receipts = new ArrayList<>();
+		for (ResourceReference reference : saves.keySet()) {
+			if (savedResources.containsKey(reference)) {
+				receipts.add(savedResources.get(reference));
+			}
+		}
+		return receipts;
+	}
+
+	private void submitSave(ConcurrentTaskRunner<SaveReceipt> runner, Map<Future<SaveReceipt>, ResourceReference> running,
+	                        Map.Entry<ResourceReference, Supplier<SaveReceipt>> save) {
+		running.put(runner.submit(save.getValue()::get), save.getKey());
+	}
+
+	/**
+	 * If the given ResourceManager is an AbstractResourceManager, it will use the ResourceListCache for this command in
+	 * the given context, if one exists, so that the list of resources is only fetched once instead of once per resource
+	 * file.
+	 *
+	 * @param context
+	 * @param mgr
+	 * @return
+	 */
+	protected ResourceManager useResourceListCache(CommandContext context, ResourceManager mgr) {
+		ResourceListCache cache = context.getResourceListCache(this);
+		if (cache != null && mgr instanceof AbstractResourceManager) {
+			((AbstractResourceManager) mgr).setResourceListCache(cache);
+		}
+		return mgr;
+	}
+
+	/**
+	 * If the AppConfig in the given context specifies that unchanged resources should be skipped, a new
+	 * RemoteStateSnapshot is set for this command on the context; otherwise, any existing one is removed.
+	 *
+	 * @param context
+	 */
+	protected void initializeRemoteStateSnapshot(CommandContext context) {
+		AppConfig appConfig = context.getAppConfig();
+		context.setRemoteStateSnapshot(this, appConfig.isSkipUnchangedResources() ?
+			new RemoteStateSnapshot(appConfig.getRemoteStateThreadCount()) : null);
+	}
+
+	/**
+	 * If the given ResourceManager is an AbstractResourceManager, it will use the RemoteStateSnapshot for this command
+	 * in the given context, if one exists, to determine whether an existing resource needs to be updated.
+	 *
+	 * @param context
+	 * @param mgr
+	 * @return
+	 */
+	protected ResourceManager useRemoteStateSnapshot(CommandContext context, ResourceManager mgr) {
+		if (mgr instanceof AbstractResourceManager) {
+			((AbstractResourceManager) mgr).setRemoteStateSnapshot(context.getRemoteStateSnapshot(this));
+		}
+		return mgr;
+	}
+
+	/**
+	 * Fetches the properties of the existing resources referenced by the given payloads before any of them are saved.
+	 * The payloads only need to identify the resources; a failure to read them is logged, and each resource's
+	 * properties are then fetched when it's saved instead.
+	 *
+	 * @param mgr
+	 * @param context
+	 * @param payloads
+	 */
+	protected void prefetchRemoteState(ResourceManager mgr, CommandContext context, List<String> payloads) {
+		final RemoteStateSnapshot snapshot = context.getRemoteStateSnapshot(this);
+		if (snapshot == null || payloads.isEmpty()) {
+			return;
+		}
+		Map<String, Supplier<String>> fetchers = new LinkedHashMap<>();
+		try {
+			for (String payload : payloads) {
+				if (payload == null || payload.trim().length() == 0) {
+					continue;
+				}
+				ResourceManager adjustedManager = adjustResourceManagerForPayload(mgr, context, payload);
+				if (adjustedManager instanceof AbstractResourceManager && ((AbstractResourceManager) adjustedManager).isUpdateAllowed()) {
+					fetchers.putAll(((AbstractResourceManager) adjustedManager).getRemoteStateFetchers(Arrays.asList(payload)));
+				}
+			}
+		} catch (RuntimeException ex) {
+			logger.warn("Unable to determine which resources exist before saving them; cause: " + ex.getMessage());
+		}
+		snapshot.prefetch(fetchers);
+	}
+
+	protected void logRemoteStateSnapshotSummary(CommandContext context) {
+		RemoteStateSnapshot snapshot = context.getRemoteStateSnapshot(this);
+		if (snapshot != null && logger.isInfoEnabled()) {
+			int total = snapshot.getSkippedCount() + snapshot.getUpdatedCount() + snapshot.getCreatedCount();
+			if (total > 0) {
+				logger.info(format("%s: %s", getClass().getSimpleName(), snapshot.getSummary()));
+			}
+		}
+	}
+
 	/**
 	 * If this command is an instance of SupportsCmaCommand, it first needs to specify whether CMA should be used - it
 	 * is expected that a property is available in AppConfig to configure whether CMA should actually be used. If CMA
@@ -196,9 +492,14 @@ public abstract class AbstractResourceCommand extends AbstractUndoableCommand {
 	@Override
 	public void undo(CommandContext context) {
 		if (deleteResourcesOnUndo) {
+			context.setResourceListCache(this, new ResourceListCache());
 			setIncrementalMode(false);
-			for (File resourceDir : getResourceDirs(context)) {
-				processUndoOnResourceDir(context, resourceDir);
+			try {
+				for (File resourceDir : getResourceDirs(context)) {
+					processUndoOnResourceDir(context, resourceDir);
+				}
+			} finally {
+				context.setResourceListCache(this, null);
 			}
 		}
 	}
@@ -208,7 +509,7 @@ public abstract class AbstractResourceCommand extends AbstractUndoableCommand {
 			if (logger.isInfoEnabled()) {
 				logger.info("Processing files in directory: " + resourceDir.getAbsolutePath());
 			}
-			final ResourceManager mgr = getResourceManager(context);
+			final ResourceManager mgr = useResourceListCache(context, getResourceManager(context));
 			for (File f : listFilesInDirectory(resourceDir)) {
 				if (logger.isInfoEnabled()) {
 					logger.info("Processing file: " + f.getAbsolutePath());
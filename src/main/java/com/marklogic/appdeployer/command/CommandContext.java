@@ -5,8 +5,12 @@ import com.marklogic.mgmt.ManageClient;
 import com.marklogic.mgmt.admin.AdminManager;
 import com.marklogic.mgmt.api.configuration.Configuration;
 import com.marklogic.mgmt.api.configuration.Configurations;
+import com.marklogic.mgmt.resource.RemoteStateSnapshot;
+import com.marklogic.mgmt.resource.ResourceListCache;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 /**
@@ -17,7 +21,16 @@ import java.util.Map;
  * <li>A ManageClient for connecting to the Manage API</li>
  * <li>An AdminManager for performing operations against the Admin app server</li>
  * <li>A context map that commands are free to store anything they wish within</li>
+ * <li>A ResourceListCache for each command being executed, which avoids fetching the list of resources for every
+ * resource being saved</li>
+ * <li>An optional RemoteStateSnapshot for each command being executed, set by a resource command when unchanged
+ * resources should not be updated</li>
+ * <li>An optional ResourceFileManager that is shared by every command during an incremental deployment</li>
  * </ul>
+ * <p>
+ * The ResourceListCache and RemoteStateSnapshot are kept per command instance, as commands may be executed at the same
+ * time by a ParallelAppDeployer, and each is only valid for the command execution that created it.
+ * </p>
  */
 public class CommandContext {
 
@@ -26,6 +39,9 @@ public class CommandContext {
 	private AdminManager adminManager;
 
 	private Map<String, Object> contextMap;
+	private Map<Command, ResourceListCache> resourceListCaches = Collections.synchronizedMap(new IdentityHashMap<>());
+	private Map<Command, RemoteStateSnapshot> remoteStateSnapshots = Collections.synchronizedMap(new IdentityHashMap<>());
+	private ResourceFileManager resourceFileManager;
 
 	private final static String COMBINED_CMA_REQUEST_KEY = "cma-combined-request";
 
@@ -37,7 +53,7 @@ public class CommandContext {
 		this.contextMap = new HashMap<>();
 	}
 
-	public void addCmaConfigurationToCombinedRequest(Configuration configuration) {
+	public synchronized void addCmaConfigurationToCombinedRequest(Configuration configuration) {
 		Configurations configs = getCombinedCmaRequest();
 		if (configs == null) {
 			contextMap.put(COMBINED_CMA_REQUEST_KEY, new Configurations(configuration));
@@ -46,11 +62,11 @@ public class CommandContext {
 		}
 	}
 
-	public Configurations getCombinedCmaRequest() {
+	public synchronized Configurations getCombinedCmaRequest() {
 		return (Configurations) contextMap.get(COMBINED_CMA_REQUEST_KEY);
 	}
 
-	public void removeCombinedCmaRequest() {
+	public synchronized void removeCombinedCmaRequest() {
 		contextMap.remove(COMBINED_CMA_REQUEST_KEY);
 	}
 
@@ -73,4 +89,52 @@ public class CommandContext {
 	public void setContextMap(Map<String, Object> contextMap) {
 		this.contextMap = contextMap;
 	}
+
+	/**
+	 * @param command
+	 * @return the ResourceListCache set for the given command, or null if one has not been set
+	 */
+	public ResourceListCache getResourceListCache(Command command) {
+		return resourceListCaches.get(command);
+	}
+
+	/**
+	 * @param command
+	 * @param resourceListCache if null, any ResourceListCache set for the given command is removed
+	 */
+	public void setResourceListCache(Command command, ResourceListCache resourceListCache) {
+		if (resourceListCache != null) {
+			resourceListCaches.put(command, resourceListCache);
+		} else {
+			resourceListCaches.remove(command);
+		}
+	}
+
+	/**
+	 * @param command
+	 * @return the RemoteStateSnapshot set for the given command, or null if one has not been set
+	 */
+	public RemoteStateSnapshot getRemoteStateSnapshot(Command command) {
+		return remoteStateSnapshots.get(command);
+	}
+
+	/**
+	 * @param command
+	 * @param remoteStateSnapshot if null, any RemoteStateSnapshot set for the given command is removed
+	 */
+	public void setRemoteStateSnapshot(Command command, RemoteStateSnapshot remoteStateSnapshot) {
+		if (remoteStateSnapshot != null) {
+			remoteStateSnapshots.put(command, remoteStateSnapshot);
+		} else {
+			remoteStateSnapshots.remove(command);
+		}
+	}
+
+	public ResourceFileManager getResourceFileManager() {
+		return resourceFileManager;
+	}
+
+	public void setResourceFileManager(ResourceFileManager resourceFileManager) {
+		this.resourceFileManager = resourceFileManager;
+	}
 }
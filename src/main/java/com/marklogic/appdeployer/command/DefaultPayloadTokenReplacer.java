@@ -2,43 +2,71 @@ package com.marklogic.appdeployer.command;
 
 import com.marklogic.appdeployer.AppConfig;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Replaces the default tokens and then the custom tokens in an AppConfig. Each set of tokens is replaced in a single
+ * scan of the payload via a TokenReplacementEngine. Building an engine is relatively expensive, so engines are cached
+ * by the tokens and values they were built from; custom tokens can be added during a deployment, in which case a new
+ * engine is built.
+ */
 public class DefaultPayloadTokenReplacer implements PayloadTokenReplacer {
 
+	private final static int MAX_CACHED_ENGINES = 8;
+
+	private final Map<List<String>, TokenReplacementEngine> engines = Collections.synchronizedMap(
+		new LinkedHashMap<List<String>, TokenReplacementEngine>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<String>, TokenReplacementEngine> eldest) {
+				return size() > MAX_CACHED_ENGINES;
+			}
+		});
+
     public String replaceTokens(String payload, AppConfig appConfig, boolean isTestResource) {
         payload = replaceDefaultTokens(payload, appConfig, isTestResource);
         return replaceCustomTokens(payload, appConfig, isTestResource);
     }
 
     protected String replaceDefaultTokens(String payload, AppConfig appConfig, boolean isTestResource) {
-        payload = payload.replace("%%NAME%%",
-                isTestResource ? appConfig.getTestRestServerName() : appConfig.getRestServerName());
-        payload = payload.replace("%%GROUP%%", appConfig.getGroupName());
-        payload = payload.replace("%%DATABASE%%",
+    	Map<String, String> tokens = new LinkedHashMap<>();
+        tokens.put("%%NAME%%", isTestResource ? appConfig.getTestRestServerName() : appConfig.getRestServerName());
+        tokens.put("%%GROUP%%", appConfig.getGroupName());
+        tokens.put("%%DATABASE%%",
                 isTestResource ? appConfig.getTestContentDatabaseName() : appConfig.getContentDatabaseName());
-        payload = payload.replace("%%MODULES_DATABASE%%", appConfig.getModulesDatabaseName());
-        payload = payload.replace("%%TRIGGERS_DATABASE%%", appConfig.getTriggersDatabaseName());
-        payload = payload.replace("%%SCHEMAS_DATABASE%%", appConfig.getSchemasDatabaseName());
-        payload = payload.replace("%%PORT%%", isTestResource ? appConfig.getTestRestPort().toString() : appConfig
+        tokens.put("%%MODULES_DATABASE%%", appConfig.getModulesDatabaseName());
+        tokens.put("%%TRIGGERS_DATABASE%%", appConfig.getTriggersDatabaseName());
+        tokens.put("%%SCHEMAS_DATABASE%%", appConfig.getSchemasDatabaseName());
+        tokens.put("%%PORT%%", isTestResource ? appConfig.getTestRestPort().toString() : appConfig
                 .getRestPort().toString());
-        return payload;
+        return getTokenReplacementEngine(tokens).replaceTokens(payload);
     }
 
     protected String replaceCustomTokens(String payload, AppConfig appConfig, boolean isTestResource) {
     	if (payload != null) {
 		    Map<String, String> customTokens = appConfig.getCustomTokens();
-		    if (customTokens != null) {
-			    for (String key : customTokens.keySet()) {
-			    	if (key != null) {
-			    		String value = customTokens.get(key);
-			    		if (value != null) {
-						    payload = payload.replace(key, value);
-					    }
-				    }
-			    }
+		    if (customTokens != null && !customTokens.isEmpty()) {
+			    payload = getTokenReplacementEngine(customTokens).replaceTokens(payload);
 		    }
 	    }
         return payload;
     }
+
+	/**
+	 * @param tokens
+	 * @return a cached engine for the given tokens and values, or a new one if none has been built for them yet
+	 */
+	protected TokenReplacementEngine getTokenReplacementEngine(Map<String, String> tokens) {
+		List<String> key = new ArrayList<>(tokens.size() * 2);
+		for (Map.Entry<String, String> entry : tokens.entrySet()) {
+			if (entry.getKey() != null && entry.getValue() != null) {
+				key.add(entry.getKey());
+				key.add(entry.getValue());
+			}
+		}
+		return engines.computeIfAbsent(key, k -> new TokenReplacementEngine(tokens));
+	}
 }
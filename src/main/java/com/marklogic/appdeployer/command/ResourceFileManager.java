@@ -17,4 +17,22 @@ public interface ResourceFileManager {
 	 * @return
 	 */
 	boolean shouldResourceFileBeProcessed(File file);
+
+	/**
+	 * Allows the implementor to make the decision based on the payload that will actually be deployed for the file,
+	 * which is the contents of the file after tokens have been replaced. Defaults to ignoring the payload.
+	 *
+	 * @param file
+	 * @param payload
+	 * @return
+	 */
+	default boolean shouldResourceFileBeProcessed(File file, String payload) {
+		return shouldResourceFileBeProcessed(file);
+	}
+
+	/**
+	 * Give the implementor a chance to persist anything it has recorded about the files that were processed.
+	 */
+	default void flush() {
+	}
 }
@@ -1,54 +1,191 @@
 package com.marklogic.appdeployer.command;
 
-import com.marklogic.client.ext.modulesloader.impl.PropertiesModuleManager;
+import com.marklogic.client.ext.helper.LoggingObject;
+import org.springframework.util.FileCopyUtils;
 
 import java.io.File;
-import java.util.Date;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Extends the module-specific PropertiesModuleManager, as that class's behavior is exactly what's needed here as well.
- * Just uses a different default file path for the properties file that keeps track of timestamps.
+ * Keeps a manifest of the SHA-256 hash of each resource file that has been processed, and considers a file to be new
+ * or modified when its hash differs from the one in the manifest. When the payload that will be deployed for a file is
+ * available, that's what is hashed - and since tokens have been replaced in that payload, a change to a token's value
+ * results in the file being processed again, even though the file itself hasn't changed. Because file timestamps are
+ * not used, touching a file without changing it - such as via a git checkout - does not result in it being processed.
+ * <p>
+ * The manifest is stored in a properties file. It is read the first time that it's needed after initialize is called,
+ * and changes are only written to the properties file when flush is called; they're merged with the file's current
+ * contents at that point, so that multiple instances can safely share the same file. An instance is safe to use from
+ * multiple threads.
+ * </p>
+ * <p>
+ * Note that a file being processed doesn't indicate that the resource was successfully deployed. If an error occurs
+ * while deploying the resource, it is expected that a developer would then make a change to the resource file. If
+ * that doesn't occur - e.g. if the failure occurred due to an authentication issue, and thus the resource file doesn't
+ * have to be changed - the developer would need to turn off incremental support or delete the properties file.
+ * </p>
  */
-public class ResourceFileManagerImpl extends PropertiesModuleManager implements ResourceFileManager {
+public class ResourceFileManagerImpl extends LoggingObject implements ResourceFileManager {
 
 	public static final String DEFAULT_FILE_PATH = "build/com.marklogic.ml-app-deployer/resource-timestamps.properties";
 
+	private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final String propertiesFilePath;
+	private final Map<String, String> hashes = new ConcurrentHashMap<>();
+	private final Map<String, String> unflushedHashes = new ConcurrentHashMap<>();
+	private volatile boolean loaded = false;
+
 	public ResourceFileManagerImpl() {
 		this(DEFAULT_FILE_PATH);
 	}
 
 	public ResourceFileManagerImpl(String propertiesFilePath) {
-		super(propertiesFilePath);
+		this.propertiesFilePath = propertiesFilePath;
+	}
+
+	/**
+	 * Results in the manifest being read from the properties file the next time that it's needed.
+	 */
+	@Override
+	public void initialize() {
+		loaded = false;
 	}
 
 	/**
-	 * One difference between this and the parent class is that if the resource file should be processed, its timestamp
-	 * in the properties file is immediately updated, as opposed to that being done via a separate method.
-	 * <p>
-	 * Note that this doesn't indicate that the resource file was successfully deployed. If an error occurs while
-	 * deploying the resource, it is expected that a developer would then make a change to the resource file. If that
-	 * doesn't occur - e.g. if the failure occurred due to an authentication issue, and thus the resource file doesn't
-	 * have to be changed - the developer would need to turn off incremental support or delete the properties file that
-	 * contains the timestamps.
+	 * Hashes the contents of the file, without any tokens replaced.
 	 *
 	 * @param file
 	 * @return
 	 */
 	@Override
 	public boolean shouldResourceFileBeProcessed(File file) {
-		// Need to initialize this on every check because the properties file may have been updated by
-		// some other command
-		this.initialize();
-		boolean shouldBeProcessed = hasFileBeenModifiedSinceLastLoaded(file);
-		if (shouldBeProcessed) {
+		try {
+			return checkHash(file, hash(FileCopyUtils.copyToByteArray(file)));
+		} catch (IOException ex) {
+			throw new RuntimeException("Unable to read file: " + file.getAbsolutePath() + "; cause: " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * If the file should be processed, its hash is immediately recorded in the manifest, as opposed to that being done
+	 * via a separate method.
+	 *
+	 * @param file
+	 * @param payload
+	 * @return
+	 */
+	@Override
+	public boolean shouldResourceFileBeProcessed(File file, String payload) {
+		if (payload == null) {
+			return shouldResourceFileBeProcessed(file);
+		}
+		return checkHash(file, hash(payload.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	protected boolean checkHash(File file, String hash) {
+		ensureLoaded();
+		final String key = file.getAbsolutePath();
+		String previousHash = hashes.put(key, hash);
+		if (hash.equals(previousHash)) {
+			if (logger.isInfoEnabled()) {
+				logger.info("File is neither new nor modified: " + key);
+			}
+			return false;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("File is new or has been modified: " + key);
+		}
+		unflushedHashes.put(key, hash);
+		return true;
+	}
+
+	/**
+	 * Writes every hash recorded since the last flush to the properties file, after first reading the file again so
+	 * that hashes written by another instance are retained.
+	 */
+	@Override
+	public synchronized void flush() {
+		if (unflushedHashes.isEmpty()) {
+			return;
+		}
+		File file = new File(propertiesFilePath);
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		Properties props = loadProperties(file);
+		props.putAll(unflushedHashes);
+		try (OutputStream out = new FileOutputStream(file)) {
+			props.store(out, null);
+			unflushedHashes.clear();
+		} catch (IOException ex) {
+			logger.warn("Unable to write resource file hashes to: " + file.getAbsolutePath() + "; cause: " + ex.getMessage());
+		}
+	}
+
+	public synchronized void deletePropertiesFile() {
+		File file = new File(propertiesFilePath);
+		if (file.exists()) {
+			file.delete();
+		}
+		hashes.clear();
+		unflushedHashes.clear();
+		loaded = true;
+	}
+
+	private void ensureLoaded() {
+		if (!loaded) {
+			synchronized (this) {
+				if (!loaded) {
+					hashes.clear();
+					loadProperties(new File(propertiesFilePath)).forEach((key, value) -> hashes.put((String) key, (String) value));
+					hashes.putAll(unflushedHashes);
+					loaded = true;
+				}
+			}
+		}
+	}
+
+	private Properties loadProperties(File file) {
+		Properties props = new Properties();
+		if (file.exists()) {
 			if (logger.isDebugEnabled()) {
-				logger.debug("File is new or has been modified: " + file.getAbsolutePath());
+				logger.debug("Loading resource file hashes from: " + file.getAbsolutePath());
+			}
+			try (InputStream in = new FileInputStream(file)) {
+				props.load(in);
+			} catch (IOException ex) {
+				logger.warn("Unable to load resource file hashes from: " + file.getAbsolutePath() + "; cause: " + ex.getMessage());
 			}
-			super.saveLastLoadedTimestamp(file, new Date());
-		} else if (logger.isInfoEnabled()) {
-			logger.info("File is neither new nor modified: " + file.getAbsolutePath());
 		}
-		return shouldBeProcessed;
+		return props;
 	}
 
+	private static String hash(byte[] bytes) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+			char[] chars = new char[digest.length * 2];
+			for (int i = 0; i < digest.length; i++) {
+				chars[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+				chars[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+			}
+			return new String(chars);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is not available", ex);
+		}
+	}
+
+	public String getPropertiesFilePath() {
+		return propertiesFilePath;
+	}
 }
@@ -5,6 +5,7 @@ import com.marklogic.client.ext.helper.LoggingObject;
 import java.io.File;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 /**
@@ -22,6 +23,9 @@ public class ResourceFilenameFilter extends LoggingObject implements Incremental
 
 	private boolean incrementalMode = false;
 
+	// Reads the payload that will be deployed for a file, so that the incremental check can be based on it
+	private Function<File, String> payloadReader;
+
 	private Set<String> supportedFilenameExtensions = new HashSet<>();
 
 	public ResourceFilenameFilter() {
@@ -116,7 +120,11 @@ public class ResourceFilenameFilter extends LoggingObject implements Incremental
 	 * @return
 	 */
 	protected boolean acceptFileBasedOnIncrementalCheck(File dir, String filename) {
-		return resourceFileManager.shouldResourceFileBeProcessed(new File(dir, filename));
+		File file = new File(dir, filename);
+		if (payloadReader != null) {
+			return resourceFileManager.shouldResourceFileBeProcessed(file, payloadReader.apply(file));
+		}
+		return resourceFileManager.shouldResourceFileBeProcessed(file);
 	}
 
 	public void setFilenamesToIgnore(Set<String> ignoreFilenames) {
@@ -163,4 +171,12 @@ public class ResourceFilenameFilter extends LoggingObject implements Incremental
 	public ResourceFileManager getResourceFileManager() {
 		return resourceFileManager;
 	}
+
+	public Function<File, String> getPayloadReader() {
+		return payloadReader;
+	}
+
+	public void setPayloadReader(Function<File, String> payloadReader) {
+		this.payloadReader = payloadReader;
+	}
 }
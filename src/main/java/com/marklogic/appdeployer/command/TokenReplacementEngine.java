@@ -0,0 +1,267 @@
+package com.marklogic.appdeployer.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces a set of tokens in a single scan of the text, via an Aho-Corasick automaton that is built once for the
+ * given tokens. An instance is immutable and thus safe to share across threads.
+ * <p>
+ * The result is the same as calling String.replace for each token in the order in which the tokens were given. That
+ * means a token's value is subject to replacement by any token that comes after it, but not by any token that comes
+ * before it - this is handled by expanding each value up front with the tokens that come after it.
+ * </p>
+ * <p>
+ * There are a few cases where sequential replacement can't be reproduced in one scan - two different tokens overlap in
+ * the text, or a later token could be formed from part of an earlier token's value plus the text around it. When
+ * either case applies to a piece of text, the tokens are instead replaced one at a time for that text.
+ * </p>
+ */
+public class TokenReplacementEngine {
+
+	private final String[] tokens;
+	private final String[] values;
+	private final String[] expandedValues;
+
+	/**
+	 * True for each token whose value could combine with surrounding text to form a later token.
+	 */
+	private final boolean[] joinsWithText;
+
+	/**
+	 * An empty token can't be matched by the automaton; String.replace inserts its value between every character.
+	 */
+	private final boolean sequentialOnly;
+
+	private final Node root = new Node(0);
+
+	/**
+	 * @param tokensAndValues the iteration order of the map determines the order in which tokens are replaced; any
+	 *                        entry with a null key or value is ignored
+	 */
+	public TokenReplacementEngine(Map<String, String> tokensAndValues) {
+		List<String> tokenList = new ArrayList<>();
+		List<String> valueList = new ArrayList<>();
+		for (Map.Entry<String, String> entry : tokensAndValues.entrySet()) {
+			if (entry.getKey() != null && entry.getValue() != null) {
+				tokenList.add(entry.getKey());
+				valueList.add(entry.getValue());
+			}
+		}
+		this.tokens = tokenList.toArray(new String[0]);
+		this.values = valueList.toArray(new String[0]);
+		this.expandedValues = new String[tokens.length];
+		this.joinsWithText = new boolean[tokens.length];
+
+		boolean hasEmptyToken = false;
+		for (String token : tokens) {
+			if (token.isEmpty()) {
+				hasEmptyToken = true;
+			}
+		}
+		this.sequentialOnly = hasEmptyToken;
+
+		if (!sequentialOnly) {
+			expandValues();
+			buildAutomaton();
+		}
+	}
+
+	/**
+	 * @param text
+	 * @return the text with every token replaced; the same instance is returned if no token is found
+	 */
+	public String replaceTokens(String text) {
+		if (text == null || tokens.length == 0) {
+			return text;
+		}
+		if (sequentialOnly) {
+			return replaceSequentially(text);
+		}
+
+		long[] matches = findMatches(text);
+		if (matches.length == 0) {
+			return text;
+		}
+		Arrays.sort(matches);
+
+		StringBuilder sb = null;
+		int lastEnd = 0;
+		int lastToken = -1;
+		for (long match : matches) {
+			final int start = (int) (match >>> 32);
+			final int token = (int) match;
+			if (start < lastEnd) {
+				if (token == lastToken) {
+					// Same as String.replace, which doesn't replace overlapping occurrences of the same token
+					continue;
+				}
+				return replaceSequentially(text);
+			}
+			if (joinsWithText[token]) {
+				return replaceSequentially(text);
+			}
+			if (sb == null) {
+				sb = new StringBuilder(text.length() + 16 * matches.length);
+			}
+			sb.append(text, lastEnd, start).append(expandedValues[token]);
+			lastEnd = start + tokens[token].length();
+			lastToken = token;
+		}
+		return sb.append(text, lastEnd, text.length()).toString();
+	}
+
+	/**
+	 * @return the number of tokens that will be replaced
+	 */
+	public int getTokenCount() {
+		return tokens.length;
+	}
+
+	protected String replaceSequentially(String text) {
+		for (int i = 0; i < tokens.length; i++) {
+			text = text.replace(tokens[i], values[i]);
+		}
+		return text;
+	}
+
+	/**
+	 * Applies each later token to each value, in order, while checking whether a later token could straddle the value
+	 * and the text next to it.
+	 */
+	private void expandValues() {
+		for (int i = 0; i < tokens.length; i++) {
+			String value = values[i];
+			for (int j = i + 1; j < tokens.length; j++) {
+				if (!joinsWithText[i] && canStraddle(tokens[j], value)) {
+					joinsWithText[i] = true;
+				}
+				value = value.replace(tokens[j], values[j]);
+			}
+			expandedValues[i] = value;
+		}
+	}
+
+	/**
+	 * @return true if an occurrence of the token could consist of part or all of the value along with at least one
+	 * character of the text before or after it
+	 */
+	private static boolean canStraddle(String token, String value) {
+		final int tokenLength = token.length();
+		final int valueLength = value.length();
+		if (tokenLength > valueLength && token.contains(value)) {
+			return true;
+		}
+		final int max = Math.min(tokenLength - 1, valueLength);
+		for (int k = 1; k <= max; k++) {
+			if (token.regionMatches(0, value, valueLength - k, k) || token.regionMatches(tokenLength - k, value, 0, k)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void buildAutomaton() {
+		for (int i = 0; i < tokens.length; i++) {
+			Node node = root;
+			for (char c : tokens[i].toCharArray()) {
+				Node child = node.getChild(c);
+				if (child == null) {
+					child = node.addChild(c);
+				}
+				node = child;
+			}
+			if (node.token < 0) {
+				node.token = i;
+			}
+		}
+
+		// Breadth-first traversal to set the failure and output links
+		List<Node> queue = new ArrayList<>();
+		for (Node child : root.children) {
+			child.failure = root;
+			queue.add(child);
+		}
+		for (int index = 0; index < queue.size(); index++) {
+			Node node = queue.get(index);
+			for (int k = 0; k < node.chars.length; k++) {
+				char c = node.chars[k];
+				Node child = node.children[k];
+				Node failure = node.failure;
+				while (failure != root && failure.getChild(c) == null) {
+					failure = failure.failure;
+				}
+				Node target = failure.getChild(c);
+				child.failure = target != null ? target : root;
+				child.output = child.failure.token >= 0 ? child.failure : child.failure.output;
+				queue.add(child);
+			}
+		}
+	}
+
+	/**
+	 * @return each match encoded as the start position in the upper 32 bits and the token index in the lower 32 bits,
+	 * so that sorting orders matches by start position and then by token
+	 */
+	private long[] findMatches(String text) {
+		long[] matches = new long[8];
+		int count = 0;
+		Node node = root;
+		final int length = text.length();
+		for (int pos = 0; pos < length; pos++) {
+			final char c = text.charAt(pos);
+			Node next = node.getChild(c);
+			while (next == null && node != root) {
+				node = node.failure;
+				next = node.getChild(c);
+			}
+			node = next != null ? next : root;
+
+			for (Node match = node.token >= 0 ? node : node.output; match != null; match = match.output) {
+				if (count == matches.length) {
+					matches = Arrays.copyOf(matches, count * 2);
+				}
+				int start = pos - match.depth + 1;
+				matches[count++] = ((long) start << 32) | match.token;
+			}
+		}
+		return Arrays.copyOf(matches, count);
+	}
+
+	private static class Node {
+
+		private final int depth;
+		private char[] chars = new char[0];
+		private Node[] children = new Node[0];
+		private Node failure;
+		private Node output;
+		private int token = -1;
+
+		Node(int depth) {
+			this.depth = depth;
+		}
+
+		Node getChild(char c) {
+			int index = Arrays.binarySearch(chars, c);
+			return index >= 0 ? children[index] : null;
+		}
+
+		Node addChild(char c) {
+			int index = -(Arrays.binarySearch(chars, c) + 1);
+			Node child = new Node(depth + 1);
+			char[] newChars = new char[chars.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(chars, 0, newChars, 0, index);
+			System.arraycopy(children, 0, newChildren, 0, index);
+			newChars[index] = c;
+			newChildren[index] = child;
+			System.arraycopy(chars, index, newChars, index + 1, chars.length - index);
+			System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+			chars = newChars;
+			children = newChildren;
+			return child;
+		}
+	}
+}
@@ -82,6 +82,12 @@ public class DeployDatabaseCommand extends AbstractCommand implements UndoableCo
 	private boolean postponeForestCreation = false;
     private DeployForestsCommand deployForestsCommand;
 
+	/**
+	 * Passed on to the DeployForestsCommand for this database and to the commands for its sub-databases, so that a
+	 * client deploying many databases at once can share its connection limit among them.
+	 */
+	private int forestPropertiesThreadCount = 0;
+
     // This is expected to be set via DeployOtherDatabasesCommand
     private String payload;
 
@@ -152,7 +158,9 @@ public class DeployDatabaseCommand extends AbstractCommand implements UndoableCo
 	 */
 	public void deploySubDatabases(String dbName, CommandContext context) {
 	    if (!isSubDatabase()) {
-		    new DeploySubDatabasesCommand(dbName, deployDatabaseCommandFactory).execute(context);
+		    DeploySubDatabasesCommand command = new DeploySubDatabasesCommand(dbName, deployDatabaseCommandFactory);
+		    command.setForestPropertiesThreadCount(forestPropertiesThreadCount);
+		    command.execute(context);
 	    }
     }
 
@@ -346,6 +354,7 @@ public class DeployDatabaseCommand extends AbstractCommand implements UndoableCo
 		    c.setForestsPerHost(getForestsPerHost());
 		    c.setCreateForestsOnEachHost(createForestsOnEachHost);
 		    c.setForestFilename(forestFilename);
+		    c.setForestPropertiesThreadCount(forestPropertiesThreadCount);
 		    return c;
 	    }
     	return null;
@@ -455,6 +464,14 @@ public class DeployDatabaseCommand extends AbstractCommand implements UndoableCo
 		return postponeForestCreation;
 	}
 
+	public int getForestPropertiesThreadCount() {
+		return forestPropertiesThreadCount;
+	}
+
+	public void setForestPropertiesThreadCount(int forestPropertiesThreadCount) {
+		this.forestPropertiesThreadCount = forestPropertiesThreadCount;
+	}
+
 	public DeployForestsCommand getDeployForestsCommand() {
 		return deployForestsCommand;
 	}
@@ -19,6 +19,7 @@ import com.marklogic.mgmt.api.forest.Forest;
 import com.marklogic.mgmt.mapper.DefaultResourceMapper;
 import com.marklogic.mgmt.mapper.ResourceMapper;
 import com.marklogic.mgmt.resource.databases.DatabaseManager;
+import com.marklogic.mgmt.util.ConcurrentTaskRunner;
 import com.marklogic.mgmt.util.ObjectMapperFactory;
 import com.marklogic.rest.util.JsonNodeUtil;
 
@@ -26,6 +27,7 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Future;
 
 /**
  * As of release 3.14.0, this now handles all databases, not just "databases other than the default content database".
@@ -94,26 +96,160 @@ public class DeployOtherDatabasesCommand extends AbstractUndoableCommand {
 
 		if (context.getAppConfig().getCmaConfig().isDeployDatabases()) {
 			deployDatabasesAndForestsViaCma(context, databasePlans);
+			return;
+		}
+
+		final int threadCount = getDatabaseDeployThreadCount(context);
+		if (threadCount > 1 && context.getAppConfig().isSortOtherDatabaseByDependencies()) {
+			deployDatabasesInLayers(context, databasePlans, threadCount);
+		} else {
+			// Otherwise, create each database one at a time, which also handles forests and sub-databases
+			databasePlans.forEach(databasePlan -> deployDatabase(context, databasePlan));
+		}
+
+		// Forests whose creation was postponed are either created in one bulk CMA request, or via a command per database
+		if (context.getAppConfig().getCmaConfig().isDeployForests()) {
+			deployAllForestsInSingleCmaRequest(context, databasePlans);
 		} else {
-			// Otherwise, create each database one at a time, which also handles sub-databases
 			databasePlans.forEach(databasePlan -> {
-				databasePlan.getDeployDatabaseCommand().execute(context);
+				DeployDatabaseCommand command = databasePlan.getDeployDatabaseCommand();
+				DeployForestsCommand dfc = command.getDeployForestsCommand();
+				if (dfc != null && command.isPostponeForestCreation()) {
+					dfc.execute(context);
+				}
 			});
+		}
+	}
 
-			// Either create forests in one bulk CMA request, or via a command per database
-			if (context.getAppConfig().getCmaConfig().isDeployForests()) {
-				deployAllForestsInSingleCmaRequest(context, databasePlans);
-			} else {
-				databasePlans.forEach(databasePlan -> {
-					DeployForestsCommand dfc = databasePlan.getDeployDatabaseCommand().getDeployForestsCommand();
-					if (dfc != null) {
-						dfc.execute(context);
+	/**
+	 * Deploys the database in the given plan via its DeployDatabaseCommand, which also creates the database's forests -
+	 * unless their creation has been postponed - and its sub-databases. This is the same whether or not databases are
+	 * deployed concurrently.
+	 *
+	 * @param context
+	 * @param databasePlan
+	 */
+	protected void deployDatabase(CommandContext context, DatabasePlan databasePlan) {
+		databasePlan.getDeployDatabaseCommand().execute(context);
+	}
+
+	/**
+	 * The number of databases this command may deploy at the same time is defined by the AppConfig map of resource
+	 * save thread counts, keyed on the simple name of this command's class. Databases are only deployed concurrently
+	 * when they are sorted by their dependencies. The number is capped at the number of requests the ManageClient can
+	 * have in flight at once, as any more threads would only wait on a connection.
+	 *
+	 * @param context
+	 * @return
+	 */
+	protected int getDatabaseDeployThreadCount(CommandContext context) {
+		Map<String, Integer> threadCounts = context.getAppConfig().getResourceSaveThreadCounts();
+		if (threadCounts == null) {
+			return 1;
+		}
+		Integer threadCount = threadCounts.get(getClass().getSimpleName());
+		if (threadCount == null || threadCount < 2) {
+			return 1;
+		}
+		return context.getManageClient() != null ?
+			Math.min(threadCount, context.getManageClient().getMaxConcurrentRequests()) : threadCount;
+	}
+
+	/**
+	 * Deploys the databases one layer at a time, where no database depends on another database in the same layer or a
+	 * later layer. The databases in a layer are deployed concurrently via deployDatabase, just as they would be
+	 * deployed one at a time. The main content database and its test database are deployed one after the other by the
+	 * same thread, as they are created from the same files.
+	 * <p>
+	 * Each database fetches the properties of its existing forests concurrently as well, so the ManageClient's
+	 * connection limit is divided among the databases being deployed at once, instead of each database using up to the
+	 * whole limit on its own.
+	 * </p>
+	 * <p>
+	 * Every database in a layer is attempted before the first failure is thrown, and no later layer is deployed.
+	 * </p>
+	 *
+	 * @param context
+	 * @param databasePlans
+	 * @param threadCount
+	 */
+	protected void deployDatabasesInLayers(CommandContext context, List<DatabasePlan> databasePlans, int threadCount) {
+		List<List<DatabasePlan>> layers = sortDatabasePlansIntoLayers(databasePlans);
+		if (logger.isInfoEnabled()) {
+			logger.info(format("Deploying %d databases in %d layers using up to %d threads", databasePlans.size(), layers.size(), threadCount));
+		}
+
+		for (List<DatabasePlan> layer : layers) {
+			List<List<DatabasePlan>> groups = groupContentAndTestDatabasePlans(layer);
+			final int layerThreadCount = Math.min(threadCount, groups.size());
+			final int forestPropertiesThreadCount = Math.max(1, context.getManageClient().getMaxConcurrentRequests() / layerThreadCount);
+			try (ConcurrentTaskRunner<Void> runner = new ConcurrentTaskRunner<>(layerThreadCount)) {
+				Map<List<DatabasePlan>, Future<Void>> futures = new LinkedHashMap<>();
+				groups.forEach(group -> futures.put(group, runner.submit(() -> {
+					group.forEach(plan -> {
+						plan.getDeployDatabaseCommand().setForestPropertiesThreadCount(forestPropertiesThreadCount);
+						deployDatabase(context, plan);
+					});
+					return null;
+				})));
+
+				List<String> errorMessages = new ArrayList<>();
+				RuntimeException firstError = null;
+				for (Map.Entry<List<DatabasePlan>, Future<Void>> entry : futures.entrySet()) {
+					try {
+						runner.get(entry.getValue());
+					} catch (RuntimeException ex) {
+						if (Thread.currentThread().isInterrupted()) {
+							throw ex;
+						}
+						entry.getKey().forEach(plan -> errorMessages.add(format("%s: %s", plan.getDatabaseName(), ex.getMessage())));
+						if (firstError == null) {
+							firstError = ex;
+						} else {
+							firstError.addSuppressed(ex);
+						}
 					}
-				});
+				}
+				if (firstError != null) {
+					throw new RuntimeException(format("Unable to deploy databases; errors: %s", errorMessages), firstError);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Each group is deployed by a single thread. The test content database joins the group of the main content
+	 * database when both are in the same layer; every other database is in a group of its own.
+	 *
+	 * @param layer
+	 * @return
+	 */
+	protected List<List<DatabasePlan>> groupContentAndTestDatabasePlans(List<DatabasePlan> layer) {
+		List<List<DatabasePlan>> groups = new ArrayList<>();
+		List<DatabasePlan> contentGroup = null;
+		DatabasePlan testPlan = null;
+		for (DatabasePlan plan : layer) {
+			if (plan.isTestContentDatabase()) {
+				testPlan = plan;
+				continue;
+			}
+			List<DatabasePlan> group = new ArrayList<>();
+			group.add(plan);
+			groups.add(group);
+			if (plan.isMainContentDatabase()) {
+				contentGroup = group;
+			}
+		}
+		if (testPlan != null) {
+			if (contentGroup != null) {
+				contentGroup.add(testPlan);
+			} else {
+				groups.add(new ArrayList<>(Collections.singletonList(testPlan)));
+			}
+		}
+		return groups;
+	}
+
 	/**
 	 * Undeploys each of the databases found via buildDatabasePlans.
 	 *
@@ -329,6 +465,23 @@ public class DeployOtherDatabasesCommand extends AbstractUndoableCommand {
 		return sortedList;
 	}
 
+	protected List<List<DatabasePlan>> sortDatabasePlansIntoLayers(List<DatabasePlan> databasePlans) {
+		List<Database> databases = new ArrayList<>();
+		Map<String, DatabasePlan> map = new HashMap<>();
+		databasePlans.forEach(plan -> {
+			databases.add(plan.getDatabaseForSorting());
+			map.put(plan.getDatabaseName(), plan);
+		});
+
+		List<List<DatabasePlan>> layers = new ArrayList<>();
+		for (List<String> names : new DatabaseSorter().sortDatabasesIntoLayers(databases)) {
+			List<DatabasePlan> layer = new ArrayList<>();
+			names.forEach(name -> layer.add(map.get(name)));
+			layers.add(layer);
+		}
+		return layers;
+	}
+
 	/**
 	 * For each DatabasePlan, build a DeployDatabaseCommand that can later be executed for the database.
 	 *
@@ -392,7 +545,8 @@ public class DeployOtherDatabasesCommand extends AbstractUndoableCommand {
 			}
 		});
 
-		new Configurations(dbConfig, forestConfig).submit(context.getManageClient());
+		new Configurations(dbConfig, forestConfig).submit(context.getManageClient(),
+			context.getAppConfig().getCmaConfig().newConfigurationChunker());
 
 		// Now account for sub-databases, but not yet (as of 3.15.0) with CMA
 		databasePlans.forEach(plan -> {
@@ -419,7 +573,8 @@ public class DeployOtherDatabasesCommand extends AbstractUndoableCommand {
 		if (!allForests.isEmpty()) {
 			Configuration config = new Configuration();
 			allForests.forEach(forest -> config.addForest(forest.toObjectNode()));
-			new Configurations(config).submit(context.getManageClient());
+			new Configurations(config).submit(context.getManageClient(),
+				context.getAppConfig().getCmaConfig().newConfigurationChunker());
 		}
 	}
 
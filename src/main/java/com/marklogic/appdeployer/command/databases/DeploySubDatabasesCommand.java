@@ -13,6 +13,7 @@ public class DeploySubDatabasesCommand extends AbstractUndoableCommand {
 
 	private DeployDatabaseCommandFactory deployDatabaseCommandFactory;
 	private String superDatabaseName;
+	private int forestPropertiesThreadCount = 0;
 
 	/**
 	 * @param superDatabaseName
@@ -47,6 +48,7 @@ public class DeploySubDatabasesCommand extends AbstractUndoableCommand {
 					subDbCommand.setDatabaseFile(f);
 					subDbCommand.setSuperDatabaseName(superDatabaseName);
 					subDbCommand.setSubDatabase(true);
+					subDbCommand.setForestPropertiesThreadCount(forestPropertiesThreadCount);
 					subDbCommand.execute(context);
 					subDbNames.add(subDbCommand.getDatabaseName());
 					logger.info(format("Created sub-database %s for database %s", subDbCommand.getDatabaseName(), superDatabaseName));
@@ -83,4 +85,11 @@ public class DeploySubDatabasesCommand extends AbstractUndoableCommand {
 			}
 		}
 	}
+
+	/**
+	 * @param forestPropertiesThreadCount passed on to the command that deploys each sub-database
+	 */
+	public void setForestPropertiesThreadCount(int forestPropertiesThreadCount) {
+		this.forestPropertiesThreadCount = forestPropertiesThreadCount;
+	}
 }
@@ -123,7 +123,7 @@ public class ConfigureForestReplicasCommand extends AbstractUndoableCommand {
 
 			Forest forestWithOnlyReplicas = new Forest();
 			forestWithOnlyReplicas.setForestReplica(forest.getForestReplica());
-			String json = forestWithOnlyReplicas.getJson();
+			String json = forestWithOnlyReplicas.getWireJson();
 
 			logger.info(format("Creating forest replicas for primary forest %s", forestName));
 			context.getManageClient().putJson(forestManager.getPropertiesPath(forestName), json);
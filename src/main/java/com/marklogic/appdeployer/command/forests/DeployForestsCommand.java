@@ -4,12 +4,9 @@ import com.marklogic.appdeployer.ConfigDir;
 import com.marklogic.appdeployer.command.AbstractCommand;
 import com.marklogic.appdeployer.command.CommandContext;
 import com.marklogic.appdeployer.command.SortOrderConstants;
-import com.marklogic.mgmt.api.API;
 import com.marklogic.mgmt.api.configuration.Configuration;
 import com.marklogic.mgmt.api.configuration.Configurations;
 import com.marklogic.mgmt.api.forest.Forest;
-import com.marklogic.mgmt.mapper.DefaultResourceMapper;
-import com.marklogic.mgmt.mapper.ResourceMapper;
 import com.marklogic.mgmt.resource.databases.DatabaseManager;
 import com.marklogic.mgmt.resource.forests.ForestManager;
 import com.marklogic.mgmt.resource.hosts.DefaultHostNameProvider;
@@ -46,6 +43,7 @@ public class DeployForestsCommand extends AbstractCommand {
 	private String forestPayload;
 	private boolean createForestsOnEachHost = true;
 	private HostCalculator hostCalculator;
+	private int forestPropertiesThreadCount = 0;
 
 	private ForestBuilder forestBuilder = new ForestBuilder();
 
@@ -89,13 +87,14 @@ public class DeployForestsCommand extends AbstractCommand {
 	protected void createForestsViaCma(CommandContext context, List<Forest> forests) {
 		Configuration config = new Configuration();
 		forests.forEach(forest -> config.addForest(forest.toObjectNode()));
-		new Configurations(config).submit(context.getManageClient());
+		new Configurations(config).submit(context.getManageClient(),
+			context.getAppConfig().getCmaConfig().newConfigurationChunker());
 	}
 
 	protected void createForestsViaForestEndpoint(CommandContext context, List<Forest> forests) {
 		ForestManager forestManager = new ForestManager(context.getManageClient());
 		for (Forest f : forests) {
-			forestManager.save(f.getJson());
+			forestManager.save(f.getWireJson());
 		}
 	}
 
@@ -138,14 +137,9 @@ public class DeployForestsCommand extends AbstractCommand {
 
 	protected List<Forest> getExistingPrimaryForests(CommandContext context, String databaseName) {
 		List<String> forestIds = new DatabaseManager(context.getManageClient()).getPrimaryForestIds(databaseName);
-		ForestManager forestMgr = new ForestManager(context.getManageClient());
-		ResourceMapper mapper = new DefaultResourceMapper(new API(context.getManageClient()));
-		List<Forest> forests = new ArrayList<>();
-		for (String forestId : forestIds) {
-			String json = forestMgr.getPropertiesAsJson(forestId);
-			forests.add(mapper.readResource(json, Forest.class));
-		}
-		return forests;
+		ForestManager forestManager = new ForestManager(context.getManageClient());
+		forestManager.setPropertiesThreadCount(forestPropertiesThreadCount);
+		return new ArrayList<>(forestManager.getPropertiesForForests(forestIds).values());
 	}
 
 	protected String buildForestTemplate(CommandContext context, ForestManager forestManager) {
@@ -252,4 +246,16 @@ public class DeployForestsCommand extends AbstractCommand {
 	public void setForestBuilder(ForestBuilder forestBuilder) {
 		this.forestBuilder = forestBuilder;
 	}
+
+	public int getForestPropertiesThreadCount() {
+		return forestPropertiesThreadCount;
+	}
+
+	/**
+	 * @param forestPropertiesThreadCount the maximum number of concurrent requests made when fetching the properties of
+	 *                                    the database's existing forests; see ForestManager.setPropertiesThreadCount
+	 */
+	public void setForestPropertiesThreadCount(int forestPropertiesThreadCount) {
+		this.forestPropertiesThreadCount = forestPropertiesThreadCount;
+	}
 }
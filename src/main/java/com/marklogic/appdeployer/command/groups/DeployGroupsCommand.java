@@ -49,18 +49,19 @@ public class DeployGroupsCommand extends AbstractResourceCommand {
     /**
      * Does a simple check for a restart by checking for "cache-size" in the payload. This doesn't mean a
      * restart has occurred - the cache size may not changed - but that's fine, as the waitForRestart method on
-     * AdminManager will quickly exit.
+     * AdminManager will quickly exit. A receipt without a response means the group was not updated - e.g. because
+     * its properties are unchanged - and thus MarkLogic is not restarting.
      */
     @Override
     protected void afterResourceSaved(ResourceManager mgr, CommandContext context, ResourceReference resourceReference,
             SaveReceipt receipt) {
         String payload = receipt.getPayload();
-        if (payload != null) {
+        if (payload != null && receipt.getResponse() != null) {
         	if (payload.contains("cache-size") && context.getAdminManager() != null) {
                 if (logger.isDebugEnabled()) {
                     logger.info("Group payload contains cache-size parameter, so waiting for ML to restart");
                 }
-                context.getAdminManager().waitForRestart();
+                context.getAdminManager().waitForRestart(receipt.getResponse());
         	}
         }
 
@@ -73,7 +74,7 @@ public class DeployGroupsCommand extends AbstractResourceCommand {
 		        if (logger.isInfoEnabled()) {
 			        logger.info(format("Updating admin server in group %s to ensure that its url-rewriter is correct", groupName));
 		        }
-		        serverMgr.save(adminServerTemplate.getJson());
+		        serverMgr.save(adminServerTemplate.getWireJson());
 	        }
 
 	        ensureGroupServersExist(serverMgr, groupName);
@@ -106,7 +107,7 @@ public class DeployGroupsCommand extends AbstractResourceCommand {
 			logger.info(format("%s server already exists in group %s", name, groupName));
 		} else {
 			server.setGroupName(groupName);
-			serverMgr.save(server.getJson());
+			serverMgr.save(server.getWireJson());
 			logger.info(format("Created the %s server in group %s", name, groupName));
 		}
 	}
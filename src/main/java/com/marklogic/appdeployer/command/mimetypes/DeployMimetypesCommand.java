@@ -44,7 +44,7 @@ public class DeployMimetypesCommand extends AbstractResourceCommand {
 	                                  SaveReceipt receipt) {
 		if (receipt != null && receipt.hasLocationHeader()) {
 			logger.info("Waiting for restart after saving mimetype");
-			context.getAdminManager().waitForRestart();
+			context.getAdminManager().waitForRestart(receipt.getResponse());
 		}
 	}
 
@@ -14,8 +14,20 @@ import java.util.regex.Pattern;
 
 public class DefaultModulesLoaderFactory extends LoggingObject implements ModulesLoaderFactory {
 
+	private ModulesManager modulesManager;
+
 	@Override
 	public ModulesLoader newModulesLoader(AppConfig appConfig) {
+		return newModulesLoader(appConfig, this.modulesManager);
+	}
+
+	/**
+	 * @param appConfig
+	 * @param modulesManager the ModulesManager to be used by the ModulesLoader and its AssetFileLoader; if null, one is
+	 *                       constructed via newModulesManager
+	 * @return
+	 */
+	public ModulesLoader newModulesLoader(AppConfig appConfig, ModulesManager modulesManager) {
 		/**
 		 * Construct a DatabaseClient for loading non-REST extensions. This typically means connecting to the
 		 * App-Services server on port 8000, which is likely to exist and support the client REST API (specifically,
@@ -28,14 +40,8 @@ public class DefaultModulesLoaderFactory extends LoggingObject implements Module
 		 */
 		final DatabaseClient modulesDatabaseClient = appConfig.newModulesDatabaseClient();
 
-		ModulesManager modulesManager = null;
-		final String path = appConfig.getModuleTimestampsPath();
-		if (path != null) {
-			if (appConfig.isModuleTimestampsUseHost()) {
-				modulesManager = new PropertiesModuleManager(path, modulesDatabaseClient);
-			} else {
-				modulesManager = new PropertiesModuleManager(path);
-			}
+		if (modulesManager == null) {
+			modulesManager = newModulesManager(appConfig, modulesDatabaseClient);
 		}
 
 		final int threadCount = appConfig.getModulesLoaderThreadCount();
@@ -84,6 +90,44 @@ public class DefaultModulesLoaderFactory extends LoggingObject implements Module
 		return modulesLoader;
 	}
 
+	/**
+	 * Constructs the ModulesManager that's used when one hasn't been set on this factory, without the need for a
+	 * DatabaseClient. A DatabaseClient for the modules database is only constructed if the module timestamps are to be
+	 * keyed on the host, and it's released as soon as the ModulesManager has been constructed, as the ModulesManager
+	 * only needs the client's host.
+	 *
+	 * @param appConfig
+	 * @return a ModulesManager based on the module timestamps path in the given AppConfig, or null if no path is set
+	 */
+	public ModulesManager newModulesManager(AppConfig appConfig) {
+		if (appConfig.getModuleTimestampsPath() == null || !appConfig.isModuleTimestampsUseHost()) {
+			return newModulesManager(appConfig, null);
+		}
+		DatabaseClient modulesDatabaseClient = appConfig.newModulesDatabaseClient();
+		try {
+			return newModulesManager(appConfig, modulesDatabaseClient);
+		} finally {
+			modulesDatabaseClient.release();
+		}
+	}
+
+	/**
+	 * Constructs the ModulesManager that's used when one hasn't been set on this factory.
+	 *
+	 * @param appConfig
+	 * @param modulesDatabaseClient
+	 * @return a ModulesManager based on the module timestamps path in the given AppConfig, or null if no path is set
+	 */
+	public ModulesManager newModulesManager(AppConfig appConfig, DatabaseClient modulesDatabaseClient) {
+		final String path = appConfig.getModuleTimestampsPath();
+		if (path == null) {
+			return null;
+		}
+		return appConfig.isModuleTimestampsUseHost() ?
+			new PropertiesModuleManager(path, modulesDatabaseClient) :
+			new PropertiesModuleManager(path);
+	}
+
 	/**
 	 * Currently only have an XCC implementation for static checking, as XCC gives much more useful error messages
 	 * than REST does.
@@ -99,4 +143,16 @@ public class DefaultModulesLoaderFactory extends LoggingObject implements Module
 		checker.setCheckLibraryModules(appConfig.isStaticCheckLibraryAssets());
 		return checker;
 	}
+
+	public ModulesManager getModulesManager() {
+		return modulesManager;
+	}
+
+	/**
+	 * @param modulesManager if set, this is used by each ModulesLoader constructed by this factory instead of a
+	 *                       ModulesManager based on the module timestamps path in the AppConfig
+	 */
+	public void setModulesManager(ModulesManager modulesManager) {
+		this.modulesManager = modulesManager;
+	}
 }
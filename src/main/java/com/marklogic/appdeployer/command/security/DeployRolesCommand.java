@@ -15,12 +15,12 @@ import com.marklogic.mgmt.resource.ResourceManager;
 import com.marklogic.mgmt.resource.security.RoleManager;
 import com.marklogic.mgmt.util.ObjectMapperFactory;
 import com.marklogic.mgmt.util.ObjectNodesSorter;
-import com.marklogic.rest.util.ResourcesFragment;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * As of 3.15.0, this no longer deploys roles in two phases. This is due to the new sorting class, which uses a
@@ -109,7 +109,8 @@ public class DeployRolesCommand extends AbstractResourceCommand implements Suppo
 	}
 
 	protected void submitRolesIndividually(CommandContext context, List<ObjectNode> roleNodes) {
-		RoleManager roleManager = new RoleManager(context.getManageClient());
+		ResourceManager roleManager = useRemoteStateSnapshot(context, useResourceListCache(context, new RoleManager(context.getManageClient())));
+		prefetchRemoteState(roleManager, context, roleNodes.stream().map(ObjectNode::toString).collect(Collectors.toList()));
 
 		findRolesThatReferenceThemselves(context, roleNodes).forEach(role -> {
 			roleManager.save(format("{\"role-name\":\"%s\"}", role.getRoleName()));
@@ -141,13 +142,14 @@ public class DeployRolesCommand extends AbstractResourceCommand implements Suppo
 				roleNamesOnlyConfig.addRole(node);
 			});
 			logger.info("Submitting CMA configuration containing roles that reference themselves and do not yet exist");
-			new Configurations(roleNamesOnlyConfig).submit(context.getManageClient());
+			new Configurations(roleNamesOnlyConfig).submit(context.getManageClient(),
+				context.getAppConfig().getCmaConfig().newConfigurationChunker());
 		}
 	}
 
 	/**
 	 * Returns a list of roles, one for each role in the given ObjectNode list that does not exist yet and refers to
-	 * itself.
+	 * itself. Existence is checked via this command's ResourceListCache, so the list of roles is not fetched again.
 	 *
 	 * @param context
 	 * @param roles
@@ -156,11 +158,11 @@ public class DeployRolesCommand extends AbstractResourceCommand implements Suppo
 	protected List<Role> findRolesThatReferenceThemselves(CommandContext context, List<ObjectNode> roles) {
 		ObjectReader reader = ObjectMapperFactory.getObjectMapper().readerFor(Role.class);
 		List<Role> rolesThatReferenceThemselves = new ArrayList<>();
-		ResourcesFragment rolesXml = new RoleManager(context.getManageClient()).getAsXml();
+		ResourceManager roleManager = useResourceListCache(context, new RoleManager(context.getManageClient()));
 		roles.forEach(role -> {
 			try {
 				Role r = reader.readValue(role);
-				if (r.hasPermissionWithOwnRoleName() && !rolesXml.resourceExists(r.getRoleName())) {
+				if (r.hasPermissionWithOwnRoleName() && !roleManager.exists(r.getRoleName())) {
 					rolesThatReferenceThemselves.add(r);
 				}
 			} catch (IOException e) {
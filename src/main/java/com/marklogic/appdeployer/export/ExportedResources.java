@@ -39,7 +39,7 @@ public class ExportedResources {
 
 		for (String message : resources.getMessages()) {
 			if (!this.messages.contains(message)) {
-				this.messages.addAll(resources.getMessages());
+				this.messages.add(message);
 			}
 		}
 	}
@@ -80,6 +80,19 @@ public class Exporter extends LoggingObject {
 		return this;
 	}
 
+	/**
+	 * @param threadCount the number of resource types to export at the same time, and the number of resources of each
+	 *                    type to fetch and write at the same time; 1 exports every resource serially. Either is capped
+	 *                    such that no more requests are sent at once than the ManageClient has connections for, which is
+	 *                    also what's used by default.
+	 * @return
+	 */
+	public Exporter threadCount(int threadCount) {
+		compositeExporter.setThreadCount(threadCount);
+		compositeExporter.setExporterThreadCount(threadCount);
+		return this;
+	}
+
 	public ExportedResources export(File baseDir) {
 		return compositeExporter.exportResources(baseDir);
 	}
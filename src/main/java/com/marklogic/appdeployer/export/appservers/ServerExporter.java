@@ -59,7 +59,8 @@ public class ServerExporter extends AbstractNamedResourceExporter {
 				dbNames.add(server.get("modules-database").textValue());
 			}
 			if (!dbNames.isEmpty()) {
-				ExportedResources er = new DatabaseExporter(getManageClient(), dbNames.toArray(new String[]{})).exportResources(baseDir);
+				DatabaseExporter databaseExporter = applyThreadCountTo(new DatabaseExporter(getManageClient(), dbNames.toArray(new String[]{})));
+				ExportedResources er = databaseExporter.exportResources(baseDir);
 				resources.add(er);
 			}
 		}
@@ -71,7 +71,7 @@ public class DatabaseExporter extends AbstractNamedResourceExporter {
 		DatabaseManager dbMgr = new DatabaseManager(getManageClient());
 		for (String dbName : getResourceNames()) {
 			List<String> forestNames = dbMgr.getForestNames(dbName);
-			ForestExporter forestExporter = new ForestExporter(dbName, getManageClient(), forestNames.toArray(new String[]{}));
+			ForestExporter forestExporter = applyThreadCountTo(new ForestExporter(dbName, getManageClient(), forestNames.toArray(new String[]{})));
 			resources.add(forestExporter.exportResources(baseDir));
 		}
 		return resources;
@@ -7,6 +7,7 @@ import com.marklogic.mgmt.resource.ResourceManager;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -33,12 +34,7 @@ public abstract class AbstractNamedResourceExporter extends AbstractResourceExpo
 			ResourceManager mgr = newResourceManager(getManageClient());
 			File resourceDir = getResourceDirectory(baseDir);
 			resourceDir.mkdirs();
-			for (String resourceName : resourceNames) {
-				File f = exportToFile(mgr, resourceName, resourceDir);
-				if (f != null) {
-					files.add(f);
-				}
-			}
+			files = exportConcurrently(Arrays.asList(resourceNames), resourceName -> exportToFile(mgr, resourceName, resourceDir));
 		}
 		return new ExportedResources(files, getExportMessages());
 	}
@@ -1,6 +1,12 @@
 package com.marklogic.appdeployer.export.impl;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.PrettyPrinter;
+import com.fasterxml.jackson.core.util.Instantiatable;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -9,22 +15,35 @@ import com.marklogic.client.ext.helper.LoggingObject;
 import com.marklogic.mgmt.ManageClient;
 import com.marklogic.mgmt.PayloadParser;
 import com.marklogic.mgmt.resource.ResourceManager;
+import com.marklogic.mgmt.util.ConcurrentTaskRunner;
 import com.marklogic.mgmt.util.ObjectMapperFactory;
-import org.springframework.util.FileCopyUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * Base class that provides some convenience methods for implementing ResourceExporter.
- *
- * TODO Should be able to add TaskExecutor support to allow for parallelizing requests to the Management API to
- * export resources.
+ * <p>
+ * Subclasses that export many resources can use exportConcurrently to fetch and write resources via a pool of
+ * threadCount threads. Each file is written by streaming the payload to it, with JSON being pretty-printed as it's
+ * streamed instead of being parsed into a tree first. If threadCount is not set, it defaults to the number of requests
+ * the ManageClient can have in flight at once, and a larger threadCount is capped to that number.
+ * </p>
  */
 public abstract class AbstractResourceExporter extends LoggingObject implements ResourceExporter {
 
 	private ManageClient manageClient;
 	private String format = FORMAT_JSON;
+	private int threadCount;
 	protected PayloadParser payloadParser = new PayloadParser();
 	protected ObjectMapper objectMapper;
 
@@ -95,18 +114,21 @@ public abstract class AbstractResourceExporter extends LoggingObject implements
 		xml = beforeResourceWrittenToFile(exportInputs, xml);
 		File f = new File(resourceDir, exportInputs.buildFilename("xml"));
 		logWritingFile(exportInputs, f);
-		FileCopyUtils.copy(xml.getBytes(), f);
+		try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(f)), StandardCharsets.UTF_8)) {
+			writer.write(xml);
+		}
 		return f;
 	}
 
 	protected File exportToJson(ResourceManager mgr, ExportInputs exportInputs, File resourceDir) throws IOException {
 		String json = mgr.getPropertiesAsJson(exportInputs.getResourceName(), exportInputs.getResourceUrlParams());
 		json = beforeResourceWrittenToFile(exportInputs, json);
-		json = prettyPrintJson(json);
 
 		File f = new File(resourceDir, exportInputs.buildFilename("json"));
 		logWritingFile(exportInputs, f);
-		FileCopyUtils.copy(json.getBytes(), f);
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(f))) {
+			writePrettyPrintedJson(json, out);
+		}
 		return f;
 	}
 
@@ -115,6 +137,71 @@ public abstract class AbstractResourceExporter extends LoggingObject implements
 		return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(node);
 	}
 
+	/**
+	 * Copies the tokens in the given JSON to the given OutputStream as UTF-8, pretty-printing them as they're copied.
+	 * The output is the same as that of prettyPrintJson, but without constructing a tree or an intermediate String.
+	 *
+	 * @param json
+	 * @param out
+	 * @throws IOException
+	 */
+	protected void writePrettyPrintedJson(String json, OutputStream out) throws IOException {
+		JsonFactory factory = objectMapper.getFactory();
+		try (JsonParser parser = factory.createParser(json);
+		     JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+			PrettyPrinter prettyPrinter = objectMapper.getSerializationConfig().constructDefaultPrettyPrinter();
+			if (prettyPrinter instanceof Instantiatable) {
+				prettyPrinter = (PrettyPrinter) ((Instantiatable<?>) prettyPrinter).createInstance();
+			}
+			generator.setPrettyPrinter(prettyPrinter);
+			while (parser.nextToken() != null) {
+				generator.copyCurrentStructure(parser);
+			}
+		}
+	}
+
+	/**
+	 * Exports each of the given inputs via a pool of threadCount threads, or on the calling thread if threadCount is
+	 * less than 2. The returned files are in the same order as the inputs regardless of the order in which the exports
+	 * finish, with a null file - i.e. one that could not be exported - being omitted.
+	 *
+	 * @param inputs
+	 * @param exporter
+	 * @param <T>
+	 * @return
+	 */
+	protected <T> List<File> exportConcurrently(List<T> inputs, Function<T, File> exporter) {
+		List<File> files = new ArrayList<>();
+		for (File f : ConcurrentTaskRunner.map(inputs, determineThreadCount(), exporter)) {
+			if (f != null) {
+				files.add(f);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * @return the number of resources to export at the same time, which is never more than the number of requests the
+	 * ManageClient can have in flight at once
+	 */
+	protected int determineThreadCount() {
+		final int limit = manageClient != null ? manageClient.getMaxConcurrentRequests() : 1;
+		return threadCount > 0 ? Math.min(threadCount, limit) : limit;
+	}
+
+	/**
+	 * Used when this exporter runs another exporter itself - e.g. to export the resources that the resources it
+	 * exported depend on - so that the other exporter uses no more connections than this one has been given.
+	 *
+	 * @param exporter
+	 * @param <E>
+	 * @return the given exporter
+	 */
+	protected <E extends AbstractResourceExporter> E applyThreadCountTo(E exporter) {
+		exporter.setThreadCount(determineThreadCount());
+		return exporter;
+	}
+
 	protected String beforeResourceWrittenToFile(ExportInputs exportInputs, String payload) {
 		return payload;
 	}
@@ -141,6 +228,18 @@ public abstract class AbstractResourceExporter extends LoggingObject implements
 		return format;
 	}
 
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * @param threadCount the number of resources to fetch and write at the same time; if not positive, the number of
+	 *                    requests the ManageClient can have in flight at once is used
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
 	public void setFormat(String format) {
 		this.format = format;
 	}
@@ -4,20 +4,30 @@ import com.marklogic.appdeployer.export.ExportedResources;
 import com.marklogic.appdeployer.export.ResourceExporter;
 import com.marklogic.appdeployer.export.impl.AbstractResourceExporter;
 import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.mgmt.util.ConcurrentTaskRunner;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Lets you combine many instances of ResourceExporter and invoke them all at once (could parallelize this in the
- * future).
+ * Lets you combine many instances of ResourceExporter and invoke them all at once. The exporters are run via a pool of
+ * threadCount threads, and their ExportedResources are combined in the order in which the exporters were added, so
+ * the result is the same regardless of which exporter finishes first.
+ * <p>
+ * As each exporter that extends AbstractResourceExporter may also export its resources concurrently, the number of
+ * requests its ManageClient can have in flight at once is shared by the exporters running at the same time. threadCount
+ * defaults to that number, and each exporter is given an equal share of it, such that the exporters don't together
+ * use more threads than the ManageClient has connections for.
+ * </p>
  */
 public class CompositeResourceExporter extends LoggingObject implements ResourceExporter {
 
 	private List<ResourceExporter> resourceExporters;
 	private boolean overrideFormatOnExporters = true;
 	private String format = FORMAT_JSON;
+	private int threadCount;
+	private Integer exporterThreadCount;
 
 	public CompositeResourceExporter(ResourceExporter... resourceExporters) {
 		this.resourceExporters = new ArrayList<>();
@@ -32,12 +42,21 @@ public class CompositeResourceExporter extends LoggingObject implements Resource
 
 	@Override
 	public ExportedResources exportResources(File baseDir) {
-		ExportedResources resources = null;
+		final int limit = determineConnectionLimit();
+		final int runnerCount = Math.max(1, Math.min(threadCount > 0 ? Math.min(threadCount, limit) : limit, resourceExporters.size()));
+		final int share = Math.max(1, limit / runnerCount);
 		for (ResourceExporter exporter : resourceExporters) {
-			if (overrideFormatOnExporters && exporter instanceof AbstractResourceExporter) {
-				((AbstractResourceExporter) exporter).setFormat(getFormat());
+			if (exporter instanceof AbstractResourceExporter) {
+				AbstractResourceExporter are = (AbstractResourceExporter) exporter;
+				if (overrideFormatOnExporters) {
+					are.setFormat(getFormat());
+				}
+				are.setThreadCount(exporterThreadCount != null ? Math.min(exporterThreadCount, share) : share);
 			}
-			ExportedResources er = exporter.exportResources(baseDir);
+		}
+
+		ExportedResources resources = null;
+		for (ExportedResources er : runExporters(baseDir, runnerCount)) {
 			if (resources == null) {
 				resources = er;
 			} else {
@@ -50,6 +69,27 @@ public class CompositeResourceExporter extends LoggingObject implements Resource
 		return resources;
 	}
 
+	/**
+	 * @return the fewest number of requests that the ManageClient of any exporter extending AbstractResourceExporter can
+	 * have in flight at once; if there are no such exporters, the threadCount of this exporter if set, and 1 otherwise
+	 */
+	protected int determineConnectionLimit() {
+		int limit = Integer.MAX_VALUE;
+		for (ResourceExporter exporter : resourceExporters) {
+			if (exporter instanceof AbstractResourceExporter && ((AbstractResourceExporter) exporter).getManageClient() != null) {
+				limit = Math.min(limit, ((AbstractResourceExporter) exporter).getManageClient().getMaxConcurrentRequests());
+			}
+		}
+		if (limit == Integer.MAX_VALUE) {
+			limit = threadCount > 0 ? threadCount : 1;
+		}
+		return limit;
+	}
+
+	protected List<ExportedResources> runExporters(File baseDir, int threadCount) {
+		return ConcurrentTaskRunner.map(resourceExporters, threadCount, exporter -> exporter.exportResources(baseDir));
+	}
+
 	public boolean isOverrideFormatOnExporters() {
 		return overrideFormatOnExporters;
 	}
@@ -73,4 +113,30 @@ public class CompositeResourceExporter extends LoggingObject implements Resource
 	public void setFormat(String format) {
 		this.format = format;
 	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * @param threadCount the number of exporters to run at the same time; if not positive, the number of requests the
+	 *                    ManageClient of the exporters can have in flight at once is used, and a larger number is
+	 *                    capped to that
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	public Integer getExporterThreadCount() {
+		return exporterThreadCount;
+	}
+
+	/**
+	 * @param exporterThreadCount if set, overrides the number of resources that each exporter that extends
+	 *                            AbstractResourceExporter fetches and writes at the same time, though it's still capped
+	 *                            to each exporter's share of the connections of its ManageClient
+	 */
+	public void setExporterThreadCount(Integer exporterThreadCount) {
+		this.exporterThreadCount = exporterThreadCount;
+	}
 }
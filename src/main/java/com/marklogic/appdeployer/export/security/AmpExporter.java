@@ -30,19 +30,17 @@ public class AmpExporter extends AbstractResourceExporter {
 			ResourcesFragment amps = mgr.getAsXml();
 			File resourceDir = new ConfigDir(baseDir).getAmpsDir();
 			resourceDir.mkdirs();
+			List<AmpExportInputs> inputsList = new ArrayList<>();
 			for (String ampUriRef : ampUriRefs) {
 				String nameRef = amps.getNameRefForUriRef(ampUriRef);
 				if (nameRef == null || nameRef.trim().length() == 0) {
 					logger.warn("Could not find amp with uriref: " + ampUriRef);
 				}
 				else {
-					AmpExportInputs inputs = new AmpExportInputs(ampUriRef, nameRef, buildUrlParamsFromUriRef(ampUriRef));
-					File f = exportToFile(mgr, inputs, resourceDir);
-					if (f != null) {
-						files.add(f);
-					}
+					inputsList.add(new AmpExportInputs(ampUriRef, nameRef, buildUrlParamsFromUriRef(ampUriRef)));
 				}
 			}
+			files = exportConcurrently(inputsList, inputs -> exportToFile(mgr, inputs, resourceDir));
 
 			message = "Each amp is exported to a file named after its nameref and the hash of its uriref.";
 		}
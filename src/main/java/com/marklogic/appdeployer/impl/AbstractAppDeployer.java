@@ -5,14 +5,15 @@ import com.marklogic.appdeployer.AppDeployer;
 import com.marklogic.appdeployer.ConfigDir;
 import com.marklogic.appdeployer.command.Command;
 import com.marklogic.appdeployer.command.CommandContext;
+import com.marklogic.appdeployer.command.ResourceFileManager;
 import com.marklogic.appdeployer.command.UndoableCommand;
 import com.marklogic.client.ext.helper.LoggingObject;
 import com.marklogic.mgmt.ManageClient;
 import com.marklogic.mgmt.admin.AdminManager;
+import com.marklogic.mgmt.metrics.ManageClientMetrics;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -24,6 +25,7 @@ public abstract class AbstractAppDeployer extends LoggingObject implements AppDe
 	private ManageClient manageClient;
 	private AdminManager adminManager;
 	private List<DeployerListener> deployerListeners;
+	private ResourceFileManager resourceFileManager;
 
 	/**
 	 * Can use this constructor when the default config used by ManageClient and AdminManager will work.
@@ -51,7 +53,9 @@ public abstract class AbstractAppDeployer extends LoggingObject implements AppDe
 	protected abstract List<Command> getCommands();
 
 	/**
-	 * Calls execute on each of the configured commands.
+	 * Calls execute on each of the configured commands. A subclass can change how the commands are executed by
+	 * overriding executeCommands, while the steps before and after the commands are executed - defined by
+	 * beforeCommandsExecuted and afterCommandsExecuted - stay the same.
 	 *
 	 * @param appConfig
 	 */
@@ -65,14 +69,47 @@ public abstract class AbstractAppDeployer extends LoggingObject implements AppDe
 		List<Command> commands = getCommands();
 		Collections.sort(commands, new ExecuteComparator());
 
-		CommandContext context = new CommandContext(appConfig, manageClient, adminManager);
+		CommandContext context = newCommandContext(appConfig);
+		try {
+			final DeploymentContext deploymentContext = new DeploymentContext(context, appConfig, commands);
+			beforeCommandsExecuted(context, deploymentContext);
+			executeCommands(commands, context, deploymentContext);
+		} finally {
+			afterCommandsExecuted(context);
+		}
 
-		final DeploymentContext deploymentContext = new DeploymentContext(context, appConfig, commands);
+		logger.info(format("Deployed app %s", appConfig.getName()));
+	}
 
-		deployerListeners.forEach(listener -> listener.beforeCommandsExecuted(deploymentContext));
+	protected CommandContext newCommandContext(AppConfig appConfig) {
+		return new CommandContext(appConfig, manageClient, adminManager);
+	}
 
-		boolean catchExceptions = appConfig.isCatchDeployExceptions();
+	/**
+	 * Prepares the ResourceFileManager, resets the metrics of the ManageClient, and invokes each DeployerListener before
+	 * any command is executed.
+	 *
+	 * @param context
+	 * @param deploymentContext
+	 */
+	protected void beforeCommandsExecuted(CommandContext context, DeploymentContext deploymentContext) {
+		initializeResourceFileManager(context);
+		ManageClientMetrics metrics = manageClient != null ? manageClient.getManageClientMetrics() : null;
+		if (metrics != null) {
+			metrics.reset();
+		}
+		deployerListeners.forEach(listener -> listener.beforeCommandsExecuted(deploymentContext));
+	}
 
+	/**
+	 * Executes each command in the given order, one at a time.
+	 *
+	 * @param commands
+	 * @param context
+	 * @param deploymentContext
+	 */
+	protected void executeCommands(List<Command> commands, CommandContext context, DeploymentContext deploymentContext) {
+		final boolean catchExceptions = context.getAppConfig().isCatchDeployExceptions();
 		int commandCount = commands.size();
 		for (int i = 0; i < commandCount; i++) {
 			Command command = commands.get(i);
@@ -86,8 +123,55 @@ public abstract class AbstractAppDeployer extends LoggingObject implements AppDe
 			logger.info(format("Finished executing command [%s] in %dms\n", name, (System.currentTimeMillis() - start)));
 			invokeListenersAfterCommandExecuted(context, command, deploymentContext, remainingCommands, catchExceptions);
 		}
+	}
 
-		logger.info(format("Deployed app %s", appConfig.getName()));
+	/**
+	 * Flushes the ResourceFileManager and logs the metrics of the ManageClient once every command has been executed,
+	 * even if one of them failed.
+	 *
+	 * @param context
+	 */
+	protected void afterCommandsExecuted(CommandContext context) {
+		flushResourceFileManager(context);
+		logManageClientMetrics(manageClient != null ? manageClient.getManageClientMetrics() : null);
+	}
+
+	/**
+	 * For an incremental deployment, if a ResourceFileManager has been set on this deployer, every command shares it so
+	 * that the manifest of resource files is only read once. Otherwise, each command uses the ResourceFileManager of
+	 * its own resource filename filter, so that a manager configured on a command - e.g. with a custom properties file
+	 * path - is respected.
+	 *
+	 * @param context
+	 */
+	protected void initializeResourceFileManager(CommandContext context) {
+		if (resourceFileManager != null && context.getAppConfig().isIncrementalDeploy()) {
+			resourceFileManager.initialize();
+			context.setResourceFileManager(resourceFileManager);
+		}
+	}
+
+	/**
+	 * Writes the manifest of resource files once all commands have been executed, even if one of them failed.
+	 *
+	 * @param context
+	 */
+	protected void flushResourceFileManager(CommandContext context) {
+		if (context.getResourceFileManager() != null) {
+			context.getResourceFileManager().flush();
+		}
+	}
+
+	/**
+	 * Logs a summary of the requests sent to the Manage API during a deployment, if the ManageClient is recording
+	 * metrics.
+	 *
+	 * @param metrics
+	 */
+	protected void logManageClientMetrics(ManageClientMetrics metrics) {
+		if (metrics != null && logger.isInfoEnabled()) {
+			logger.info(metrics.getSummary());
+		}
 	}
 
 	/**
@@ -201,6 +285,14 @@ public abstract class AbstractAppDeployer extends LoggingObject implements AppDe
 		});
 	}
 
+	public ManageClient getManageClient() {
+		return manageClient;
+	}
+
+	public AdminManager getAdminManager() {
+		return adminManager;
+	}
+
 	public List<DeployerListener> getDeployerListeners() {
 		return deployerListeners;
 	}
@@ -208,18 +300,16 @@ public abstract class AbstractAppDeployer extends LoggingObject implements AppDe
 	public void setDeployerListeners(List<DeployerListener> deployerListeners) {
 		this.deployerListeners = deployerListeners;
 	}
-}
 
-class ExecuteComparator implements Comparator<Command> {
-	@Override
-	public int compare(Command o1, Command o2) {
-		return o1.getExecuteSortOrder().compareTo(o2.getExecuteSortOrder());
+	public ResourceFileManager getResourceFileManager() {
+		return resourceFileManager;
 	}
-}
 
-class UndoComparator implements Comparator<UndoableCommand> {
-	@Override
-	public int compare(UndoableCommand o1, UndoableCommand o2) {
-		return o1.getUndoSortOrder().compareTo(o2.getUndoSortOrder());
+	/**
+	 * @param resourceFileManager shared by every command during an incremental deployment; if not set, each command
+	 *                            uses the ResourceFileManager of its own resource filename filter
+	 */
+	public void setResourceFileManager(ResourceFileManager resourceFileManager) {
+		this.resourceFileManager = resourceFileManager;
 	}
 }
@@ -36,7 +36,8 @@ public class CmaDeployerListener extends DeployerListenerSupport {
 				commandContext.removeCombinedCmaRequest();
 				if (configs.hasResources()) {
 					logger.info("Submitting combined CMA request");
-					configs.submit(commandContext.getManageClient());
+					configs.submit(commandContext.getManageClient(),
+						commandContext.getAppConfig().getCmaConfig().newConfigurationChunker());
 				}
 			}
 		}
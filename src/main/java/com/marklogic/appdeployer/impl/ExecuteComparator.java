@@ -0,0 +1,15 @@
+package com.marklogic.appdeployer.impl;
+
+import com.marklogic.appdeployer.command.Command;
+
+import java.util.Comparator;
+
+/**
+ * Sorts commands by their execute sort order; used by AbstractAppDeployer and ParallelAppDeployer.
+ */
+class ExecuteComparator implements Comparator<Command> {
+	@Override
+	public int compare(Command o1, Command o2) {
+		return o1.getExecuteSortOrder().compareTo(o2.getExecuteSortOrder());
+	}
+}
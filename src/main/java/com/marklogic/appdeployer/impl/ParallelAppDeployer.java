@@ -0,0 +1,431 @@
+package com.marklogic.appdeployer.impl;
+
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.command.Command;
+import com.marklogic.appdeployer.command.CommandContext;
+import com.marklogic.appdeployer.command.SortOrderConstants;
+import com.marklogic.appdeployer.command.alert.DeployAlertActionsCommand;
+import com.marklogic.appdeployer.command.alert.DeployAlertConfigsCommand;
+import com.marklogic.appdeployer.command.alert.DeployAlertRulesCommand;
+import com.marklogic.appdeployer.command.appservers.DeployOtherServersCommand;
+import com.marklogic.appdeployer.command.groups.DeployGroupsCommand;
+import com.marklogic.appdeployer.command.hosts.AssignHostsToGroupsCommand;
+import com.marklogic.appdeployer.command.mimetypes.DeployMimetypesCommand;
+import com.marklogic.appdeployer.command.restapis.DeployRestApiServersCommand;
+import com.marklogic.appdeployer.command.tasks.DeployScheduledTasksCommand;
+import com.marklogic.appdeployer.command.triggers.DeployTriggersCommand;
+import com.marklogic.appdeployer.command.viewschemas.DeployViewSchemasCommand;
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.admin.AdminManager;
+import com.marklogic.mgmt.util.ConcurrentTaskRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Deploys an application by executing commands that don't depend on each other at the same time, using a bounded
+ * number of threads. Undeploying is still done sequentially.
+ * <p>
+ * Commands are first sorted by their execute sort order, just like in AbstractAppDeployer. The sorted commands are then
+ * divided into bands via a set of sort order boundaries - e.g. with the default boundaries, every command with a sort
+ * order below DEPLOY_PRIVILEGE_ROLES is in the first band, and every command from DEPLOY_PRIVILEGE_ROLES up to
+ * DEPLOY_GROUPS is in the second band. A band is not started until every command in the previous band has finished. The
+ * first band contains the security commands that are combined into a single CMA request, and so the barrier after it
+ * ensures that request is submitted before anything that depends on those resources is deployed.
+ * </p>
+ * <p>
+ * Within a band, a command depends by default on every command before it, which means the command is executed
+ * sequentially, exactly as it would be by AbstractAppDeployer. A command class can instead declare the command classes
+ * that it depends on via addCommandDependencies; a command with such a declaration is executed as soon as the commands
+ * it depends on within its band have finished. A few commands that are known to only depend on resources created in
+ * earlier bands are declared by default.
+ * </p>
+ * <p>
+ * Commands that may cause MarkLogic to restart - such as DeployMimetypesCommand and DeployGroupsCommand - are
+ * registered as exclusive commands. An exclusive command is not started until every running command has finished, and
+ * no other command is started until it has finished, so that no request is sent while MarkLogic is restarting.
+ * </p>
+ * <p>
+ * DeployerListener instances are invoked while holding a single lock, so that a listener never needs to be thread-safe.
+ * The "remaining commands" passed to a listener are the commands that have not yet been started.
+ * </p>
+ */
+public class ParallelAppDeployer extends SimpleAppDeployer {
+
+	private int threadCount = 4;
+
+	private List<Integer> bandBoundaries = new ArrayList<>(Arrays.asList(
+		SortOrderConstants.DEPLOY_PRIVILEGE_ROLES,
+		SortOrderConstants.DEPLOY_GROUPS,
+		SortOrderConstants.DEPLOY_REST_API_SERVERS,
+		SortOrderConstants.LOAD_MODULES,
+		SortOrderConstants.DEPLOY_TRIGGERS
+	));
+
+	private Map<Class<?>, List<Class<?>>> commandDependencies = new LinkedHashMap<>();
+
+	private Set<Class<?>> exclusiveCommands = new LinkedHashSet<>();
+
+	private final Object listenerLock = new Object();
+
+	// The custom tokens of the AppConfig being deployed, which are replaced with a concurrent map during a deployment
+	private Map<String, String> originalCustomTokens;
+
+	public ParallelAppDeployer(Command... commandArray) {
+		super(commandArray);
+		addDefaultCommandDependencies();
+	}
+
+	public ParallelAppDeployer(ManageClient manageClient, AdminManager adminManager, Command... commandArray) {
+		super(manageClient, adminManager, commandArray);
+		addDefaultCommandDependencies();
+	}
+
+	protected void addDefaultCommandDependencies() {
+		addExclusiveCommands(DeployMimetypesCommand.class, DeployGroupsCommand.class, AssignHostsToGroupsCommand.class,
+			DeployRestApiServersCommand.class, DeployOtherServersCommand.class);
+		addCommandDependencies(DeployTriggersCommand.class);
+		addCommandDependencies(DeployScheduledTasksCommand.class);
+		addCommandDependencies(DeployViewSchemasCommand.class);
+		addCommandDependencies(DeployAlertConfigsCommand.class);
+		addCommandDependencies(DeployAlertActionsCommand.class, DeployAlertConfigsCommand.class);
+		addCommandDependencies(DeployAlertRulesCommand.class, DeployAlertActionsCommand.class);
+	}
+
+	/**
+	 * Declares the commands that the given command depends on within its band. This replaces the default of depending
+	 * on every command before it in the band. A dependency on a command that is executed after the given command is
+	 * ignored.
+	 *
+	 * @param commandClass
+	 * @param dependsOn    can be empty, in which case the command only depends on the commands in earlier bands
+	 */
+	public void addCommandDependencies(Class<?> commandClass, Class<?>... dependsOn) {
+		commandDependencies.put(commandClass, new ArrayList<>(Arrays.asList(dependsOn)));
+	}
+
+	/**
+	 * Registers commands that may cause MarkLogic to restart, and thus must not be executed at the same time as any
+	 * other command. Subclasses of the given classes are exclusive as well.
+	 *
+	 * @param commandClasses
+	 */
+	public void addExclusiveCommands(Class<?>... commandClasses) {
+		exclusiveCommands.addAll(Arrays.asList(commandClasses));
+	}
+
+	protected boolean isExclusive(Command command) {
+		for (Class<?> exclusiveCommand : exclusiveCommands) {
+			if (exclusiveCommand.isInstance(command)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reverts the given command to depending on every command before it within its band.
+	 *
+	 * @param commandClass
+	 */
+	public void removeCommandDependencies(Class<?> commandClass) {
+		commandDependencies.remove(commandClass);
+	}
+
+	/**
+	 * Uses a synchronized context map, as commands that are executed at the same time may add to it.
+	 */
+	@Override
+	protected CommandContext newCommandContext(AppConfig appConfig) {
+		CommandContext context = super.newCommandContext(appConfig);
+		context.setContextMap(Collections.synchronizedMap(new HashMap<>()));
+		return context;
+	}
+
+	/**
+	 * Replaces the custom tokens of the AppConfig with a concurrent copy, as commands may add custom tokens while other
+	 * commands are replacing tokens in payloads. The added tokens are copied back to the original map once the commands
+	 * have been executed.
+	 */
+	@Override
+	protected void beforeCommandsExecuted(CommandContext context, DeploymentContext deploymentContext) {
+		AppConfig appConfig = context.getAppConfig();
+		originalCustomTokens = appConfig.getCustomTokens();
+		final Map<String, String> concurrentCustomTokens = new ConcurrentHashMap<>();
+		if (originalCustomTokens != null) {
+			originalCustomTokens.forEach((key, value) -> {
+				if (key != null && value != null) {
+					concurrentCustomTokens.put(key, value);
+				}
+			});
+		}
+		appConfig.setCustomTokens(concurrentCustomTokens);
+
+		synchronized (listenerLock) {
+			super.beforeCommandsExecuted(context, deploymentContext);
+		}
+	}
+
+	@Override
+	protected void afterCommandsExecuted(CommandContext context) {
+		try {
+			super.afterCommandsExecuted(context);
+		} finally {
+			AppConfig appConfig = context.getAppConfig();
+			if (originalCustomTokens != null && appConfig.getCustomTokens() != originalCustomTokens) {
+				originalCustomTokens.putAll(appConfig.getCustomTokens());
+				appConfig.setCustomTokens(originalCustomTokens);
+			}
+			originalCustomTokens = null;
+		}
+	}
+
+	/**
+	 * Executes the commands that don't depend on each other at the same time, using up to threadCount threads.
+	 */
+	@Override
+	protected void executeCommands(List<Command> commands, CommandContext context, DeploymentContext deploymentContext) {
+		final int commandCount = commands.size();
+		logger.info(format("Executing %d commands with a thread count of %d", commandCount, threadCount));
+		final int[] bands = new int[commandCount];
+		final boolean[] exclusive = new boolean[commandCount];
+		for (int i = 0; i < commandCount; i++) {
+			bands[i] = getBand(commands.get(i));
+			exclusive[i] = isExclusive(commands.get(i));
+		}
+		final List<List<Integer>> dependencies = buildDependencies(commands, bands);
+		final boolean catchExceptions = context.getAppConfig().isCatchDeployExceptions();
+
+		final boolean[] started = new boolean[commandCount];
+		final boolean[] finished = new boolean[commandCount];
+		int finishedCount = 0;
+		int running = 0;
+		boolean exclusiveRunning = false;
+		int currentBand = commandCount > 0 ? bands[0] : 0;
+		Throwable error = null;
+
+		final int maxRunning = Math.max(1, threadCount);
+		try (ConcurrentTaskRunner<Integer> runner = new ConcurrentTaskRunner<>(maxRunning)) {
+			while (finishedCount < commandCount) {
+				if (error == null && !exclusiveRunning) {
+					for (int i = 0; i < commandCount && running < maxRunning && !exclusiveRunning; i++) {
+						if (started[i] || bands[i] != currentBand || !allFinished(dependencies.get(i), finished)) {
+							continue;
+						}
+						if (exclusive[i]) {
+							if (running > 0) {
+								// Wait for the running commands to finish; nothing after this command is started first
+								break;
+							}
+							exclusiveRunning = true;
+						}
+						synchronized (started) {
+							started[i] = true;
+						}
+						final Command command = commands.get(i);
+						final List<Command> remainingCommands = getCommandsNotStarted(commands, started);
+						logger.info(format("Executing command [%s] with sort order [%d]", command.getClass().getName(), command.getExecuteSortOrder()));
+						try {
+							synchronized (listenerLock) {
+								invokeListenersBeforeCommandExecuted(context, command, deploymentContext, remainingCommands, catchExceptions);
+							}
+						} catch (RuntimeException ex) {
+							error = ex;
+							break;
+						}
+						running++;
+						final int index = i;
+						runner.submit(() -> {
+							long start = System.currentTimeMillis();
+							executeCommand(command, context);
+							logger.info(format("Finished executing command [%s] in %dms\n", command.getClass().getName(), (System.currentTimeMillis() - start)));
+							synchronized (listenerLock) {
+								invokeListenersAfterCommandExecuted(context, command, deploymentContext, getCommandsNotStarted(commands, started), catchExceptions);
+							}
+							return index;
+						});
+					}
+				}
+
+				if (running == 0) {
+					break;
+				}
+
+				Future<Integer> future = runner.takeCompleted();
+				running--;
+				if (running == 0) {
+					exclusiveRunning = false;
+				}
+				try {
+					int index = runner.get(future);
+					finished[index] = true;
+					finishedCount++;
+				} catch (RuntimeException | Error ex) {
+					if (Thread.currentThread().isInterrupted()) {
+						throw ex;
+					}
+					if (error == null) {
+						error = ex;
+						logger.error(format("Command threw exception; waiting for %d running command(s) to finish before stopping the deployment", running));
+					}
+				}
+
+				if (error == null && finishedCount < commandCount && isBandFinished(currentBand, bands, finished)) {
+					currentBand = getFirstUnfinishedBand(bands, finished);
+				}
+			}
+		}
+
+		if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		} else if (error instanceof Error) {
+			throw (Error) error;
+		} else if (error != null) {
+			throw new RuntimeException(error);
+		}
+	}
+
+	/**
+	 * @param command
+	 * @return the number of band boundaries that are less than or equal to the command's execute sort order
+	 */
+	protected int getBand(Command command) {
+		Integer sortOrder = command.getExecuteSortOrder();
+		int band = 0;
+		if (sortOrder != null) {
+			for (Integer boundary : bandBoundaries) {
+				if (sortOrder >= boundary) {
+					band++;
+				}
+			}
+		}
+		return band;
+	}
+
+	/**
+	 * @return for each command, the indexes of the earlier commands in the same band that it depends on
+	 */
+	protected List<List<Integer>> buildDependencies(List<Command> commands, int[] bands) {
+		List<List<Integer>> dependencies = new ArrayList<>(commands.size());
+		for (int i = 0; i < commands.size(); i++) {
+			Command command = commands.get(i);
+			List<Class<?>> declared = commandDependencies.get(command.getClass());
+			List<Integer> indexes = new ArrayList<>();
+			if (declared == null) {
+				for (int j = 0; j < i; j++) {
+					if (bands[j] == bands[i]) {
+						indexes.add(j);
+					}
+				}
+			} else {
+				for (Class<?> dependsOn : declared) {
+					for (int j = 0; j < commands.size(); j++) {
+						if (!dependsOn.isInstance(commands.get(j))) {
+							continue;
+						}
+						if (j < i) {
+							if (bands[j] == bands[i]) {
+								indexes.add(j);
+							}
+						} else if (j > i) {
+							logger.warn(format("Command [%s] declares a dependency on [%s], but that command is executed after it; ignoring the dependency",
+								command.getClass().getName(), dependsOn.getName()));
+						}
+					}
+				}
+			}
+			dependencies.add(indexes);
+		}
+		return dependencies;
+	}
+
+	private boolean allFinished(List<Integer> indexes, boolean[] finished) {
+		for (int index : indexes) {
+			if (!finished[index]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isBandFinished(int band, int[] bands, boolean[] finished) {
+		for (int i = 0; i < bands.length; i++) {
+			if (bands[i] == band && !finished[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Commands are sorted, so the first unfinished command is in the lowest band that hasn't finished.
+	 */
+	private int getFirstUnfinishedBand(int[] bands, boolean[] finished) {
+		for (int i = 0; i < bands.length; i++) {
+			if (!finished[i]) {
+				return bands[i];
+			}
+		}
+		return bands.length > 0 ? bands[bands.length - 1] : 0;
+	}
+
+	private List<Command> getCommandsNotStarted(List<Command> commands, boolean[] started) {
+		List<Command> list = new ArrayList<>();
+		synchronized (started) {
+			for (int i = 0; i < commands.size(); i++) {
+				if (!started[i]) {
+					list.add(commands.get(i));
+				}
+			}
+		}
+		return list;
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * @param threadCount the maximum number of commands to execute at the same time
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	public List<Integer> getBandBoundaries() {
+		return bandBoundaries;
+	}
+
+	/**
+	 * @param bandBoundaries execute sort orders that a command in a later band may not be started before every command
+	 *                       in an earlier band has finished
+	 */
+	public void setBandBoundaries(List<Integer> bandBoundaries) {
+		this.bandBoundaries = bandBoundaries;
+	}
+
+	public Map<Class<?>, List<Class<?>>> getCommandDependencies() {
+		return commandDependencies;
+	}
+
+	public void setCommandDependencies(Map<Class<?>, List<Class<?>>> commandDependencies) {
+		this.commandDependencies = commandDependencies;
+	}
+
+	public Set<Class<?>> getExclusiveCommands() {
+		return exclusiveCommands;
+	}
+
+	public void setExclusiveCommands(Set<Class<?>> exclusiveCommands) {
+		this.exclusiveCommands = exclusiveCommands;
+	}
+}
@@ -0,0 +1,15 @@
+package com.marklogic.appdeployer.impl;
+
+import com.marklogic.appdeployer.command.UndoableCommand;
+
+import java.util.Comparator;
+
+/**
+ * Sorts undoable commands by their undo sort order.
+ */
+class UndoComparator implements Comparator<UndoableCommand> {
+	@Override
+	public int compare(UndoableCommand o1, UndoableCommand o2) {
+		return o1.getUndoSortOrder().compareTo(o2.getUndoSortOrder());
+	}
+}
@@ -11,10 +11,9 @@ import com.marklogic.mgmt.api.security.*;
 import com.marklogic.mgmt.api.server.Server;
 import com.marklogic.mgmt.api.task.Task;
 import com.marklogic.mgmt.api.trigger.Trigger;
+import com.marklogic.mgmt.mapper.DefaultResourceMapper;
 import org.springframework.util.FileCopyUtils;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
@@ -24,6 +23,7 @@ import java.util.function.BiFunction;
 public class DefaultResourceWriter extends LoggingObject implements ResourceWriter {
 
 	private Map<Class<?>, BiFunction<ConfigDir, Resource, File>> functionMap = new HashMap<>();
+	private DefaultResourceMapper resourceMapper = new DefaultResourceMapper();
 
 	/**
 	 * Would be nice to handle this in the Resource class itself, but then the mgmt.api package has to depend on the
@@ -72,13 +72,8 @@ public class DefaultResourceWriter extends LoggingObject implements ResourceWrit
 	@Override
 	public File writeResourceAsXml(Resource r, ConfigDir configDir) {
 		final File file = determineResourceFile(r, configDir, ".xml");
-		try {
-			JAXBContext context = JAXBContext.newInstance(r.getClass());
-			context.createMarshaller().marshal(r, file);
-			return file;
-		} catch (JAXBException ex) {
-			throw new RuntimeException("Unable to write to file: " + file.getAbsolutePath() + "; cause: " + ex.getMessage(), ex);
-		}
+		resourceMapper.writeResourceAsXml(r, file);
+		return file;
 	}
 
 	protected File determineResourceFile(Resource r, ConfigDir configDir, String extension) {
@@ -0,0 +1,102 @@
+package com.marklogic.appdeployer.util;
+
+import com.marklogic.client.ext.modulesloader.ModulesManager;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * ModulesManager that, once a set of changed files has been provided, considers only those files to have been
+ * modified. This allows a ModulesLoader to load only the files that a file watcher has reported as changed, without
+ * checking the timestamp of every other module.
+ * <p>
+ * Until a set of changed files is provided - or after clearChangedFiles is called - the check is delegated to the
+ * given ModulesManager, or every file is considered to be modified if no ModulesManager was given. Timestamps of loaded
+ * files are always saved via the delegate so that a subsequent deployment doesn't load them again.
+ * </p>
+ * <p>
+ * This is also a FileFilter that, while a set of changed files is active, only accepts the changed files and the
+ * directories containing them. Adding it to an AssetFileLoader ensures that only the paths leading to the changed files
+ * are walked, instead of every directory under a module path.
+ * </p>
+ */
+public class ChangedFilesModulesManager implements ModulesManager, FileFilter {
+
+	private final ModulesManager delegate;
+	private volatile Set<Path> changedFiles;
+
+	/**
+	 * @param delegate optional
+	 */
+	public ChangedFilesModulesManager(ModulesManager delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void initialize() {
+		if (delegate != null) {
+			delegate.initialize();
+		}
+	}
+
+	@Override
+	public boolean hasFileBeenModifiedSinceLastLoaded(File file) {
+		Set<Path> files = changedFiles;
+		if (files != null) {
+			return files.contains(normalize(file.toPath()));
+		}
+		return delegate == null || delegate.hasFileBeenModifiedSinceLastLoaded(file);
+	}
+
+	@Override
+	public boolean accept(File file) {
+		Set<Path> files = changedFiles;
+		if (files == null) {
+			return true;
+		}
+		Path path = normalize(file.toPath());
+		if (files.contains(path)) {
+			return true;
+		}
+		return file.isDirectory() && files.stream().anyMatch(changedFile -> changedFile.startsWith(path));
+	}
+
+	@Override
+	public void saveLastLoadedTimestamp(File file, Date date) {
+		if (delegate != null) {
+			delegate.saveLastLoadedTimestamp(file, date);
+		}
+	}
+
+	/**
+	 * @param files the only files that will be considered to be modified until this is called again or
+	 *              clearChangedFiles is called
+	 */
+	public void setChangedFiles(Collection<Path> files) {
+		Set<Path> set = new HashSet<>();
+		files.forEach(path -> set.add(normalize(path)));
+		this.changedFiles = Collections.unmodifiableSet(set);
+	}
+
+	public void clearChangedFiles() {
+		this.changedFiles = null;
+	}
+
+	public Set<Path> getChangedFiles() {
+		return changedFiles;
+	}
+
+	public ModulesManager getDelegate() {
+		return delegate;
+	}
+
+	protected static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+}
@@ -8,25 +8,62 @@ import com.marklogic.client.DatabaseClient;
 import com.marklogic.client.ext.helper.LoggingObject;
 import com.marklogic.client.ext.modulesloader.ModulesFinder;
 import com.marklogic.client.ext.modulesloader.ModulesLoader;
+import com.marklogic.client.ext.modulesloader.ModulesManager;
 import com.marklogic.client.ext.modulesloader.impl.DefaultModulesFinder;
 import com.marklogic.client.ext.modulesloader.impl.DefaultModulesLoader;
 import com.marklogic.mgmt.util.SystemPropertySource;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
 
 /**
  * This is a hacked together prototype of loading modules from within groovysh. The idea is that all the necessary
  * configuration for loading modules can be collected from system properties, which can be set by a tool like ml-gradle.
  * This class can then be created and started in the startup script for groovysh so that when the shell starts, this
  * class can load new/modified modules.
+ * <p>
+ * After loading any modules that have been modified since they were last loaded, this registers every directory under
+ * each module path with a WatchService. When a file is created or modified, this waits until no further changes have
+ * occurred for debounceTime milliseconds, and then loads only the changed files; the timestamps of other modules are
+ * not checked, and only the directories leading to the changed files are walked. A file that is deleted before its
+ * changes are loaded is not loaded, and deleted modules are not removed from the modules database. If a WatchService
+ * is not supported, this falls back to checking every module each sleepTime milliseconds.
+ * </p>
  */
 public class ModulesWatcher extends LoggingObject implements Runnable {
 
 	private long sleepTime = 1000;
+	private long debounceTime = 100;
+	private long maxDebounceTime = 1000;
+	private boolean useWatchService = true;
 	private AppConfig appConfig;
 	private ModulesLoaderFactory modulesLoaderFactory;
 
+	private volatile boolean stopped;
+	private volatile WatchService watchService;
+
 	public ModulesWatcher(AppConfig appConfig) {
 		this.appConfig = appConfig;
 		this.modulesLoaderFactory = new DefaultModulesLoaderFactory();
@@ -39,15 +76,80 @@ public class ModulesWatcher extends LoggingObject implements Runnable {
 
 	@Override
 	public void run() {
-		ModulesLoader loader = modulesLoaderFactory.newModulesLoader(appConfig);
+		ChangedFilesModulesManager modulesManager = new ChangedFilesModulesManager(newTimestampsModulesManager());
+		ModulesLoader loader = newModulesLoader(modulesManager);
 		if (loader instanceof DefaultModulesLoader) {
 			((DefaultModulesLoader) loader).setCatchExceptions(true);
 		}
 
 		DatabaseClient client = appConfig.newDatabaseClient();
-		List<String> paths = appConfig.getModulePaths();
-		ModulesFinder finder = new DefaultModulesFinder();
-		while (true) {
+		try {
+			List<String> paths = appConfig.getModulePaths();
+			ModulesFinder finder = new DefaultModulesFinder();
+			WatchService service = useWatchService ? newWatchService() : null;
+			if (service == null) {
+				pollForChanges(loader, finder, client, paths);
+			} else {
+				watchForChanges(service, modulesManager, loader, finder, client, paths);
+			}
+		} finally {
+			client.release();
+		}
+	}
+
+	protected void watchForChanges(WatchService service, ChangedFilesModulesManager modulesManager, ModulesLoader loader,
+	                               ModulesFinder finder, DatabaseClient client, List<String> paths) {
+		this.watchService = service;
+		try {
+			Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+			for (String modulesPath : paths) {
+				registerDirectories(service, Paths.get(modulesPath), watchedDirectories);
+			}
+
+			// Load anything that changed while the watcher wasn't running, just like the first check when polling
+			for (String modulesPath : paths) {
+				loader.loadModules(modulesPath, finder, client);
+			}
+
+			while (!stopped) {
+				Set<Path> changedFiles = waitForChanges(service, watchedDirectories);
+				if (changedFiles == null) {
+					// Events were lost, so check every module instead
+					for (String modulesPath : paths) {
+						loader.loadModules(modulesPath, finder, client);
+					}
+				} else if (!changedFiles.isEmpty()) {
+					loadChangedFiles(changedFiles, modulesManager, loader, finder, client, paths);
+				}
+			}
+		} catch (ClosedWatchServiceException | InterruptedException ex) {
+			// Expected when stop is called or the thread is interrupted
+		} finally {
+			try {
+				service.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+		}
+	}
+
+	/**
+	 * Stops watching for changes. If this watcher is polling, it stops after its current check.
+	 */
+	public void stop() {
+		stopped = true;
+		WatchService service = this.watchService;
+		if (service != null) {
+			try {
+				service.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+		}
+	}
+
+	protected void pollForChanges(ModulesLoader loader, ModulesFinder finder, DatabaseClient client, List<String> paths) {
+		while (!stopped) {
 			for (String modulesPath : paths) {
 				loader.loadModules(modulesPath, finder, client);
 			}
@@ -59,10 +161,186 @@ public class ModulesWatcher extends LoggingObject implements Runnable {
 		}
 	}
 
+	/**
+	 * Blocks until a change occurs, and then collects changes until none have occurred for debounceTime milliseconds
+	 * or until maxDebounceTime milliseconds have passed.
+	 *
+	 * @return the created or modified files that still exist, or null if the WatchService reported that events were
+	 * lost
+	 */
+	protected Set<Path> waitForChanges(WatchService service, Map<WatchKey, Path> watchedDirectories) throws InterruptedException {
+		WatchKey key = service.take();
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDebounceTime);
+		Set<Path> changedFiles = new HashSet<>();
+		boolean overflow = false;
+		while (key != null) {
+			overflow |= processEvents(key, service, watchedDirectories, changedFiles);
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				break;
+			}
+			key = service.poll(Math.min(TimeUnit.MILLISECONDS.toNanos(debounceTime), remaining), TimeUnit.NANOSECONDS);
+		}
+		return overflow ? null : changedFiles;
+	}
+
+	/**
+	 * @return true if events were lost
+	 */
+	private boolean processEvents(WatchKey key, WatchService service, Map<WatchKey, Path> watchedDirectories, Set<Path> changedFiles) {
+		boolean overflow = false;
+		Path dir = watchedDirectories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW || dir == null) {
+				overflow = true;
+				continue;
+			}
+			Path path = dir.resolve((Path) event.context());
+			if (event.kind() == ENTRY_DELETE) {
+				// A deleted directory's watch key is cancelled, and the WatchService drops it via reset below
+				if (changedFiles.removeIf(file -> file.startsWith(path)) && logger.isDebugEnabled()) {
+					logger.debug("Not loading changed modules that have since been deleted: " + path);
+				}
+			} else if (Files.isDirectory(path)) {
+				if (event.kind() == ENTRY_CREATE) {
+					// Any files created in the new directory before it was registered would otherwise be missed
+					registerDirectories(service, path, watchedDirectories);
+					addFiles(path, changedFiles);
+				}
+			} else if (Files.exists(path)) {
+				changedFiles.add(path);
+			}
+		}
+		if (!key.reset()) {
+			watchedDirectories.remove(key);
+		}
+		return overflow;
+	}
+
+	protected void loadChangedFiles(Set<Path> changedFiles, ChangedFilesModulesManager modulesManager, ModulesLoader loader,
+	                                ModulesFinder finder, DatabaseClient client, List<String> paths) {
+		if (logger.isInfoEnabled()) {
+			logger.info("Loading changed modules: " + changedFiles);
+		}
+		modulesManager.setChangedFiles(changedFiles);
+		try {
+			for (String modulesPath : paths) {
+				Path root = Paths.get(modulesPath).toAbsolutePath().normalize();
+				if (changedFiles.stream().anyMatch(path -> path.toAbsolutePath().normalize().startsWith(root))) {
+					loader.loadModules(modulesPath, finder, client);
+				}
+			}
+		} finally {
+			modulesManager.clearChangedFiles();
+		}
+	}
+
+	/**
+	 * @return a ModulesManager for checking the timestamps of modules when every module is checked; null if the
+	 * ModulesLoaderFactory is not a DefaultModulesLoaderFactory
+	 */
+	protected ModulesManager newTimestampsModulesManager() {
+		if (modulesLoaderFactory instanceof DefaultModulesLoaderFactory) {
+			DefaultModulesLoaderFactory factory = (DefaultModulesLoaderFactory) modulesLoaderFactory;
+			if (factory.getModulesManager() != null) {
+				return factory.getModulesManager();
+			}
+			return factory.newModulesManager(appConfig);
+		}
+		return null;
+	}
+
+	/**
+	 * A DefaultModulesLoaderFactory will use the given ModulesManager for both assets and REST extensions. For any other
+	 * factory, the ModulesManager is only used for REST extensions, and only if the ModulesLoader is a
+	 * DefaultModulesLoader. In either case, the ModulesManager is added as a file filter to the AssetFileLoader of a
+	 * DefaultModulesLoader so that only the paths leading to changed files are walked.
+	 */
+	protected ModulesLoader newModulesLoader(ChangedFilesModulesManager modulesManager) {
+		ModulesLoader loader;
+		if (modulesLoaderFactory instanceof DefaultModulesLoaderFactory) {
+			loader = ((DefaultModulesLoaderFactory) modulesLoaderFactory).newModulesLoader(appConfig, modulesManager);
+		} else {
+			loader = modulesLoaderFactory.newModulesLoader(appConfig);
+			if (loader instanceof DefaultModulesLoader) {
+				((DefaultModulesLoader) loader).setModulesManager(modulesManager);
+			}
+		}
+		if (loader instanceof DefaultModulesLoader && ((DefaultModulesLoader) loader).getAssetFileLoader() != null) {
+			((DefaultModulesLoader) loader).getAssetFileLoader().addFileFilter(modulesManager);
+		}
+		return loader;
+	}
+
+	/**
+	 * @return null if a WatchService is not supported
+	 */
+	protected WatchService newWatchService() {
+		try {
+			return FileSystems.getDefault().newWatchService();
+		} catch (UnsupportedOperationException | IOException ex) {
+			logger.warn("Unable to watch modules for changes, will check for changes every " + sleepTime + "ms instead; cause: " + ex.getMessage());
+			return null;
+		}
+	}
+
+	private void registerDirectories(WatchService service, Path start, Map<WatchKey, Path> watchedDirectories) {
+		if (!Files.isDirectory(start)) {
+			return;
+		}
+		try {
+			Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					watchedDirectories.put(dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException ex) {
+			logger.warn("Unable to watch directory: " + start + "; cause: " + ex.getMessage());
+		}
+	}
+
+	private void addFiles(Path dir, Set<Path> files) {
+		try {
+			Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					files.add(file);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException ex) {
+			logger.warn("Unable to find files in new directory: " + dir + "; cause: " + ex.getMessage());
+		}
+	}
+
 	public void setSleepTime(long sleepTime) {
 		this.sleepTime = sleepTime;
 	}
 
+	/**
+	 * @param debounceTime number of milliseconds without a further change to wait before loading changed modules
+	 */
+	public void setDebounceTime(long debounceTime) {
+		this.debounceTime = debounceTime;
+	}
+
+	/**
+	 * @param maxDebounceTime maximum number of milliseconds to wait after the first change before loading changed
+	 *                        modules, even if changes are still occurring
+	 */
+	public void setMaxDebounceTime(long maxDebounceTime) {
+		this.maxDebounceTime = maxDebounceTime;
+	}
+
+	/**
+	 * @param useWatchService if false, every module is checked for changes every sleepTime milliseconds
+	 */
+	public void setUseWatchService(boolean useWatchService) {
+		this.useWatchService = useWatchService;
+	}
+
 	public ModulesLoaderFactory getModulesLoaderFactory() {
 		return modulesLoaderFactory;
 	}
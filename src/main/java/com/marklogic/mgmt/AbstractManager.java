@@ -55,13 +55,35 @@ public class AbstractManager extends LoggingObject {
     }
 
     protected String getResourceId(String payload) {
+        return getResourceId(payloadParser.parse(payload));
+    }
+
+    protected String getResourceId(ParsedPayload payload) {
         return payloadParser.getPayloadFieldValue(payload, getIdFieldName());
     }
 
+	/**
+	 * Used by methods that already have a parsed payload. The String overload of getResourceId is called so that
+	 * subclasses that override it - which were written before getResourceId(ParsedPayload) existed - are honored; the
+	 * given payload is first made the one that payloadParser returns for its String, so it isn't parsed again.
+	 *
+	 * @param payload
+	 * @return
+	 */
+	protected String determineResourceId(ParsedPayload payload) {
+		payloadParser.reuse(payload);
+		return getResourceId(payload.getPayload());
+	}
+
     protected ResponseEntity<String> putPayload(ManageClient client, String path, String payload) {
+        return putPayload(client, path, payloadParser.parse(payload));
+    }
+
+    protected ResponseEntity<String> putPayload(ManageClient client, String path, ParsedPayload parsedPayload) {
+        final String payload = parsedPayload.getPayload();
         boolean requiresSecurityUser = useSecurityUser(payload);
         try {
-	        if (payloadParser.isJsonPayload(payload)) {
+	        if (parsedPayload.isJson()) {
 		        return requiresSecurityUser ? client.putJsonAsSecurityUser(path, payload) : client.putJson(path, payload);
 	        }
 	        return requiresSecurityUser ? client.putXmlAsSecurityUser(path, payload) : client.putXml(path, payload);
@@ -72,9 +94,14 @@ public class AbstractManager extends LoggingObject {
     }
 
     protected ResponseEntity<String> postPayload(ManageClient client, String path, String payload) {
+        return postPayload(client, path, payloadParser.parse(payload));
+    }
+
+    protected ResponseEntity<String> postPayload(ManageClient client, String path, ParsedPayload parsedPayload) {
+        final String payload = parsedPayload.getPayload();
         boolean requiresSecurityUser = useSecurityUser(payload);
         try {
-	        if (payloadParser.isJsonPayload(payload)) {
+	        if (parsedPayload.isJson()) {
 		        return requiresSecurityUser ? client.postJsonAsSecurityUser(path, payload) : client.postJson(path, payload);
 	        }
 	        return requiresSecurityUser ? client.postXmlAsSecurityUser(path, payload) : client.postXml(path, payload);
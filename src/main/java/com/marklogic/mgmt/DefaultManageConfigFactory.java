@@ -102,6 +102,46 @@ public class DefaultManageConfigFactory extends PropertySourceFactory implements
 		    config.setCleanJsonPayloads(Boolean.parseBoolean(prop));
 	    });
 
+	    propertyConsumerMap.put("mlManageRecordMetrics", (config, prop) -> {
+		    logger.info("Record metrics for Management API requests: " + prop);
+		    config.setRecordMetrics(Boolean.parseBoolean(prop));
+	    });
+
+	    propertyConsumerMap.put("mlManageRetryMaxAttempts", (config, prop) -> {
+		    logger.info("Maximum attempts for Management API requests: " + prop);
+		    config.getRetryPolicy().setMaxAttempts(Integer.parseInt(prop));
+	    });
+
+	    propertyConsumerMap.put("mlManageRetryInitialDelay", (config, prop) -> {
+		    logger.info("Initial delay before retrying a Management API request: " + prop);
+		    config.getRetryPolicy().setInitialDelay(Long.parseLong(prop));
+	    });
+
+	    propertyConsumerMap.put("mlManagePooledConnections", (config, prop) -> {
+		    logger.info("Use pooled connections for Manage app server: " + prop);
+		    config.setUsePooledConnections(Boolean.parseBoolean(prop));
+	    });
+
+	    propertyConsumerMap.put("mlManageMaxConnections", (config, prop) -> {
+		    logger.info("Max pooled connections for Manage app server: " + prop);
+		    config.setMaxConnectionsTotal(Integer.parseInt(prop));
+	    });
+
+	    propertyConsumerMap.put("mlManageMaxConnectionsPerRoute", (config, prop) -> {
+		    logger.info("Max pooled connections per route for Manage app server: " + prop);
+		    config.setMaxConnectionsPerRoute(Integer.parseInt(prop));
+	    });
+
+	    propertyConsumerMap.put("mlManageIdleConnectionTimeout", (config, prop) -> {
+		    logger.info("Idle connection timeout in milliseconds for Manage app server: " + prop);
+		    config.setIdleConnectionTimeout(Long.parseLong(prop));
+	    });
+
+	    propertyConsumerMap.put("mlManageValidateAfterInactivity", (config, prop) -> {
+		    logger.info("Validate pooled connections after inactivity in milliseconds for Manage app server: " + prop);
+		    config.setValidateAfterInactivity(Integer.parseInt(prop));
+	    });
+
 	    propertyConsumerMap.put("mlAdminUsername", (config, prop) -> {
 		    logger.info("mlAdminUsername is deprecated; please use mlSecurityUsername instead; Manage user with security role: " + prop);
 		    config.setSecurityUsername(prop);
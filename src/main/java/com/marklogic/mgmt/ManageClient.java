@@ -2,12 +2,21 @@ package com.marklogic.mgmt;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.mgmt.cma.CmaCapabilities;
+import com.marklogic.mgmt.metrics.DefaultManageClientMetrics;
+import com.marklogic.mgmt.metrics.ManageClientMetrics;
+import com.marklogic.mgmt.metrics.ManageClientMetricsInterceptor;
+import com.marklogic.mgmt.retry.RetryInterceptor;
+import com.marklogic.mgmt.retry.RetryPolicy;
 import com.marklogic.mgmt.util.ObjectMapperFactory;
 import com.marklogic.rest.util.Fragment;
+import com.marklogic.rest.util.ResourceList;
 import com.marklogic.rest.util.RestConfig;
 import com.marklogic.rest.util.RestTemplateUtil;
+import com.marklogic.rest.util.StaxResourceListReader;
 import org.jdom2.Namespace;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
@@ -17,7 +26,12 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Wraps a RestTemplate with methods that should simplify accessing the Manage API with RestTemplate. Each NounManager
@@ -29,6 +43,13 @@ public class ManageClient extends LoggingObject {
 	private RestTemplate restTemplate;
 	private RestTemplate securityUserRestTemplate;
 	private PayloadParser payloadParser;
+	private StaxResourceListReader resourceListReader = new StaxResourceListReader();
+	private ManageClientMetrics manageClientMetrics;
+	private RetryPolicy retryPolicy;
+
+	// Keyed on host and port, as a ManageClient's ManageConfig can be replaced. Keying on the MarkLogic version would
+	// require a request to determine the version before the cache could be consulted, costing as much as the probe.
+	private final Map<String, FutureTask<CmaCapabilities>> cmaCapabilitiesByHost = new ConcurrentHashMap<>();
 
     /**
      * Can use this constructor when the default values in ManageConfig will work.
@@ -46,6 +67,10 @@ public class ManageClient extends LoggingObject {
 	 * In addition, if adminUsername on the ManageConfig instance differs from username, then a separate RestTemplate is
 	 * constructed for making calls to the Manage API that need user with the manage-admin and security roles, which is
 	 * often an admin user.
+	 * <p>
+	 * The RetryPolicy of the ManageConfig is copied, so that changing it afterwards doesn't affect this client or any
+	 * other client constructed with the same ManageConfig; use getRetryPolicy or setRetryPolicy on this client instead.
+	 * </p>
 	 *
 	 * @param config
 	 */
@@ -65,7 +90,12 @@ public class ManageClient extends LoggingObject {
 		    RestConfig rc = new RestConfig(config.getHost(), config.getPort(), securityUsername, config.getSecurityPassword());
 		    rc.setScheme(config.getScheme());
 		    rc.setConfigureSimpleSsl(config.isConfigureSimpleSsl());
-		    rc.setHostnameVerifier(config.getHostnameVerifier());
+		    rc.setHostnameVerifier(config.getSslHostnameVerifier());
+		    rc.setUsePooledConnections(config.isUsePooledConnections());
+		    rc.setMaxConnectionsTotal(config.getMaxConnectionsTotal());
+		    rc.setMaxConnectionsPerRoute(config.getMaxConnectionsPerRoute());
+		    rc.setIdleConnectionTimeout(config.getIdleConnectionTimeout());
+		    rc.setValidateAfterInactivity(config.getValidateAfterInactivity());
 
 		    if (config.getSecuritySslContext() != null) {
 		    	rc.setSslContext(config.getSecuritySslContext());
@@ -77,8 +107,72 @@ public class ManageClient extends LoggingObject {
 	    } else {
 		    this.securityUserRestTemplate = restTemplate;
 	    }
+
+	    if (manageClientMetrics == null && config.isRecordMetrics()) {
+	    	manageClientMetrics = new DefaultManageClientMetrics();
+	    }
+	    if (manageClientMetrics != null) {
+	    	setManageClientMetrics(manageClientMetrics);
+	    }
+	    if (config.getRetryPolicy() != null) {
+	    	setRetryPolicy(config.getRetryPolicy().copy());
+	    }
     }
 
+	/**
+	 * Retries requests sent by this client's RestTemplate(s) based on the given RetryPolicy, replacing any policy that
+	 * was previously set. The RetryInterceptor is added as the last interceptor, as it must re-execute a request
+	 * without invoking any other interceptor.
+	 *
+	 * @param retryPolicy if null, requests will no longer be retried
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+		addRetryInterceptor(restTemplate, retryPolicy);
+		if (securityUserRestTemplate != restTemplate) {
+			addRetryInterceptor(securityUserRestTemplate, retryPolicy);
+		}
+	}
+
+	protected void addRetryInterceptor(RestTemplate template, RetryPolicy retryPolicy) {
+		if (template == null) {
+			return;
+		}
+		List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(template.getInterceptors());
+		interceptors.removeIf(interceptor -> interceptor instanceof RetryInterceptor);
+		if (retryPolicy != null) {
+			interceptors.add(new RetryInterceptor(retryPolicy));
+		}
+		template.setInterceptors(interceptors);
+	}
+
+	/**
+	 * Records metrics about every request sent by this client's RestTemplate(s) in the given ManageClientMetrics
+	 * instance, replacing any instance that was previously set.
+	 *
+	 * @param metrics if null, metrics will no longer be recorded
+	 */
+	public void setManageClientMetrics(ManageClientMetrics metrics) {
+		this.manageClientMetrics = metrics;
+		addMetricsInterceptor(restTemplate, metrics);
+		if (securityUserRestTemplate != restTemplate) {
+			addMetricsInterceptor(securityUserRestTemplate, metrics);
+		}
+	}
+
+	protected void addMetricsInterceptor(RestTemplate template, ManageClientMetrics metrics) {
+		if (template == null) {
+			return;
+		}
+		List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(template.getInterceptors());
+		interceptors.removeIf(interceptor -> interceptor instanceof ManageClientMetricsInterceptor);
+		if (metrics != null) {
+			// Added first so that the time spent in any other interceptors is included
+			interceptors.add(0, new ManageClientMetricsInterceptor(metrics));
+		}
+		template.setInterceptors(interceptors);
+	}
+
 	/**
 	 * Use this when you want to provide your own RestTemplate as opposed to using the one that's constructed via a
 	 * ManageConfig instance.
@@ -181,6 +275,30 @@ public class ManageClient extends LoggingObject {
 		return new Fragment(xml, list.toArray(new Namespace[] {}));
 	}
 
+	/**
+	 * Streams the response from a Manage API list endpoint - e.g. /manage/v2/roles - into a ResourceList. This avoids
+	 * building a DOM for the response, and is thus preferable to getXml when only the name and ID of each resource is
+	 * needed.
+	 *
+	 * @param path
+	 * @return
+	 */
+	public ResourceList getResourceList(String path) {
+		logRequest(path, "XML", "GET");
+		return readResourceList(getRestTemplate(), path);
+	}
+
+	public ResourceList getResourceListAsSecurityUser(String path) {
+		logSecurityUserRequest(path, "XML", "GET");
+		return readResourceList(securityUserRestTemplate, path);
+	}
+
+	protected ResourceList readResourceList(RestTemplate template, String path) {
+		return template.execute(buildUri(path), HttpMethod.GET,
+			request -> request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_XML)),
+			response -> resourceListReader.read(response.getBody()));
+	}
+
     public String getJson(String path) {
 		return getJson(path, String.class).getBody();
     }
@@ -251,7 +369,7 @@ public class ManageClient extends LoggingObject {
 		JsonNode node = payloadParser.parseJson(payload);
 		StringWriter sw = new StringWriter();
 		try {
-			ObjectMapperFactory.getObjectMapper().writer().writeValue(sw, node);
+			ObjectMapperFactory.getWireWriter().writeValue(sw, node);
 		} catch (IOException ex) {
 			throw new RuntimeException("Unable to write JSON payload as JsonNode back out to a string, cause: " + ex.getMessage());
 		}
@@ -301,10 +419,44 @@ public class ManageClient extends LoggingObject {
         return manageConfig;
     }
 
+	/**
+	 * Returns the number of requests that this client can have in flight at once to the Manage API. When pooled
+	 * connections are used, this is the max connections per route of the ManageConfig. Otherwise, it's the number of
+	 * connections per route that HttpClient allows when it uses system properties, which is the value of the
+	 * "http.maxConnections" system property (5 by default) when "http.keepAlive" is true, and 2 otherwise.
+	 * <p>
+	 * Components that send concurrent requests use this to size their thread pools, as any thread beyond this limit
+	 * would just wait on a connection.
+	 * </p>
+	 *
+	 * @return
+	 */
+	public int getMaxConcurrentRequests() {
+		if (manageConfig.isUsePooledConnections()) {
+			return Math.max(1, manageConfig.getMaxConnectionsPerRoute());
+		}
+		if (!"true".equalsIgnoreCase(System.getProperty("http.keepAlive", "true"))) {
+			return 2;
+		}
+		try {
+			return Math.max(1, Integer.parseInt(System.getProperty("http.maxConnections", "5")));
+		} catch (NumberFormatException ex) {
+			return 5;
+		}
+	}
+
 	public void setRestTemplate(RestTemplate restTemplate) {
 		this.restTemplate = restTemplate;
 	}
 
+	public ManageClientMetrics getManageClientMetrics() {
+		return manageClientMetrics;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
 	public RestTemplate getSecurityUserRestTemplate() {
 		return securityUserRestTemplate;
 	}
@@ -312,4 +464,65 @@ public class ManageClient extends LoggingObject {
 	public void setSecurityUserRestTemplate(RestTemplate restTemplate) {
 		this.securityUserRestTemplate = restTemplate;
 	}
+
+	/**
+	 * Determines what the Configuration Management API supports on the host that this client talks to the first time
+	 * this is called, and then returns the same instance until refreshCmaCapabilities or invalidateCmaCapabilities is
+	 * called. Concurrent callers wait for the first one to finish, so that the endpoint is only probed once.
+	 *
+	 * @return
+	 */
+	public CmaCapabilities getCmaCapabilities() {
+		final String key = getCmaCapabilitiesKey();
+		FutureTask<CmaCapabilities> task = cmaCapabilitiesByHost.get(key);
+		if (task == null) {
+			FutureTask<CmaCapabilities> newTask = new FutureTask<>(() -> {
+				CmaCapabilities capabilities = CmaCapabilities.determine(this);
+				if (logger.isInfoEnabled()) {
+					logger.info("Determined Configuration Management API capabilities: " + capabilities);
+				}
+				return capabilities;
+			});
+			task = cmaCapabilitiesByHost.putIfAbsent(key, newTask);
+			if (task == null) {
+				// The probe is run outside of the map so that it doesn't block updates to other keys
+				task = newTask;
+				task.run();
+			}
+		}
+
+		try {
+			return task.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while determining Configuration Management API capabilities", ex);
+		} catch (ExecutionException ex) {
+			// Don't memoize a failure, so that the next call probes again
+			cmaCapabilitiesByHost.remove(key, task);
+			Throwable cause = ex.getCause();
+			throw cause instanceof RuntimeException ? (RuntimeException) cause :
+				new RuntimeException("Unable to determine Configuration Management API capabilities, cause: " + cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Discards any memoized CmaCapabilities and determines them again.
+	 *
+	 * @return
+	 */
+	public CmaCapabilities refreshCmaCapabilities() {
+		invalidateCmaCapabilities();
+		return getCmaCapabilities();
+	}
+
+	/**
+	 * Discards any memoized CmaCapabilities, such that they are determined again the next time they are needed.
+	 */
+	public void invalidateCmaCapabilities() {
+		cmaCapabilitiesByHost.remove(getCmaCapabilitiesKey());
+	}
+
+	protected String getCmaCapabilitiesKey() {
+		return manageConfig != null ? manageConfig.getHost() + ":" + manageConfig.getPort() : "";
+	}
 }
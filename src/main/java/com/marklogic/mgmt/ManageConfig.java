@@ -1,5 +1,6 @@
 package com.marklogic.mgmt;
 
+import com.marklogic.mgmt.retry.RetryPolicy;
 import com.marklogic.rest.util.RestConfig;
 
 import javax.net.ssl.SSLContext;
@@ -27,6 +28,8 @@ public class ManageConfig extends RestConfig {
 	private SSLContext securitySslContext;
 
 	private boolean cleanJsonPayloads = false;
+	private boolean recordMetrics = false;
+	private RetryPolicy retryPolicy = new RetryPolicy();
 
 	public ManageConfig() {
 		this("localhost", DEFAULT_PASSWORD);
@@ -56,6 +59,30 @@ public class ManageConfig extends RestConfig {
 		this.cleanJsonPayloads = cleanJsonPayloads;
 	}
 
+	/**
+	 * @return whether a ManageClient constructed with this config records metrics about each request, which are then
+	 * summarized at the end of a deployment
+	 */
+	public boolean isRecordMetrics() {
+		return recordMetrics;
+	}
+
+	public void setRecordMetrics(boolean recordMetrics) {
+		this.recordMetrics = recordMetrics;
+	}
+
+	/**
+	 * @return the policy for retrying requests that fail due to e.g. a host restarting; may be null, in which case
+	 * requests are not retried. Each ManageConfig has its own default policy, and a ManageClient uses a copy of it.
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
 	public String getSecurityUsername() {
 		return securityUsername;
 	}
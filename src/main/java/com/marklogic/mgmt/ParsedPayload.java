@@ -0,0 +1,86 @@
+package com.marklogic.mgmt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.marklogic.rest.util.Fragment;
+
+/**
+ * Holds a JSON or XML payload along with its parsed form, so that a payload only needs to be parsed once regardless of
+ * how many values are read from it while it's being saved. The format of the payload is determined once, and the
+ * payload is only parsed - via the given PayloadParser - the first time that its JsonNode or Fragment is requested.
+ * <p>
+ * The JsonNode and Fragment returned by this class are shared, and thus should not be modified. PayloadParser makes a
+ * copy of them before including or excluding properties.
+ * </p>
+ */
+public class ParsedPayload {
+
+	private final String payload;
+	private final PayloadParser payloadParser;
+	private final boolean json;
+
+	private JsonNode jsonNode;
+	private Fragment fragment;
+
+	public ParsedPayload(String payload) {
+		this(payload, new PayloadParser());
+	}
+
+	public ParsedPayload(String payload, PayloadParser payloadParser) {
+		this.payload = payload;
+		this.payloadParser = payloadParser;
+		this.json = startsLikeJson(payload);
+	}
+
+	/**
+	 * Equivalent to checking if the trimmed payload starts with "{" or "[", but without copying the payload.
+	 *
+	 * @param payload
+	 * @return
+	 */
+	public static boolean startsLikeJson(String payload) {
+		if (payload == null) {
+			return false;
+		}
+		final int length = payload.length();
+		for (int i = 0; i < length; i++) {
+			char c = payload.charAt(i);
+			if (c > ' ') {
+				return c == '{' || c == '[';
+			}
+		}
+		return false;
+	}
+
+	public String getPayload() {
+		return payload;
+	}
+
+	public boolean isJson() {
+		return json;
+	}
+
+	/**
+	 * @return the parsed JSON payload, which should not be modified
+	 */
+	public synchronized JsonNode getJsonNode() {
+		if (jsonNode == null) {
+			jsonNode = payloadParser.parseJson(payload);
+		}
+		return jsonNode;
+	}
+
+	/**
+	 * @return the parsed XML payload, which should not be modified
+	 */
+	public synchronized Fragment getFragment() {
+		if (fragment == null) {
+			fragment = payloadParser.parseXml(payload);
+		}
+		return fragment;
+	}
+
+	@Override
+	public String toString() {
+		return payload;
+	}
+}
@@ -9,15 +9,49 @@ import org.jdom2.Element;
 import org.jdom2.output.XMLOutputter;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Utility class for parsing a JSON or XML payload and extracting values.
+ * <p>
+ * Each method that accepts a String payload has an equivalent that accepts a ParsedPayload. The String methods obtain a
+ * ParsedPayload via the parse method, which reuses the most recently parsed payload if it's the same String instance.
+ * This allows for a payload to be passed as a String through the many overridable methods involved in saving a
+ * resource while only being parsed once.
+ * </p>
  */
 public class PayloadParser {
 
     private ObjectMapper objectMapper;
+    private volatile ParsedPayload lastParsedPayload;
+
+	/**
+	 * @param payload
+	 * @return a ParsedPayload for the given payload; if the given payload is the same instance as the one passed in
+	 * the previous call to this method, then the same ParsedPayload is returned so that the payload isn't parsed again
+	 */
+	public ParsedPayload parse(String payload) {
+		ParsedPayload last = lastParsedPayload;
+		if (last != null && last.getPayload() == payload) {
+			return last;
+		}
+		ParsedPayload parsedPayload = new ParsedPayload(payload, this);
+		lastParsedPayload = parsedPayload;
+		return parsedPayload;
+	}
+
+	/**
+	 * Makes the given ParsedPayload the one that parse returns for the same String instance, so that a payload that
+	 * was parsed elsewhere isn't parsed again when it's passed as a String to an overridable method.
+	 *
+	 * @param parsedPayload
+	 */
+	public void reuse(ParsedPayload parsedPayload) {
+		lastParsedPayload = parsedPayload;
+	}
 
     public JsonNode parseJson(String json) {
     	if (objectMapper == null) {
@@ -30,6 +64,10 @@ public class PayloadParser {
         }
     }
 
+    public Fragment parseXml(String xml) {
+    	return new Fragment(xml);
+    }
+
     public String getPayloadName(String payload, String idFieldName) {
         return getPayloadFieldValue(payload, idFieldName);
     }
@@ -39,39 +77,50 @@ public class PayloadParser {
 	}
 
 	public String getPayloadFieldValue(String payload, String fieldName, boolean throwErrorIfNotFound) {
-        if (isJsonPayload(payload)) {
-            JsonNode node = parseJson(payload);
+		return getPayloadFieldValue(parse(payload), fieldName, throwErrorIfNotFound);
+	}
+
+	public String getPayloadFieldValue(ParsedPayload payload, String fieldName) {
+		return getPayloadFieldValue(payload, fieldName, true);
+	}
+
+	public String getPayloadFieldValue(ParsedPayload payload, String fieldName, boolean throwErrorIfNotFound) {
+        if (payload.isJson()) {
+            JsonNode node = payload.getJsonNode();
             if (!node.has(fieldName)) {
             	if (throwErrorIfNotFound) {
 		            throw new RuntimeException("Cannot get field value from JSON; field name: " + fieldName + "; JSON: "
-			            + payload);
+			            + payload.getPayload());
 	            } else {
             		return null;
 	            }
             }
             return node.get(fieldName).isTextual() ? node.get(fieldName).asText() : node.get(fieldName).toString();
         } else {
-            Fragment f = new Fragment(payload);
-            String xpath = String.format("/node()/*[local-name(.) = '%s']", fieldName);
-            if (!f.elementExists(xpath)) {
+            Fragment f = payload.getFragment();
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("fieldName", fieldName);
+            List<String> values = f.getElementValues("/node()/*[local-name(.) = $fieldName]", variables);
+            if (values.isEmpty()) {
             	if (throwErrorIfNotFound) {
-		            throw new RuntimeException("Cannot get field value from XML at path: " + xpath + "; XML: " + payload);
+		            throw new RuntimeException("Cannot get field value from XML at path: " +
+			            String.format("/node()/*[local-name(.) = '%s']", fieldName) + "; XML: " + payload.getPayload());
 	            } else {
             		return null;
 	            }
             }
-            return f.getElementValues(xpath).get(0);
+            return values.get(0);
         }
     }
 
     public boolean isJsonPayload(String payload) {
-    	if (payload == null) {
-    		return false;
-	    }
-        String s = payload.trim();
-        return s.startsWith("{") || s.startsWith("[");
+    	return ParsedPayload.startsLikeJson(payload);
     }
 
+	public boolean isJsonPayload(ParsedPayload payload) {
+		return payload != null && payload.isJson();
+	}
+
 	public ObjectMapper getObjectMapper() {
 		return objectMapper;
 	}
@@ -89,10 +138,21 @@ public class PayloadParser {
 	 * @return
 	 */
 	public String includeProperties(String payload, String... propertyNames) {
+		return includeProperties(parse(payload), propertyNames);
+	}
+
+	/**
+	 * The parsed form of the given payload is copied, and thus not modified.
+	 *
+	 * @param payload
+	 * @param propertyNames
+	 * @return
+	 */
+	public String includeProperties(ParsedPayload payload, String... propertyNames) {
 		List<String> propertyNameList = Arrays.asList(propertyNames);
 
-		if (isJsonPayload(payload)) {
-			JsonNode json = parseJson(payload);
+		if (payload.isJson()) {
+			JsonNode json = payload.getJsonNode().deepCopy();
 			ObjectNode node = (ObjectNode) json;
 			Iterator<String> it = json.fieldNames();
 			while (it.hasNext()) {
@@ -101,19 +161,18 @@ public class PayloadParser {
 					it.remove();
 				}
 			}
-			payload = node.toString();
+			return node.toString();
 		} else {
 			//assume XML
-			Fragment frag = new Fragment(payload);
+			Fragment frag = payload.getFragment().copy();
 			Element doc = frag.getInternalDoc().getRootElement();
 			for (Element child : doc.getChildren()) {
 				if (!propertyNameList.contains(child.getName())) {
 					child.detach();
 				}
 			}
-			payload = new XMLOutputter().outputString(doc);
+			return new XMLOutputter().outputString(doc);
 		}
-		return payload;
 	}
 
 	/**
@@ -125,18 +184,29 @@ public class PayloadParser {
 	 * @return
 	 */
 	public String excludeProperties(String payload, String... propertyNames) {
-		if (isJsonPayload(payload)) {
-			JsonNode json = parseJson(payload);
+		return excludeProperties(parse(payload), propertyNames);
+	}
+
+	/**
+	 * The parsed form of the given payload is copied, and thus not modified.
+	 *
+	 * @param payload
+	 * @param propertyNames
+	 * @return
+	 */
+	public String excludeProperties(ParsedPayload payload, String... propertyNames) {
+		if (payload.isJson()) {
+			JsonNode json = payload.getJsonNode().deepCopy();
 			for (String propertyName : propertyNames) {
 				if (json.has(propertyName)) {
 					ObjectNode node = (ObjectNode) json;
 					node.remove(propertyName);
 				}
 			}
-			payload = json.toString();
+			return json.toString();
 		} else {
 			//assume XML
-			Fragment frag = new Fragment(payload);
+			Fragment frag = payload.getFragment().copy();
 			Element doc = frag.getInternalDoc().getRootElement();
 			// For XML, the propertyName needs to be an XPath expression
 			for (String propertyName : propertyNames) {
@@ -147,8 +217,7 @@ public class PayloadParser {
 					}
 				}
 			}
-			payload = new XMLOutputter().outputString(doc);
+			return new XMLOutputter().outputString(doc);
 		}
-		return payload;
 	}
 }
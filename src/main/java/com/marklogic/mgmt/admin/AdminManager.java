@@ -12,11 +12,20 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class AdminManager extends AbstractManager {
 
+    private final static Pattern LAST_STARTUP_XML_PATTERN = Pattern.compile("<(?:\\w+:)?last-startup[^>]*>([^<]+)<");
+    private final static Pattern LAST_STARTUP_JSON_PATTERN = Pattern.compile("\"last-startup\"\\s*:\\s*\\[([^\\]]*)\\]");
+    private final static Pattern JSON_VALUE_PATTERN = Pattern.compile("\"value\"\\s*:\\s*\"([^\"]+)\"");
+
     private int waitForRestartCheckInterval = 1000;
-    private int waitForRestartLimit = 30;
+    private RestartWaiter restartWaiter = new RestartWaiter();
     private RestTemplate restTemplate;
     private AdminConfig adminConfig;
 
@@ -133,49 +142,113 @@ public class AdminManager extends AbstractManager {
     }
 
     /**
-     * This used to be much more complex - the code first got the latest restart timestamp and then waited for a new
-     * value. But based on the "delay()" method implementation in marklogic-samplestack, we can just keep catching
-     * exceptions until the call to get the restart timestamp works.
+     * Captures the restart timestamp before executing the action, so that if the action requires a restart, the
+     * restart can be detected by waiting for a different timestamp - even if MarkLogic restarts before the first check.
      *
      * @param action
      */
     public void invokeActionRequiringRestart(ActionRequiringRestart action) {
         logger.info("Executing action that may require restarting MarkLogic");
+        String previousTimestamp = getLastRestartTimestampIfAvailable();
         boolean requiresRestart = action.execute();
         if (requiresRestart) {
             logger.info("Waiting for MarkLogic to restart...");
-            waitForRestart();
+            if (previousTimestamp != null) {
+                waitForRestart(Collections.singleton(previousTimestamp));
+            } else {
+                waitForRestart();
+            }
         }
     }
 
+    /**
+     * @return the restart timestamp, with any surrounding whitespace - such as a trailing newline - removed so that it
+     * can be compared to the timestamps in a response indicating that a restart is occurring
+     */
     public String getLastRestartTimestamp() {
-        return restTemplate.getForEntity(adminConfig.buildUri("/admin/v1/timestamp"), String.class).getBody();
+        String timestamp = restTemplate.getForEntity(adminConfig.buildUri("/admin/v1/timestamp"), String.class).getBody();
+        return timestamp != null ? timestamp.trim() : null;
     }
 
-    public void waitForRestart() {
-        waitForRestartInternal(1);
+    protected String getLastRestartTimestampIfAvailable() {
+        try {
+            return getLastRestartTimestamp();
+        } catch (Exception ex) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Unable to get restart timestamp before executing action: " + ex.getMessage());
+            }
+            return null;
+        }
     }
 
-    private void waitForRestartInternal(int attempt) {
-        if (attempt > this.waitForRestartLimit) {
-            logger.error("Reached limit of " + waitForRestartLimit
-                    + ", and MarkLogic has not restarted yet; check MarkLogic status");
-            return;
-        }
+    /**
+     * Waits for MarkLogic to respond to a request for its restart timestamp. As the timestamp from before the restart
+     * is not known, this first waits for waitForRestartCheckInterval milliseconds to give MarkLogic time to begin
+     * restarting. When possible, use invokeActionRequiringRestart or waitForRestart(ResponseEntity) instead, as those
+     * can detect a restart as soon as it completes.
+     */
+    public void waitForRestart() {
         try {
             Thread.sleep(waitForRestartCheckInterval);
-            getLastRestartTimestamp();
-            if (logger.isInfoEnabled()) {
-                logger.info("Finished waiting for MarkLogic to restart");
-            }
-        } catch (Exception ex) {
-            attempt++;
-            logger.info("Waiting for MarkLogic to restart, attempt: " + attempt);
-            if (logger.isTraceEnabled()) {
-                logger.trace("Caught exception while waiting for MarkLogic to restart: " + ex.getMessage(), ex);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for MarkLogic to restart", e);
+        }
+        waitForRestart(Collections.emptySet());
+    }
+
+    /**
+     * Waits for MarkLogic to restart based on a response that indicates a restart is occurring. Per the Manage API,
+     * such a response identifies the restart timestamps from before the restart; if none are found, this falls back to
+     * waitForRestart().
+     *
+     * @param restartResponse
+     */
+    public void waitForRestart(ResponseEntity<String> restartResponse) {
+        Set<String> previousTimestamps = restartResponse != null ?
+            getLastStartupTimestamps(restartResponse.getBody()) : Collections.emptySet();
+        if (previousTimestamps.isEmpty()) {
+            waitForRestart();
+        } else {
+            waitForRestart(previousTimestamps);
+        }
+    }
+
+    /**
+     * @param previousTimestamps the restart timestamps from before the restart; MarkLogic is considered to have
+     *                           restarted once it returns a timestamp other than these
+     */
+    public void waitForRestart(Set<String> previousTimestamps) {
+        if (!restartWaiter.waitForRestart(this::getLastRestartTimestamp, previousTimestamps)) {
+            logger.error(format("Waited %dms and MarkLogic has not restarted yet; check MarkLogic status",
+                restartWaiter.getTimeout()));
+        }
+    }
+
+    /**
+     * A response from the Manage API indicating that a restart is occurring contains the "last-startup" timestamp of
+     * each host before the restart, either as XML elements or as JSON objects with a "value" key.
+     *
+     * @param responseBody
+     * @return
+     */
+    protected Set<String> getLastStartupTimestamps(String responseBody) {
+        Set<String> timestamps = new HashSet<>();
+        if (responseBody == null) {
+            return timestamps;
+        }
+        Matcher m = LAST_STARTUP_XML_PATTERN.matcher(responseBody);
+        while (m.find()) {
+            timestamps.add(m.group(1).trim());
+        }
+        m = LAST_STARTUP_JSON_PATTERN.matcher(responseBody);
+        if (m.find()) {
+            Matcher valueMatcher = JSON_VALUE_PATTERN.matcher(m.group(1));
+            while (valueMatcher.find()) {
+                timestamps.add(valueMatcher.group(1).trim());
             }
-            waitForRestartInternal(attempt);
         }
+        return timestamps;
     }
 
     /**
@@ -222,8 +295,29 @@ public class AdminManager extends AbstractManager {
         this.waitForRestartCheckInterval = waitForRestartCheckInterval;
     }
 
+    /**
+     * @param waitForRestartLimit
+     * @deprecated the number of checks is no longer limited; use setWaitForRestartTimeout instead. For backwards
+     * compatibility, this sets the timeout to the given limit multiplied by the check interval.
+     */
+    @Deprecated
     public void setWaitForRestartLimit(int waitForRestartLimit) {
-        this.waitForRestartLimit = waitForRestartLimit;
+        restartWaiter.setTimeout((long) waitForRestartLimit * waitForRestartCheckInterval);
+    }
+
+    /**
+     * @param timeout the maximum number of milliseconds to wait for MarkLogic to restart
+     */
+    public void setWaitForRestartTimeout(long timeout) {
+        restartWaiter.setTimeout(timeout);
+    }
+
+    public RestartWaiter getRestartWaiter() {
+        return restartWaiter;
+    }
+
+    public void setRestartWaiter(RestartWaiter restartWaiter) {
+        this.restartWaiter = restartWaiter;
     }
 
 
@@ -93,6 +93,31 @@ public class DefaultAdminConfigFactory extends PropertySourceFactory implements
 		    logger.info("Using trust management algorithm for SSL for Admin app server: " + prop);
 		    config.setTrustManagementAlgorithm(prop);
 	    });
+
+	    propertyConsumerMap.put("mlAdminPooledConnections", (config, prop) -> {
+		    logger.info("Use pooled connections for Admin app server: " + prop);
+		    config.setUsePooledConnections(Boolean.parseBoolean(prop));
+	    });
+
+	    propertyConsumerMap.put("mlAdminMaxConnections", (config, prop) -> {
+		    logger.info("Max pooled connections for Admin app server: " + prop);
+		    config.setMaxConnectionsTotal(Integer.parseInt(prop));
+	    });
+
+	    propertyConsumerMap.put("mlAdminMaxConnectionsPerRoute", (config, prop) -> {
+		    logger.info("Max pooled connections per route for Admin app server: " + prop);
+		    config.setMaxConnectionsPerRoute(Integer.parseInt(prop));
+	    });
+
+	    propertyConsumerMap.put("mlAdminIdleConnectionTimeout", (config, prop) -> {
+		    logger.info("Idle connection timeout in milliseconds for Admin app server: " + prop);
+		    config.setIdleConnectionTimeout(Long.parseLong(prop));
+	    });
+
+	    propertyConsumerMap.put("mlAdminValidateAfterInactivity", (config, prop) -> {
+		    logger.info("Validate pooled connections after inactivity in milliseconds for Admin app server: " + prop);
+		    config.setValidateAfterInactivity(Integer.parseInt(prop));
+	    });
     }
 
     @Override
@@ -0,0 +1,120 @@
+package com.marklogic.mgmt.admin;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Waits for MarkLogic to restart by polling its restart timestamp - i.e. /admin/v1/timestamp - with an exponential
+ * backoff that starts at a short delay and is randomized to avoid having multiple callers poll in lockstep.
+ * <p>
+ * When the restart timestamps from before the restart are known, MarkLogic is considered to have restarted once it
+ * returns a timestamp other than those. This ensures that a restart is detected even if it completes before the first
+ * poll, and that a poll that occurs before MarkLogic has started restarting isn't mistaken for a completed restart.
+ * When no previous timestamps are known, MarkLogic is considered to have restarted once it returns any timestamp.
+ * </p>
+ */
+public class RestartWaiter extends LoggingObject {
+
+	private long initialDelay = 50;
+	private long maxDelay = 2000;
+	private long timeout = 120000;
+
+	/**
+	 * @param timestampSupplier  returns the current restart timestamp, and throws an exception if MarkLogic is not
+	 *                           available
+	 * @param previousTimestamps the restart timestamps from before the restart; may be empty
+	 * @return true if the restart was detected, and false if the timeout was reached first
+	 */
+	public boolean waitForRestart(Supplier<String> timestampSupplier, Collection<String> previousTimestamps) {
+		if (previousTimestamps == null) {
+			previousTimestamps = Collections.emptySet();
+		}
+		final long start = System.nanoTime();
+		final long deadline = start + timeout * 1000000;
+		long delay = initialDelay;
+		int attempt = 1;
+		while (true) {
+			long sleepTime = Math.min(jitter(delay), Math.max(0, (deadline - System.nanoTime()) / 1000000));
+			try {
+				Thread.sleep(sleepTime);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for MarkLogic to restart", e);
+			}
+
+			try {
+				String timestamp = timestampSupplier.get();
+				if (!previousTimestamps.contains(timestamp)) {
+					if (logger.isInfoEnabled()) {
+						logger.info(format("Finished waiting for MarkLogic to restart; elapsed time: %dms",
+							(System.nanoTime() - start) / 1000000));
+					}
+					return true;
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug(format("MarkLogic has not restarted yet, attempt: %d", attempt));
+				}
+			} catch (Exception ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug(format("Waiting for MarkLogic to restart, attempt: %d", attempt));
+				}
+				if (logger.isTraceEnabled()) {
+					logger.trace("Caught exception while waiting for MarkLogic to restart: " + ex.getMessage(), ex);
+				}
+			}
+
+			if (System.nanoTime() >= deadline) {
+				return false;
+			}
+			attempt++;
+			delay = Math.min(Math.max(delay * 2, 1), maxDelay);
+		}
+	}
+
+	/**
+	 * @param delay
+	 * @return a random value between half of the given delay and the given delay, so that each wait makes progress
+	 * towards the next backoff step while still being spread out
+	 */
+	protected long jitter(long delay) {
+		long half = delay / 2;
+		return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+	}
+
+	public long getInitialDelay() {
+		return initialDelay;
+	}
+
+	/**
+	 * @param initialDelay number of milliseconds to wait before the first check for a restart
+	 */
+	public void setInitialDelay(long initialDelay) {
+		this.initialDelay = initialDelay;
+	}
+
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	/**
+	 * @param maxDelay the maximum number of milliseconds to wait between checks for a restart
+	 */
+	public void setMaxDelay(long maxDelay) {
+		this.maxDelay = maxDelay;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * @param timeout the maximum number of milliseconds to wait for a restart
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+}
@@ -91,7 +91,9 @@ public class API extends LoggingObject {
 		    "mlManagePassword", mc.getPassword(), "mlManageSimpleSsl", mc.isConfigureSimpleSsl() + "",
 		    "mlManageScheme", mc.getScheme(), "mlManagePort", mc.getPort() + "",
 		    "mlSecurityUsername", mc.getSecurityUsername(), "mlSecurityPassword", mc.getSecurityPassword());
-	    this.manageClient = new ManageClient(new DefaultManageConfigFactory(sps).newManageConfig());
+	    ManageConfig config = new DefaultManageConfigFactory(sps).newManageConfig();
+	    config.setRetryPolicy(mc.getRetryPolicy() != null ? mc.getRetryPolicy().copy() : null);
+	    this.manageClient = new ManageClient(config);
 	    if (logger.isInfoEnabled()) {
 		    logger.info("Connected to host: " + host);
 	    }
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.BeanWrapperImpl;
 
@@ -50,6 +51,23 @@ public abstract class ApiObject {
         return null;
     }
 
+    /**
+     * @return the same JSON as getJson, but without any indentation, as it's intended to be sent to MarkLogic as opposed
+     * to being read by a human
+     */
+    @JsonIgnore
+    public String getWireJson() {
+        ObjectMapper mapper = getObjectMapper();
+        if (mapper != null) {
+            try {
+                return ObjectMapperFactory.getWireWriter(mapper).writeValueAsString(this);
+            } catch (JsonProcessingException ex) {
+                throw new RuntimeException("Unable to write object as JSON, cause: " + ex.getMessage(), ex);
+            }
+        }
+        return null;
+    }
+
     /**
      * Syntactic sugar - it's very quick to type e.g. "db.props" in Groovy shell vs "db.propertyNames".
      *
@@ -1,6 +1,7 @@
 package com.marklogic.mgmt.api;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.marklogic.mgmt.DeleteReceipt;
 import com.marklogic.mgmt.ManageClient;
@@ -10,7 +11,6 @@ import com.marklogic.mgmt.util.ObjectMapperFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
@@ -56,11 +56,10 @@ public abstract class Resource extends ApiObject {
 	 * @return
 	 */
 	public ObjectNode toObjectNode() {
-		// Haven't found a better way than serializing this out to a String and then reading back in as an ObjectNode
-		String json = getJson();
+		ObjectMapper mapper = getObjectMapper() != null ? getObjectMapper() : ObjectMapperFactory.getObjectMapper();
 		try {
-			return (ObjectNode)ObjectMapperFactory.getObjectMapper().readTree(json);
-		} catch (IOException e) {
+			return mapper.valueToTree(this);
+		} catch (IllegalArgumentException e) {
 			throw new RuntimeException("Unable to convert to ObjectNode, cause: " + e.getMessage(), e);
 		}
 	}
@@ -75,7 +74,7 @@ public abstract class Resource extends ApiObject {
         if (getLogger().isInfoEnabled()) {
             getLogger().info(format("Saving %s %s", name, label));
         }
-        SaveReceipt receipt = getResourceManager().save(getJson());
+        SaveReceipt receipt = getResourceManager().save(getWireJson());
         if (getLogger().isInfoEnabled()) {
             getLogger().info(format("Saved %s %s", name, label));
         }
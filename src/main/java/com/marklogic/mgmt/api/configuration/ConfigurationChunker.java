@@ -0,0 +1,282 @@
+package com.marklogic.mgmt.api.configuration;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits a Configurations object into chunks that can each be submitted to the Configuration Management API (CMA) in
+ * a separate request, so that e.g. thousands of roles and users are not sent in a single request that may time out.
+ * <p>
+ * If the configuration does not exceed the maximum number of resources and the maximum size per chunk, it is
+ * submitted as-is in a single stage. Otherwise, its resources are grouped into one stage per resource type, with the
+ * stages ordered per ConfigurationResourceType so that e.g. privileges are created before roles, and roles before
+ * users. Each stage is then split into chunks that do not exceed either maximum, unless a single resource does. The
+ * chunks of a stage may be submitted concurrently, except for roles and databases, as those can reference other
+ * resources of the same type.
+ * </p>
+ * <p>
+ * Roles and privileges can reference each other. As with DeployPrivilegesCommand and DeployPrivilegeRolesCommand,
+ * privileges are first created without their roles, and each privilege that has roles is then submitted again in a
+ * stage after the roles stage.
+ * </p>
+ */
+public class ConfigurationChunker extends LoggingObject {
+
+	private int maxResourcesPerChunk;
+	private long maxBytesPerChunk;
+	private int threadCount = 1;
+
+	public ConfigurationChunker() {
+	}
+
+	/**
+	 * @param maxResourcesPerChunk the maximum number of resources in a chunk; 0 or less means no maximum
+	 * @param maxBytesPerChunk     the maximum size of the resources in a chunk, based on the size of each resource as
+	 *                             compact JSON; 0 or less means no maximum
+	 */
+	public ConfigurationChunker(int maxResourcesPerChunk, long maxBytesPerChunk) {
+		this.maxResourcesPerChunk = maxResourcesPerChunk;
+		this.maxBytesPerChunk = maxBytesPerChunk;
+	}
+
+	/**
+	 * @param configs
+	 * @return the stages that the configuration should be submitted in, in the order in which they must be submitted
+	 */
+	public List<Stage> buildStages(Configurations configs) {
+		List<Configuration> configList = configs.getConfigs() != null ? configs.getConfigs() : Collections.emptyList();
+
+		List<ConfigurationResourceType> stageTypes = new ArrayList<>();
+		List<List<ObjectNode>> resourcesByStage = new ArrayList<>();
+		int totalCount = 0;
+		for (ConfigurationResourceType type : ConfigurationResourceType.values()) {
+			List<ObjectNode> resources = new ArrayList<>();
+			for (Configuration config : configList) {
+				List<ObjectNode> list = type.getResources(config);
+				if (list != null) {
+					resources.addAll(list);
+				}
+			}
+			totalCount += resources.size();
+			if (type == ConfigurationResourceType.PRIVILEGE) {
+				resources = removeRoles(resources);
+			}
+			stageTypes.add(type);
+			resourcesByStage.add(resources);
+			if (type == ConfigurationResourceType.ROLE) {
+				stageTypes.add(ConfigurationResourceType.PRIVILEGE);
+				resourcesByStage.add(selectPrivilegesWithRoles(configList));
+			}
+		}
+
+		List<long[]> sizesByStage = new ArrayList<>();
+		long totalBytes = 0;
+		for (int stage = 0; stage < resourcesByStage.size(); stage++) {
+			List<ObjectNode> resources = resourcesByStage.get(stage);
+			long[] sizes = new long[resources.size()];
+			if (maxBytesPerChunk > 0) {
+				for (int i = 0; i < sizes.length; i++) {
+					sizes[i] = measureSize(resources.get(i));
+				}
+				// Privileges with roles are counted once, as they are only submitted twice when the configuration is split
+				if (!isPrivilegeRolesStage(stageTypes, stage)) {
+					for (long size : sizes) {
+						totalBytes += size;
+					}
+				}
+			}
+			sizesByStage.add(sizes);
+		}
+
+		List<Stage> stages = new ArrayList<>();
+		if (fitsInChunk(totalCount, totalBytes)) {
+			if (totalCount > 0) {
+				stages.add(new Stage(null, false, Collections.singletonList(configs)));
+			}
+			return stages;
+		}
+
+		for (int i = 0; i < stageTypes.size(); i++) {
+			List<ObjectNode> resources = resourcesByStage.get(i);
+			if (!resources.isEmpty()) {
+				ConfigurationResourceType type = stageTypes.get(i);
+				List<Configurations> chunks = buildChunks(type, resources, sizesByStage.get(i), configs);
+				stages.add(new Stage(type.getName(), !type.isSelfReferencing(), chunks));
+			}
+		}
+
+		if (logger.isInfoEnabled()) {
+			int chunkCount = stages.stream().mapToInt(stage -> stage.getChunks().size()).sum();
+			logger.info(format("Split configuration with %d resources into %d chunks", totalCount, chunkCount));
+		}
+		return stages;
+	}
+
+	protected List<Configurations> buildChunks(ConfigurationResourceType type, List<ObjectNode> resources, long[] sizes,
+	                                           Configurations source) {
+		List<Configurations> chunks = new ArrayList<>();
+		Configuration current = null;
+		int currentCount = 0;
+		long currentBytes = 0;
+		for (int i = 0; i < resources.size(); i++) {
+			if (current != null && !fitsInChunk(currentCount + 1, currentBytes + sizes[i])) {
+				current = null;
+			}
+			if (current == null) {
+				current = new Configuration();
+				chunks.add(newChunk(source, current));
+				currentCount = 0;
+				currentBytes = 0;
+			}
+			type.addResource(current, resources.get(i));
+			currentCount++;
+			currentBytes += sizes[i];
+		}
+		return chunks;
+	}
+
+	/**
+	 * @param privileges
+	 * @return the given privileges, with a copy of each privilege that references roles that does not reference them
+	 */
+	protected List<ObjectNode> removeRoles(List<ObjectNode> privileges) {
+		List<ObjectNode> list = new ArrayList<>(privileges.size());
+		for (ObjectNode privilege : privileges) {
+			if (privilege.has("role")) {
+				privilege = privilege.deepCopy();
+				privilege.remove("role");
+			}
+			list.add(privilege);
+		}
+		return list;
+	}
+
+	protected List<ObjectNode> selectPrivilegesWithRoles(List<Configuration> configList) {
+		List<ObjectNode> list = new ArrayList<>();
+		for (Configuration config : configList) {
+			List<ObjectNode> privileges = ConfigurationResourceType.PRIVILEGE.getResources(config);
+			if (privileges != null) {
+				for (ObjectNode privilege : privileges) {
+					if (privilege.path("role").size() > 0) {
+						list.add(privilege);
+					}
+				}
+			}
+		}
+		return list;
+	}
+
+	private boolean isPrivilegeRolesStage(List<ConfigurationResourceType> stageTypes, int stage) {
+		return stageTypes.get(stage) == ConfigurationResourceType.PRIVILEGE && stage > 0 &&
+			stageTypes.get(stage - 1) == ConfigurationResourceType.ROLE;
+	}
+
+	protected boolean fitsInChunk(int resourceCount, long bytes) {
+		return (maxResourcesPerChunk <= 0 || resourceCount <= maxResourcesPerChunk) &&
+			(maxBytesPerChunk <= 0 || bytes <= maxBytesPerChunk);
+	}
+
+	protected Configurations newChunk(Configurations source, Configuration config) {
+		Configurations chunk = new Configurations(config);
+		chunk.setName(source.getName());
+		chunk.setDesc(source.getDesc());
+		return chunk;
+	}
+
+	protected long measureSize(ObjectNode resource) {
+		CountingOutputStream out = new CountingOutputStream();
+		try {
+			ObjectMapperFactory.getWireObjectMapper().writeValue(out, resource);
+		} catch (IOException ex) {
+			throw new RuntimeException("Unable to determine size of resource, cause: " + ex.getMessage(), ex);
+		}
+		return out.count;
+	}
+
+	public int getMaxResourcesPerChunk() {
+		return maxResourcesPerChunk;
+	}
+
+	public void setMaxResourcesPerChunk(int maxResourcesPerChunk) {
+		this.maxResourcesPerChunk = maxResourcesPerChunk;
+	}
+
+	public long getMaxBytesPerChunk() {
+		return maxBytesPerChunk;
+	}
+
+	public void setMaxBytesPerChunk(long maxBytesPerChunk) {
+		this.maxBytesPerChunk = maxBytesPerChunk;
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * @param threadCount the maximum number of chunks in the same stage that are submitted at the same time
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * A set of chunks that can be submitted once every chunk in the preceding stages has been submitted.
+	 */
+	public static class Stage {
+
+		private final String resourceType;
+		private final boolean concurrent;
+		private final List<Configurations> chunks;
+
+		public Stage(String resourceType, boolean concurrent, List<Configurations> chunks) {
+			this.resourceType = resourceType;
+			this.concurrent = concurrent;
+			this.chunks = chunks;
+		}
+
+		/**
+		 * @return the CMA name of the type of resource in each chunk, or null if the stage consists of the
+		 * configuration as it was given
+		 */
+		public String getResourceType() {
+			return resourceType;
+		}
+
+		/**
+		 * @return true if the chunks in this stage can be submitted at the same time
+		 */
+		public boolean isConcurrent() {
+			return concurrent;
+		}
+
+		public List<Configurations> getChunks() {
+			return chunks;
+		}
+	}
+
+	/**
+	 * Avoids holding the serialized form of a resource in memory just to determine its size.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.marklogic.mgmt.api.configuration;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The types of resources in a Configuration, in the order in which they must be created when they are not all
+ * submitted in a single request. Privileges precede roles, as a role may reference privileges; roles precede users,
+ * amps, protected paths, and query rolesets, which reference roles; and databases precede forests, servers, and amps.
+ * <p>
+ * Roles and databases may reference other resources of the same type, so their resources are expected to already be
+ * sorted such that a resource follows the ones it references.
+ * </p>
+ */
+public enum ConfigurationResourceType {
+
+	GROUP("group", Configuration::getGroups, Configuration::addGroup, false),
+	PRIVILEGE("privilege", Configuration::getPrivileges, Configuration::addPrivilege, false),
+	ROLE("role", Configuration::getRoles, Configuration::addRole, true),
+	USER("user", Configuration::getUsers, Configuration::addUser, false),
+	DATABASE("database", Configuration::getDatabases, Configuration::addDatabase, true),
+	FOREST("forest", Configuration::getForests, Configuration::addForest, false),
+	SERVER("server", Configuration::getServers, Configuration::addServer, false),
+	AMP("amp", Configuration::getAmps, Configuration::addAmp, false),
+	PROTECTED_PATH("protected-path", Configuration::getProtectedPaths, Configuration::addProtectedPath, false),
+	QUERY_ROLESET("query-roleset", Configuration::getQueryRolesets, Configuration::addQueryRoleset, false);
+
+	private final String name;
+	private final Function<Configuration, List<ObjectNode>> getter;
+	private final BiConsumer<Configuration, ObjectNode> adder;
+	private final boolean selfReferencing;
+
+	ConfigurationResourceType(String name, Function<Configuration, List<ObjectNode>> getter,
+	                          BiConsumer<Configuration, ObjectNode> adder, boolean selfReferencing) {
+		this.name = name;
+		this.getter = getter;
+		this.adder = adder;
+		this.selfReferencing = selfReferencing;
+	}
+
+	List<ObjectNode> getResources(Configuration config) {
+		return getter.apply(config);
+	}
+
+	void addResource(Configuration config, ObjectNode resource) {
+		adder.accept(config, resource);
+	}
+
+	/**
+	 * @return the name of the type in a CMA payload
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return true if a resource of this type may reference another resource of the same type, in which case chunks of
+	 * this type must be submitted one at a time
+	 */
+	public boolean isSelfReferencing() {
+		return selfReferencing;
+	}
+}
@@ -1,15 +1,20 @@
 package com.marklogic.mgmt.api.configuration;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.marklogic.mgmt.ManageClient;
 import com.marklogic.mgmt.api.ApiObject;
 import com.marklogic.mgmt.cma.ConfigurationManager;
+import com.marklogic.mgmt.util.ConcurrentTaskRunner;
 import com.marklogic.mgmt.util.ObjectMapperFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Does not yet support XML marshalling via JAXB.
@@ -65,7 +70,24 @@ public class Configurations extends ApiObject {
 		return false;
 	}
 
+	/**
+	 * Submits this configuration in a single request.
+	 *
+	 * @param manageClient
+	 */
 	public void submit(ManageClient manageClient) {
+		submit(manageClient, null);
+	}
+
+	/**
+	 * Submits this configuration in the stages and chunks built by the given chunker. The chunks in a stage are
+	 * submitted before any chunk in the next stage; if a chunk fails, the chunks in the same stage that have already
+	 * been started are allowed to finish, and then the failure is thrown.
+	 *
+	 * @param manageClient
+	 * @param chunker      if null, the configuration is submitted in a single request
+	 */
+	public void submit(ManageClient manageClient, ConfigurationChunker chunker) {
 		final Logger logger = LoggerFactory.getLogger(getClass());
 
 		if (!hasResources()) {
@@ -73,23 +95,80 @@ public class Configurations extends ApiObject {
 			return;
 		}
 
-		final String json = getJson();
-
 		if (logger.isInfoEnabled()) {
-			if (json.contains("password")) {
-				logger.info("Submitting configuration (not logging because it contains the word 'password')");
+			logger.info("Submitting configuration with " + getResourceSummary());
+		}
+
+		List<ConfigurationChunker.Stage> stages = chunker != null ?
+			chunker.buildStages(this) :
+			Collections.singletonList(new ConfigurationChunker.Stage(null, false, Collections.singletonList(this)));
+		final int threadCount = chunker != null ? chunker.getThreadCount() : 1;
+		final int chunkCount = stages.stream().mapToInt(stage -> stage.getChunks().size()).sum();
+
+		AtomicInteger chunkNumber = new AtomicInteger();
+		for (ConfigurationChunker.Stage stage : stages) {
+			List<Runnable> submissions = new ArrayList<>();
+			for (Configurations chunk : stage.getChunks()) {
+				submissions.add(() -> chunk.submitChunk(manageClient, chunkNumber.incrementAndGet(), chunkCount));
+			}
+			if (stage.isConcurrent() && threadCount > 1 && submissions.size() > 1) {
+				submitConcurrently(submissions, threadCount);
 			} else {
-				logger.info("Submitting configuration: " + json);
+				submissions.forEach(Runnable::run);
 			}
 		}
 
-		new ConfigurationManager(manageClient).submit(json);
-
 		if (logger.isInfoEnabled()) {
 			logger.info("Successfully submitted configuration");
 		}
 	}
 
+	protected void submitChunk(ManageClient manageClient, int chunkNumber, int chunkCount) {
+		final Logger logger = LoggerFactory.getLogger(getClass());
+		final String json = getWireJson();
+
+		if (chunkCount > 1 && logger.isInfoEnabled()) {
+			logger.info(String.format("Submitting chunk %d of %d with %s; size: %d characters",
+				chunkNumber, chunkCount, getResourceSummary(), json.length()));
+		}
+		if (logger.isDebugEnabled() && !json.contains("password")) {
+			logger.debug("Configuration: " + json);
+		}
+
+		new ConfigurationManager(manageClient).submit(json);
+	}
+
+	protected void submitConcurrently(List<Runnable> submissions, int threadCount) {
+		ConcurrentTaskRunner.map(submissions, threadCount, submission -> {
+			submission.run();
+			return null;
+		});
+	}
+
+	/**
+	 * @return the number of resources in this configuration, followed by the number of each type of resource - e.g.
+	 * "12 resources (role: 10, user: 2)"
+	 */
+	@JsonIgnore
+	public String getResourceSummary() {
+		StringBuilder counts = new StringBuilder();
+		int total = 0;
+		for (ConfigurationResourceType type : ConfigurationResourceType.values()) {
+			int count = 0;
+			if (configs != null) {
+				for (Configuration config : configs) {
+					List<ObjectNode> resources = type.getResources(config);
+					count += resources != null ? resources.size() : 0;
+				}
+			}
+			if (count > 0) {
+				counts.append(counts.length() > 0 ? ", " : "").append(type.getName()).append(": ").append(count);
+			}
+			total += count;
+		}
+		return total + " resources (" + counts + ")";
+	}
+
 	public List<Configuration> getConfigs() {
 		return configs;
 	}
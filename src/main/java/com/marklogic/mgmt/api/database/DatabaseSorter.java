@@ -1,33 +1,47 @@
 package com.marklogic.mgmt.api.database;
 
-import com.marklogic.mgmt.util.TopologicalSorter;
+import com.marklogic.mgmt.util.LayeredTopologicalSorter;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class DatabaseSorter {
 
 	public String[] sortDatabasesAndReturnNames(List<Database> databases) {
+		return buildSorter(databases).sort().toArray(new String[]{});
+	}
+
+	/**
+	 * @param databases
+	 * @return the names of the given databases, grouped into layers such that no database depends on a database in the
+	 * same layer or in a later layer. The databases in a layer can thus be deployed at the same time.
+	 */
+	public List<List<String>> sortDatabasesIntoLayers(List<Database> databases) {
+		return buildSorter(databases).sortIntoLayers();
+	}
+
+	protected LayeredTopologicalSorter<String> buildSorter(List<Database> databases) {
 		final int size = databases.size();
-		TopologicalSorter sorter = new TopologicalSorter(size);
-		List<String> dbNames = new ArrayList<>();
+		LayeredTopologicalSorter<String> sorter = new LayeredTopologicalSorter<>();
+		Map<String, Integer> dbIndexes = new HashMap<>();
 
 		databases.forEach(db -> {
-			sorter.addVertex(db.getDatabaseName());
-			dbNames.add(db.getDatabaseName());
+			int index = sorter.addVertex(db.getDatabaseName());
+			dbIndexes.putIfAbsent(db.getDatabaseName(), index);
 		});
 
 		for (int i = 0; i < size; i++) {
 			for (String dependency : databases.get(i).getDatabaseDependencyNames()) {
-				int index = dbNames.indexOf(dependency);
+				Integer index = dbIndexes.get(dependency);
 				// If the dependency is not in the list of databases, it must already exist, and thus we don't need
 				// to worry about it
-				if (index > -1) {
+				if (index != null) {
 					sorter.addEdge(index, i);
 				}
 			}
 		}
 
-		return sorter.sort();
+		return sorter;
 	}
 }
@@ -28,8 +28,13 @@ public class RestApi extends ApiObject {
         return String.format("{\"rest-api\":%s}", super.getJson());
     }
 
+    @Override
+    public String getWireJson() {
+        return String.format("{\"rest-api\":%s}", super.getWireJson());
+    }
+
     public String save() {
-        ResponseEntity<String> re = new RestApiManager(api.getManageClient(), this.group).createRestApi(name, getJson());
+        ResponseEntity<String> re = new RestApiManager(api.getManageClient(), this.group).createRestApi(name, getWireJson());
         if (re == null) {
             return String.format("REST API with name %s already exists", name);
         } else {
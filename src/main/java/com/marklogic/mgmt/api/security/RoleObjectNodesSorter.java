@@ -2,9 +2,9 @@ package com.marklogic.mgmt.api.security;
 
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.marklogic.mgmt.util.LayeredTopologicalSorter;
 import com.marklogic.mgmt.util.ObjectMapperFactory;
 import com.marklogic.mgmt.util.ObjectNodesSorter;
-import com.marklogic.mgmt.util.TopologicalSorter;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -51,38 +51,45 @@ public class RoleObjectNodesSorter implements ObjectNodesSorter {
 	 * @return
 	 */
 	public List<Role> sortRoles(List<Role> roles) {
+		return buildSorter(roles).sort();
+	}
+
+	/**
+	 * Sorts the list of roles into layers, where no role depends on a role in the same layer or in a later layer. The
+	 * same dependencies are ignored as in sortRoles.
+	 *
+	 * @param roles
+	 * @return
+	 */
+	public List<List<Role>> sortRolesIntoLayers(List<Role> roles) {
+		return buildSorter(roles).sortIntoLayers();
+	}
+
+	protected LayeredTopologicalSorter<Role> buildSorter(List<Role> roles) {
 		final int count = roles.size();
-		final TopologicalSorter sorter = new TopologicalSorter(count);
-		final List<String> roleNames = new ArrayList<>();
-		final Map<String, Role> map = new HashMap<>();
+		final LayeredTopologicalSorter<Role> sorter = new LayeredTopologicalSorter<>();
+		final Map<String, Integer> roleIndexes = new HashMap<>();
 
-		roles.forEach(role -> {
-			sorter.addVertex(role.getRoleName());
-			roleNames.add(role.getRoleName());
-			map.put(role.getRoleName(), role);
-		});
+		for (Role role : roles) {
+			int index = sorter.addVertex(role);
+			roleIndexes.putIfAbsent(role.getRoleName(), index);
+		}
 
 		for (int i = 0; i < count; i++) {
 			for (String dependency : roles.get(i).getDependentRoleNames()) {
-				int index = roleNames.indexOf(dependency);
-				// If the role has a dependency on itself, ignore it. It is assumed that the role will first be
-				// created without any roles or permissions.
-				if (index == i) {
-					continue;
-				}
+				Integer index = roleIndexes.get(dependency);
 				// If it's not in the list of roles to create, it must already exist, and thus we don't need to
 				// worry about it
-				else if (index > -1) {
+				if (index == null) {
+					continue;
+				}
+				// If the role has a dependency on itself, ignore it. It is assumed that the role will first be
+				// created without any roles or permissions.
+				if (index != i) {
 					sorter.addEdge(index, i);
 				}
 			}
 		}
-
-		String[] sortedRoleNames = sorter.sort();
-		roles = new ArrayList<>();
-		for (String name : sortedRoleNames) {
-			roles.add(map.get(name));
-		}
-		return roles;
+		return sorter;
 	}
 }
@@ -0,0 +1,46 @@
+package com.marklogic.mgmt.cma;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.mgmt.ManageClient;
+
+/**
+ * Captures whether the Configuration Management API (CMA) is available on a particular MarkLogic host, so that the
+ * /manage/v3 endpoint only needs to be probed once instead of once per command that can use CMA. An instance is
+ * memoized by ManageClient - see ManageClient.getCmaCapabilities - until it is explicitly refreshed or until a CMA
+ * request receives a 404.
+ */
+public class CmaCapabilities extends LoggingObject {
+
+	private final String host;
+	private final boolean endpointAvailable;
+
+	public CmaCapabilities(String host, boolean endpointAvailable) {
+		this.host = host;
+		this.endpointAvailable = endpointAvailable;
+	}
+
+	/**
+	 * Probes the CMA endpoint via the given ManageClient.
+	 *
+	 * @param manageClient
+	 * @return
+	 */
+	public static CmaCapabilities determine(ManageClient manageClient) {
+		final boolean endpointAvailable = new ConfigurationManager(manageClient).endpointExists();
+		String host = manageClient.getManageConfig() != null ? manageClient.getManageConfig().getHost() : null;
+		return new CmaCapabilities(host, endpointAvailable);
+	}
+
+	@Override
+	public String toString() {
+		return format("[CmaCapabilities host: %s, endpoint available: %s]", host, endpointAvailable);
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public boolean isEndpointAvailable() {
+		return endpointAvailable;
+	}
+}
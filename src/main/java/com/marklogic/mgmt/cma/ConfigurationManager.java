@@ -4,6 +4,7 @@ import com.marklogic.mgmt.AbstractManager;
 import com.marklogic.mgmt.ManageClient;
 import com.marklogic.mgmt.SaveReceipt;
 import com.marklogic.rest.util.MgmtResponseErrorHandler;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
 
@@ -41,8 +42,9 @@ public class ConfigurationManager extends AbstractManager {
 			if (logger.isInfoEnabled()) {
 				logger.info("Checking to see if Configuration Management API is available at: " + PATH);
 			}
+			// Posted directly so that a 404 does not invalidate the CmaCapabilities that this may be determining
 			final String emptyPayload = "{}";
-			submit(emptyPayload);
+			postPayload(manageClient, PATH, emptyPayload);
 			return true;
 		} catch (HttpClientErrorException ex) {
 			return false;
@@ -76,8 +78,23 @@ public class ConfigurationManager extends AbstractManager {
 		return receipt;
 	}
 
+	/**
+	 * A 404 indicates that the CMA endpoint is not available, so any CmaCapabilities memoized by the ManageClient are
+	 * invalidated before the exception is rethrown.
+	 *
+	 * @param payload
+	 * @return
+	 */
 	public SaveReceipt submit(String payload) {
-		ResponseEntity<String> response = postPayload(manageClient, PATH, payload);
+		ResponseEntity<String> response;
+		try {
+			response = postPayload(manageClient, PATH, payload);
+		} catch (HttpClientErrorException ex) {
+			if (ex.getStatusCode() == HttpStatus.NOT_FOUND) {
+				manageClient.invalidateCmaCapabilities();
+			}
+			throw ex;
+		}
 		return new SaveReceipt(null, payload, PATH, response);
 	}
 
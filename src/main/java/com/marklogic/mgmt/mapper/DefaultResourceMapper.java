@@ -1,5 +1,6 @@
 package com.marklogic.mgmt.mapper;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.marklogic.mgmt.PayloadParser;
 import com.marklogic.mgmt.api.API;
 import com.marklogic.mgmt.api.Resource;
@@ -7,24 +8,65 @@ import com.marklogic.mgmt.api.server.HttpServer;
 import com.marklogic.mgmt.api.server.OdbcServer;
 import com.marklogic.mgmt.api.server.Server;
 import com.marklogic.mgmt.api.server.XdbcServer;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.File;
 import java.io.StringReader;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.StringWriter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * This implementation assumes that the API object that it's given has a Jackson ObjectMapper that's configured to use
- * a lower-case hyphenated naming strategy.
+ * a lower-case hyphenated naming strategy. If no API is given, the ObjectMapper from ObjectMapperFactory is used.
+ * <p>
+ * JSON payloads are read via Jackson and never touch JAXB. For XML payloads, a JAXBContext is created once per
+ * concrete resource class and shared by every instance of this class, as constructing one is expensive and a new
+ * DefaultResourceMapper is typically created for each command. JAXBContext is thread-safe, but Unmarshaller and
+ * Marshaller are not, so each one is borrowed from a pool for the resource class and only returned once it's done.
+ * An instance of this class can thus be safely used by multiple threads.
+ * </p>
+ * <p>
+ * The contexts and pools are associated with each resource class via a ClassValue instead of being held in static
+ * maps or ThreadLocals, so that they don't keep the class - and its ClassLoader - from being garbage collected, such
+ * as when the class is loaded by a build tool's plugin ClassLoader.
+ * </p>
  */
 public class DefaultResourceMapper implements ResourceMapper {
 
+	private final static ClassValue<JAXBContext> jaxbContexts = new ClassValue<JAXBContext>() {
+		@Override
+		protected JAXBContext computeValue(Class<?> type) {
+			try {
+				return JAXBContext.newInstance(type);
+			} catch (JAXBException ex) {
+				throw new RuntimeException("Unable to create JAXBContext for class: " + type.getName() + "; cause: " + ex.getMessage(), ex);
+			}
+		}
+	};
+
+	private final static ClassValue<Queue<Unmarshaller>> unmarshallers = new ClassValue<Queue<Unmarshaller>>() {
+		@Override
+		protected Queue<Unmarshaller> computeValue(Class<?> type) {
+			return new ConcurrentLinkedQueue<>();
+		}
+	};
+
+	private final static ClassValue<Queue<Marshaller>> marshallers = new ClassValue<Queue<Marshaller>>() {
+		@Override
+		protected Queue<Marshaller> computeValue(Class<?> type) {
+			return new ConcurrentLinkedQueue<>();
+		}
+	};
+
 	private API api;
-	private Map<Class<?>, JAXBContext> jaxbContextMap;
 	private PayloadParser payloadParser = new PayloadParser();
 
 	public DefaultResourceMapper() {
-		this.jaxbContextMap = new HashMap<>();
 	}
 
 	public DefaultResourceMapper(API api) {
@@ -37,41 +79,9 @@ public class DefaultResourceMapper implements ResourceMapper {
 		try {
 			T resource;
 			if (payloadParser.isJsonPayload(payload)) {
-				resource = api.getObjectMapper().readerFor(resourceType).readValue(payload);
+				resource = getObjectMapper().readerFor(resourceType).readValue(payload);
 			} else {
-				JAXBContext context;
-
-				/**
-				 * Can't figure out how to use a JAXB ObjectFactory to support the 3 different kinds of servers, so using
-				 * this hacky approach.
-				 */
-				if (resourceType.equals(Server.class)) {
-					if (payload.contains("xdbc-server-properties")) {
-						context = jaxbContextMap.get(XdbcServer.class);
-					} else if (payload.contains("odbc-server-properties")) {
-						context = jaxbContextMap.get(OdbcServer.class);
-					} else {
-						context = jaxbContextMap.get(HttpServer.class);
-					}
-				} else {
-					context = jaxbContextMap.get(resourceType);
-				}
-
-				if (context == null) {
-					if (resourceType.equals(Server.class)) {
-						if (payload.contains("xdbc-server-properties")) {
-							context = JAXBContext.newInstance(XdbcServer.class);
-						} else if (payload.contains("odbc-server-properties")) {
-							context = JAXBContext.newInstance(OdbcServer.class);
-						} else {
-							context = JAXBContext.newInstance(HttpServer.class);
-						}
-					} else {
-						context = JAXBContext.newInstance(resourceType);
-					}
-					jaxbContextMap.put(resourceType, context);
-				}
-				resource = (T) context.createUnmarshaller().unmarshal(new StringReader(payload));
+				resource = (T) unmarshal(payload, determineXmlType(payload, resourceType));
 			}
 			if (api != null) {
 				resource.setApi(api);
@@ -83,4 +93,103 @@ public class DefaultResourceMapper implements ResourceMapper {
 		}
 	}
 
+	/**
+	 * @param resource
+	 * @return the XML representation of the given resource, as produced by JAXB
+	 */
+	public String writeResourceAsXml(Resource resource) {
+		StringWriter writer = new StringWriter();
+		try {
+			Marshaller marshaller = getMarshaller(resource.getClass());
+			marshaller.marshal(resource, writer);
+			marshallers.get(resource.getClass()).offer(marshaller);
+		} catch (JAXBException ex) {
+			throw new RuntimeException("Unable to write resource as XML: " + ex.getMessage(), ex);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * @param resource
+	 * @param file     the file to write the XML representation of the given resource to
+	 */
+	public void writeResourceAsXml(Resource resource, File file) {
+		try {
+			Marshaller marshaller = getMarshaller(resource.getClass());
+			marshaller.marshal(resource, file);
+			marshallers.get(resource.getClass()).offer(marshaller);
+		} catch (JAXBException ex) {
+			throw new RuntimeException("Unable to write to file: " + file.getAbsolutePath() + "; cause: " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Can't figure out how to use a JAXB ObjectFactory to support the 3 different kinds of servers, so using this
+	 * hacky approach of determining the concrete server class based on the payload.
+	 *
+	 * @param payload
+	 * @param resourceType
+	 * @return the class that JAXB should unmarshal the given XML payload into
+	 */
+	protected Class<?> determineXmlType(String payload, Class<?> resourceType) {
+		if (resourceType.equals(Server.class)) {
+			if (payload.contains("xdbc-server-properties")) {
+				return XdbcServer.class;
+			} else if (payload.contains("odbc-server-properties")) {
+				return OdbcServer.class;
+			}
+			return HttpServer.class;
+		}
+		return resourceType;
+	}
+
+	/**
+	 * An Unmarshaller that fails is not returned to the pool, as it may have been left in an inconsistent state.
+	 */
+	protected Object unmarshal(String payload, Class<?> type) throws JAXBException {
+		Unmarshaller unmarshaller = getUnmarshaller(type);
+		Object result = unmarshaller.unmarshal(new StringReader(payload));
+		unmarshallers.get(type).offer(unmarshaller);
+		return result;
+	}
+
+	protected ObjectMapper getObjectMapper() {
+		return api != null ? api.getObjectMapper() : ObjectMapperFactory.getObjectMapper();
+	}
+
+	/**
+	 * @param type
+	 * @return the JAXBContext for the given class, which is created the first time that it's requested
+	 */
+	public static JAXBContext getJaxbContext(Class<?> type) {
+		return jaxbContexts.get(type);
+	}
+
+	/**
+	 * @param type
+	 * @return an Unmarshaller from the pool for the given class, or a new one if none is available; the caller returns
+	 * it to the pool once it's done with it
+	 */
+	protected static Unmarshaller getUnmarshaller(Class<?> type) throws JAXBException {
+		Unmarshaller unmarshaller = unmarshallers.get(type).poll();
+		return unmarshaller != null ? unmarshaller : getJaxbContext(type).createUnmarshaller();
+	}
+
+	/**
+	 * @param type
+	 * @return a Marshaller from the pool for the given class, or a new one if none is available; the caller returns it
+	 * to the pool once it's done with it
+	 */
+	protected static Marshaller getMarshaller(Class<?> type) throws JAXBException {
+		Marshaller marshaller = marshallers.get(type).poll();
+		return marshaller != null ? marshaller : getJaxbContext(type).createMarshaller();
+	}
+
+	public API getApi() {
+		return api;
+	}
+
+	public void setApi(API api) {
+		this.api = api;
+	}
 }
@@ -0,0 +1,115 @@
+package com.marklogic.mgmt.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default implementation of ManageClientMetrics that keeps a RequestStats instance - with a latency histogram, byte
+ * counts and an error count - for each combination of HTTP method and path template. Any status code of 400 or higher
+ * is counted as an error.
+ */
+public class DefaultManageClientMetrics implements ManageClientMetrics {
+
+	private final Map<String, RequestStats> statsMap = new ConcurrentHashMap<>();
+	private int summaryLimit = 20;
+
+	@Override
+	public void recordRequest(String method, String pathTemplate, int statusCode, long durationNanos, long requestBytes, long responseBytes) {
+		getOrCreateStats(method, pathTemplate).record(durationNanos, requestBytes, responseBytes, statusCode >= 400);
+	}
+
+	@Override
+	public void recordFailure(String method, String pathTemplate, long durationNanos, long requestBytes, Exception cause) {
+		getOrCreateStats(method, pathTemplate).record(durationNanos, requestBytes, 0, true);
+	}
+
+	@Override
+	public void reset() {
+		statsMap.clear();
+	}
+
+	/**
+	 * @param method
+	 * @param pathTemplate
+	 * @return the stats for the given method and path template, or null if no such request has been recorded
+	 */
+	public RequestStats getStats(String method, String pathTemplate) {
+		return statsMap.get(buildKey(method, pathTemplate));
+	}
+
+	/**
+	 * @return the stats for every method and path template, sorted by total time in descending order
+	 */
+	public List<RequestStats> getAllStats() {
+		List<RequestStats> list = new ArrayList<>(statsMap.values());
+		list.sort(Comparator.comparingLong((RequestStats stats) -> stats.getLatencyMicros().getSum()).reversed());
+		return list;
+	}
+
+	/**
+	 * @return a table listing the request types that took the most total time, limited to summaryLimit rows
+	 */
+	@Override
+	public String getSummary() {
+		List<RequestStats> allStats = getAllStats();
+		long count = 0, errors = 0, micros = 0, sent = 0, received = 0;
+		for (RequestStats stats : allStats) {
+			count += stats.getCount();
+			errors += stats.getErrorCount();
+			micros += stats.getLatencyMicros().getSum();
+			sent += stats.getRequestBytes();
+			received += stats.getResponseBytes();
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Manage API requests: %d requests, %dms total, %d errors, %s sent, %s received",
+			count, micros / 1000, errors, formatBytes(sent), formatBytes(received)));
+		if (allStats.isEmpty()) {
+			return sb.toString();
+		}
+		sb.append(String.format("%n%10s %7s %6s %9s %9s %9s %9s %9s %9s  %s", "Total(ms)", "Count", "Errors",
+			"p50(ms)", "p90(ms)", "p99(ms)", "Max(ms)", "Sent", "Received", "Request"));
+		for (int i = 0; i < allStats.size() && i < summaryLimit; i++) {
+			RequestStats stats = allStats.get(i);
+			LogBucketHistogram h = stats.getLatencyMicros();
+			sb.append(String.format("%n%10d %7d %6d %9.1f %9.1f %9.1f %9.1f %9s %9s  %s %s",
+				h.getSum() / 1000, stats.getCount(), stats.getErrorCount(),
+				h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0,
+				h.getValueAtPercentile(99) / 1000.0, h.getMax() / 1000.0,
+				formatBytes(stats.getRequestBytes()), formatBytes(stats.getResponseBytes()),
+				stats.getMethod(), stats.getPathTemplate()));
+		}
+		if (allStats.size() > summaryLimit) {
+			sb.append(String.format("%n(%d more request types not shown)", allStats.size() - summaryLimit));
+		}
+		return sb.toString();
+	}
+
+	protected RequestStats getOrCreateStats(String method, String pathTemplate) {
+		return statsMap.computeIfAbsent(buildKey(method, pathTemplate), key -> new RequestStats(method, pathTemplate));
+	}
+
+	protected String buildKey(String method, String pathTemplate) {
+		return method + " " + pathTemplate;
+	}
+
+	protected String formatBytes(long bytes) {
+		if (bytes < 1024) {
+			return bytes + "B";
+		} else if (bytes < 1024 * 1024) {
+			return String.format("%.1fKB", bytes / 1024.0);
+		}
+		return String.format("%.1fMB", bytes / (1024.0 * 1024.0));
+	}
+
+	public int getSummaryLimit() {
+		return summaryLimit;
+	}
+
+	public void setSummaryLimit(int summaryLimit) {
+		this.summaryLimit = summaryLimit;
+	}
+}
@@ -0,0 +1,111 @@
+package com.marklogic.mgmt.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of non-negative long values that uses log-linear buckets, similar to HdrHistogram but without
+ * the dependency. Values below 32 each get their own bucket; larger values are grouped into 16 buckets per power of 2,
+ * so a percentile is accurate to within 1/16 - about 6% - of the actual value. The histogram uses a fixed 8KB of memory
+ * regardless of the number or range of values recorded.
+ */
+public class LogBucketHistogram {
+
+	private final static int SUB_BUCKET_BITS = 4;
+	private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private final static int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2;
+	private final static int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+	/**
+	 * @param value negative values are recorded as zero
+	 */
+	public void recordValue(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucketIndex(value));
+		totalCount.incrementAndGet();
+		sum.addAndGet(value);
+		max.accumulateAndGet(value, Math::max);
+		min.accumulateAndGet(value, Math::min);
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the highest value that is equivalent to the value at the given percentile - i.e. the upper bound of the
+	 * bucket containing it, but never more than the maximum recorded value - or 0 if no values have been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = totalCount.get();
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+		long cumulative = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			cumulative += counts.get(i);
+			if (cumulative >= target) {
+				return Math.max(getMin(), Math.min(highestEquivalentValue(i), getMax()));
+			}
+		}
+		return getMax();
+	}
+
+	public long getTotalCount() {
+		return totalCount.get();
+	}
+
+	public long getSum() {
+		return sum.get();
+	}
+
+	public double getMean() {
+		long total = totalCount.get();
+		return total == 0 ? 0 : (double) sum.get() / total;
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getMin() {
+		return totalCount.get() == 0 ? 0 : min.get();
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		totalCount.set(0);
+		sum.set(0);
+		max.set(0);
+		min.set(Long.MAX_VALUE);
+	}
+
+	protected static int bucketIndex(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	protected static long highestEquivalentValue(int bucketIndex) {
+		if (bucketIndex < LINEAR_LIMIT) {
+			return bucketIndex;
+		}
+		int offset = bucketIndex - LINEAR_LIMIT;
+		int exponent = offset / SUB_BUCKET_COUNT + SUB_BUCKET_BITS + 1;
+		long subBucket = offset % SUB_BUCKET_COUNT;
+		long lowest = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return lowest + width - 1;
+	}
+}
@@ -0,0 +1,43 @@
+package com.marklogic.mgmt.metrics;
+
+/**
+ * SPI for recording metrics about each request that a ManageClient sends to MarkLogic. An implementation is registered
+ * via ManageClient.setManageClientMetrics, which adds a ManageClientMetricsInterceptor to the ManageClient's
+ * RestTemplate(s). Implementations must be thread-safe, as requests may be sent by multiple threads at once.
+ */
+public interface ManageClientMetrics {
+
+	/**
+	 * Records a request that received a response, regardless of its status code.
+	 *
+	 * @param method        the HTTP method
+	 * @param pathTemplate  the path of the request with resource identifiers replaced by placeholders, so that e.g.
+	 *                      requests for the properties of different databases are grouped together
+	 * @param statusCode
+	 * @param durationNanos the time between sending the request and the response body being fully read
+	 * @param requestBytes
+	 * @param responseBytes
+	 */
+	void recordRequest(String method, String pathTemplate, int statusCode, long durationNanos, long requestBytes, long responseBytes);
+
+	/**
+	 * Records a request that failed without receiving a response, such as when a connection could not be made.
+	 *
+	 * @param method
+	 * @param pathTemplate
+	 * @param durationNanos
+	 * @param requestBytes
+	 * @param cause
+	 */
+	void recordFailure(String method, String pathTemplate, long durationNanos, long requestBytes, Exception cause);
+
+	/**
+	 * Discards everything recorded so far; called at the start of each deployment.
+	 */
+	void reset();
+
+	/**
+	 * @return a human-readable summary of everything recorded since the last reset
+	 */
+	String getSummary();
+}
@@ -0,0 +1,169 @@
+package com.marklogic.mgmt.metrics;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Spring RestTemplate interceptor that records each request in a ManageClientMetrics instance. A request is recorded
+ * when its response is closed - which RestTemplate does after reading the response body - so that the recorded
+ * duration includes the time to read the body and the recorded response size is the number of bytes actually read.
+ */
+public class ManageClientMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+	private final ManageClientMetrics metrics;
+
+	public ManageClientMetricsInterceptor(ManageClientMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		final String method = request.getMethod() != null ? request.getMethod().name() : "UNKNOWN";
+		final String pathTemplate = buildPathTemplate(request.getURI());
+		final long requestBytes = body != null ? body.length : 0;
+		final long start = System.nanoTime();
+		try {
+			return new MetricsResponse(execution.execute(request, body), method, pathTemplate, requestBytes, start);
+		} catch (IOException | RuntimeException ex) {
+			metrics.recordFailure(method, pathTemplate, System.nanoTime() - start, requestBytes, ex);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Replaces resource identifiers in a Manage API path with "{id}" so that e.g. "/manage/v2/databases/Documents/properties"
+	 * and "/manage/v2/databases/Security/properties" are both recorded as "/manage/v2/databases/{id}/properties". Manage
+	 * API paths alternate between a resource type and a resource identifier, with the exception of "properties". The
+	 * query string is not included. Paths outside of the Manage API are returned as-is.
+	 *
+	 * @param uri
+	 * @return
+	 */
+	protected String buildPathTemplate(URI uri) {
+		String path = uri.getRawPath();
+		if (path == null || path.isEmpty()) {
+			return "/";
+		}
+		String[] segments = path.split("/");
+		if (segments.length < 4 || !"manage".equals(segments[1])) {
+			return path;
+		}
+		StringBuilder sb = new StringBuilder("/manage/").append(segments[2]);
+		for (int i = 3; i < segments.length; i++) {
+			sb.append('/');
+			boolean isIdentifier = i % 2 == 0 && !"properties".equals(segments[i]);
+			sb.append(isIdentifier ? "{id}" : segments[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Wraps a response so that the request is recorded once the response is closed.
+	 */
+	private class MetricsResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse response;
+		private final String method;
+		private final String pathTemplate;
+		private final long requestBytes;
+		private final long start;
+		private final AtomicBoolean recorded = new AtomicBoolean(false);
+		private CountingInputStream body;
+
+		MetricsResponse(ClientHttpResponse response, String method, String pathTemplate, long requestBytes, long start) {
+			this.response = response;
+			this.method = method;
+			this.pathTemplate = pathTemplate;
+			this.requestBytes = requestBytes;
+			this.start = start;
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			if (body == null) {
+				body = new CountingInputStream(response.getBody());
+			}
+			return body;
+		}
+
+		@Override
+		public void close() {
+			if (recorded.compareAndSet(false, true)) {
+				long duration = System.nanoTime() - start;
+				int statusCode;
+				try {
+					statusCode = response.getRawStatusCode();
+				} catch (IOException ex) {
+					statusCode = -1;
+				}
+				long responseBytes = body != null ? body.count : Math.max(0, response.getHeaders().getContentLength());
+				metrics.recordRequest(method, pathTemplate, statusCode, duration, requestBytes, responseBytes);
+			}
+			response.close();
+		}
+
+		@Override
+		public HttpStatus getStatusCode() throws IOException {
+			return response.getStatusCode();
+		}
+
+		@Override
+		public int getRawStatusCode() throws IOException {
+			return response.getRawStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return response.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return response.getHeaders();
+		}
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		private volatile long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.marklogic.mgmt.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe metrics for every request with a particular method and path template. Latencies are recorded in
+ * microseconds.
+ */
+public class RequestStats {
+
+	private final String method;
+	private final String pathTemplate;
+	private final LogBucketHistogram latencyMicros = new LogBucketHistogram();
+	private final AtomicLong requestBytes = new AtomicLong();
+	private final AtomicLong responseBytes = new AtomicLong();
+	private final AtomicLong errorCount = new AtomicLong();
+
+	public RequestStats(String method, String pathTemplate) {
+		this.method = method;
+		this.pathTemplate = pathTemplate;
+	}
+
+	/**
+	 * @param durationNanos
+	 * @param requestBytes
+	 * @param responseBytes
+	 * @param error         true if the request failed or received an error status code
+	 */
+	public void record(long durationNanos, long requestBytes, long responseBytes, boolean error) {
+		latencyMicros.recordValue(durationNanos / 1000);
+		this.requestBytes.addAndGet(requestBytes);
+		this.responseBytes.addAndGet(responseBytes);
+		if (error) {
+			errorCount.incrementAndGet();
+		}
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPathTemplate() {
+		return pathTemplate;
+	}
+
+	public long getCount() {
+		return latencyMicros.getTotalCount();
+	}
+
+	public LogBucketHistogram getLatencyMicros() {
+		return latencyMicros;
+	}
+
+	public long getRequestBytes() {
+		return requestBytes.get();
+	}
+
+	public long getResponseBytes() {
+		return responseBytes.get();
+	}
+
+	public long getErrorCount() {
+		return errorCount.get();
+	}
+}
@@ -2,12 +2,19 @@ package com.marklogic.mgmt.resource;
 
 import com.marklogic.mgmt.DeleteReceipt;
 import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.ParsedPayload;
 import com.marklogic.mgmt.SaveReceipt;
 import com.marklogic.mgmt.AbstractManager;
 import com.marklogic.rest.util.Fragment;
+import com.marklogic.rest.util.ResourceList;
 import com.marklogic.rest.util.ResourcesFragment;
 import org.springframework.http.ResponseEntity;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
 /**
  * This class makes a number of assumptions in order to simplify the implementation of common operations for a MarkLogic
  * management resource. Feel free to override the methods in here in a subclass when those assumptions don't work for a
@@ -15,8 +22,25 @@ import org.springframework.http.ResponseEntity;
  */
 public abstract class AbstractResourceManager extends AbstractManager implements ResourceManager {
 
+	/**
+	 * Whether a class overrides getAsXml() is determined once per class, as getResourceList is called for every
+	 * existence check.
+	 */
+	private final static ClassValue<Boolean> OVERRIDES_GET_AS_XML = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return type.getMethod("getAsXml").getDeclaringClass() != AbstractResourceManager.class;
+			} catch (NoSuchMethodException ex) {
+				return false;
+			}
+		}
+	};
+
     private ManageClient manageClient;
     private boolean updateAllowed = true;
+    private ResourceListCache resourceListCache;
+    private RemoteStateSnapshot remoteStateSnapshot;
 
     public AbstractResourceManager(ManageClient client) {
         this.manageClient = client;
@@ -38,14 +62,38 @@ public abstract class AbstractResourceManager extends AbstractManager implements
 
     /**
      * TODO Not sure yet whether we need to account for resourceUrlParams when doing an existence check.
+     *
+     * If a ResourceListCache has been set, the list of resources is retrieved from it so that it is only fetched once
+     * instead of once per existence check. In either case, the list is streamed into a ResourceList instead of being
+     * parsed into a DOM.
      */
     public boolean exists(String resourceNameOrId, String... resourceUrlParams) {
     	if (logger.isInfoEnabled()) {
     		logger.info("Checking for existence of resource: " + resourceNameOrId);
 	    }
-        return getAsXml().resourceExists(resourceNameOrId);
+	    if (resourceListCache != null) {
+		    return resourceListCache.resourceExists(getResourcesPath(), resourceNameOrId, this::getResourceList);
+	    }
+        return getResourceList().contains(resourceNameOrId);
     }
 
+	/**
+	 * @return the name and ID of each resource at the resources path, which is cheaper to retrieve than getAsXml when
+	 * nothing else is needed from the list. If a subclass overrides getAsXml - e.g. to retry the request - the list is
+	 * built from that method instead so that the override is still honored.
+	 */
+	public ResourceList getResourceList() {
+		if (overridesGetAsXml()) {
+			return new ResourceList(getAsXml());
+		}
+		return useSecurityUser() ? manageClient.getResourceListAsSecurityUser(getResourcesPath())
+			: manageClient.getResourceList(getResourcesPath());
+	}
+
+	private boolean overridesGetAsXml() {
+		return OVERRIDES_GET_AS_XML.get(getClass());
+	}
+
     public ResourcesFragment getAsXml() {
 	    Fragment f = useSecurityUser() ? manageClient.getXmlAsSecurityUser(getResourcesPath())
 		    : manageClient.getXml(getResourcesPath());
@@ -81,10 +129,39 @@ public abstract class AbstractResourceManager extends AbstractManager implements
      * Determines whether to create a new resource or update an existing one based on the contents of the payload.
      */
     public SaveReceipt save(String payload) {
-        String resourceId = getResourceId(payload);
+        return save(payloadParser.parse(payload));
+    }
+
+	/**
+	 * The payload is passed as a String to createNewResource and updateResource so that subclasses can continue to
+	 * override those methods; because it's the same String instance, the parsed payload is reused by any of the
+	 * methods they call that need it.
+	 *
+	 * @param parsedPayload
+	 * @return
+	 */
+    public SaveReceipt save(ParsedPayload parsedPayload) {
+        final String payload = parsedPayload.getPayload();
+        String resourceId = determineResourceId(parsedPayload);
         if (exists(resourceId)) {
             if (updateAllowed) {
-                return updateResource(payload, resourceId);
+                if (remoteStateSnapshot == null) {
+                    return updateResource(payload, resourceId);
+                }
+                final String path = getUpdateResourcePath(payload, resourceId);
+                if (remoteStateSnapshot.isUnchanged(path, parsedPayload, () -> getPropertiesAtPath(path, parsedPayload.isJson()))) {
+                    logger.info(format("Properties of %s %s are the same as in the payload, so not updating it", getResourceName(), resourceId));
+                    remoteStateSnapshot.recordSkipped();
+                    return new SaveReceipt(resourceId, payload, path, null);
+                }
+                try {
+                    SaveReceipt receipt = updateResource(payload, resourceId);
+                    remoteStateSnapshot.recordUpdated();
+                    return receipt;
+                } finally {
+                    // The captured properties no longer reflect the resource, even if the update failed part way
+                    remoteStateSnapshot.invalidate(path);
+                }
             } else {
                 logger.info("Resource already exists and updates are not supported, so not updating: " + resourceId);
 	            /**
@@ -94,10 +171,60 @@ public abstract class AbstractResourceManager extends AbstractManager implements
 	            return new SaveReceipt(resourceId, payload, null, null);
             }
         } else {
-        	return createNewResource(payload, resourceId);
+        	SaveReceipt receipt = createNewResource(payload, resourceId);
+        	if (remoteStateSnapshot != null) {
+        		remoteStateSnapshot.recordCreated();
+        		if (resourceId != null) {
+        			remoteStateSnapshot.invalidate(getUpdateResourcePath(payload, resourceId));
+		        }
+	        }
+        	return receipt;
         }
     }
 
+	/**
+	 * If a RemoteStateSnapshot has been set, fetches the properties of each existing resource referenced by the given
+	 * payloads so that they're all fetched at once - using the snapshot's thread count - instead of one at a time as
+	 * each resource is saved.
+	 *
+	 * @param payloads
+	 */
+	public void prefetchRemoteState(List<String> payloads) {
+		if (remoteStateSnapshot != null && updateAllowed) {
+			remoteStateSnapshot.prefetch(getRemoteStateFetchers(payloads));
+		}
+	}
+
+	/**
+	 * @param payloads
+	 * @return a map of the path of each existing resource's properties, as used by updateResource, to a function that
+	 * fetches those properties in the same format as the resource's payload
+	 */
+	public Map<String, Supplier<String>> getRemoteStateFetchers(List<String> payloads) {
+		Map<String, Supplier<String>> fetchers = new LinkedHashMap<>();
+		for (String payload : payloads) {
+			ParsedPayload parsedPayload = payloadParser.parse(payload);
+			String resourceId = determineResourceId(parsedPayload);
+			if (resourceId != null && exists(resourceId)) {
+				String path = getUpdateResourcePath(payload, resourceId);
+				fetchers.put(path, () -> getPropertiesAtPath(path, parsedPayload.isJson()));
+			}
+		}
+		return fetchers;
+	}
+
+	/**
+	 * @param path
+	 * @param asJson true to get the properties as JSON, false to get them as XML
+	 * @return
+	 */
+	protected String getPropertiesAtPath(String path, boolean asJson) {
+		if (asJson) {
+			return useSecurityUser() ? manageClient.getJsonAsSecurityUser(path) : manageClient.getJson(path);
+		}
+		return useSecurityUser() ? manageClient.getXmlStringAsSecurityUser(path) : manageClient.getXmlString(path);
+	}
+
     protected SaveReceipt createNewResource(String payload, String resourceId) {
     	String label = getResourceName();
     	if (logger.isInfoEnabled()) {
@@ -108,6 +235,9 @@ public abstract class AbstractResourceManager extends AbstractManager implements
 	    if (logger.isInfoEnabled()) {
 		    logger.info(format("Created %s: %s", label, resourceId));
 	    }
+	    if (resourceListCache != null) {
+		    resourceListCache.addResource(getResourcesPath(), resourceId);
+	    }
 	    return new SaveReceipt(resourceId, payload, path, response);
     }
 
@@ -133,15 +263,24 @@ public abstract class AbstractResourceManager extends AbstractManager implements
      * @return
      */
     public SaveReceipt updateResource(String payload, String resourceId) {
-        String path = getPropertiesPath(resourceId);
+        String path = getUpdateResourcePath(payload, resourceId);
         String label = getResourceName();
-        path = appendParamsAndValuesToPath(path, getUpdateResourceParams(payload));
         logger.info(format("Found %s with name of %s, so updating at path %s", label, resourceId, path));
         ResponseEntity<String> response = putPayload(manageClient, path, payload);
         logger.info(format("Updated %s at %s", label, path));
         return new SaveReceipt(resourceId, payload, path, response);
     }
 
+    /**
+     * @param payload
+     * @param resourceId
+     * @return the path that updateResource sends the payload to, which is also where the resource's properties can be
+     * retrieved from
+     */
+    protected String getUpdateResourcePath(String payload, String resourceId) {
+        return appendParamsAndValuesToPath(getPropertiesPath(resourceId), getUpdateResourceParams(payload));
+    }
+
     protected String getCreateResourcePath(String payload) {
         return getResourcesPath();
     }
@@ -164,6 +303,9 @@ public abstract class AbstractResourceManager extends AbstractManager implements
             path = appendParamsAndValuesToPath(path, getDeleteResourceParams(payload));
             beforeDelete(resourceId, path, resourceUrlParams);
             deleteAtPath(path);
+            if (resourceListCache != null) {
+	            resourceListCache.removeResource(getResourcesPath(), resourceId);
+            }
             return new DeleteReceipt(resourceId, path, true);
         }
     }
@@ -253,4 +395,24 @@ public abstract class AbstractResourceManager extends AbstractManager implements
         this.updateAllowed = updateAllowed;
     }
 
+	public ResourceListCache getResourceListCache() {
+		return resourceListCache;
+	}
+
+	public void setResourceListCache(ResourceListCache resourceListCache) {
+		this.resourceListCache = resourceListCache;
+	}
+
+	public RemoteStateSnapshot getRemoteStateSnapshot() {
+		return remoteStateSnapshot;
+	}
+
+	/**
+	 * @param remoteStateSnapshot if not null, an existing resource is only updated when the payload would change at
+	 *                            least one of its properties
+	 */
+	public void setRemoteStateSnapshot(RemoteStateSnapshot remoteStateSnapshot) {
+		this.remoteStateSnapshot = remoteStateSnapshot;
+	}
+
 }
@@ -0,0 +1,332 @@
+package com.marklogic.mgmt.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.flipkart.zjsonpatch.DiffFlags;
+import com.flipkart.zjsonpatch.JsonDiff;
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.mgmt.ParsedPayload;
+import com.marklogic.mgmt.util.ConcurrentTaskRunner;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
+import org.jdom2.Attribute;
+import org.jdom2.Element;
+import org.jdom2.input.SAXBuilder;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Captures the current properties of the resources that a command is about to save, so that an update can be skipped
+ * when the payload would not change anything. This avoids unnecessary PUT calls, some of which - such as a group
+ * payload with a cache size - cause MarkLogic to restart even when no value changes.
+ * <p>
+ * An instance is intended to be scoped to a single command's execution, similar to a ResourceListCache. The command
+ * can prefetch the properties of every existing resource up front using a bounded number of threads; any properties
+ * that were not prefetched are fetched when first needed.
+ * </p>
+ * <p>
+ * A payload is considered unchanged when every property in it has the same value as the existing resource. Properties
+ * that are not in the payload are ignored, as a PUT does not modify them. Values are compared semantically: scalar
+ * values are compared as text, so that e.g. a port of "8010" matches 8010, and arrays are compared without regard to
+ * order, as the Manage API does not return them in the order in which they were saved. XML payloads are compared
+ * against the XML properties of the existing resource, using the same rules, with the children of the root element
+ * treated as properties. Element and attribute names are compared by namespace URI and local name, and attributes are
+ * compared like properties, so a payload whose root element or property differs from the existing resource only by
+ * namespace or by an attribute is treated as changed. A property that the Manage API never returns, such as a user's
+ * password, results in the payload being treated as changed.
+ * </p>
+ * <p>
+ * Once a resource is created or updated, its captured properties are invalidated, so that saving it again within the
+ * same command compares the payload against its new properties.
+ * </p>
+ */
+public class RemoteStateSnapshot extends LoggingObject {
+
+	private final static EnumSet<DiffFlags> DIFF_FLAGS = EnumSet.of(DiffFlags.OMIT_MOVE_OPERATION,
+		DiffFlags.OMIT_COPY_OPERATION, DiffFlags.ADD_ORIGINAL_VALUE_ON_REPLACE);
+
+	// Used for properties that could not be fetched, since a ConcurrentHashMap does not allow null values
+	private final static JsonNode MISSING = JsonNodeFactory.instance.nullNode();
+
+	// Property names that can't clash with an XML element name, which can't contain "#"
+	private final static String XML_ROOT_FIELD = "#root";
+	private final static String XML_TEXT_FIELD = "#text";
+
+	// The Manage API accepts properties in a resource-specific namespace or in this one, but always returns them in this one
+	private final static String MANAGE_NAMESPACE = "http://marklogic.com/manage";
+	private final static Pattern PROPERTIES_NAMESPACE = Pattern.compile("http://marklogic\\.com/manage/[a-z-]+/properties");
+
+	private final Map<String, JsonNode> propertiesByPath = new ConcurrentHashMap<>();
+	private int threadCount = 8;
+
+	private final AtomicInteger skippedCount = new AtomicInteger();
+	private final AtomicInteger updatedCount = new AtomicInteger();
+	private final AtomicInteger createdCount = new AtomicInteger();
+
+	public RemoteStateSnapshot() {
+	}
+
+	/**
+	 * @param threadCount the maximum number of resources whose properties are fetched at the same time by prefetch
+	 */
+	public RemoteStateSnapshot(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Fetches the properties at each of the given paths that have not been fetched yet, using up to threadCount
+	 * threads. A failure to fetch properties is logged and the resource is then treated as changed.
+	 *
+	 * @param fetchers maps the path of each resource's properties to the function that fetches them as JSON or XML
+	 */
+	public void prefetch(Map<String, Supplier<String>> fetchers) {
+		Map<String, Supplier<String>> toFetch = new LinkedHashMap<>();
+		fetchers.forEach((path, fetcher) -> {
+			if (!propertiesByPath.containsKey(path)) {
+				toFetch.put(path, fetcher);
+			}
+		});
+		if (toFetch.isEmpty()) {
+			return;
+		}
+
+		final int threads = Math.max(1, Math.min(threadCount, toFetch.size()));
+		if (logger.isInfoEnabled()) {
+			logger.info(format("Fetching properties of %d existing resources using %d threads", toFetch.size(), threads));
+		}
+		ConcurrentTaskRunner.map(new ArrayList<>(toFetch.entrySet()), threads, entry -> fetch(entry.getKey(), entry.getValue()));
+	}
+
+	/**
+	 * @param path    the path of the resource's properties; used as the key for properties that have been fetched
+	 * @param payload the payload that would be sent to the path
+	 * @param fetcher used to fetch the resource's properties, in the same format as the payload, if they have not
+	 *                been fetched yet
+	 * @return true if sending the payload would not change any of the resource's properties
+	 */
+	public boolean isUnchanged(String path, ParsedPayload payload, Supplier<String> fetcher) {
+		JsonNode existing = propertiesByPath.get(path);
+		if (existing == null) {
+			existing = fetch(path, fetcher);
+		}
+		if (existing == null || existing == MISSING) {
+			return false;
+		}
+
+		JsonNode incoming;
+		try {
+			incoming = toNormalizedNode(payload.getPayload());
+		} catch (Exception ex) {
+			logger.warn(format("Unable to compare payload for %s to existing properties, so will update it; cause: %s", path, ex.getMessage()));
+			return false;
+		}
+
+		JsonNode patch = diff(existing, incoming);
+		if (patch.size() > 0) {
+			if (logger.isDebugEnabled()) {
+				logger.debug(format("Payload differs from existing properties at %s: %s", path, patch));
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Builds a JSON patch describing how the properties in the given payload differ from the existing properties.
+	 * Only the properties in the payload are compared.
+	 *
+	 * @param existing normalized existing properties
+	 * @param incoming normalized payload
+	 * @return a JSON patch, which is empty if the payload would not change anything
+	 */
+	protected JsonNode diff(JsonNode existing, JsonNode incoming) {
+		ObjectNode existingSubset = JsonNodeFactory.instance.objectNode();
+		Iterator<String> names = incoming.fieldNames();
+		while (names.hasNext()) {
+			String name = names.next();
+			if (existing.has(name)) {
+				existingSubset.set(name, existing.get(name));
+			}
+		}
+		return JsonDiff.asJson(existingSubset, incoming, DIFF_FLAGS);
+	}
+
+	/**
+	 * Converts a JSON or XML payload into a JSON node in which all scalar values are text and all arrays are sorted.
+	 * For XML, each child element of the root element becomes a property; an element with child elements or
+	 * attributes becomes an object, and an element name that occurs more than once becomes an array. The name of the
+	 * root element is included as a property as well, so that it's compared too.
+	 *
+	 * @param payload
+	 * @return
+	 * @throws Exception
+	 */
+	protected JsonNode toNormalizedNode(String payload) throws Exception {
+		JsonNode node;
+		if (ParsedPayload.startsLikeJson(payload)) {
+			node = ObjectMapperFactory.getObjectMapper().readTree(payload);
+		} else {
+			Element root = new SAXBuilder().build(new StringReader(payload)).getRootElement();
+			node = xmlToNode(root);
+			if (node != null && node.isObject()) {
+				((ObjectNode) node).put(XML_ROOT_FIELD, toClarkName(root.getNamespaceURI(), root.getName()));
+			}
+		}
+		if (node == null || !node.isObject()) {
+			throw new IllegalArgumentException("Expected payload to be a JSON object or an XML element");
+		}
+		return normalize(node);
+	}
+
+	/**
+	 * Element names are in Clark notation - i.e. "{namespace-uri}local-name" - so that elements with the same local
+	 * name in different namespaces are different properties, regardless of the prefixes used. A resource-specific
+	 * properties namespace, such as "http://marklogic.com/manage/role/properties", is treated as the
+	 * "http://marklogic.com/manage" namespace that the Manage API returns properties in. Attributes are added as
+	 * properties whose names start with "@", and the text of an element with attributes but no child elements is
+	 * added as the XML_TEXT_FIELD property.
+	 *
+	 * @param element
+	 * @return
+	 */
+	protected JsonNode xmlToNode(Element element) {
+		List<Element> children = element.getChildren();
+		List<Attribute> attributes = element.getAttributes();
+		if (children.isEmpty() && attributes.isEmpty()) {
+			return new TextNode(element.getTextTrim());
+		}
+		ObjectNode node = JsonNodeFactory.instance.objectNode();
+		for (Attribute attribute : attributes) {
+			node.put("@" + toClarkName(attribute.getNamespaceURI(), attribute.getName()), attribute.getValue());
+		}
+		if (children.isEmpty()) {
+			node.put(XML_TEXT_FIELD, element.getTextTrim());
+		}
+		for (Element child : children) {
+			String name = toClarkName(child.getNamespaceURI(), child.getName());
+			JsonNode value = xmlToNode(child);
+			JsonNode current = node.get(name);
+			if (current == null) {
+				node.set(name, value);
+			} else if (current.isArray()) {
+				((ArrayNode) current).add(value);
+			} else {
+				ArrayNode array = node.putArray(name);
+				array.add(current);
+				array.add(value);
+			}
+		}
+		return node;
+	}
+
+	private static String toClarkName(String namespaceUri, String localName) {
+		if (namespaceUri != null && PROPERTIES_NAMESPACE.matcher(namespaceUri).matches()) {
+			namespaceUri = MANAGE_NAMESPACE;
+		}
+		return namespaceUri == null || namespaceUri.isEmpty() ? localName : "{" + namespaceUri + "}" + localName;
+	}
+
+	protected JsonNode normalize(JsonNode node) {
+		if (node.isObject()) {
+			// Fields are sorted so that objects in an array are sorted the same way regardless of their field order
+			ObjectNode copy = JsonNodeFactory.instance.objectNode();
+			List<String> names = new ArrayList<>();
+			node.fieldNames().forEachRemaining(names::add);
+			Collections.sort(names);
+			names.forEach(name -> copy.set(name, normalize(node.get(name))));
+			return copy;
+		}
+		if (node.isArray()) {
+			List<JsonNode> values = new ArrayList<>();
+			node.forEach(value -> values.add(normalize(value)));
+			values.sort((a, b) -> a.toString().compareTo(b.toString()));
+			ArrayNode copy = JsonNodeFactory.instance.arrayNode();
+			copy.addAll(values);
+			return copy;
+		}
+		if (node.isNull()) {
+			return node;
+		}
+		return new TextNode(node.asText());
+	}
+
+	private JsonNode fetch(String path, Supplier<String> fetcher) {
+		JsonNode node;
+		try {
+			node = toNormalizedNode(fetcher.get());
+		} catch (Exception ex) {
+			logger.warn(format("Unable to fetch properties at %s, so will not be able to determine if the resource " +
+				"is unchanged; cause: %s", path, ex.getMessage()));
+			node = MISSING;
+		}
+		propertiesByPath.put(path, node);
+		return node;
+	}
+
+	/**
+	 * Discards the captured properties at the given path, which is done once the resource has been created or
+	 * updated; its properties are then fetched again if it's saved again.
+	 *
+	 * @param path
+	 */
+	public void invalidate(String path) {
+		propertiesByPath.remove(path);
+	}
+
+	public void recordSkipped() {
+		skippedCount.incrementAndGet();
+	}
+
+	public void recordUpdated() {
+		updatedCount.incrementAndGet();
+	}
+
+	public void recordCreated() {
+		createdCount.incrementAndGet();
+	}
+
+	public int getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	public int getUpdatedCount() {
+		return updatedCount.get();
+	}
+
+	public int getCreatedCount() {
+		return createdCount.get();
+	}
+
+	public String getSummary() {
+		return format("%d unchanged resources skipped, %d updated, %d created",
+			getSkippedCount(), getUpdatedCount(), getCreatedCount());
+	}
+
+	public void clear() {
+		propertiesByPath.clear();
+		skippedCount.set(0);
+		updatedCount.set(0);
+		createdCount.set(0);
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+}
@@ -0,0 +1,77 @@
+package com.marklogic.mgmt.resource;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.rest.util.ResourceList;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches the names and IDs of resources returned by a Manage API list endpoint - e.g. /manage/v2/roles - so that
+ * AbstractResourceManager.exists does not need to download the full list for every resource that is saved.
+ * <p>
+ * An instance is intended to be scoped to a CommandContext. Each list endpoint is fetched at most once, the first time
+ * that a resource is checked for existence, and the cache is then updated as resources are created and deleted via an
+ * AbstractResourceManager that references it. Because resources can be created via other means during a deployment -
+ * e.g. via CMA or the REST API instance endpoint - AbstractResourceCommand clears the cache before it executes.
+ * </p>
+ */
+public class ResourceListCache extends LoggingObject {
+
+	private Map<String, ResourceList> resourceLists = new ConcurrentHashMap<>();
+
+	/**
+	 * @param resourcesPath the path of the list endpoint, which is used as the cache key
+	 * @param resourceNameOrId
+	 * @param listSupplier  invoked to fetch the list if it has not been fetched yet for the given path
+	 * @return
+	 */
+	public boolean resourceExists(String resourcesPath, String resourceNameOrId, Supplier<ResourceList> listSupplier) {
+		return getResourceList(resourcesPath, listSupplier).contains(resourceNameOrId);
+	}
+
+	/**
+	 * Should be called after a resource has been successfully created. Has no effect if the list for the given path
+	 * has not been fetched yet.
+	 *
+	 * @param resourcesPath
+	 * @param resourceName
+	 */
+	public void addResource(String resourcesPath, String resourceName) {
+		ResourceList list = resourceLists.get(resourcesPath);
+		if (list != null && resourceName != null) {
+			list.add(resourceName, null);
+		}
+	}
+
+	/**
+	 * Should be called after a resource has been successfully deleted.
+	 *
+	 * @param resourcesPath
+	 * @param resourceNameOrId
+	 */
+	public void removeResource(String resourcesPath, String resourceNameOrId) {
+		ResourceList list = resourceLists.get(resourcesPath);
+		if (list != null && resourceNameOrId != null) {
+			list.remove(resourceNameOrId);
+		}
+	}
+
+	public void clear() {
+		resourceLists.clear();
+	}
+
+	public void clear(String resourcesPath) {
+		resourceLists.remove(resourcesPath);
+	}
+
+	protected ResourceList getResourceList(String resourcesPath, Supplier<ResourceList> listSupplier) {
+		return resourceLists.computeIfAbsent(resourcesPath, path -> {
+			if (logger.isInfoEnabled()) {
+				logger.info("Caching list of resources at path: " + path);
+			}
+			return listSupplier.get();
+		});
+	}
+}
@@ -1,13 +1,23 @@
 package com.marklogic.mgmt.resource.forests;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.marklogic.mgmt.api.API;
+import com.marklogic.mgmt.api.forest.Forest;
+import com.marklogic.mgmt.mapper.DefaultResourceMapper;
+import com.marklogic.mgmt.mapper.ResourceMapper;
 import com.marklogic.mgmt.resource.AbstractResourceManager;
 import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.retry.RetryInterceptor;
+import com.marklogic.mgmt.retry.RetryPolicy;
+import com.marklogic.mgmt.util.ConcurrentTaskRunner;
 import com.marklogic.rest.util.Fragment;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +41,7 @@ public class ForestManager extends AbstractResourceManager {
     private String deleteLevel = DELETE_LEVEL_FULL;
     private int deleteRetryAttempts = 3;
     private long deleteSleepPeriod = 500;
+	private int propertiesThreadCount = 0;
 
     public ForestManager(ManageClient client) {
         super(client);
@@ -62,30 +73,57 @@ public class ForestManager extends AbstractResourceManager {
         } else {
             logger.info(format("Deleting forest %s", nameOrId));
             String path = format("/manage/v2/forests/%s?level=%s&replicas=%s", nameOrId, level, replicas);
-            deleteWithRetry(path, deleteRetryAttempts);
+            deleteWithRetryPolicy(path, buildDeleteRetryPolicy(deleteRetryAttempts));
             logger.info(format("Deleted forest %s", nameOrId));
         }
     }
 
-    public void deleteWithRetry(String path, int attemptsLeft) {
-	    try {
-		    getManageClient().delete(path);
-	    } catch (Exception e) {
-	    	// Error will be logged automatically by MgmtResponseErrorHandler
-		    if (attemptsLeft > 0) {
-		    	try {
-		    		logger.warn("Unable to delete forest; will wait " + deleteSleepPeriod + "ms, then retry at path: " + path);
-				    Thread.sleep(deleteSleepPeriod);
-				    attemptsLeft--;
-				    deleteWithRetry(path, attemptsLeft);
-			    } catch (InterruptedException ex) {
-		    		// Ignore
-			    }
-		    } else {
-		    	throw e;
-		    }
-	    }
-    }
+	/**
+	 * @param path
+	 * @param attemptsLeft the number of times to retry the request after the first attempt
+	 * @deprecated since the retry logic is now defined by the RetryPolicy returned by buildDeleteRetryPolicy
+	 */
+	@Deprecated
+	public void deleteWithRetry(String path, int attemptsLeft) {
+		deleteWithRetryPolicy(path, buildDeleteRetryPolicy(attemptsLeft));
+	}
+
+	/**
+	 * The request is sent via RetryInterceptor.withoutRetrying, so that the given RetryPolicy alone determines how many
+	 * times it's sent, rather than each of its attempts also being retried by the ManageClient's RetryPolicy.
+	 *
+	 * @param path
+	 * @param retryPolicy
+	 */
+	protected void deleteWithRetryPolicy(String path, RetryPolicy retryPolicy) {
+		retryPolicy.execute("delete forest at path: " + path, () -> RetryInterceptor.withoutRetrying(() -> {
+			getManageClient().delete(path);
+			return null;
+		}));
+	}
+
+	/**
+	 * Deleting a forest may fail - e.g. with a 400 or 500 error when the forest is still being detached from its
+	 * database, or with a 503 when a host is restarting - and then succeed when tried again. As has always been the
+	 * case, the request is retried after any error, waiting deleteSleepPeriod between attempts. This policy is used
+	 * instead of the ManageClient's RetryPolicy. The error is logged by MgmtResponseErrorHandler before each retry.
+	 *
+	 * @param retryAttempts the number of times to retry the request after the first attempt
+	 * @return
+	 */
+	protected RetryPolicy buildDeleteRetryPolicy(int retryAttempts) {
+		return new RetryPolicy(retryAttempts + 1, deleteSleepPeriod) {
+			@Override
+			public boolean isRetryableException(Throwable ex) {
+				return true;
+			}
+
+			@Override
+			public long getDelay(int attempt, long retryAfterMillis) {
+				return deleteSleepPeriod;
+			}
+		};
+	}
 
 	/**
 	 * Supports either an array of JSON objects or a single JSON object.
@@ -200,6 +238,40 @@ public class ForestManager extends AbstractResourceManager {
         }
     }
 
+	/**
+	 * Fetches the properties of each of the given forests, using up to propertiesThreadCount concurrent requests. The
+	 * Manage API doesn't offer a way to get the properties of many forests in a single request, so this avoids having
+	 * to wait on each request in turn when a database has many forests.
+	 * <p>
+	 * If propertiesThreadCount is not set, the number of concurrent requests defaults to the number of requests the
+	 * ManageClient can have in flight at once. A propertiesThreadCount above that number is capped to it, as the
+	 * additional threads would only wait on a connection.
+	 * </p>
+	 *
+	 * @param forestIdsOrNames
+	 * @return a map of each given forest ID or name to its properties, in the order in which they were given
+	 */
+	public Map<String, Forest> getPropertiesForForests(Collection<String> forestIdsOrNames) {
+		Map<String, Forest> forests = new LinkedHashMap<>();
+		if (forestIdsOrNames == null || forestIdsOrNames.isEmpty()) {
+			return forests;
+		}
+
+		final ResourceMapper mapper = new DefaultResourceMapper(new API(getManageClient()));
+		List<String> ids = new ArrayList<>(forestIdsOrNames);
+		List<Forest> list = ConcurrentTaskRunner.map(ids, determinePropertiesThreadCount(),
+			forestIdOrName -> mapper.readResource(getPropertiesAsJson(forestIdOrName), Forest.class));
+		for (int i = 0; i < ids.size(); i++) {
+			forests.put(ids.get(i), list.get(i));
+		}
+		return forests;
+	}
+
+	protected int determinePropertiesThreadCount() {
+		final int limit = getManageClient().getMaxConcurrentRequests();
+		return propertiesThreadCount > 0 ? Math.min(propertiesThreadCount, limit) : limit;
+	}
+
     public ForestStatus getForestStatus(String forestIdOrName) {
         String path = getResourcePath(forestIdOrName, "view", "status", "format", "xml");
         return new ForestStatus(getManageClient().getXml(path));
@@ -228,6 +300,18 @@ public class ForestManager extends AbstractResourceManager {
 		this.deleteRetryAttempts = deleteRetryAttempts;
 	}
 
+	public int getPropertiesThreadCount() {
+		return propertiesThreadCount;
+	}
+
+	/**
+	 * @param propertiesThreadCount the maximum number of concurrent requests made by getPropertiesForForests; if not
+	 *                              positive, ManageClient.getMaxConcurrentRequests is used
+	 */
+	public void setPropertiesThreadCount(int propertiesThreadCount) {
+		this.propertiesThreadCount = propertiesThreadCount;
+	}
+
 	public void setDeleteSleepPeriod(long deleteSleepPeriod) {
 		this.deleteSleepPeriod = deleteSleepPeriod;
 	}
@@ -2,6 +2,7 @@ package com.marklogic.mgmt.resource.security;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.ParsedPayload;
 import com.marklogic.mgmt.SaveReceipt;
 import com.marklogic.mgmt.resource.AbstractResourceManager;
 import com.marklogic.rest.util.Fragment;
@@ -47,17 +48,18 @@ public class AmpManager extends AbstractResourceManager {
 	 * document-uri, namespace, and modules-database.
 	 */
 	@Override
-	public SaveReceipt save(String payload) {
-		String resourceId = getResourceId(payload);
+	public SaveReceipt save(ParsedPayload parsedPayload) {
+		final String payload = parsedPayload.getPayload();
+		String resourceId = determineResourceId(parsedPayload);
 		String label = getResourceName();
 		String path = null;
 		ResponseEntity<String> response = null;
-		if (ampExists(payload)) {
+		if (ampExists(parsedPayload)) {
 			return updateResource(payload, resourceId);
 		} else {
 			logger.info(format("Creating %s: %s", label, resourceId));
 			path = getCreateResourcePath(payload);
-			response = postPayload(getManageClient(), path, payload);
+			response = postPayload(getManageClient(), path, parsedPayload);
 			logger.info(format("Created %s: %s", label, resourceId));
 		}
 		return new SaveReceipt(resourceId, payload, path, response);
@@ -72,7 +74,11 @@ public class AmpManager extends AbstractResourceManager {
 	 * @return
 	 */
 	public boolean ampExists(String payload) {
-		String resourceId = getResourceId(payload);
+		return ampExists(payloadParser.parse(payload));
+	}
+
+	public boolean ampExists(ParsedPayload payload) {
+		String resourceId = determineResourceId(payload);
 		AmpParams params = getAmpParams(payload);
 		return ampExists(getAsXml(), resourceId, params.documentUri, params.namespace, params.modulesDatabase);
 	}
@@ -142,9 +148,13 @@ public class AmpManager extends AbstractResourceManager {
 	 * needed to uniquely refer to an amp.
 	 */
 	public AmpParams getAmpParams(String payload) {
+		return getAmpParams(payloadParser.parse(payload));
+	}
+
+	public AmpParams getAmpParams(ParsedPayload payload) {
 		AmpParams params = new AmpParams();
-		if (payloadParser.isJsonPayload(payload)) {
-			JsonNode node = payloadParser.parseJson(payload);
+		if (payload.isJson()) {
+			JsonNode node = payload.getJsonNode();
 			params.documentUri = node.get("document-uri").asText();
 			if (node.has("namespace")) {
 				params.namespace = node.get("namespace").asText();
@@ -153,7 +163,7 @@ public class AmpManager extends AbstractResourceManager {
 				params.modulesDatabase = node.get("modules-database").asText();
 			}
 		} else {
-			Fragment f = new Fragment(payload);
+			Fragment f = payload.getFragment();
 			params.documentUri = f.getElementValue("/node()/*[local-name(.) = 'document-uri']");
 			String val = f.getElementValue("/node()/*[local-name(.) = 'namespace']");
 			if (val != null) {
@@ -46,7 +46,7 @@ public class RoleManager extends AbstractResourceManager {
 				logger.info("Creating role '" + resourceId + "' that has permissions that refer to itself, " +
 					"so first creating role without permissions, and then updating role with permissions");
 			}
-			SaveReceipt receipt = super.createNewResource(role.getJson(), resourceId);
+			SaveReceipt receipt = super.createNewResource(role.getWireJson(), resourceId);
 			super.updateResource(payload, resourceId);
 			return receipt;
 		} else {
@@ -1,6 +1,7 @@
 package com.marklogic.mgmt.resource.tasks;
 
 import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.ParsedPayload;
 import com.marklogic.mgmt.PayloadParser;
 import com.marklogic.mgmt.SaveReceipt;
 import com.marklogic.mgmt.api.API;
@@ -40,7 +41,7 @@ public class TaskManager extends AbstractResourceManager {
 	 * @return
 	 */
 	@Override
-	protected String getResourceId(String payload) {
+	protected String getResourceId(ParsedPayload payload) {
 		final String taskId = payloadParser.getPayloadFieldValue(payload, "task-id", false);
 		if (taskId != null) {
 			return taskId;
@@ -192,7 +193,7 @@ public class TaskManager extends AbstractResourceManager {
 			String path = getPropertiesPath(taskId);
 			path = appendParamsAndValuesToPath(path, getUpdateResourceParams(payload));
 			logger.info("Updating new scheduled task so it is disabled; task ID: " + taskId);
-			putPayload(getManageClient(), path, task.getJson());
+			putPayload(getManageClient(), path, task.getWireJson());
 		}
 	}
 
@@ -31,7 +31,7 @@ public class TaskServerManager extends AbstractManager {
 		}
 
 		if (response != null && response.getHeaders().getLocation() != null && adminManager != null) {
-			adminManager.waitForRestart();
+			adminManager.waitForRestart(response);
 		}
 	}
 
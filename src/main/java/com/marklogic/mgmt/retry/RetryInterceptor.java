@@ -0,0 +1,118 @@
+package com.marklogic.mgmt.retry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.function.Supplier;
+
+/**
+ * Spring RestTemplate interceptor that retries a request based on a RetryPolicy. A response with a retryable status
+ * code is closed before the request is retried; if every attempt receives such a response, the last one is returned so
+ * that the RestTemplate's error handler can process it as usual.
+ * <p>
+ * Each retry re-executes the request via the given ClientHttpRequestExecution, which skips any interceptors that
+ * follow this one. This interceptor should therefore be the last one in a RestTemplate's list of interceptors;
+ * ManageClient.setRetryPolicy ensures that it is.
+ * </p>
+ * <p>
+ * An operation that applies its own RetryPolicy - such as deleting a forest - can use withoutRetrying so that its
+ * requests are sent only once by this interceptor, instead of each of its attempts being retried as well.
+ * </p>
+ */
+public class RetryInterceptor implements ClientHttpRequestInterceptor {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final static ThreadLocal<Boolean> retryingDisabled = new ThreadLocal<>();
+
+	private final RetryPolicy retryPolicy;
+
+	public RetryInterceptor(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Runs the given action without any request sent on the current thread being retried by a RetryInterceptor.
+	 *
+	 * @param action
+	 * @param <T>
+	 * @return the result of the action
+	 */
+	public static <T> T withoutRetrying(Supplier<T> action) {
+		Boolean previous = retryingDisabled.get();
+		retryingDisabled.set(Boolean.TRUE);
+		try {
+			return action.get();
+		} finally {
+			if (previous == null) {
+				retryingDisabled.remove();
+			} else {
+				retryingDisabled.set(previous);
+			}
+		}
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		if (Boolean.TRUE.equals(retryingDisabled.get()) || !retryPolicy.isRetryableRequest(request)) {
+			return execution.execute(request, body);
+		}
+
+		final int maxAttempts = retryPolicy.getMaxAttempts();
+		for (int attempt = 1; ; attempt++) {
+			String cause;
+			long retryAfterMillis = 0;
+			try {
+				ClientHttpResponse response = execution.execute(request, body);
+				int statusCode = response.getRawStatusCode();
+				if (attempt >= maxAttempts || !retryPolicy.isRetryableStatusCode(statusCode)) {
+					return response;
+				}
+				cause = "received status code " + statusCode;
+				retryAfterMillis = getRetryAfterMillis(response.getHeaders());
+				response.close();
+			} catch (IOException ex) {
+				if (attempt >= maxAttempts || !retryPolicy.isRetryableException(ex)) {
+					throw ex;
+				}
+				cause = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+			}
+
+			long delay = retryPolicy.getDelay(attempt, retryAfterMillis);
+			if (logger.isWarnEnabled()) {
+				logger.warn(String.format("%s request to %s %s; will retry in %dms; attempt %d of %d", request.getMethod(),
+					request.getURI().getPath(), cause, delay, attempt, maxAttempts));
+			}
+			if (!retryPolicy.sleep(delay)) {
+				throw new InterruptedIOException("Interrupted while waiting to retry request to: " + request.getURI());
+			}
+		}
+	}
+
+	/**
+	 * @param headers
+	 * @return the number of milliseconds in a Retry-After header that specifies a number of seconds, or 0
+	 */
+	protected long getRetryAfterMillis(HttpHeaders headers) {
+		String value = headers.getFirst("Retry-After");
+		if (value != null) {
+			try {
+				return Long.parseLong(value.trim()) * 1000;
+			} catch (NumberFormatException ex) {
+				// An HTTP date is allowed too, but MarkLogic doesn't send one
+			}
+		}
+		return 0;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+}
@@ -0,0 +1,227 @@
+package com.marklogic.mgmt.retry;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Defines when and how often a request to MarkLogic is retried. A request is retried when it fails with an
+ * IOException - such as a connection being refused or reset by a restarting host - or receives one of the retryable
+ * status codes, which by default are 502, 503 and 504. Attempts are separated by an exponentially increasing delay
+ * with jitter, and if a response includes a Retry-After header with a number of seconds, the delay is at least that
+ * long.
+ * <p>
+ * Only idempotent requests are retried - i.e. GET, HEAD, OPTIONS, PUT and DELETE. A POST may create a resource or
+ * perform an action, so it's only retried if it matches the retryablePostPredicate, which by default matches nothing.
+ * </p>
+ * <p>
+ * An instance is typically used by a RetryInterceptor, but the execute method can be used to retry any operation.
+ * </p>
+ */
+public class RetryPolicy extends LoggingObject {
+
+	private final static Set<HttpMethod> IDEMPOTENT_METHODS = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD,
+		HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.TRACE);
+
+	private int maxAttempts = 4;
+	private long initialDelay = 500;
+	private long maxDelay = 8000;
+	private double multiplier = 2;
+	private Set<Integer> retryableStatusCodes = new HashSet<>(Arrays.asList(502, 503, 504));
+	private Predicate<HttpRequest> retryablePostPredicate = request -> false;
+
+	public RetryPolicy() {
+	}
+
+	/**
+	 * @param maxAttempts  the maximum number of times a request is sent, including the first time
+	 * @param initialDelay the number of milliseconds to wait before the first retry
+	 */
+	public RetryPolicy(int maxAttempts, long initialDelay) {
+		this.maxAttempts = maxAttempts;
+		this.initialDelay = initialDelay;
+	}
+
+	/**
+	 * @param other the policy whose settings are copied, so that changes to this policy don't affect the other one
+	 */
+	public RetryPolicy(RetryPolicy other) {
+		this.maxAttempts = other.maxAttempts;
+		this.initialDelay = other.initialDelay;
+		this.maxDelay = other.maxDelay;
+		this.multiplier = other.multiplier;
+		this.retryableStatusCodes = new HashSet<>(other.retryableStatusCodes);
+		this.retryablePostPredicate = other.retryablePostPredicate;
+	}
+
+	/**
+	 * Used by ManageClient so that each client has its own policy instead of sharing the one in a ManageConfig.
+	 * Subclasses that add state or override any behavior should override this too.
+	 *
+	 * @return a new policy with the same settings as this one
+	 */
+	public RetryPolicy copy() {
+		return new RetryPolicy(this);
+	}
+
+	/**
+	 * @param request
+	 * @return true if the request's method is idempotent, or if it's a POST that matches retryablePostPredicate
+	 */
+	public boolean isRetryableRequest(HttpRequest request) {
+		HttpMethod method = request.getMethod();
+		if (method == null) {
+			return false;
+		}
+		if (HttpMethod.POST.equals(method)) {
+			return retryablePostPredicate.test(request);
+		}
+		return IDEMPOTENT_METHODS.contains(method);
+	}
+
+	public boolean isRetryableStatusCode(int statusCode) {
+		return retryableStatusCodes.contains(statusCode);
+	}
+
+	/**
+	 * An UnknownHostException or SSLException is not retried, as neither is likely to be resolved by trying again.
+	 * Spring's ResourceAccessException, which wraps an IOException, is classified based on its cause.
+	 *
+	 * @param ex
+	 * @return
+	 */
+	public boolean isRetryableException(Throwable ex) {
+		if (ex instanceof HttpStatusCodeException) {
+			return isRetryableStatusCode(((HttpStatusCodeException) ex).getRawStatusCode());
+		}
+		if (ex instanceof ResourceAccessException && ex.getCause() != null) {
+			ex = ex.getCause();
+		}
+		return ex instanceof IOException && !(ex instanceof UnknownHostException) && !(ex instanceof SSLException);
+	}
+
+	/**
+	 * @param attempt         the number of attempts made so far, starting at 1
+	 * @param retryAfterMillis the delay requested by the server via a Retry-After header, or 0 if none was requested
+	 * @return the number of milliseconds to wait before the next attempt; this is a random value between half of and
+	 * the full exponential delay, so that multiple clients don't retry in lockstep, but no less than the requested
+	 * delay, as long as that doesn't exceed maxDelay
+	 */
+	public long getDelay(int attempt, long retryAfterMillis) {
+		long delay = (long) Math.min(initialDelay * Math.pow(multiplier, attempt - 1), maxDelay);
+		if (delay > 1) {
+			delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay - delay / 2 + 1);
+		}
+		return Math.max(delay, Math.min(retryAfterMillis, maxDelay));
+	}
+
+	/**
+	 * Runs the given action, retrying it as long as it throws a retryable exception and maxAttempts has not been
+	 * reached.
+	 *
+	 * @param description used for logging
+	 * @param action
+	 * @param <T>
+	 * @return
+	 */
+	public <T> T execute(String description, Supplier<T> action) {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return action.get();
+			} catch (RuntimeException ex) {
+				if (attempt >= maxAttempts || !isRetryableException(ex)) {
+					throw ex;
+				}
+				long delay = getDelay(attempt, 0);
+				logger.warn(format("Unable to %s; will retry in %dms; attempt %d of %d; cause: %s",
+					description, delay, attempt, maxAttempts, ex.getMessage()));
+				if (!sleep(delay)) {
+					throw ex;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param millis
+	 * @return false if the thread was interrupted, in which case no further attempts should be made
+	 */
+	protected boolean sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+			return true;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * @param maxAttempts the maximum number of times a request is sent, including the first time; 1 disables retrying
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getInitialDelay() {
+		return initialDelay;
+	}
+
+	public void setInitialDelay(long initialDelay) {
+		this.initialDelay = initialDelay;
+	}
+
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	public void setMaxDelay(long maxDelay) {
+		this.maxDelay = maxDelay;
+	}
+
+	public double getMultiplier() {
+		return multiplier;
+	}
+
+	public void setMultiplier(double multiplier) {
+		this.multiplier = multiplier;
+	}
+
+	public Set<Integer> getRetryableStatusCodes() {
+		return retryableStatusCodes;
+	}
+
+	public void setRetryableStatusCodes(Collection<Integer> retryableStatusCodes) {
+		this.retryableStatusCodes = new HashSet<>(retryableStatusCodes);
+	}
+
+	public Predicate<HttpRequest> getRetryablePostPredicate() {
+		return retryablePostPredicate;
+	}
+
+	/**
+	 * @param retryablePostPredicate determines whether a POST request is safe to retry, such as one whose path is known
+	 *                               to perform an idempotent operation
+	 */
+	public void setRetryablePostPredicate(Predicate<HttpRequest> retryablePostPredicate) {
+		this.retryablePostPredicate = retryablePostPredicate != null ? retryablePostPredicate : request -> false;
+	}
+}
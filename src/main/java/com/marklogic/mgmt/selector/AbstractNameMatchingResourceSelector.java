@@ -1,7 +1,6 @@
 package com.marklogic.mgmt.selector;
 
 import com.marklogic.mgmt.ManageClient;
-import com.marklogic.mgmt.resource.ResourceManager;
 import com.marklogic.mgmt.resource.appservers.ServerManager;
 import com.marklogic.mgmt.resource.cpf.CpfConfigManager;
 import com.marklogic.mgmt.resource.cpf.DomainManager;
@@ -15,77 +14,144 @@ import com.marklogic.mgmt.resource.security.UserManager;
 import com.marklogic.mgmt.resource.tasks.TaskManager;
 import com.marklogic.mgmt.resource.triggers.TriggerManager;
 import com.marklogic.rest.util.ResourcesFragment;
-import org.jdom2.Element;
-import org.jdom2.Namespace;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * Selects every resource whose name matches, as determined by a subclass. The lists of all included resource types are
+ * first fetched concurrently into a ResourceInventory, and each resource is then matched in memory.
+ */
 public abstract class AbstractNameMatchingResourceSelector implements ResourceSelector {
 
 	private List<String> includeTypes;
 	private String triggersDatabase;
+	private int threadCount;
 
 	protected abstract boolean nameMatches(String resourceName);
 
 	@Override
 	public ResourceSelection selectResources(ManageClient manageClient) {
+		return selectResources(buildResourceInventory(manageClient));
+	}
+
+	/**
+	 * Selects resources from an inventory that has already been fetched, which allows multiple selectors to share
+	 * the same inventory.
+	 *
+	 * @param inventory
+	 * @return
+	 */
+	public ResourceSelection selectResources(ResourceInventory inventory) {
 		MapResourceSelection selection = new MapResourceSelection();
 
-		select(selection, new ServerManager(manageClient), MapResourceSelection.SERVERS);
-		select(selection, new DatabaseManager(manageClient), MapResourceSelection.DATABASES);
-		select(selection, new RoleManager(manageClient), MapResourceSelection.ROLES);
-		select(selection, new UserManager(manageClient), MapResourceSelection.USERS);
-		select(selection, new GroupManager(manageClient), MapResourceSelection.GROUPS);
+		select(selection, inventory, MapResourceSelection.SERVERS);
+		select(selection, inventory, MapResourceSelection.DATABASES);
+		select(selection, inventory, MapResourceSelection.ROLES);
+		select(selection, inventory, MapResourceSelection.USERS);
+		select(selection, inventory, MapResourceSelection.GROUPS);
 
 		if (triggersDatabase != null) {
-			select(selection, new CpfConfigManager(manageClient, triggersDatabase), MapResourceSelection.CPF_CONFIGS);
-			select(selection, new DomainManager(manageClient, triggersDatabase), MapResourceSelection.DOMAINS);
-			select(selection, new PipelineManager(manageClient, triggersDatabase), MapResourceSelection.PIPELINES);
-			select(selection, new TriggerManager(manageClient, triggersDatabase), MapResourceSelection.TRIGGERS);
+			select(selection, inventory, MapResourceSelection.CPF_CONFIGS);
+			select(selection, inventory, MapResourceSelection.DOMAINS);
+			select(selection, inventory, MapResourceSelection.PIPELINES);
+			select(selection, inventory, MapResourceSelection.TRIGGERS);
 		}
 
-		selectPrivileges(selection, manageClient);
-		selectTasks(selection, manageClient);
-		selectAmps(selection, manageClient);
+		selectPrivileges(selection, inventory);
+		selectTasks(selection, inventory);
+		selectAmps(selection, inventory);
 
 		return selection;
 	}
 
-	protected void selectAmps(MapResourceSelection selection, ManageClient manageClient) {
-		if (includeTypes == null || includeTypes.contains(MapResourceSelection.AMPS)) {
-			AmpManager mgr = new AmpManager(manageClient);
-			ResourcesFragment amps = mgr.getAsXml();
-			Namespace ns = Namespace.getNamespace("http://marklogic.com/manage/security");
-			for (Element amp : amps.getListItems()) {
-				String nameref = amp.getChildText("nameref", ns);
-				if (nameMatches(nameref)) {
-					String uriref = amp.getChildText("uriref", ns);
-					selection.select(MapResourceSelection.AMPS, uriref);
+	/**
+	 * @param manageClient
+	 * @return an inventory containing the list of each resource type that this selector includes
+	 */
+	public ResourceInventory buildResourceInventory(ManageClient manageClient) {
+		Map<String, Supplier<ResourcesFragment>> fetchers = new LinkedHashMap<>();
+		addFetcher(fetchers, MapResourceSelection.SERVERS, () -> new ServerManager(manageClient).getAsXml());
+		addFetcher(fetchers, MapResourceSelection.DATABASES, () -> new DatabaseManager(manageClient).getAsXml());
+		addFetcher(fetchers, MapResourceSelection.ROLES, () -> new RoleManager(manageClient).getAsXml());
+		addFetcher(fetchers, MapResourceSelection.USERS, () -> new UserManager(manageClient).getAsXml());
+		addFetcher(fetchers, MapResourceSelection.GROUPS, () -> new GroupManager(manageClient).getAsXml());
+
+		if (triggersDatabase != null) {
+			addFetcher(fetchers, MapResourceSelection.CPF_CONFIGS, () -> new CpfConfigManager(manageClient, triggersDatabase).getAsXml());
+			addFetcher(fetchers, MapResourceSelection.DOMAINS, () -> new DomainManager(manageClient, triggersDatabase).getAsXml());
+			addFetcher(fetchers, MapResourceSelection.PIPELINES, () -> new PipelineManager(manageClient, triggersDatabase).getAsXml());
+			addFetcher(fetchers, MapResourceSelection.TRIGGERS, () -> new TriggerManager(manageClient, triggersDatabase).getAsXml());
+		}
+
+		if (includesPrivileges()) {
+			fetchers.put(ResourceInventory.PRIVILEGES, () -> new PrivilegeManager(manageClient).getAsXml());
+		}
+		addFetcher(fetchers, MapResourceSelection.TASKS, () -> new TaskManager(manageClient).getAsXml());
+		addFetcher(fetchers, MapResourceSelection.AMPS, () -> new AmpManager(manageClient).getAsXml());
+
+		ResourceInventory inventory = new ResourceInventory(determineThreadCount(manageClient));
+		inventory.fetch(fetchers);
+		return inventory;
+	}
+
+	/**
+	 * @param manageClient
+	 * @return the number of lists to fetch at the same time, which is never more than the number of requests the
+	 * ManageClient can have in flight at once
+	 */
+	protected int determineThreadCount(ManageClient manageClient) {
+		final int limit = manageClient.getMaxConcurrentRequests();
+		return threadCount > 0 ? Math.min(threadCount, limit) : limit;
+	}
+
+	protected void addFetcher(Map<String, Supplier<ResourcesFragment>> fetchers, String type, Supplier<ResourcesFragment> fetcher) {
+		if (includes(type)) {
+			fetchers.put(type, fetcher);
+		}
+	}
+
+	protected boolean includes(String type) {
+		return includeTypes == null || includeTypes.contains(type);
+	}
+
+	protected boolean includesPrivileges() {
+		return includes(MapResourceSelection.PRIVILEGES_EXECUTE) || includes(MapResourceSelection.PRIVILEGES_URI);
+	}
+
+	/**
+	 * An amp is selected via its uriref, as its name is not sufficient for identifying it.
+	 */
+	protected void selectAmps(MapResourceSelection selection, ResourceInventory inventory) {
+		if (includes(MapResourceSelection.AMPS)) {
+			for (ResourceInventory.Entry amp : inventory.getEntries(MapResourceSelection.AMPS)) {
+				if (nameMatches(amp.getName())) {
+					selection.select(MapResourceSelection.AMPS, amp.getValue("uriref"));
 				}
 			}
 		}
 	}
 
-	protected void selectTasks(MapResourceSelection selection, ManageClient manageClient) {
-		if (includeTypes == null || includeTypes.contains(MapResourceSelection.TASKS)) {
-			TaskManager taskManager = new TaskManager(manageClient);
-			for (String path : taskManager.getTaskPaths()) {
-				if (nameMatches(path)) {
+	protected void selectTasks(MapResourceSelection selection, ResourceInventory inventory) {
+		if (includes(MapResourceSelection.TASKS)) {
+			for (ResourceInventory.Entry task : inventory.getEntries(MapResourceSelection.TASKS)) {
+				String path = task.getValue("task-path");
+				if (path != null && nameMatches(path)) {
 					selection.select(MapResourceSelection.TASKS, path);
 				}
 			}
 		}
 	}
 
-	protected void selectPrivileges(MapResourceSelection selection, ManageClient manageClient) {
-		if (includeTypes == null || includeTypes.contains(MapResourceSelection.PRIVILEGES_EXECUTE) || includeTypes.contains(MapResourceSelection.PRIVILEGES_URI)) {
-			PrivilegeManager privilegeManager = new PrivilegeManager(manageClient);
-			ResourcesFragment privileges = privilegeManager.getAsXml();
-			for (String name : privileges.getListItemNameRefs()) {
+	protected void selectPrivileges(MapResourceSelection selection, ResourceInventory inventory) {
+		if (includesPrivileges()) {
+			for (ResourceInventory.Entry privilege : inventory.getEntries(ResourceInventory.PRIVILEGES)) {
+				String name = privilege.getName();
 				if (nameMatches(name)) {
-					String kind = privileges.getListItemValue(name, "kind");
-					if ("uri".equals(kind)) {
+					if ("uri".equals(privilege.getValue("kind"))) {
 						selection.select(MapResourceSelection.PRIVILEGES_URI, name);
 					} else {
 						selection.select(MapResourceSelection.PRIVILEGES_EXECUTE, name);
@@ -95,12 +161,11 @@ public abstract class AbstractNameMatchingResourceSelector implements ResourceSe
 		}
 	}
 
-	protected void select(MapResourceSelection selection, ResourceManager mgr, String type) {
-		if (includeTypes == null || includeTypes.contains(type)) {
-			ResourcesFragment resources = mgr.getAsXml();
-			for (String name : resources.getListItemNameRefs()) {
-				if (nameMatches(name)) {
-					selection.select(type, name);
+	protected void select(MapResourceSelection selection, ResourceInventory inventory, String type) {
+		if (includes(type)) {
+			for (ResourceInventory.Entry entry : inventory.getEntries(type)) {
+				if (nameMatches(entry.getName())) {
+					selection.select(type, entry.getName());
 				}
 			}
 		}
@@ -132,4 +197,17 @@ public abstract class AbstractNameMatchingResourceSelector implements ResourceSe
 	public void setTriggersDatabase(String triggersDatabase) {
 		this.triggersDatabase = triggersDatabase;
 	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * @param threadCount the maximum number of resource lists fetched at the same time; if not positive, the number of
+	 *                    requests the ManageClient can have in flight at once is used, and a larger value is capped to
+	 *                    that number
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
 }
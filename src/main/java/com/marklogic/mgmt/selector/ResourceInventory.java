@@ -0,0 +1,192 @@
+package com.marklogic.mgmt.selector;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.mgmt.util.ConcurrentTaskRunner;
+import com.marklogic.rest.util.ResourcesFragment;
+import org.jdom2.Element;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds the list items of one or more resource types so that any number of selectors can match against them in
+ * memory. Each type's list is fetched once, with the lists fetched concurrently, and then read in a single pass into
+ * entries that are indexed by name and, separately, by ID. This avoids evaluating an XPath expression per resource, which is
+ * quadratic in the number of resources.
+ * <p>
+ * Types are identified by the constants in ResourceSelection, except for privileges; both kinds are listed by the
+ * same endpoint, and thus are stored under PRIVILEGES, with the kind of each privilege available via its "kind"
+ * value.
+ * </p>
+ */
+public class ResourceInventory extends LoggingObject {
+
+	public final static String PRIVILEGES = "privileges";
+
+	private final Map<String, List<Entry>> entriesByType = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, Entry>> nameIndexesByType = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, Entry>> idIndexesByType = new ConcurrentHashMap<>();
+	private int threadCount = 1;
+
+	/**
+	 * Fetches lists one at a time; see AbstractNameMatchingResourceSelector for a thread count based on a ManageClient.
+	 */
+	public ResourceInventory() {
+	}
+
+	/**
+	 * @param threadCount the maximum number of lists that are fetched at the same time by fetch
+	 */
+	public ResourceInventory(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Fetches each list whose type has not been fetched yet, using up to threadCount threads. If any list cannot be
+	 * fetched, the first failure is thrown once every other list has been fetched.
+	 *
+	 * @param fetchers maps each resource type to the function that fetches its list as XML
+	 */
+	public void fetch(Map<String, Supplier<ResourcesFragment>> fetchers) {
+		Map<String, Supplier<ResourcesFragment>> toFetch = new LinkedHashMap<>();
+		fetchers.forEach((type, fetcher) -> {
+			if (!entriesByType.containsKey(type)) {
+				toFetch.put(type, fetcher);
+			}
+		});
+		if (toFetch.isEmpty()) {
+			return;
+		}
+
+		final int threads = Math.max(1, Math.min(threadCount, toFetch.size()));
+		if (logger.isInfoEnabled()) {
+			logger.info(format("Fetching lists of %d resource types using %d threads", toFetch.size(), threads));
+		}
+		ConcurrentTaskRunner.map(new ArrayList<>(toFetch.entrySet()), threads, entry -> {
+			addResources(entry.getKey(), entry.getValue().get());
+			return null;
+		});
+	}
+
+	/**
+	 * Reads the list items in the given fragment, replacing any entries that were previously added for the type.
+	 *
+	 * @param type
+	 * @param resources
+	 */
+	public void addResources(String type, ResourcesFragment resources) {
+		List<Entry> entries = new ArrayList<>();
+		Map<String, Entry> nameIndex = new HashMap<>();
+		Map<String, Entry> idIndex = new HashMap<>();
+		for (Element item : getListItems(resources)) {
+			Map<String, String> values = new HashMap<>();
+			for (Element child : item.getChildren()) {
+				values.put(child.getName(), child.getText());
+			}
+			Entry entry = new Entry(values);
+			entries.add(entry);
+			// The first resource with a given name or ID wins, as e.g. servers in different groups can share a name
+			if (entry.getName() != null) {
+				nameIndex.putIfAbsent(entry.getName(), entry);
+			}
+			if (entry.getId() != null) {
+				idIndex.putIfAbsent(entry.getId(), entry);
+			}
+		}
+		nameIndexesByType.put(type, nameIndex);
+		idIndexesByType.put(type, idIndex);
+		entriesByType.put(type, Collections.unmodifiableList(entries));
+	}
+
+	/**
+	 * Walks the document instead of evaluating an XPath expression, as the latter is not linear in the number of
+	 * list items.
+	 */
+	protected List<Element> getListItems(ResourcesFragment resources) {
+		List<Element> items = new ArrayList<>();
+		for (Element listItems : resources.getInternalDoc().getRootElement().getChildren()) {
+			if ("list-items".equals(listItems.getName())) {
+				for (Element item : listItems.getChildren()) {
+					if ("list-item".equals(item.getName())) {
+						items.add(item);
+					}
+				}
+			}
+		}
+		return items;
+	}
+
+	/**
+	 * @param type
+	 * @return the entries of the given type, in the order in which they were listed; empty if the type has not been
+	 * fetched
+	 */
+	public List<Entry> getEntries(String type) {
+		List<Entry> entries = entriesByType.get(type);
+		return entries != null ? entries : Collections.emptyList();
+	}
+
+	/**
+	 * @param type
+	 * @param nameOrId
+	 * @return the entry of the given type with the given name or, if there is none, the given ID; null if neither
+	 * exists
+	 */
+	public Entry getEntry(String type, String nameOrId) {
+		Entry entry = getEntryByName(type, nameOrId);
+		return entry != null ? entry : getEntryById(type, nameOrId);
+	}
+
+	public Entry getEntryByName(String type, String name) {
+		Map<String, Entry> index = nameIndexesByType.get(type);
+		return index != null ? index.get(name) : null;
+	}
+
+	public Entry getEntryById(String type, String id) {
+		Map<String, Entry> index = idIndexesByType.get(type);
+		return index != null ? index.get(id) : null;
+	}
+
+	public boolean hasType(String type) {
+		return entriesByType.containsKey(type);
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * The values of a single list item, keyed on the local name of each child element - e.g. "nameref", "idref",
+	 * "kind", or "uriref".
+	 */
+	public static class Entry {
+
+		private final Map<String, String> values;
+
+		public Entry(Map<String, String> values) {
+			this.values = values;
+		}
+
+		public String getName() {
+			return values.get("nameref");
+		}
+
+		public String getId() {
+			return values.get("idref");
+		}
+
+		public String getValue(String localName) {
+			return values.get(localName);
+		}
+	}
+}
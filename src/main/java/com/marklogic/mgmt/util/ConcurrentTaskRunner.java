@@ -0,0 +1,142 @@
+package com.marklogic.mgmt.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs tasks on a fixed pool of threads, and turns the checked exceptions of waiting on a task into unchecked ones so
+ * that each class that does work concurrently doesn't need its own copy of that handling. A task's RuntimeException
+ * or Error is rethrown as-is; any other exception is wrapped in a RuntimeException. Being interrupted while waiting
+ * results in a RuntimeException, with the thread's interrupt flag restored.
+ * <p>
+ * Results can be waited on in the order in which tasks were submitted via get, or in the order in which tasks finish
+ * via takeCompleted. The pool is shut down - interrupting any task still running - by close, so an instance is
+ * expected to be used in a try-with-resources block. For the common case of applying a function to each of a list of
+ * inputs, use the static map method.
+ * </p>
+ *
+ * @param <T> the type of result returned by each task
+ */
+public class ConcurrentTaskRunner<T> implements AutoCloseable {
+
+	private final ExecutorService executor;
+	private final CompletionService<T> completionService;
+
+	/**
+	 * @param threadCount the number of threads in the pool; values less than 1 are treated as 1
+	 */
+	public ConcurrentTaskRunner(int threadCount) {
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threadCount));
+		this.completionService = new ExecutorCompletionService<>(executor);
+	}
+
+	/**
+	 * Applies the given function to each input, using up to threadCount threads; if threadCount or the number of inputs
+	 * is less than 2, the function is applied on the calling thread instead. Every input is processed even if the
+	 * function fails for some of them; the first failure, in the order of the inputs, is then thrown with any other
+	 * failures added to it as suppressed exceptions.
+	 *
+	 * @param inputs
+	 * @param threadCount
+	 * @param function
+	 * @param <I>
+	 * @param <O>
+	 * @return the result for each input - which may be null - in the order of the inputs
+	 */
+	public static <I, O> List<O> map(List<I> inputs, int threadCount, Function<I, O> function) {
+		List<O> results = new ArrayList<>(inputs.size());
+		if (threadCount < 2 || inputs.size() < 2) {
+			for (I input : inputs) {
+				results.add(function.apply(input));
+			}
+			return results;
+		}
+
+		try (ConcurrentTaskRunner<O> runner = new ConcurrentTaskRunner<>(Math.min(threadCount, inputs.size()))) {
+			List<Future<O>> futures = new ArrayList<>(inputs.size());
+			for (I input : inputs) {
+				futures.add(runner.submit(() -> function.apply(input)));
+			}
+			Throwable failure = null;
+			for (Future<O> future : futures) {
+				try {
+					results.add(runner.get(future));
+				} catch (RuntimeException | Error ex) {
+					if (Thread.currentThread().isInterrupted()) {
+						throw ex;
+					}
+					results.add(null);
+					if (failure == null) {
+						failure = ex;
+					} else {
+						failure.addSuppressed(ex);
+					}
+				}
+			}
+			if (failure instanceof Error) {
+				throw (Error) failure;
+			} else if (failure != null) {
+				throw (RuntimeException) failure;
+			}
+		}
+		return results;
+	}
+
+	public Future<T> submit(Callable<T> task) {
+		return completionService.submit(task);
+	}
+
+	/**
+	 * Waits for the next submitted task to finish, regardless of the order in which tasks were submitted. The returned
+	 * future is done; pass it to get to obtain its result.
+	 *
+	 * @return
+	 */
+	public Future<T> takeCompleted() {
+		try {
+			return completionService.take();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a task to finish", ex);
+		}
+	}
+
+	/**
+	 * Waits for the given task to finish and returns its result, or throws the exception that the task threw.
+	 *
+	 * @param future
+	 * @return
+	 */
+	public T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a task to finish", ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException("Task failed, cause: " + cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Shuts down the pool, interrupting any task that is still running.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
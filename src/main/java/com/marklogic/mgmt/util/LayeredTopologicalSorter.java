@@ -0,0 +1,174 @@
+package com.marklogic.mgmt.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts vertices so that every vertex comes after the vertices it depends on, using Kahn's algorithm over adjacency
+ * lists. Sorting is O((V + E) log V) time and O(V + E) memory, as opposed to TopologicalSorter, which uses an
+ * adjacency matrix.
+ * <p>
+ * The order is stable - it's determined solely by the order in which vertices were added - and is the same order
+ * that TopologicalSorter produces. The vertices can also be returned in layers, where each vertex is in the layer
+ * after the last of the layers containing the vertices it depends on. The vertices in a layer don't depend on each
+ * other, and thus e.g. the resources they represent can be deployed at the same time.
+ * </p>
+ * <p>
+ * If the dependencies form a cycle, an IllegalStateException is thrown that names the vertices in the cycle.
+ * </p>
+ *
+ * @param <T> the type of each vertex
+ */
+public class LayeredTopologicalSorter<T> {
+
+	private final List<T> vertices = new ArrayList<>();
+	private final List<int[]> predecessors = new ArrayList<>();
+	private final List<int[]> successors = new ArrayList<>();
+	private int[] predecessorCounts = new int[16];
+	private int[] successorCounts = new int[16];
+
+	/**
+	 * @param vertex
+	 * @return the index of the vertex, for use with addEdge
+	 */
+	public int addVertex(T vertex) {
+		final int index = vertices.size();
+		vertices.add(vertex);
+		predecessors.add(new int[2]);
+		successors.add(new int[2]);
+		if (index == predecessorCounts.length) {
+			predecessorCounts = Arrays.copyOf(predecessorCounts, index * 2);
+			successorCounts = Arrays.copyOf(successorCounts, index * 2);
+		}
+		return index;
+	}
+
+	/**
+	 * Declares that the vertex at index "end" depends on the vertex at index "start".
+	 *
+	 * @param start
+	 * @param end
+	 */
+	public void addEdge(int start, int end) {
+		if (start < 0 || start >= vertices.size() || end < 0 || end >= vertices.size()) {
+			throw new IllegalArgumentException(String.format("Invalid edge from %d to %d; vertex count: %d", start, end, vertices.size()));
+		}
+		successors.set(start, append(successors.get(start), successorCounts, start, end));
+		predecessors.set(end, append(predecessors.get(end), predecessorCounts, end, start));
+	}
+
+	/**
+	 * @return the vertices in dependency order
+	 */
+	public List<T> sort() {
+		List<T> sorted = new ArrayList<>(vertices.size());
+		for (int index : sortIndexes()) {
+			sorted.add(vertices.get(index));
+		}
+		return sorted;
+	}
+
+	/**
+	 * @return the vertices grouped into layers, where the first layer contains every vertex that depends on no other
+	 * vertex, and each subsequent layer contains the vertices whose dependencies are all in the previous layers. Within a
+	 * layer, vertices are in the same order as they are in the list returned by sort.
+	 */
+	public List<List<T>> sortIntoLayers() {
+		final int[] sortedIndexes = sortIndexes();
+		final int[] layerOfVertex = new int[vertices.size()];
+		List<List<T>> layers = new ArrayList<>();
+		for (int index : sortedIndexes) {
+			int layer = 0;
+			int[] preds = predecessors.get(index);
+			for (int i = 0; i < predecessorCounts[index]; i++) {
+				layer = Math.max(layer, layerOfVertex[preds[i]] + 1);
+			}
+			layerOfVertex[index] = layer;
+			while (layers.size() <= layer) {
+				layers.add(new ArrayList<>());
+			}
+			layers.get(layer).add(vertices.get(index));
+		}
+		return layers;
+	}
+
+	public int getVertexCount() {
+		return vertices.size();
+	}
+
+	/**
+	 * Repeatedly removes the earliest-added vertex that no remaining vertex depends on, and places it at the end of the
+	 * result. This matches the order in which TopologicalSorter places vertices.
+	 */
+	private int[] sortIndexes() {
+		final int count = vertices.size();
+		final int[] remainingSuccessors = Arrays.copyOf(successorCounts, count);
+		PriorityQueue<Integer> vertexQueue = new PriorityQueue<>();
+		for (int i = 0; i < count; i++) {
+			if (remainingSuccessors[i] == 0) {
+				vertexQueue.add(i);
+			}
+		}
+
+		final int[] sorted = new int[count];
+		int position = count;
+		while (!vertexQueue.isEmpty()) {
+			int index = vertexQueue.poll();
+			sorted[--position] = index;
+			int[] preds = predecessors.get(index);
+			for (int i = 0; i < predecessorCounts[index]; i++) {
+				if (--remainingSuccessors[preds[i]] == 0) {
+					vertexQueue.add(preds[i]);
+				}
+			}
+		}
+
+		if (position > 0) {
+			throw new IllegalStateException("Graph has cycles; vertices in a cycle: " + findCycle(remainingSuccessors));
+		}
+		return sorted;
+	}
+
+	/**
+	 * Every vertex with remaining successors either is in a cycle or depends on one, so following remaining successors
+	 * from any such vertex must eventually revisit a vertex.
+	 */
+	private List<T> findCycle(int[] remainingSuccessors) {
+		int start = 0;
+		while (remainingSuccessors[start] == 0) {
+			start++;
+		}
+		final int[] positionInPath = new int[vertices.size()];
+		Arrays.fill(positionInPath, -1);
+		List<Integer> path = new ArrayList<>();
+		int current = start;
+		while (positionInPath[current] < 0) {
+			positionInPath[current] = path.size();
+			path.add(current);
+			int[] succs = successors.get(current);
+			int next = -1;
+			for (int i = 0; i < successorCounts[current]; i++) {
+				if (remainingSuccessors[succs[i]] > 0) {
+					next = succs[i];
+					break;
+				}
+			}
+			current = next;
+		}
+		List<T> cycle = new ArrayList<>();
+		for (int i = positionInPath[current]; i < path.size(); i++) {
+			cycle.add(vertices.get(path.get(i)));
+		}
+		return cycle;
+	}
+
+	private static int[] append(int[] array, int[] counts, int index, int value) {
+		if (counts[index] == array.length) {
+			array = Arrays.copyOf(array, array.length * 2);
+		}
+		array[counts[index]++] = value;
+		return array;
+	}
+}
@@ -4,55 +4,112 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.marklogic.mgmt.api.LowerCaseWithHyphensStrategy;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Static factory class that is intended to be a single point of construction of a Jackson ObjectMapper that is used
  * throughout the ml-app-deployer library. The single ObjectMapper can be customized via an ObjectMapperInitializer
  * instance.
+ * <p>
+ * Two ObjectMappers are provided, both configured the same way except for indentation. The one returned by
+ * getObjectMapper pretty-prints its output and is intended for JSON that a human will read - e.g. a file written by
+ * the scaffold generator or a Resource's JSON in a Groovy shell. The one returned by getWireObjectMapper writes compact
+ * JSON and is intended for payloads sent to MarkLogic. Both are initialized once and are thread-safe, as are the
+ * ObjectWriter instances returned by getWireWriter.
+ * </p>
  */
 public abstract class ObjectMapperFactory {
 
-	private static ObjectMapper objectMapper;
-	private static List<ObjectMapperInitializer> objectMapperInitializers;
+	private static volatile ObjectMapper objectMapper;
+	private static ObjectMapper wireObjectMapper;
+	private static ObjectWriter wireWriter;
+	private static List<ObjectMapperInitializer> objectMapperInitializers = new CopyOnWriteArrayList<>();
 
+	/**
+	 * Initializers are only applied when the ObjectMappers are first constructed, so they must be added before the
+	 * first call to any of the getter methods in this class.
+	 *
+	 * @param initializer
+	 */
 	public static void addObjectMapperInitializer(ObjectMapperInitializer initializer) {
-		if (objectMapperInitializers == null) {
-			objectMapperInitializers = new ArrayList<>();
-		}
 		objectMapperInitializers.add(initializer);
 	}
 
+	/**
+	 * @return the ObjectMapper for JSON that is intended to be human-readable
+	 */
 	public static ObjectMapper getObjectMapper() {
 		if (objectMapper == null) {
-			initializeObjectMapper();
+			initializeObjectMappers();
 		}
 		return objectMapper;
 	}
 
+	/**
+	 * @return the ObjectMapper for JSON that is sent to MarkLogic; it does not indent its output
+	 */
+	public static ObjectMapper getWireObjectMapper() {
+		if (objectMapper == null) {
+			initializeObjectMappers();
+		}
+		return wireObjectMapper;
+	}
+
+	/**
+	 * @return a reusable ObjectWriter for JSON that is sent to MarkLogic
+	 */
+	public static ObjectWriter getWireWriter() {
+		if (objectMapper == null) {
+			initializeObjectMappers();
+		}
+		return wireWriter;
+	}
+
+	/**
+	 * Objects such as Resource instances can be given their own ObjectMapper. This returns the reusable wire writer
+	 * if the given ObjectMapper is one of the ObjectMappers constructed by this class, and otherwise a writer from the
+	 * given ObjectMapper that does not indent its output.
+	 *
+	 * @param mapper
+	 * @return
+	 */
+	public static ObjectWriter getWireWriter(ObjectMapper mapper) {
+		if (mapper == null || mapper == getObjectMapper() || mapper == wireObjectMapper) {
+			return getWireWriter();
+		}
+		return mapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+	}
+
 	/**
 	 * All of the default settings here originated in the API.java class. Then #187 resulted in comments being allowed.
 	 * Most of the settings only matter for when Resource objects are being written to JSON via Jackson annotations.
 	 */
-	private static void initializeObjectMapper() {
-		objectMapper = new ObjectMapper();
-		objectMapper.enable(JsonParser.Feature.ALLOW_COMMENTS);
-		objectMapper.setPropertyNamingStrategy(new LowerCaseWithHyphensStrategy());
-		objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-		objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
-		objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	private static synchronized void initializeObjectMappers() {
+		if (objectMapper != null) {
+			return;
+		}
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.enable(JsonParser.Feature.ALLOW_COMMENTS);
+		mapper.setPropertyNamingStrategy(new LowerCaseWithHyphensStrategy());
+		mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		mapper.enable(SerializationFeature.INDENT_OUTPUT);
+		mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 		// This is needed at least for localname on Element instances
-		objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+		mapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
 
-		if (objectMapperInitializers != null) {
-			for (ObjectMapperInitializer initializer : objectMapperInitializers) {
-				initializer.initializeObjectMapper(objectMapper);
-			}
+		for (ObjectMapperInitializer initializer : objectMapperInitializers) {
+			initializer.initializeObjectMapper(mapper);
 		}
+
+		wireObjectMapper = mapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+		wireWriter = wireObjectMapper.writer();
+		// Assigned last so that the unsynchronized null checks only pass once every field has been initialized
+		objectMapper = mapper;
 	}
 }
 
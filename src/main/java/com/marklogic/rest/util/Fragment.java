@@ -3,26 +3,31 @@ package com.marklogic.rest.util;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.Namespace;
-import org.jdom2.filter.Filters;
 import org.jdom2.input.SAXBuilder;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
-import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Fragment {
 
+	/**
+	 * Compiling an XPath expression is far more expensive than evaluating it, and the same expressions are evaluated
+	 * many times during a deployment, so compiled expressions are shared across all instances.
+	 */
+	private static XPathExpressionCache xpathExpressionCache = new XPathExpressionCache();
+
     private Document internalDoc;
     private Namespace[] namespaces;
+    private String namespacesKey;
 
     public Fragment(Fragment other) {
         this.internalDoc = other.internalDoc;
         this.namespaces = other.namespaces;
+        this.namespacesKey = other.namespacesKey;
     }
 
     public Fragment(String xml, Namespace... namespaces) {
@@ -50,11 +55,22 @@ public class Fragment {
                 list.add(n);
             }
             this.namespaces = list.toArray(new Namespace[] {});
+            this.namespacesKey = XPathExpressionCache.buildNamespacesKey(this.namespaces);
         } catch (Exception e) {
             throw new RuntimeException(String.format("Unable to parse XML, cause: %s; XML: %s", e.getMessage(), xml), e);
         }
     }
 
+	/**
+	 * @return a Fragment containing a deep copy of this fragment's document, which can be modified without affecting
+	 * this fragment
+	 */
+	public Fragment copy() {
+		Fragment copy = new Fragment(this);
+		copy.internalDoc = internalDoc.clone();
+		return copy;
+	}
+
     public void prettyPrint() {
         System.out.println(getPrettyXml());
     }
@@ -64,32 +80,63 @@ public class Fragment {
     }
 
     public boolean elementExists(String xpath) {
-        return evaluateForElements(xpath).size() > 0;
+        return elementExists(xpath, null);
     }
 
+	/**
+	 * @param xpath     may refer to the keys in the variables map as Jaxen variables - e.g. "$name"
+	 * @param variables
+	 * @return
+	 */
+	public boolean elementExists(String xpath, Map<String, Object> variables) {
+		return evaluateForElements(xpath, variables).size() > 0;
+	}
+
     public List<String> getElementValues(String xpath) {
-        List<String> values = new ArrayList<String>();
-        for (Element el : evaluateForElements(xpath)) {
-            values.add(el.getText());
-        }
-        return values;
+        return getElementValues(xpath, null);
     }
 
+	public List<String> getElementValues(String xpath, Map<String, Object> variables) {
+		List<String> values = new ArrayList<String>();
+		for (Element el : evaluateForElements(xpath, variables)) {
+			values.add(el.getText());
+		}
+		return values;
+	}
+
     public String getElementValue(String xpath) {
-        List<String> values = getElementValues(xpath);
-        return values.isEmpty() ? null : values.get(0);
+        return getElementValue(xpath, null);
     }
 
+	public String getElementValue(String xpath, Map<String, Object> variables) {
+		List<String> values = getElementValues(xpath, variables);
+		return values.isEmpty() ? null : values.get(0);
+	}
+
     public List<Element> getElements(String xpath) {
         return evaluateForElements(xpath);
     }
 
     protected List<Element> evaluateForElements(String xpath) {
-        XPathFactory f = XPathFactory.instance();
-        XPathExpression<Element> expr = f.compile(xpath, Filters.element(), new HashMap<String, Object>(), namespaces);
-        return expr.evaluate(internalDoc);
+        return evaluateForElements(xpath, null);
     }
 
+	/**
+	 * Using variables instead of formatting values into the expression allows for the compiled expression to be
+	 * reused, and also avoids problems with values that contain quotes.
+	 *
+	 * @param xpath
+	 * @param variables
+	 * @return
+	 */
+	protected List<Element> evaluateForElements(String xpath, Map<String, Object> variables) {
+		return xpathExpressionCache.evaluate(xpath, variables, namespaces, namespacesKey, internalDoc);
+	}
+
+	public static XPathExpressionCache getXpathExpressionCache() {
+		return xpathExpressionCache;
+	}
+
     public Document getInternalDoc() {
         return internalDoc;
     }
@@ -0,0 +1,164 @@
+package com.marklogic.rest.util;
+
+import org.jdom2.Element;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact index of the nameref and idref of each list-item in the response from a Manage API list endpoint - e.g.
+ * /manage/v2/roles. Unlike ResourcesFragment, no DOM is retained; this is typically constructed via
+ * StaxResourceListReader. Lookups by name or ID are constant-time.
+ * <p>
+ * Instances are safe to share across threads, and can be modified so that a cached list can be kept up to date as
+ * resources are created and deleted.
+ * </p>
+ */
+public class ResourceList {
+
+	private final Map<String, String> namesToIds = new LinkedHashMap<>();
+	private final Map<String, String> idsToNames = new LinkedHashMap<>();
+	private int listCount;
+
+	public ResourceList() {
+	}
+
+	/**
+	 * Indexes the list-items in an already-parsed list response, such as the one returned by an overridden
+	 * getAsXml method on a resource manager.
+	 *
+	 * @param fragment
+	 */
+	public ResourceList(ResourcesFragment fragment) {
+		for (Element listItem : fragment.getListItems()) {
+			add(getChildText(listItem, "nameref"), getChildText(listItem, "idref"));
+		}
+		List<String> counts = fragment.getElementValues("/node()/*[local-name(.) = 'list-items']/*[local-name(.) = 'list-count']");
+		this.listCount = counts.isEmpty() ? 0 : Integer.parseInt(counts.get(0));
+	}
+
+	/**
+	 * Matches by local name, as ResourcesFragment and StaxResourceListReader do.
+	 */
+	private String getChildText(Element listItem, String localName) {
+		for (Element child : listItem.getChildren()) {
+			if (localName.equals(child.getName())) {
+				return child.getText();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param name may be null if the list-item has no nameref
+	 * @param id   may be null if the list-item has no idref, or if the ID is not known yet, as is the case when a
+	 *             resource has just been created
+	 */
+	public synchronized void add(String name, String id) {
+		if (name != null) {
+			namesToIds.put(name, id);
+		}
+		if (id != null) {
+			idsToNames.put(id, name);
+		}
+	}
+
+	/**
+	 * Removes the resource with the given name or ID, along with its corresponding ID or name.
+	 *
+	 * @param nameOrId
+	 */
+	public synchronized void remove(String nameOrId) {
+		if (nameOrId == null) {
+			return;
+		}
+		if (namesToIds.containsKey(nameOrId)) {
+			String id = namesToIds.remove(nameOrId);
+			if (id != null) {
+				idsToNames.remove(id);
+			}
+		}
+		if (idsToNames.containsKey(nameOrId)) {
+			String name = idsToNames.remove(nameOrId);
+			if (name != null) {
+				namesToIds.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Equivalent to ResourcesFragment.resourceExists.
+	 *
+	 * @param nameOrId
+	 * @return
+	 */
+	public synchronized boolean contains(String nameOrId) {
+		return nameOrId != null && (namesToIds.containsKey(nameOrId) || idsToNames.containsKey(nameOrId));
+	}
+
+	/**
+	 * Equivalent to ResourcesFragment.getIdForNameOrId.
+	 *
+	 * @param nameOrId
+	 * @return the idref of the matching list-item, or null if no list-item matches
+	 */
+	public synchronized String getIdForNameOrId(String nameOrId) {
+		if (nameOrId == null) {
+			return null;
+		}
+		if (namesToIds.containsKey(nameOrId)) {
+			return namesToIds.get(nameOrId);
+		}
+		return idsToNames.containsKey(nameOrId) ? nameOrId : null;
+	}
+
+	/**
+	 * @param id
+	 * @return the nameref of the list-item with the given idref, or null if no list-item matches
+	 */
+	public synchronized String getNameForId(String id) {
+		return id != null ? idsToNames.get(id) : null;
+	}
+
+	/**
+	 * @return the nameref of each list-item, in the order in which they were added
+	 */
+	public synchronized List<String> getNameRefs() {
+		return new ArrayList<>(namesToIds.keySet());
+	}
+
+	/**
+	 * @return the idref of each list-item, in the order in which they were added
+	 */
+	public synchronized List<String> getIdRefs() {
+		return new ArrayList<>(idsToNames.keySet());
+	}
+
+	/**
+	 * @return the number of distinct resources in this list, which reflects any resources that have been added or
+	 * removed since the list was read
+	 */
+	public synchronized int size() {
+		int size = namesToIds.size();
+		for (Map.Entry<String, String> entry : idsToNames.entrySet()) {
+			if (entry.getValue() == null) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the value of the list-count element in the list response; this is not updated as resources are added
+	 * or removed
+	 */
+	public int getListCount() {
+		return listCount;
+	}
+
+	public void setListCount(int listCount) {
+		this.listCount = listCount;
+	}
+}
@@ -1,17 +1,22 @@
 package com.marklogic.rest.util;
 
-import java.util.List;
-
 import org.jdom2.Element;
 import org.jdom2.Namespace;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Provides some convenience methods for the XML response from resources endpoints
+ * Provides some convenience methods for the XML response from resources endpoints. Values are passed to XPath
+ * expressions as Jaxen variables so that each expression only needs to be compiled once.
  */
 public class ResourcesFragment extends Fragment {
 
+	private final static String LIST_ITEMS_XPATH = "/node()/*[local-name(.) = 'list-items']/node()";
+
+	private volatile ResourceList resourceList;
+
     public ResourcesFragment(Fragment f) {
         super(f);
     }
@@ -25,11 +30,21 @@ public class ResourcesFragment extends Fragment {
                 "/node()/*[local-name(.) = 'list-items']/*[local-name(.) = 'list-count']").get(0));
     }
 
+	/**
+	 * Evaluating an XPath expression requires scanning every list-item, which dwarfs the cost of compiling it for a
+	 * large list. So the namerefs and idrefs are indexed the first time this is called, and every lookup after that
+	 * is constant-time. The index is not updated if the underlying document is modified.
+	 *
+	 * @param resourceIdOrName
+	 * @return
+	 */
     public boolean resourceExists(String resourceIdOrName) {
-        String xpath = "/node()/*[local-name(.) = 'list-items']/node()"
-                + "[*[local-name(.) = 'nameref'] = '%s' or *[local-name(.) = 'idref'] = '%s']";
-        xpath = String.format(xpath, resourceIdOrName, resourceIdOrName);
-        return elementExists(xpath);
+        ResourceList list = resourceList;
+        if (list == null) {
+            list = new ResourceList(this);
+            resourceList = list;
+        }
+        return list.contains(resourceIdOrName);
     }
 
     public String getIdForNameOrId(String resourceIdOrName) {
@@ -41,17 +56,14 @@ public class ResourcesFragment extends Fragment {
     }
 
     public String getNameRefForUriRef(String uriRef) {
-	    String xpath = "/node()/*[local-name(.) = 'list-items']/node()"
-		    + "[*[local-name(.) = 'uriref'] = '%s']/*[local-name(.) = 'nameref']";
-	    xpath = String.format(xpath, uriRef);
-	    return getElementValue(xpath);
+	    String xpath = LIST_ITEMS_XPATH + "[*[local-name(.) = 'uriref'] = $uriRef]/*[local-name(.) = 'nameref']";
+	    return getElementValue(xpath, variables("uriRef", uriRef));
     }
 
     public String getListItemValue(String resourceIdOrName, String elementLocalName) {
-        String xpath = "/node()/*[local-name(.) = 'list-items']/node()"
-                + "[*[local-name(.) = 'nameref'] = '%s' or *[local-name(.) = 'idref'] = '%s']/*[local-name(.) = '%s']";
-        xpath = String.format(xpath, resourceIdOrName, resourceIdOrName, elementLocalName);
-        return getElementValue(xpath);
+        String xpath = LIST_ITEMS_XPATH + "[*[local-name(.) = 'nameref'] = $nameOrId or *[local-name(.) = 'idref'] = $nameOrId]" +
+	        "/*[local-name(.) = $elementName]";
+        return getElementValue(xpath, variables("nameOrId", resourceIdOrName, "elementName", elementLocalName));
     }
 
     public List<String> getListItemIdRefs() {
@@ -63,12 +75,24 @@ public class ResourcesFragment extends Fragment {
     }
 
     public List<String> getListItemValues(String elementName) {
-        String xpath = "/node()/*[local-name(.) = 'list-items']/node()/*[local-name(.) = '%s']";
-        return getElementValues(String.format(xpath, elementName));
+        String xpath = LIST_ITEMS_XPATH + "/*[local-name(.) = $elementName]";
+        return getElementValues(xpath, variables("elementName", elementName));
     }
 
     public List<Element> getListItems() {
-    	return evaluateForElements("/node()/*[local-name(.) = 'list-items']/node()[local-name(.) = 'list-item']");
+    	return evaluateForElements(LIST_ITEMS_XPATH + "[local-name(.) = 'list-item']");
     }
 
+	/**
+	 * A null value is converted to an empty string, as Jaxen cannot resolve a variable with a null value.
+	 */
+	private Map<String, Object> variables(String... namesAndValues) {
+		Map<String, Object> variables = new HashMap<>();
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			String value = namesAndValues[i + 1];
+			variables.put(namesAndValues[i], value != null ? value : "");
+		}
+		return variables;
+	}
+
 }
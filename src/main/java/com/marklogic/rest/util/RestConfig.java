@@ -2,6 +2,7 @@ package com.marklogic.rest.util;
 
 import org.apache.http.conn.ssl.X509HostnameVerifier;
 
+import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -20,7 +21,17 @@ public class RestConfig {
 	private String trustManagementAlgorithm;
 
 	private SSLContext sslContext;
-	private X509HostnameVerifier hostnameVerifier;
+	private HostnameVerifier hostnameVerifier;
+
+	/**
+	 * Connection pooling is disabled by default so that the historical behavior of opening a new connection for every
+	 * request is preserved. See PoolingConnectionConfigurer for how these are used.
+	 */
+	private boolean usePooledConnections = false;
+	private int maxConnectionsTotal = 20;
+	private int maxConnectionsPerRoute = 10;
+	private long idleConnectionTimeout = 30000;
+	private int validateAfterInactivity = 2000;
 
 	public RestConfig() {
 	}
@@ -114,14 +125,35 @@ public class RestConfig {
 		this.sslContext = sslContext;
 	}
 
+	/**
+	 * @return the hostname verifier, if it was set as an X509HostnameVerifier; otherwise null. Use
+	 * getSslHostnameVerifier to get a hostname verifier of any type.
+	 */
 	public X509HostnameVerifier getHostnameVerifier() {
-		return hostnameVerifier;
+		return hostnameVerifier instanceof X509HostnameVerifier ? (X509HostnameVerifier) hostnameVerifier : null;
 	}
 
 	public void setHostnameVerifier(X509HostnameVerifier hostnameVerifier) {
 		this.hostnameVerifier = hostnameVerifier;
 	}
 
+	/**
+	 * Allows for any HostnameVerifier to be used, such as Apache HttpClient's DefaultHostnameVerifier or
+	 * NoopHostnameVerifier, which replace the deprecated X509HostnameVerifier implementations.
+	 *
+	 * @param hostnameVerifier
+	 */
+	public void setHostnameVerifier(HostnameVerifier hostnameVerifier) {
+		this.hostnameVerifier = hostnameVerifier;
+	}
+
+	/**
+	 * @return the hostname verifier passed to either setHostnameVerifier method
+	 */
+	public HostnameVerifier getSslHostnameVerifier() {
+		return hostnameVerifier;
+	}
+
 	public String getSslProtocol() {
 		return sslProtocol;
 	}
@@ -145,4 +177,52 @@ public class RestConfig {
 	public void setUseDefaultKeystore(boolean useDefaultKeystore) {
 		this.useDefaultKeystore = useDefaultKeystore;
 	}
+
+	public boolean isUsePooledConnections() {
+		return usePooledConnections;
+	}
+
+	public void setUsePooledConnections(boolean usePooledConnections) {
+		this.usePooledConnections = usePooledConnections;
+	}
+
+	public int getMaxConnectionsTotal() {
+		return maxConnectionsTotal;
+	}
+
+	public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+		this.maxConnectionsTotal = maxConnectionsTotal;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public long getIdleConnectionTimeout() {
+		return idleConnectionTimeout;
+	}
+
+	/**
+	 * @param idleConnectionTimeout number of milliseconds that a pooled connection can be idle before it's evicted
+	 */
+	public void setIdleConnectionTimeout(long idleConnectionTimeout) {
+		this.idleConnectionTimeout = idleConnectionTimeout;
+	}
+
+	public int getValidateAfterInactivity() {
+		return validateAfterInactivity;
+	}
+
+	/**
+	 * @param validateAfterInactivity number of milliseconds after which a pooled connection is checked for staleness
+	 *                                before being reused; MarkLogic restarts will otherwise leave dead connections in
+	 *                                the pool
+	 */
+	public void setValidateAfterInactivity(int validateAfterInactivity) {
+		this.validateAfterInactivity = validateAfterInactivity;
+	}
 }
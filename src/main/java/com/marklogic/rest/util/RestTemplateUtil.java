@@ -2,6 +2,7 @@ package com.marklogic.rest.util;
 
 import com.marklogic.rest.util.configurer.BasicAuthConfigurer;
 import com.marklogic.rest.util.configurer.NoConnectionReuseConfigurer;
+import com.marklogic.rest.util.configurer.PoolingConnectionConfigurer;
 import com.marklogic.rest.util.configurer.SslConfigurer;
 import com.marklogic.rest.util.configurer.UseSystemPropertiesConfigurer;
 import org.apache.http.client.HttpClient;
@@ -37,6 +38,7 @@ public class RestTemplateUtil {
 		DEFAULT_CONFIGURERS.add(new BasicAuthConfigurer());
 		DEFAULT_CONFIGURERS.add(new SslConfigurer());
 		DEFAULT_CONFIGURERS.add(new NoConnectionReuseConfigurer());
+		DEFAULT_CONFIGURERS.add(new PoolingConnectionConfigurer());
 		DEFAULT_CONFIGURERS.add(new UseSystemPropertiesConfigurer());
 	}
 
@@ -60,11 +62,23 @@ public class RestTemplateUtil {
 		HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
 
 		if (configurers != null) {
+			// A connection manager makes the builder ignore its SSL settings, so SSL is then set on the connection manager
+			PoolingConnectionConfigurer poolingConfigurer = findConfigurer(configurers, PoolingConnectionConfigurer.class);
+			SslConfigurer sslConfigurer = findConfigurer(configurers, SslConfigurer.class);
+			final boolean configureSslOnConnectionManager = poolingConfigurer != null && poolingConfigurer.willSetConnectionManager(config);
+
 			for (HttpClientBuilderConfigurer configurer : configurers) {
+				if (configureSslOnConnectionManager && configurer == sslConfigurer) {
+					continue;
+				}
 				if (logger.isDebugEnabled()) {
 					logger.debug("Applying HttpClientBuilderConfigurer: " + configurer);
 				}
-				httpClientBuilder = configurer.configureHttpClientBuilder(config, httpClientBuilder);
+				if (configureSslOnConnectionManager && configurer == poolingConfigurer) {
+					httpClientBuilder = poolingConfigurer.configureHttpClientBuilder(config, httpClientBuilder, sslConfigurer);
+				} else {
+					httpClientBuilder = configurer.configureHttpClientBuilder(config, httpClientBuilder);
+				}
 			}
 		}
 
@@ -74,4 +88,13 @@ public class RestTemplateUtil {
 		return rt;
 	}
 
+	private static <T extends HttpClientBuilderConfigurer> T findConfigurer(HttpClientBuilderConfigurer[] configurers, Class<T> type) {
+		for (HttpClientBuilderConfigurer configurer : configurers) {
+			if (type.isInstance(configurer)) {
+				return type.cast(configurer);
+			}
+		}
+		return null;
+	}
+
 }
@@ -0,0 +1,118 @@
+package com.marklogic.rest.util;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Streams the XML response from a Manage API list endpoint - e.g. /manage/v2/forests - into a ResourceList without
+ * building a DOM. Only the list-count element and the nameref and idref elements of each list-item are read; all other
+ * content, such as the meta and related-views elements, is skipped.
+ * <p>
+ * As with the XPath expressions in ResourcesFragment, elements are matched by local name so that the reader works for
+ * every Manage API namespace. Instances are thread-safe and can be reused.
+ * </p>
+ */
+public class StaxResourceListReader {
+
+	private final static int LIST_ITEMS_DEPTH = 2;
+	private final static int LIST_ITEM_DEPTH = 3;
+	private final static int LIST_ITEM_CHILD_DEPTH = 4;
+
+	private final XMLInputFactory xmlInputFactory;
+
+	public StaxResourceListReader() {
+		xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+	}
+
+	public ResourceList read(String xml) {
+		return read(new StringReader(xml));
+	}
+
+	public ResourceList read(Reader reader) {
+		try {
+			return read(xmlInputFactory.createXMLStreamReader(reader));
+		} catch (XMLStreamException ex) {
+			throw new RuntimeException("Unable to read resource list XML, cause: " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * The caller is responsible for closing the given stream.
+	 *
+	 * @param inputStream
+	 * @return
+	 */
+	public ResourceList read(InputStream inputStream) {
+		try {
+			return read(xmlInputFactory.createXMLStreamReader(inputStream));
+		} catch (XMLStreamException ex) {
+			throw new RuntimeException("Unable to read resource list XML, cause: " + ex.getMessage(), ex);
+		}
+	}
+
+	protected ResourceList read(XMLStreamReader reader) throws XMLStreamException {
+		ResourceList list = new ResourceList();
+		try {
+			int depth = 0;
+			boolean inListItems = false;
+			boolean inListItem = false;
+			String nameref = null;
+			String idref = null;
+
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+					String localName = reader.getLocalName();
+					if (depth == LIST_ITEMS_DEPTH) {
+						inListItems = "list-items".equals(localName);
+					} else if (inListItems && depth == LIST_ITEM_DEPTH) {
+						if ("list-item".equals(localName)) {
+							inListItem = true;
+							nameref = null;
+							idref = null;
+						} else if ("list-count".equals(localName)) {
+							list.setListCount(parseListCount(reader.getElementText()));
+							depth--;
+						}
+					} else if (inListItem && depth == LIST_ITEM_CHILD_DEPTH) {
+						if ("nameref".equals(localName)) {
+							nameref = reader.getElementText();
+							depth--;
+						} else if ("idref".equals(localName)) {
+							idref = reader.getElementText();
+							depth--;
+						}
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					if (inListItem && depth == LIST_ITEM_DEPTH) {
+						list.add(nameref, idref);
+						inListItem = false;
+					} else if (depth == LIST_ITEMS_DEPTH) {
+						inListItems = false;
+					}
+					depth--;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return list;
+	}
+
+	private int parseListCount(String text) {
+		try {
+			return Integer.parseInt(text.trim());
+		} catch (NumberFormatException ex) {
+			return 0;
+		}
+	}
+}
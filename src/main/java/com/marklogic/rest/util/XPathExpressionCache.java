@@ -0,0 +1,136 @@
+package com.marklogic.rest.util;
+
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.filter.Filters;
+import org.jdom2.xpath.XPathExpression;
+import org.jdom2.xpath.XPathFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe cache of compiled JDOM2 XPath expressions, keyed by the expression, the names of any Jaxen
+ * variables it declares, and the set of namespaces it's compiled with.
+ * <p>
+ * A compiled XPathExpression is not thread-safe - its variable values and navigator are mutable - and JDOM2's clone()
+ * simply recompiles the expression. So instead of sharing a single instance, each key maps to a pool of compiled
+ * instances; a thread borrows one, evaluates it, and returns it to the pool. The number of keys is bounded, with the
+ * least recently used key being evicted once the limit is reached.
+ * </p>
+ */
+public class XPathExpressionCache {
+
+	public final static int DEFAULT_MAX_SIZE = 500;
+
+	private final Map<Key, Queue<XPathExpression<Element>>> pools;
+	private final AtomicLong compileCount = new AtomicLong();
+
+	public XPathExpressionCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public XPathExpressionCache(final int maxSize) {
+		this.pools = Collections.synchronizedMap(new LinkedHashMap<Key, Queue<XPathExpression<Element>>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Queue<XPathExpression<Element>>> eldest) {
+				return size() > maxSize;
+			}
+		});
+	}
+
+	/**
+	 * @param expression    the XPath expression; may refer to the names of the given variables as Jaxen variables, e.g. "$name"
+	 * @param variables     may be null or empty
+	 * @param namespaces
+	 * @param namespacesKey a string uniquely identifying the given namespaces; this is accepted so that a caller that
+	 *                      evaluates many expressions with the same namespaces only needs to compute it once
+	 * @param context       the JDOM2 object to evaluate the expression against
+	 * @return
+	 */
+	public List<Element> evaluate(String expression, Map<String, Object> variables, Namespace[] namespaces,
+	                              String namespacesKey, Object context) {
+		final Key key = new Key(expression, variables != null ? variables.keySet() : null, namespacesKey);
+		Queue<XPathExpression<Element>> pool = pools.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>());
+
+		XPathExpression<Element> expr = pool.poll();
+		if (expr == null) {
+			expr = compile(expression, variables, namespaces);
+		}
+		try {
+			if (variables != null) {
+				for (Map.Entry<String, Object> entry : variables.entrySet()) {
+					expr.setVariable(entry.getKey(), entry.getValue());
+				}
+			}
+			return expr.evaluate(context);
+		} finally {
+			pool.offer(expr);
+		}
+	}
+
+	protected XPathExpression<Element> compile(String expression, Map<String, Object> variables, Namespace[] namespaces) {
+		compileCount.incrementAndGet();
+		Map<String, Object> declaredVariables = variables != null ? new HashMap<>(variables) : new HashMap<>();
+		return XPathFactory.instance().compile(expression, Filters.element(), declaredVariables, namespaces);
+	}
+
+	/**
+	 * @param namespaces
+	 * @return a string that can be passed to evaluate as the namespacesKey for the given namespaces
+	 */
+	public static String buildNamespacesKey(Namespace... namespaces) {
+		StringBuilder sb = new StringBuilder();
+		if (namespaces != null) {
+			for (Namespace ns : namespaces) {
+				sb.append(ns.getPrefix()).append('=').append(ns.getURI()).append(' ');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the number of times an expression has been compiled, which is primarily useful for testing
+	 */
+	public long getCompileCount() {
+		return compileCount.get();
+	}
+
+	public int size() {
+		return pools.size();
+	}
+
+	public void clear() {
+		pools.clear();
+	}
+
+	private static class Key {
+
+		private final String expression;
+		private final Set<String> variableNames;
+		private final String namespacesKey;
+		private final int hashCode;
+
+		Key(String expression, Set<String> variableNames, String namespacesKey) {
+			this.expression = expression;
+			this.variableNames = variableNames != null && !variableNames.isEmpty() ? new HashSet<>(variableNames) : Collections.emptySet();
+			this.namespacesKey = namespacesKey;
+			this.hashCode = Objects.hash(expression, this.variableNames, namespacesKey);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key other = (Key) o;
+			return expression.equals(other.expression) && variableNames.equals(other.variableNames) &&
+				Objects.equals(namespacesKey, other.namespacesKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -5,10 +5,17 @@ import com.marklogic.rest.util.RestConfig;
 import org.apache.http.impl.NoConnectionReuseStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 
+/**
+ * Prevents connections from being reused, unless the RestConfig has pooled connections enabled, in which case
+ * PoolingConnectionConfigurer is expected to take over.
+ */
 public class NoConnectionReuseConfigurer implements HttpClientBuilderConfigurer {
 
 	@Override
 	public HttpClientBuilder configureHttpClientBuilder(RestConfig restConfig, HttpClientBuilder httpClientBuilder) {
+		if (restConfig.isUsePooledConnections()) {
+			return httpClientBuilder;
+		}
 		return httpClientBuilder.setConnectionReuseStrategy(new NoConnectionReuseStrategy());
 	}
 
@@ -0,0 +1,91 @@
+package com.marklogic.rest.util.configurer;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.rest.util.HttpClientBuilderConfigurer;
+import com.marklogic.rest.util.RestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import javax.net.ssl.SSLContext;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures an HttpClient to reuse keep-alive connections via a PoolingHttpClientConnectionManager, but only when
+ * the RestConfig has usePooledConnections set to true. Otherwise, the builder is returned as-is and
+ * NoConnectionReuseConfigurer determines how connections are handled.
+ * <p>
+ * Because HttpClientBuilder ignores its SSLContext and hostname verifier once a connection manager is set, this uses
+ * an SslConfigurer to build the socket factory for https connections. RestTemplateUtil passes the SslConfigurer in its
+ * list of configurers, if any, to this configurer instead of invoking it; when this configurer is invoked on its own,
+ * its own SslConfigurer is used.
+ * </p>
+ */
+public class PoolingConnectionConfigurer extends LoggingObject implements HttpClientBuilderConfigurer {
+
+	private SslConfigurer sslConfigurer = new SslConfigurer();
+
+	@Override
+	public HttpClientBuilder configureHttpClientBuilder(RestConfig config, HttpClientBuilder httpClientBuilder) {
+		return configureHttpClientBuilder(config, httpClientBuilder, sslConfigurer);
+	}
+
+	/**
+	 * @param config
+	 * @param httpClientBuilder
+	 * @param sslConfigurer     used to build the socket factory for https connections; if null, the system socket
+	 *                          factory is used, just as HttpClientBuilder would if no SslConfigurer were invoked
+	 * @return
+	 */
+	public HttpClientBuilder configureHttpClientBuilder(RestConfig config, HttpClientBuilder httpClientBuilder, SslConfigurer sslConfigurer) {
+		if (!willSetConnectionManager(config)) {
+			return httpClientBuilder;
+		}
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(buildSocketFactoryRegistry(config, sslConfigurer));
+		connectionManager.setMaxTotal(config.getMaxConnectionsTotal());
+		connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+		connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
+
+		if (logger.isInfoEnabled()) {
+			logger.info(format("Using pooled connections for connecting to: %s; max total: %d; max per route: %d; " +
+					"idle timeout: %d; validate after inactivity: %d", config.getBaseUrl(), config.getMaxConnectionsTotal(),
+				config.getMaxConnectionsPerRoute(), config.getIdleConnectionTimeout(), config.getValidateAfterInactivity()));
+		}
+
+		httpClientBuilder.setConnectionManager(connectionManager);
+		if (config.getIdleConnectionTimeout() > 0) {
+			httpClientBuilder.evictExpiredConnections();
+			httpClientBuilder.evictIdleConnections(config.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS);
+		}
+		return httpClientBuilder;
+	}
+
+	/**
+	 * @param config
+	 * @return true if this configurer will set a connection manager on the builder for the given config
+	 */
+	public boolean willSetConnectionManager(RestConfig config) {
+		return config.isUsePooledConnections();
+	}
+
+	protected Registry<ConnectionSocketFactory> buildSocketFactoryRegistry(RestConfig config, SslConfigurer sslConfigurer) {
+		SSLContext sslContext = sslConfigurer != null ? sslConfigurer.determineSslContext(config) : null;
+		SSLConnectionSocketFactory sslSocketFactory = sslContext != null ?
+			new SSLConnectionSocketFactory(sslContext, sslConfigurer.determineHostnameVerifier(config)) :
+			SSLConnectionSocketFactory.getSystemSocketFactory();
+
+		return RegistryBuilder.<ConnectionSocketFactory>create()
+			.register("http", PlainConnectionSocketFactory.getSocketFactory())
+			.register("https", sslSocketFactory)
+			.build();
+	}
+
+	public void setSslConfigurer(SslConfigurer sslConfigurer) {
+		this.sslConfigurer = sslConfigurer;
+	}
+}
@@ -5,17 +5,20 @@ import com.marklogic.client.ext.ssl.SslUtil;
 import com.marklogic.rest.util.HttpClientBuilderConfigurer;
 import com.marklogic.rest.util.RestConfig;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.conn.ssl.AllowAllHostnameVerifier;
-import org.apache.http.conn.ssl.SSLContextBuilder;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.ssl.SSLContextBuilder;
 
+import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 
 public class SslConfigurer extends LoggingObject implements HttpClientBuilderConfigurer {
 
 	/**
-	 * First checks for a custom SSLContext; then checks to see if the default keystore should be used; then checks to
-	 * see if a simple "trust everything" approach should be used.
+	 * Uses determineSslContext and determineHostnameVerifier to configure SSL on the given builder, if an SSLContext
+	 * is needed. RestTemplateUtil does not invoke this when a PoolingConnectionConfigurer is going to set a connection
+	 * manager on the builder, as the builder then ignores these; this configurer is passed to the
+	 * PoolingConnectionConfigurer instead, so that the SSLContext is still only built once.
 	 *
 	 * @param config
 	 * @param httpClientBuilder
@@ -23,35 +26,49 @@ public class SslConfigurer extends LoggingObject implements HttpClientBuilderCon
 	 */
 	@Override
 	public HttpClientBuilder configureHttpClientBuilder(RestConfig config, HttpClientBuilder httpClientBuilder) {
-		SSLContext sslContext = null;
+		SSLContext sslContext = determineSslContext(config);
+		if (sslContext != null) {
+			httpClientBuilder.setSSLContext(sslContext);
+			httpClientBuilder.setSSLHostnameVerifier(determineHostnameVerifier(config));
+		}
+		return httpClientBuilder;
+	}
+
+	/**
+	 * First checks for a custom SSLContext; then checks to see if the default keystore should be used; then checks to
+	 * see if a simple "trust everything" approach should be used.
+	 *
+	 * Public so that PoolingConnectionConfigurer can reuse it, as HttpClientBuilder ignores its SSLContext once a
+	 * connection manager has been set on it.
+	 *
+	 * @param config
+	 * @return null if SSL should not be used
+	 */
+	public SSLContext determineSslContext(RestConfig config) {
 		if (config.getSslContext() != null) {
 			if (logger.isInfoEnabled()) {
 				logger.info("Using custom SSLContext for connecting to: " + config.getBaseUrl());
 			}
-			sslContext = config.getSslContext();
+			return config.getSslContext();
 		} else if (config.isUseDefaultKeystore()) {
-			sslContext = buildSslContextViaTrustManagerFactory(config);
+			return buildSslContextViaTrustManagerFactory(config);
 		} else if (config.isConfigureSimpleSsl()) {
-			sslContext = buildSimpleSslContext(config);
+			return buildSimpleSslContext(config);
 		}
+		return null;
+	}
 
-		if (sslContext != null) {
-			httpClientBuilder.setSslcontext(sslContext);
-
-			if (config.getHostnameVerifier() != null) {
-				if (logger.isInfoEnabled()) {
-					logger.info("Using custom X509HostnameVerifier for connecting to: " + config.getBaseUrl());
-				}
-				httpClientBuilder.setHostnameVerifier(config.getHostnameVerifier());
-			} else {
-				if (logger.isInfoEnabled()) {
-					logger.info("Using 'allow all' X509HostnameVerifier for connecting to: " + config.getBaseUrl());
-				}
-				httpClientBuilder.setHostnameVerifier(new AllowAllHostnameVerifier());
+	public HostnameVerifier determineHostnameVerifier(RestConfig config) {
+		if (config.getSslHostnameVerifier() != null) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Using custom HostnameVerifier for connecting to: " + config.getBaseUrl());
 			}
+			return config.getSslHostnameVerifier();
 		}
-
-		return httpClientBuilder;
+		if (logger.isInfoEnabled()) {
+			logger.info("Using 'allow all' HostnameVerifier for connecting to: " + config.getBaseUrl());
+		}
+		return NoopHostnameVerifier.INSTANCE;
 	}
 
 	protected SSLContext buildSslContextViaTrustManagerFactory(RestConfig config) {
@@ -66,7 +83,7 @@ public class SslConfigurer extends LoggingObject implements HttpClientBuilderCon
 	protected SSLContext buildSimpleSslContext(RestConfig config) {
 		final String protocol = determineProtocol(config);
 
-		SSLContextBuilder builder = new SSLContextBuilder().useProtocol(protocol);
+		SSLContextBuilder builder = new SSLContextBuilder().setProtocol(protocol);
 		if (logger.isInfoEnabled()) {
 			logger.info("Configuring simple SSL approach with protocol " + protocol + " for connecting to: " + config.getBaseUrl());
 		}
@@ -4,6 +4,7 @@ import com.marklogic.client.DatabaseClient;
 import com.marklogic.client.DatabaseClientFactory;
 import com.marklogic.client.ext.SecurityContextType;
 import com.marklogic.client.ext.modulesloader.impl.PropertiesModuleManager;
+import com.marklogic.mgmt.api.configuration.ConfigurationChunker;
 import com.marklogic.mgmt.util.SimplePropertySource;
 import org.junit.Assert;
 import org.junit.Test;
@@ -254,6 +255,29 @@ public class DefaultAppConfigFactoryTest extends Assert {
 		assertFalse(cmaConfig.isDeployUsers());
 	}
 
+	@Test
+	public void cmaChunking() {
+		Properties p = new Properties();
+		CmaConfig cmaConfig = new DefaultAppConfigFactory(new SimplePropertySource(p)).newAppConfig().getCmaConfig();
+		assertEquals("Chunking is opt-in", 0, cmaConfig.getMaxResourcesPerRequest());
+		assertEquals(0, cmaConfig.getMaxBytesPerRequest());
+		assertEquals(4, cmaConfig.getSubmitThreadCount());
+
+		p.setProperty("mlDeployWithCma", "false");
+		p.setProperty("mlCmaMaxResourcesPerRequest", "250");
+		p.setProperty("mlCmaMaxBytesPerRequest", "5000000");
+		p.setProperty("mlCmaSubmitThreadCount", "2");
+		cmaConfig = new DefaultAppConfigFactory(new SimplePropertySource(p)).newAppConfig().getCmaConfig();
+		assertEquals(250, cmaConfig.getMaxResourcesPerRequest());
+		assertEquals(5000000, cmaConfig.getMaxBytesPerRequest());
+		assertEquals(2, cmaConfig.getSubmitThreadCount());
+
+		ConfigurationChunker chunker = cmaConfig.newConfigurationChunker();
+		assertEquals(250, chunker.getMaxResourcesPerChunk());
+		assertEquals(5000000, chunker.getMaxBytesPerChunk());
+		assertEquals(2, chunker.getThreadCount());
+	}
+
 	@Test
 	public void mostProperties() {
 		Properties p = new Properties();
@@ -343,6 +367,9 @@ public class DefaultAppConfigFactoryTest extends Assert {
 		p.setProperty("mlResourceFilenamesToIgnore", "role1.json,role2.xml");
 		p.setProperty("mlResourceFilenamesToExcludeRegex", "dev-.*");
 		p.setProperty("mlResourceFilenamesToIncludeRegex", "qa-.*");
+		p.setProperty("mlResourceSaveThreadCounts", "DeployUsersCommand,4,DeployPrivilegesCommand,8");
+		p.setProperty("mlSkipUnchangedResources", "true");
+		p.setProperty("mlRemoteStateThreadCount", "3");
 
 		p.setProperty("mlDatabaseNamesAndReplicaCounts", "Documents,1,Security,2");
 		p.setProperty("mlDatabasesWithForestsOnOneHost", "Documents,Security");
@@ -477,6 +504,10 @@ public class DefaultAppConfigFactoryTest extends Assert {
 		assertEquals("role2.xml", config.getResourceFilenamesToIgnore()[1]);
 		assertEquals("dev-.*", config.getResourceFilenamesExcludePattern().pattern());
 		assertEquals("qa-.*", config.getResourceFilenamesIncludePattern().pattern());
+		assertEquals(new Integer(4), config.getResourceSaveThreadCounts().get("DeployUsersCommand"));
+		assertEquals(new Integer(8), config.getResourceSaveThreadCounts().get("DeployPrivilegesCommand"));
+		assertTrue(config.isSkipUnchangedResources());
+		assertEquals(3, config.getRemoteStateThreadCount());
 
 		assertEquals(new Integer(1), config.getDatabaseNamesAndReplicaCounts().get("Documents"));
 		assertEquals(new Integer(2), config.getDatabaseNamesAndReplicaCounts().get("Security"));
@@ -0,0 +1,209 @@
+package com.marklogic.appdeployer.command;
+
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.CmaConfig;
+import com.marklogic.appdeployer.ConfigDir;
+import com.marklogic.appdeployer.command.mimetypes.DeployMimetypesCommand;
+import com.marklogic.appdeployer.command.security.DeployUsersCommand;
+import com.marklogic.mgmt.SaveReceipt;
+import com.marklogic.mgmt.admin.AdminManager;
+import com.marklogic.mgmt.mock.MockManageServer;
+import com.marklogic.mgmt.resource.ResourceManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Deploys users against a MockManageServer, with 50ms of latency added to each save. A user whose name starts with
+ * "bad-user" is rejected with a 400.
+ */
+public class ConcurrentResourceSaveTest extends Assert {
+
+	private final static int USER_COUNT = 20;
+	private final static String SAVE_PATH = "/manage/v2/users(/.*/properties)?";
+
+	private MockManageServer server;
+
+	private AppConfig appConfig;
+	private CommandContext context;
+	private File usersDir;
+
+	@Before
+	public void setup() throws Exception {
+		server = new MockManageServer()
+			.withLatency("POST", SAVE_PATH, 50)
+			.withLatency("PUT", SAVE_PATH, 50)
+			.withHandler("POST", SAVE_PATH, request -> request.getBody().contains("bad-user") ?
+				new MockManageServer.MockResponse(400, "application/json", "{\"errorResponse\":{\"message\":\"Bad user\"}}") : null)
+			.start();
+
+		File baseDir = Files.createTempDirectory("concurrent-save").toFile();
+		usersDir = new File(baseDir, "security/users");
+		usersDir.mkdirs();
+		appConfig = new AppConfig();
+		appConfig.setConfigDir(new ConfigDir(baseDir));
+		appConfig.setCmaConfig(new CmaConfig());
+
+		context = new CommandContext(appConfig, server.newManageClient(), new AdminManager());
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void concurrentSavesAreFaster() throws Exception {
+		for (int i = 0; i < USER_COUNT; i++) {
+			writeUser("user-" + i);
+		}
+
+		long sequentialDuration = deployUsers();
+		assertEquals(USER_COUNT, getSaveCount());
+		assertEquals(1, server.getMaxConcurrentRequests());
+
+		appConfig.getResourceSaveThreadCounts().put("DeployUsersCommand", 10);
+		long concurrentDuration = deployUsers();
+		assertEquals(USER_COUNT, getSaveCount());
+		assertTrue(server.getMaxConcurrentRequests() > 1);
+		assertTrue(String.format("Expected concurrent saves (%dms) to take less than half the time of sequential saves (%dms)",
+			concurrentDuration, sequentialDuration), concurrentDuration * 2 < sequentialDuration);
+	}
+
+	@Test
+	public void concurrentSavesWithoutMerging() throws Exception {
+		for (int i = 0; i < USER_COUNT; i++) {
+			writeUser("user-" + i);
+		}
+		appConfig.setMergeResources(false);
+		appConfig.getResourceSaveThreadCounts().put("DeployUsersCommand", 10);
+
+		deployUsers();
+		assertEquals(USER_COUNT, getSaveCount());
+		assertTrue(server.getMaxConcurrentRequests() > 1);
+	}
+
+	@Test
+	public void errorsAreAggregated() throws Exception {
+		for (int i = 0; i < 8; i++) {
+			writeUser("user-" + i);
+		}
+		writeUser("bad-user-1");
+		writeUser("bad-user-2");
+		appConfig.setMergeResources(false);
+		appConfig.getResourceSaveThreadCounts().put("DeployUsersCommand", 4);
+
+		try {
+			deployUsers();
+			fail("Expected the failed saves to be reported in a single exception");
+		} catch (RuntimeException ex) {
+			String message = ex.getMessage();
+			assertTrue(message, message.startsWith("Unable to save 2 of 10 resources"));
+			assertTrue(message, message.contains("bad-user-1.json"));
+			assertTrue(message, message.contains("bad-user-2.json"));
+			assertNotNull(ex.getCause());
+			assertEquals(1, ex.getCause().getSuppressed().length);
+		}
+		assertEquals("Every other resource should still have been saved", 8,
+			server.getResourceNames("users").stream().filter(name -> name.startsWith("user-")).count());
+	}
+
+	@Test
+	public void afterResourceSavedIsInvokedBeforeFurtherSavesAreSubmitted() {
+		AtomicInteger startedCount = new AtomicInteger();
+		List<Integer> startedCountsAtCallback = new ArrayList<>();
+		List<Thread> callbackThreads = new ArrayList<>();
+		DeployUsersCommand command = new DeployUsersCommand() {
+			@Override
+			protected void afterResourceSaved(ResourceManager mgr, CommandContext context, ResourceReference reference, SaveReceipt receipt) {
+				startedCountsAtCallback.add(startedCount.get());
+				callbackThreads.add(Thread.currentThread());
+			}
+		};
+
+		Map<ResourceReference, Supplier<SaveReceipt>> saves = new LinkedHashMap<>();
+		for (int i = 0; i < 6; i++) {
+			final String name = "user-" + i;
+			saves.put(new ResourceReference(new File(usersDir, name + ".json"), null), () -> {
+				startedCount.incrementAndGet();
+				return new SaveReceipt(name, null, null, null);
+			});
+		}
+
+		List<SaveReceipt> receipts = command.saveResourcesConcurrently(null, context, saves, 2);
+		assertEquals(6, receipts.size());
+		assertEquals("Receipts should be in the order in which the resources were given", "user-5", receipts.get(5).getResourceId());
+		assertEquals(6, startedCountsAtCallback.size());
+		for (int i = 0; i < startedCountsAtCallback.size(); i++) {
+			assertTrue("When the callback for a save is invoked, only the saves that were already running should have " +
+				"been started; counts: " + startedCountsAtCallback, startedCountsAtCallback.get(i) <= i + 2);
+			assertSame("The callback should be invoked on the calling thread", Thread.currentThread(), callbackThreads.get(i));
+		}
+	}
+
+	@Test
+	public void commandThatOverridesAfterResourceSavedStillSavesConcurrently() {
+		appConfig.getResourceSaveThreadCounts().put("RestartingUsersCommand", 3);
+		appConfig.getResourceSaveThreadCounts().put("DeployMimetypesCommand", 3);
+		assertEquals(3, new RestartingUsersCommand().getResourceSaveThreadCount(context));
+		assertEquals(3, new DeployMimetypesCommand().getResourceSaveThreadCount(context));
+	}
+
+	@Test
+	public void commandThatDoesNotSupportConcurrentSavesSavesOneAtATime() {
+		appConfig.getResourceSaveThreadCounts().put("DeployUsersCommand", 3);
+		appConfig.getResourceSaveThreadCounts().put("SerialUsersCommand", 3);
+		assertEquals(3, new DeployUsersCommand().getResourceSaveThreadCount(context));
+		assertEquals(1, new SerialUsersCommand().getResourceSaveThreadCount(context));
+	}
+
+	@Test
+	public void threadCountIsCappedToConnectionLimit() {
+		appConfig.getResourceSaveThreadCounts().put("DeployUsersCommand", 50);
+		assertEquals("No more threads should be used than the client has connections for",
+			context.getManageClient().getMaxConcurrentRequests(), new DeployUsersCommand().getResourceSaveThreadCount(context));
+	}
+
+	private static class RestartingUsersCommand extends DeployUsersCommand {
+		@Override
+		protected void afterResourceSaved(ResourceManager mgr, CommandContext context, ResourceReference reference, SaveReceipt receipt) {
+			context.getAdminManager().waitForRestart();
+		}
+	}
+
+	private static class SerialUsersCommand extends DeployUsersCommand {
+		@Override
+		protected boolean supportsConcurrentSaves() {
+			return false;
+		}
+	}
+
+	private long deployUsers() {
+		server.clearRequests();
+		long start = System.currentTimeMillis();
+		new DeployUsersCommand().execute(context);
+		return System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * @return the number of users created or updated since the last deployment started
+	 */
+	private int getSaveCount() {
+		return server.getRequestCount("POST", SAVE_PATH) + server.getRequestCount("PUT", SAVE_PATH);
+	}
+
+	private void writeUser(String name) throws Exception {
+		String json = "{\"user-name\":\"" + name + "\", \"password\":\"password\"}";
+		Files.write(new File(usersDir, name + ".json").toPath(), json.getBytes("UTF-8"));
+	}
+}
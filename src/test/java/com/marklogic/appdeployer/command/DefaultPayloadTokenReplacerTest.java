@@ -0,0 +1,38 @@
+package com.marklogic.appdeployer.command;
+
+import com.marklogic.appdeployer.AppConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DefaultPayloadTokenReplacerTest extends Assert {
+
+	private DefaultPayloadTokenReplacer replacer = new DefaultPayloadTokenReplacer();
+	private AppConfig appConfig = new AppConfig();
+
+	@Test
+	public void defaultAndCustomTokens() {
+		appConfig.setName("my-app");
+		appConfig.getCustomTokens().put("%%CUSTOM%%", "%%DATABASE%%-custom");
+		appConfig.getCustomTokens().put("%%OTHER%%", "other");
+
+		assertEquals("Custom tokens are replaced after default tokens, so a default token in a custom token's value is not replaced",
+			"my-app my-app-content %%DATABASE%%-custom other",
+			replacer.replaceTokens("%%NAME%% %%DATABASE%% %%CUSTOM%% %%OTHER%%", appConfig, false));
+
+		appConfig.setTestRestPort(8013);
+		assertEquals("my-app-test my-app-test-content 8013",
+			replacer.replaceTokens("%%NAME%% %%DATABASE%% %%PORT%%", appConfig, true));
+	}
+
+	@Test
+	public void customTokenAddedAfterFirstReplacement() {
+		appConfig.getCustomTokens().put("%%FIRST%%", "1");
+		assertEquals("1 %%SECOND%%", replacer.replaceTokens("%%FIRST%% %%SECOND%%", appConfig, false));
+
+		appConfig.getCustomTokens().put("%%SECOND%%", "2");
+		assertEquals("1 2", replacer.replaceTokens("%%FIRST%% %%SECOND%%", appConfig, false));
+
+		appConfig.getCustomTokens().put("%%FIRST%%", "one");
+		assertEquals("one 2", replacer.replaceTokens("%%FIRST%% %%SECOND%%", appConfig, false));
+	}
+}
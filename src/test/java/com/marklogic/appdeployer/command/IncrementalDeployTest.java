@@ -0,0 +1,115 @@
+package com.marklogic.appdeployer.command;
+
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.CmaConfig;
+import com.marklogic.appdeployer.ConfigDir;
+import com.marklogic.appdeployer.command.security.DeployUsersCommand;
+import com.marklogic.appdeployer.impl.SimpleAppDeployer;
+import com.marklogic.mgmt.mock.MockManageServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deploys users incrementally against a MockManageServer.
+ */
+public class IncrementalDeployTest extends Assert {
+
+	private MockManageServer server;
+	private File baseDir;
+	private AppConfig appConfig;
+
+	@Before
+	public void setup() throws Exception {
+		server = new MockManageServer().start();
+		baseDir = Files.createTempDirectory("incremental-deploy").toFile();
+		File usersDir = new File(baseDir, "security/users");
+		usersDir.mkdirs();
+		for (String name : new String[]{"jane", "john"}) {
+			String json = "{\"user-name\":\"" + name + "\", \"password\":\"password\", \"description\":\"%%DESCRIPTION%%\"}";
+			Files.write(new File(usersDir, name + ".json").toPath(), json.getBytes("UTF-8"));
+		}
+
+		appConfig = new AppConfig();
+		appConfig.setConfigDir(new ConfigDir(baseDir));
+		appConfig.setIncrementalDeploy(true);
+		appConfig.setMergeResources(false);
+		appConfig.setCmaConfig(new CmaConfig());
+		appConfig.getCustomTokens().put("%%DESCRIPTION%%", "A user");
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+		FileSystemUtils.deleteRecursively(baseDir);
+	}
+
+	@Test
+	public void resourceFileManagerOfCommandIsUsed() {
+		String path = new File(baseDir, "custom/hashes.properties").getAbsolutePath();
+		DeployUsersCommand command = new DeployUsersCommand();
+		command.setResourceFilenameFilter(new ResourceFilenameFilter(new ResourceFileManagerImpl(path)));
+
+		deploy(command);
+		assertEquals(2, server.getRequestCount("POST", "/manage/v2/users"));
+		assertTrue("The manager configured on the command should have been used", new File(path).exists());
+
+		deploy(command);
+		assertEquals("Neither file has changed, so neither user should have been saved again",
+			2, server.getRequestCount("POST", "/manage/v2/users") + server.getRequestCount("PUT", "/manage/v2/users/.*"));
+
+		appConfig.getCustomTokens().put("%%DESCRIPTION%%", "A changed user");
+		deploy(command);
+		assertEquals("A token value changed, so both users should have been updated",
+			2, server.getRequestCount("PUT", "/manage/v2/users/.*"));
+	}
+
+	@Test
+	public void sharedResourceFileManagerIsNotLeftOnCommand() {
+		String path = new File(baseDir, "custom/hashes.properties").getAbsolutePath();
+		ResourceFileManager commandManager = new ResourceFileManagerImpl(path);
+		ResourceFilenameFilter filter = new ResourceFilenameFilter(commandManager);
+		DeployUsersCommand command = new DeployUsersCommand();
+		command.setResourceFilenameFilter(filter);
+
+		String sharedPath = new File(baseDir, "shared/hashes.properties").getAbsolutePath();
+		SimpleAppDeployer deployer = new SimpleAppDeployer(server.newManageClient(), server.newAdminManager(), command);
+		deployer.setResourceFileManager(new ResourceFileManagerImpl(sharedPath));
+		deployer.deploy(appConfig);
+
+		assertTrue(new File(sharedPath).exists());
+		assertFalse(new File(path).exists());
+		assertSame("The command's own manager should be restored after the deployment", commandManager, filter.getResourceFileManager());
+		assertNull(filter.getPayloadReader());
+	}
+
+	@Test
+	public void eachFileIsReadOnce() {
+		appConfig.setSkipUnchangedResources(true);
+		AtomicInteger readCount = new AtomicInteger();
+		DeployUsersCommand command = new DeployUsersCommand() {
+			@Override
+			protected String copyFileToString(File f) {
+				readCount.incrementAndGet();
+				return super.copyFileToString(f);
+			}
+		};
+		command.setResourceFilenameFilter(new ResourceFilenameFilter(
+			new ResourceFileManagerImpl(new File(baseDir, "hashes.properties").getAbsolutePath())));
+
+		deploy(command);
+		assertEquals(2, server.getRequestCount("POST", "/manage/v2/users"));
+		assertEquals("The payload read for the incremental check should be reused when saving the resource",
+			2, readCount.get());
+	}
+
+	private void deploy(Command command) {
+		new SimpleAppDeployer(server.newManageClient(), server.newAdminManager(), command).deploy(appConfig);
+	}
+}
@@ -0,0 +1,131 @@
+package com.marklogic.appdeployer.command;
+
+import com.marklogic.appdeployer.AppConfig;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileReader;
+import java.nio.file.Files;
+import java.util.Properties;
+
+public class ResourceFileManagerImplTest extends Assert {
+
+	private File dir;
+	private String propertiesFilePath;
+	private File file;
+
+	@Before
+	public void setup() throws Exception {
+		dir = Files.createTempDirectory("resource-file-manager").toFile();
+		propertiesFilePath = new File(dir, "build/resource-hashes.properties").getAbsolutePath();
+		file = new File(dir, "my-user.json");
+		write(file, "{\"user-name\":\"%%USER%%\"}");
+	}
+
+	@Test
+	public void touchWithoutChange() {
+		ResourceFileManagerImpl mgr = newDeployment();
+		assertTrue("A new file should be processed", mgr.shouldResourceFileBeProcessed(file));
+		assertFalse(mgr.shouldResourceFileBeProcessed(file));
+		mgr.flush();
+
+		assertTrue(file.setLastModified(file.lastModified() + 60000));
+		assertFalse("Changing the timestamp of a file, such as via a git checkout, should not result in it being processed",
+			newDeployment().shouldResourceFileBeProcessed(file));
+	}
+
+	@Test
+	public void contentChange() throws Exception {
+		ResourceFileManagerImpl mgr = newDeployment();
+		assertTrue(mgr.shouldResourceFileBeProcessed(file));
+		mgr.flush();
+
+		write(file, "{\"user-name\":\"%%USER%%\", \"description\":\"changed\"}");
+		mgr = newDeployment();
+		assertTrue(mgr.shouldResourceFileBeProcessed(file));
+		mgr.flush();
+		assertFalse(newDeployment().shouldResourceFileBeProcessed(file));
+	}
+
+	@Test
+	public void tokenChange() {
+		AppConfig appConfig = new AppConfig();
+		appConfig.getCustomTokens().put("%%USER%%", "jane");
+		DefaultPayloadTokenReplacer tokenReplacer = new DefaultPayloadTokenReplacer();
+
+		ResourceFilenameFilter filter = new ResourceFilenameFilter(newDeployment());
+		filter.setIncrementalMode(true);
+		filter.setPayloadReader(f -> tokenReplacer.replaceTokens(readString(f), appConfig, false));
+		assertTrue(filter.accept(dir, file.getName()));
+		filter.getResourceFileManager().flush();
+
+		filter.setResourceFileManager(newDeployment());
+		assertFalse(filter.accept(dir, file.getName()));
+
+		appConfig.getCustomTokens().put("%%USER%%", "john");
+		filter.setResourceFileManager(newDeployment());
+		assertTrue("The file hasn't changed, but the payload deployed for it has, so it should be processed",
+			filter.accept(dir, file.getName()));
+	}
+
+	@Test
+	public void flushRetainsHashesWrittenByAnotherInstance() throws Exception {
+		File otherFile = new File(dir, "other-user.json");
+		write(otherFile, "{\"user-name\":\"other\"}");
+
+		ResourceFileManagerImpl first = newDeployment();
+		ResourceFileManagerImpl second = newDeployment();
+		assertTrue(first.shouldResourceFileBeProcessed(file));
+		assertTrue(second.shouldResourceFileBeProcessed(otherFile));
+		first.flush();
+		second.flush();
+
+		Properties props = new Properties();
+		try (FileReader reader = new FileReader(propertiesFilePath)) {
+			props.load(reader);
+		}
+		assertEquals(2, props.size());
+		assertEquals("Each value should be a hex-encoded SHA-256 hash", 64, props.getProperty(file.getAbsolutePath()).length());
+	}
+
+	@Test
+	public void manifestIsNotWrittenUntilFlushed() {
+		ResourceFileManagerImpl mgr = newDeployment();
+		assertTrue(mgr.shouldResourceFileBeProcessed(file));
+		assertFalse(new File(propertiesFilePath).exists());
+		assertTrue("Without a flush, the next deployment doesn't know about the file",
+			newDeployment().shouldResourceFileBeProcessed(file));
+	}
+
+	@Test
+	public void deletePropertiesFile() {
+		ResourceFileManagerImpl mgr = newDeployment();
+		assertTrue(mgr.shouldResourceFileBeProcessed(file));
+		mgr.flush();
+		assertTrue(new File(propertiesFilePath).exists());
+
+		mgr.deletePropertiesFile();
+		assertFalse(new File(propertiesFilePath).exists());
+		assertTrue(mgr.shouldResourceFileBeProcessed(file));
+	}
+
+	private ResourceFileManagerImpl newDeployment() {
+		ResourceFileManagerImpl mgr = new ResourceFileManagerImpl(propertiesFilePath);
+		mgr.initialize();
+		return mgr;
+	}
+
+	private static String readString(File f) {
+		try {
+			return new String(Files.readAllBytes(f.toPath()), "UTF-8");
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void write(File f, String content) throws Exception {
+		Files.write(f.toPath(), content.getBytes("UTF-8"));
+	}
+}
@@ -0,0 +1,225 @@
+package com.marklogic.appdeployer.command;
+
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.CmaConfig;
+import com.marklogic.appdeployer.ConfigDir;
+import com.marklogic.appdeployer.command.groups.DeployGroupsCommand;
+import com.marklogic.appdeployer.command.security.DeployRolesCommand;
+import com.marklogic.appdeployer.command.security.DeployUsersCommand;
+import com.marklogic.appdeployer.impl.ParallelAppDeployer;
+import com.marklogic.mgmt.mock.MockManageServer;
+import com.marklogic.mgmt.resource.RemoteStateSnapshot;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deploys groups and roles against a MockManageServer. Updating a group's cache size causes a restart, as it does in
+ * MarkLogic, in which case the command waits for the restart to finish.
+ */
+public class SkipUnchangedResourcesTest extends Assert {
+
+	private final static String DEFAULT_GROUP_JSON = "{\"group-name\":\"Default\", \"list-cache-size\":1024, " +
+		"\"list-cache-partitions\":2, \"compressed-tree-cache-size\":512, \"metering-enabled\":true, " +
+		"\"meters-database\":\"Meters\"}";
+
+	private final static String EVALUATORS_GROUP_JSON = "{\"group-name\":\"Evaluators\", \"list-cache-size\":512, " +
+		"\"metering-enabled\":false, \"schema\":[" +
+		"{\"namespace-uri\":\"urn:a\", \"schema-location\":\"/a.xsd\"}, " +
+		"{\"namespace-uri\":\"urn:b\", \"schema-location\":\"/b.xsd\"}]}";
+
+	private final static String EXISTING_ROLE_JSON = "{\"role-name\":\"existing-role\", \"description\":\"Existing\", " +
+		"\"role\":[\"rest-reader\", \"rest-writer\"], \"compartment\":\"\"}";
+
+	private final static String WRITE_PATH = "/manage/v2/.*";
+
+	private MockManageServer server;
+	private AppConfig appConfig;
+	private CommandContext context;
+	private File configDir;
+
+	@Before
+	public void setup() throws Exception {
+		server = new MockManageServer().start();
+		server.addResource("groups", DEFAULT_GROUP_JSON);
+		server.addResource("groups", EVALUATORS_GROUP_JSON);
+		server.addResource("roles", EXISTING_ROLE_JSON);
+
+		configDir = Files.createTempDirectory("skip-unchanged").toFile();
+		appConfig = new AppConfig();
+		appConfig.setConfigDir(new ConfigDir(configDir));
+		appConfig.setSkipUnchangedResources(true);
+		appConfig.setRemoteStateThreadCount(4);
+		appConfig.setCmaConfig(new CmaConfig());
+
+		context = new CommandContext(appConfig, server.newManageClient(), server.newAdminManager());
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void unchangedGroupsAreNotUpdatedAndNoRestartOccurs() throws Exception {
+		writeFile("groups/default-group.json", "{\"group-name\":\"Default\", \"list-cache-size\":\"1024\", " +
+			"\"compressed-tree-cache-size\":512, \"metering-enabled\":true}");
+		writeFile("groups/evaluators-group.xml", "<group-properties xmlns=\"http://marklogic.com/manage/group/properties\">\n" +
+			"  <group-name>Evaluators</group-name>\n  <list-cache-size>512</list-cache-size>\n" +
+			"  <schemas>\n" +
+			"    <schema><namespace-uri>urn:b</namespace-uri><schema-location>/b.xsd</schema-location></schema>\n" +
+			"    <schema><schema-location>/a.xsd</schema-location><namespace-uri>urn:a</namespace-uri></schema>\n" +
+			"  </schemas>\n</group-properties>");
+
+		RemoteStateSnapshot snapshot = deploy(new DeployGroupsCommand());
+
+		assertEquals("No group should have been updated: " + server.getRequests(), 0, getWriteCount());
+		assertEquals("Since no group was updated, there's no need to wait for a restart", 0, getTimestampRequestCount());
+		assertEquals(2, snapshot.getSkippedCount());
+		assertEquals(0, snapshot.getUpdatedCount());
+		assertEquals(0, snapshot.getCreatedCount());
+	}
+
+	@Test
+	public void changedGroupsAreUpdated() throws Exception {
+		writeFile("groups/default-group.json", "{\"group-name\":\"Default\", \"list-cache-size\":2048}");
+		writeFile("groups/evaluators-group.xml", "<group-properties xmlns=\"http://marklogic.com/manage/group/properties\">" +
+			"<group-name>Evaluators</group-name><schemas>" +
+			"<schema><namespace-uri>urn:a</namespace-uri><schema-location>/a.xsd</schema-location></schema>" +
+			"</schemas></group-properties>");
+
+		RemoteStateSnapshot snapshot = deploy(new DeployGroupsCommand());
+
+		assertEquals(2, getWriteCount());
+		assertEquals(1, server.getRequestCount("PUT", "/manage/v2/groups/Default/properties"));
+		assertEquals(1, server.getRequestCount("PUT", "/manage/v2/groups/Evaluators/properties"));
+		assertEquals("2048", server.getProperties("groups", "Default").get("list-cache-size").asText());
+		assertEquals(2, snapshot.getUpdatedCount());
+		assertEquals(0, snapshot.getSkippedCount());
+	}
+
+	@Test
+	public void groupIsUpdatedWhenSkippingIsDisabled() throws Exception {
+		appConfig.setSkipUnchangedResources(false);
+		writeFile("groups/default-group.json", DEFAULT_GROUP_JSON);
+		// Respond as though the update caused a restart, as the command can't know that the cache size is unchanged
+		server.withHandler("PUT", "/manage/v2/groups/Default/properties", request -> new MockManageServer.MockResponse(202,
+			"application/xml", "<restart xmlns=\"http://marklogic.com/manage\"><last-startup host-id=\"1\">2019-01-01T00:00:00</last-startup></restart>"));
+
+		DeployGroupsCommand command = new DeployGroupsCommand();
+		command.execute(context);
+
+		assertEquals(1, getWriteCount());
+		assertTrue("Since the group was updated with a cache size, the command should wait for a restart",
+			getTimestampRequestCount() > 0);
+		assertNull(context.getRemoteStateSnapshot(command));
+	}
+
+	@Test
+	public void mergedRolesAreSkippedOrCreated() throws Exception {
+		writeFile("security/roles/existing-role.json", "{\"role-name\":\"existing-role\", \"role\":[\"rest-writer\"]}");
+		writeFile("security/roles/existing-role-2.json", "{\"role-name\":\"existing-role\", \"role\":[\"rest-reader\"], \"description\":\"Existing\"}");
+		writeFile("security/roles/new-role.json", "{\"role-name\":\"new-role\"}");
+
+		RemoteStateSnapshot snapshot = deploy(new DeployRolesCommand());
+
+		assertEquals("The merged existing-role payload matches MarkLogic, so only new-role should have been created",
+			1, getWriteCount());
+		assertEquals(1, server.getRequestCount("POST", "/manage/v2/roles"));
+		assertTrue(server.resourceExists("roles", "new-role"));
+		assertEquals(1, snapshot.getSkippedCount());
+		assertEquals(1, snapshot.getCreatedCount());
+	}
+
+	/**
+	 * Roles and users are deployed at the same time by a ParallelAppDeployer, with the same CommandContext. Each
+	 * command must use its own snapshot, so that every resource is skipped and counted against the right command.
+	 */
+	@Test
+	public void concurrentCommandsUseTheirOwnSnapshots() throws Exception {
+		final int count = 10;
+		for (int i = 0; i < count; i++) {
+			String role = "{\"role-name\":\"parallel-role-" + i + "\", \"description\":\"Role " + i + "\"}";
+			String user = "{\"user-name\":\"parallel-user-" + i + "\", \"description\":\"User " + i + "\"}";
+			server.addResource("roles", role);
+			server.addResource("users", user);
+			writeFile("security/roles/parallel-role-" + i + ".json", role);
+			writeFile("security/users/parallel-user-" + i + ".json", user);
+		}
+		server.withLatency("GET", "/manage/v2/(roles|users)/.+/properties", 20);
+
+		Map<Command, RemoteStateSnapshot> snapshots = new ConcurrentHashMap<>();
+		ParallelAppDeployer deployer = new ParallelAppDeployer(context.getManageClient(), context.getAdminManager(),
+			new DeployRolesCommand(), new DeployUsersCommand()) {
+			@Override
+			protected CommandContext newCommandContext(AppConfig appConfig) {
+				return new CommandContext(appConfig, context.getManageClient(), context.getAdminManager()) {
+					@Override
+					public void setRemoteStateSnapshot(Command command, RemoteStateSnapshot remoteStateSnapshot) {
+						if (remoteStateSnapshot != null) {
+							snapshots.put(command, remoteStateSnapshot);
+						}
+						super.setRemoteStateSnapshot(command, remoteStateSnapshot);
+					}
+				};
+			}
+		};
+		deployer.addCommandDependencies(DeployUsersCommand.class);
+		deployer.deploy(appConfig);
+
+		assertEquals("No role or user should have been updated: " + server.getRequests(), 0, getWriteCount());
+		assertEquals("Each command should have fetched its list of resources once, regardless of when the other " +
+			"command started", 1, server.getRequestCount("GET", "/manage/v2/roles"));
+		assertEquals(1, server.getRequestCount("GET", "/manage/v2/users"));
+		assertEquals(2, snapshots.size());
+		snapshots.forEach((command, snapshot) -> {
+			String name = command.getClass().getSimpleName();
+			assertEquals(name + ": " + snapshot.getSummary(), count, snapshot.getSkippedCount());
+			assertEquals(name, 0, snapshot.getUpdatedCount());
+			assertEquals(name, 0, snapshot.getCreatedCount());
+		});
+	}
+
+	/**
+	 * Executes the given command and returns the snapshot it used, which is otherwise removed from the context once
+	 * the command finishes.
+	 */
+	private RemoteStateSnapshot deploy(Command command) {
+		RemoteStateSnapshot[] captured = new RemoteStateSnapshot[1];
+		CommandContext capturingContext = new CommandContext(context.getAppConfig(), context.getManageClient(), context.getAdminManager()) {
+			@Override
+			public void setRemoteStateSnapshot(Command command, RemoteStateSnapshot remoteStateSnapshot) {
+				if (remoteStateSnapshot != null) {
+					captured[0] = remoteStateSnapshot;
+				}
+				super.setRemoteStateSnapshot(command, remoteStateSnapshot);
+			}
+		};
+		command.execute(capturingContext);
+		assertNotNull(captured[0]);
+		assertNull(capturingContext.getRemoteStateSnapshot(command));
+		return captured[0];
+	}
+
+	private void writeFile(String path, String content) throws IOException {
+		File file = new File(configDir, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private int getWriteCount() {
+		return server.getRequestCount("PUT", WRITE_PATH) + server.getRequestCount("POST", WRITE_PATH);
+	}
+
+	private int getTimestampRequestCount() {
+		return server.getRequestCount("GET", "/admin/v1/timestamp");
+	}
+}
@@ -0,0 +1,135 @@
+package com.marklogic.appdeployer.command;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class TokenReplacementEngineTest extends Assert {
+
+	@Test
+	public void multipleTokens() {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("%%NAME%%", "my-app");
+		tokens.put("%%DATABASE%%", "my-content");
+		tokens.put("%%MODULES_DATABASE%%", "my-modules");
+
+		String text = "{\"server-name\":\"%%NAME%%\", \"content-database\":\"%%DATABASE%%\", " +
+			"\"modules-database\":\"%%MODULES_DATABASE%%\", \"other\":\"%%NAME%%-%%NAME%%\"}";
+		assertEquals("{\"server-name\":\"my-app\", \"content-database\":\"my-content\", " +
+			"\"modules-database\":\"my-modules\", \"other\":\"my-app-my-app\"}", new TokenReplacementEngine(tokens).replaceTokens(text));
+	}
+
+	@Test
+	public void noTokensFound() {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("%%NAME%%", "my-app");
+		String text = "{\"server-name\":\"app\"}";
+		assertSame(text, new TokenReplacementEngine(tokens).replaceTokens(text));
+		assertNull(new TokenReplacementEngine(tokens).replaceTokens(null));
+	}
+
+	@Test
+	public void valueContainsLaterToken() {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("%%FULL_NAME%%", "%%PREFIX%%-content");
+		tokens.put("%%PREFIX%%", "my-app");
+		assertEquals("my-app-content and my-app",
+			new TokenReplacementEngine(tokens).replaceTokens("%%FULL_NAME%% and %%PREFIX%%"));
+	}
+
+	@Test
+	public void valueContainsEarlierToken() {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("%%PREFIX%%", "my-app");
+		tokens.put("%%FULL_NAME%%", "%%PREFIX%%-content");
+		assertEquals("Because %%PREFIX%% was replaced before %%FULL_NAME%%, it's not replaced in the value of %%FULL_NAME%%",
+			"%%PREFIX%%-content and my-app",
+			new TokenReplacementEngine(tokens).replaceTokens("%%FULL_NAME%% and %%PREFIX%%"));
+	}
+
+	@Test
+	public void overlappingTokens() {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("mlHostName1", "host1");
+		tokens.put("mlHostName10", "host10");
+		assertEquals("The shorter token is replaced first, which is how sequential replacement behaves",
+			"host1 host10", new TokenReplacementEngine(tokens).replaceTokens("mlHostName1 mlHostName10"));
+
+		tokens = new LinkedHashMap<>();
+		tokens.put("mlHostName10", "host10");
+		tokens.put("mlHostName1", "host1");
+		assertEquals("host1 host10", new TokenReplacementEngine(tokens).replaceTokens("mlHostName1 mlHostName10"));
+	}
+
+	@Test
+	public void valueJoinsWithTextToFormLaterToken() {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("%%A%%", "%%B");
+		tokens.put("%%B%%", "b");
+		assertEquals("b", new TokenReplacementEngine(tokens).replaceTokens("%%A%%%%"));
+	}
+
+	@Test
+	public void sameTokenOverlapsItself() {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("aa", "x");
+		assertEquals("xa", new TokenReplacementEngine(tokens).replaceTokens("aaa"));
+	}
+
+	@Test
+	public void emptyTokenAndValue() {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put("%%EMPTY%%", "");
+		tokens.put("%%NAME%%", "my-app");
+		assertEquals("my-app", new TokenReplacementEngine(tokens).replaceTokens("%%EMPTY%%%%NAME%%"));
+
+		tokens.put("", "-");
+		assertEquals("-a-b-", new TokenReplacementEngine(tokens).replaceTokens("ab"));
+	}
+
+	@Test
+	public void nullKeysAndValuesAreIgnored() {
+		Map<String, String> tokens = new LinkedHashMap<>();
+		tokens.put(null, "x");
+		tokens.put("%%NULL%%", null);
+		tokens.put("%%NAME%%", "my-app");
+		TokenReplacementEngine engine = new TokenReplacementEngine(tokens);
+		assertEquals(1, engine.getTokenCount());
+		assertEquals("%%NULL%% my-app", engine.replaceTokens("%%NULL%% %%NAME%%"));
+	}
+
+	/**
+	 * Uses a small alphabet so that tokens frequently overlap each other and appear in each other's values, and
+	 * verifies that the result is always the same as replacing each token in order via String.replace.
+	 */
+	@Test
+	public void sameResultAsSequentialReplacement() {
+		Random random = new Random(42);
+		for (int iteration = 0; iteration < 5000; iteration++) {
+			Map<String, String> tokens = new LinkedHashMap<>();
+			int tokenCount = 1 + random.nextInt(6);
+			for (int i = 0; i < tokenCount; i++) {
+				tokens.put(randomString(random, 1 + random.nextInt(4)), randomString(random, random.nextInt(5)));
+			}
+			String text = randomString(random, random.nextInt(40));
+
+			String expected = text;
+			for (Map.Entry<String, String> entry : tokens.entrySet()) {
+				expected = expected.replace(entry.getKey(), entry.getValue());
+			}
+			assertEquals("Tokens: " + tokens + "; text: " + text, expected,
+				new TokenReplacementEngine(tokens).replaceTokens(text));
+		}
+	}
+
+	private String randomString(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append("ab%".charAt(random.nextInt(3)));
+		}
+		return sb.toString();
+	}
+}
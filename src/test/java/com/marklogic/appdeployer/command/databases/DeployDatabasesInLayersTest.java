@@ -0,0 +1,222 @@
+package com.marklogic.appdeployer.command.databases;
+
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.CmaConfig;
+import com.marklogic.appdeployer.command.CommandContext;
+import com.marklogic.appdeployer.command.forests.DeployForestsCommand;
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.mock.MockManageServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deploys 40 databases in 3 layers against a MockManageServer that takes 100ms to create each database. Schemas
+ * databases are in the first layer, triggers databases that reference them are in the second, and the remaining
+ * databases - including the content database and its test database - reference the triggers databases.
+ */
+public class DeployDatabasesInLayersTest extends Assert {
+
+	private final static long CREATE_LATENCY = 100;
+
+	private MockManageServer server;
+	private File projectDir;
+	private AppConfig appConfig;
+
+	@Before
+	public void setup() throws IOException {
+		projectDir = Files.createTempDirectory("layers").toFile();
+		File databasesDir = new File(projectDir, "src/main/ml-config/databases");
+		databasesDir.mkdirs();
+		for (int i = 0; i < 10; i++) {
+			writeDatabaseFile(databasesDir, "schemas-" + i, null);
+			writeDatabaseFile(databasesDir, "triggers-" + i, "\"schema-database\": \"layers-schemas-" + i + "\"");
+		}
+		for (int i = 0; i < 18; i++) {
+			writeDatabaseFile(databasesDir, "other-" + i, "\"triggers-database\": \"layers-triggers-" + (i % 10) + "\"");
+		}
+		FileCopyUtils.copy("{\"database-name\": \"%%DATABASE%%\", \"triggers-database\": \"layers-triggers-0\"}",
+			new FileWriter(new File(databasesDir, "content-database.json")));
+
+		appConfig = new AppConfig(projectDir);
+		appConfig.setName("layers");
+		appConfig.setRestPort(8540);
+		appConfig.setTestRestPort(8541);
+		appConfig.setCmaConfig(new CmaConfig());
+	}
+
+	@After
+	public void teardown() {
+		if (server != null) {
+			server.stop();
+		}
+		FileSystemUtils.deleteRecursively(projectDir);
+	}
+
+	@Test
+	public void eachLayerIsDeployedConcurrently() {
+		final long serialDuration = deployDatabases(1);
+		assertEquals(40, server.getRequestCount("POST", "/manage/v2/databases"));
+		assertTrue("Each database should have been created one at a time; duration: " + serialDuration,
+			serialDuration >= 40 * CREATE_LATENCY);
+		assertDependenciesCreatedFirst();
+
+		final long layeredDuration = deployDatabases(20);
+		assertEquals(40, server.getRequestCount("POST", "/manage/v2/databases"));
+		assertDependenciesCreatedFirst();
+
+		// The remaining time of each deployment is spent on the other requests, which are the same for both
+		assertTrue("The databases in each of the 3 layers should have been created concurrently, such that the time " +
+				"spent creating databases is bounded by the number of layers instead of the number of databases; " +
+				"serial duration: " + serialDuration + "; layered duration: " + layeredDuration,
+			serialDuration - layeredDuration > 20 * CREATE_LATENCY);
+		assertTrue(layeredDuration >= 3 * CREATE_LATENCY);
+
+		assertTrue(server.resourceExists("databases", "layers-test-content"));
+		assertEquals("layers-triggers-0", server.getProperties("databases", "layers-test-content").get("triggers-database").asText());
+		assertEquals("Forests should have been created along with their databases",
+			3, server.getProperties("databases", "layers-test-content").get("forest").size());
+		assertEquals(1, server.getProperties("databases", "layers-other-17").get("forest").size());
+	}
+
+	@Test
+	public void serialAndLayeredDeploymentsMakeTheSameRequests() {
+		deployDatabases(1);
+		final int serialCount = server.getRequestCount();
+		final int serialForestCount = server.getRequestCount("POST", "/manage/v2/forests");
+
+		deployDatabases(4);
+		assertEquals(serialCount, server.getRequestCount());
+		assertEquals("Each forest should have been created once", 44, serialForestCount);
+		assertEquals(serialForestCount, server.getRequestCount("POST", "/manage/v2/forests"));
+	}
+
+	/**
+	 * Redeploys the databases once they exist, so that each database fetches the properties of its existing forests.
+	 * The databases deployed at once share the ManageClient's connection limit instead of each using all of it.
+	 */
+	@Test
+	public void concurrentRequestsAreWithinConnectionLimit() {
+		Map<String, Integer> forestCounts = new HashMap<>();
+		for (int i = 0; i < 18; i++) {
+			forestCounts.put("layers-other-" + i, 4);
+		}
+		appConfig.setForestCounts(forestCounts);
+		deployDatabases(20);
+
+		ManageClient client = server.newManageClient();
+		final int limit = client.getMaxConcurrentRequests();
+		CommandContext context = new CommandContext(appConfig, client, server.newAdminManager());
+		assertEquals("The thread count should be capped at the client's connection limit",
+			limit, new DeployOtherDatabasesCommand().getDatabaseDeployThreadCount(context));
+
+		server.clearRequests();
+		server.withLatency("GET", "/manage/v2/forests/.+", 20);
+		appConfig.getResourceSaveThreadCounts().put("RecordingDeployOtherDatabasesCommand", 20);
+		RecordingDeployOtherDatabasesCommand command = new RecordingDeployOtherDatabasesCommand();
+		command.execute(context);
+		List<Integer> forestThreadCounts = command.forestThreadCounts;
+
+		assertEquals(0, server.getRequestCount("POST", "/manage/v2/forests"));
+		assertEquals("Each database should have fetched the properties of its existing forests",
+			18 * 4 + 10 + 10 + 3 + 3, server.getRequestCount("GET", "/manage/v2/forests/.+"));
+		assertEquals(40, forestThreadCounts.size());
+		forestThreadCounts.forEach(count -> assertEquals("With " + limit + " databases deployed at once, each database " +
+			"should fetch forest properties using its share of the connection limit", 1, (int) count));
+		assertTrue("Expected at most " + limit + " requests in flight, but found " + server.getMaxConcurrentRequests(),
+			server.getMaxConcurrentRequests() <= limit);
+	}
+
+	@Test
+	public void failureStopsLaterLayers() {
+		server = new MockManageServer().start();
+		server.failRequests("POST", "/manage/v2/databases", 500, 1);
+		Map<String, Integer> threadCounts = new HashMap<>();
+		threadCounts.put("DeployOtherDatabasesCommand", 4);
+		appConfig.setResourceSaveThreadCounts(threadCounts);
+
+		try {
+			new DeployOtherDatabasesCommand().execute(new CommandContext(appConfig, server.newManageClient(), server.newAdminManager()));
+			fail("Expected the failure to create a database to be thrown");
+		} catch (RuntimeException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().startsWith("Unable to deploy databases"));
+		}
+
+		assertEquals("Every other database in the first layer should still have been created",
+			9, server.getResourceNames("databases").stream().filter(name -> name.startsWith("layers-schemas-")).count());
+		assertFalse("No database in a later layer should have been created", server.resourceExists("databases", "layers-triggers-0"));
+	}
+
+	/**
+	 * Deploys the databases to a new MockManageServer, such that every database is created.
+	 *
+	 * @param threadCount
+	 * @return the duration of the deployment in milliseconds
+	 */
+	private long deployDatabases(int threadCount) {
+		if (server != null) {
+			server.stop();
+		}
+		server = new MockManageServer().start();
+		server.withLatency("POST", "/manage/v2/databases", CREATE_LATENCY);
+
+		Map<String, Integer> threadCounts = new HashMap<>();
+		threadCounts.put("DeployOtherDatabasesCommand", threadCount);
+		appConfig.setResourceSaveThreadCounts(threadCounts);
+
+		CommandContext context = new CommandContext(appConfig, server.newManageClient(), server.newAdminManager());
+		long start = System.currentTimeMillis();
+		new DeployOtherDatabasesCommand().execute(context);
+		return System.currentTimeMillis() - start;
+	}
+
+	private void assertDependenciesCreatedFirst() {
+		List<String> names = server.getResourceNames("databases");
+		for (int i = 0; i < 10; i++) {
+			int schemasIndex = names.indexOf("layers-schemas-" + i);
+			int triggersIndex = names.indexOf("layers-triggers-" + i);
+			assertTrue(schemasIndex > -1);
+			assertTrue("A triggers database should be created after its schemas database", triggersIndex > schemasIndex);
+		}
+		for (int i = 0; i < 18; i++) {
+			assertTrue("A database should be created after its triggers database",
+				names.indexOf("layers-other-" + i) > names.indexOf("layers-triggers-" + (i % 10)));
+		}
+		assertTrue(names.indexOf("layers-content") > names.indexOf("layers-triggers-0"));
+	}
+
+	/**
+	 * Records the number of threads that each database's DeployForestsCommand was allowed to use.
+	 */
+	private static class RecordingDeployOtherDatabasesCommand extends DeployOtherDatabasesCommand {
+
+		private List<Integer> forestThreadCounts = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		protected void deployDatabase(CommandContext context, DatabasePlan databasePlan) {
+			super.deployDatabase(context, databasePlan);
+			DeployForestsCommand dfc = databasePlan.getDeployDatabaseCommand().getDeployForestsCommand();
+			if (dfc != null) {
+				forestThreadCounts.add(dfc.getForestPropertiesThreadCount());
+			}
+		}
+	}
+
+	private void writeDatabaseFile(File dir, String suffix, String dependency) throws IOException {
+		String json = "{\"database-name\": \"layers-" + suffix + "\"" + (dependency != null ? ", " + dependency : "") + "}";
+		FileCopyUtils.copy(json, new FileWriter(new File(dir, suffix + "-database.json")));
+	}
+}
@@ -0,0 +1,143 @@
+package com.marklogic.appdeployer.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marklogic.appdeployer.export.appservers.ServerExporter;
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.mock.MockManageServer;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports 2,000 synthetic roles and users from a MockManageServer and verifies that exporting them concurrently
+ * produces exactly the same files as exporting them serially. Each request takes at least 1ms so that concurrent
+ * requests overlap.
+ */
+public class ParallelExportTest extends Assert {
+
+	private final static int RESOURCE_COUNT = 1000;
+
+	private MockManageServer server;
+	private ManageClient manageClient;
+	private String[] roleNames = new String[RESOURCE_COUNT];
+	private String[] usernames = new String[RESOURCE_COUNT];
+
+	@Before
+	public void setup() {
+		server = new MockManageServer().withLatency("GET", "/manage/v2/(roles|users)/.*/properties", 1).start();
+		for (int i = 0; i < RESOURCE_COUNT; i++) {
+			roleNames[i] = "role-" + i;
+			usernames[i] = "user-" + i;
+			server.addResource("roles", buildRoleJson(roleNames[i]));
+			server.addResource("users", buildUserJson(usernames[i]));
+		}
+		manageClient = server.newManageClient();
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void json() throws Exception {
+		File parallelDir = verifyConcurrentExportMatchesSerialExport("json");
+
+		String payload = manageClient.getJson("/manage/v2/roles/role-7/properties");
+		ObjectMapper mapper = ObjectMapperFactory.getObjectMapper();
+		String expected = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(mapper.readTree(payload));
+		assertEquals("Streaming the JSON should produce the same output as pretty-printing a tree of it",
+			expected, new String(Files.readAllBytes(new File(parallelDir, "security/roles/role-7.json").toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void xml() throws Exception {
+		verifyConcurrentExportMatchesSerialExport("xml");
+	}
+
+	@Test
+	public void defaultThreadCountsShareConnectionLimit() throws Exception {
+		new Exporter(manageClient).roles(roleNames).users(usernames).export(exportDir("default"));
+		final int maxInFlight = server.getMaxConcurrentRequests();
+		assertTrue(maxInFlight > 1);
+		assertTrue("max in flight: " + maxInFlight, maxInFlight <= manageClient.getMaxConcurrentRequests());
+	}
+
+	@Test
+	public void nestedExportersUseThreadCountOfParent() throws Exception {
+		server.withLatency("GET", "/manage/v2/databases/.*/properties", 50);
+		server.addResource("databases", "{\"database-name\":\"app-content\"}");
+		server.addResource("databases", "{\"database-name\":\"app-modules\"}");
+		server.addResource("servers", "{\"server-name\":\"app\", \"group-name\":\"Default\", " +
+			"\"content-database\":\"app-content\", \"modules-database\":\"app-modules\"}");
+
+		ServerExporter exporter = new ServerExporter(manageClient, "app");
+		exporter.setThreadCount(1);
+		ExportedResources resources = exporter.exportResources(exportDir("nested"));
+		assertEquals("Expected the server and both of its databases to be exported", 3, resources.getFiles().size());
+		assertEquals("The database exporter created by the server exporter should only use the one thread that the " +
+			"server exporter was given", 1, server.getMaxConcurrentRequests());
+	}
+
+	/**
+	 * @return the directory that resources were exported to concurrently
+	 */
+	private File verifyConcurrentExportMatchesSerialExport(String format) throws Exception {
+		File serialDir = exportDir("serial-" + format);
+		ExportedResources serial = new Exporter(manageClient).format(format).threadCount(1)
+			.roles(roleNames).users(usernames).export(serialDir);
+		assertEquals(1, server.getMaxConcurrentRequests());
+
+		server.clearRequests();
+		File parallelDir = exportDir("parallel-" + format);
+		ExportedResources parallel = new Exporter(manageClient).format(format).threadCount(8)
+			.roles(roleNames).users(usernames).export(parallelDir);
+		final int maxInFlight = server.getMaxConcurrentRequests();
+		assertTrue(maxInFlight > 1);
+		assertTrue("The exporters should together not use more connections than the client allows; max in flight: " +
+			maxInFlight, maxInFlight <= manageClient.getMaxConcurrentRequests());
+
+		assertEquals(RESOURCE_COUNT * 2, serial.getFiles().size());
+		assertEquals(relativePaths(serial, serialDir), relativePaths(parallel, parallelDir));
+		assertEquals(serial.getMessages(), parallel.getMessages());
+		assertEquals(1, parallel.getMessages().size());
+
+		for (File serialFile : serial.getFiles()) {
+			String relativePath = serialDir.toPath().relativize(serialFile.toPath()).toString();
+			File parallelFile = new File(parallelDir, relativePath);
+			assertArrayEquals("Files differ: " + relativePath,
+				Files.readAllBytes(serialFile.toPath()), Files.readAllBytes(parallelFile.toPath()));
+		}
+		return parallelDir;
+	}
+
+	private List<String> relativePaths(ExportedResources resources, File baseDir) {
+		List<String> paths = new ArrayList<>();
+		resources.getFiles().forEach(file -> paths.add(baseDir.toPath().relativize(file.toPath()).toString()));
+		return paths;
+	}
+
+	private File exportDir(String name) throws Exception {
+		return new File(Files.createTempDirectory("parallel-export").toFile(), name);
+	}
+
+	private String buildRoleJson(String name) {
+		return "{\"role-name\":\"" + name + "\", \"description\":\"Rôle \\u00e9 " + name + "\", " +
+			"\"role\":[\"rest-reader\", \"rest-writer\"], \"privilege\":[{\"privilege-name\":\"any-uri\", " +
+			"\"action\":\"http://marklogic.com/xdmp/privileges/any-uri\", \"kind\":\"execute\"}], " +
+			"\"permission\":[], \"compartment\":null, \"weight\":1.50, \"count\":12345678901}";
+	}
+
+	private String buildUserJson(String name) {
+		return "{\"user-name\":\"" + name + "\", \"description\":\"User " + name + "\", \"role\":[\"role-1\"], " +
+			"\"external-name\":[]}";
+	}
+}
@@ -0,0 +1,294 @@
+package com.marklogic.appdeployer.impl;
+
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.command.Command;
+import com.marklogic.appdeployer.command.CommandContext;
+import com.marklogic.appdeployer.command.SortOrderConstants;
+import com.marklogic.appdeployer.command.mimetypes.DeployMimetypesCommand;
+import com.marklogic.appdeployer.command.triggers.DeployTriggersCommand;
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.admin.AdminManager;
+import com.marklogic.mgmt.metrics.ManageClientMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelAppDeployerTest extends Assert {
+
+	private AppConfig appConfig = new AppConfig();
+
+	@Test
+	public void commandsWithoutDeclaredDependenciesRunSequentially() {
+		FirstCommand first = new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS);
+		SecondCommand second = new SecondCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 1);
+		new ParallelAppDeployer(second, first).deploy(appConfig);
+
+		assertTrue(first.finishedBefore(second));
+	}
+
+	@Test
+	public void independentCommandsOverlap() {
+		FirstCommand first = new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS);
+		SecondCommand second = new SecondCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 1);
+		ParallelAppDeployer deployer = new ParallelAppDeployer(first, second);
+		deployer.addCommandDependencies(SecondCommand.class);
+		deployer.deploy(appConfig);
+
+		assertTrue("The second command doesn't depend on the first one, so they should have run at the same time",
+			first.overlaps(second));
+	}
+
+	@Test
+	public void declaredDependency() {
+		FirstCommand first = new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS);
+		SecondCommand second = new SecondCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 1);
+		ThirdCommand third = new ThirdCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 2);
+		ParallelAppDeployer deployer = new ParallelAppDeployer(first, second, third);
+		deployer.addCommandDependencies(SecondCommand.class);
+		deployer.addCommandDependencies(ThirdCommand.class, FirstCommand.class);
+		deployer.deploy(appConfig);
+
+		assertTrue(first.overlaps(second));
+		assertTrue(first.finishedBefore(third));
+	}
+
+	@Test
+	public void exclusiveCommandRunsAlone() {
+		FirstCommand first = new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS);
+		SecondCommand second = new SecondCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 1);
+		ThirdCommand third = new ThirdCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 2);
+		ParallelAppDeployer deployer = new ParallelAppDeployer(first, second, third);
+		deployer.addCommandDependencies(SecondCommand.class);
+		deployer.addCommandDependencies(ThirdCommand.class);
+		deployer.addExclusiveCommands(SecondCommand.class);
+		deployer.deploy(appConfig);
+
+		assertTrue("The exclusive command should wait for the running command to finish", first.finishedBefore(second));
+		assertTrue("No command should be started while the exclusive command is running", second.finishedBefore(third));
+	}
+
+	@Test
+	public void metricsAreResetAndLoggedLikeSimpleAppDeployer() {
+		CountingMetrics metrics = new CountingMetrics();
+		ManageClient manageClient = new ManageClient();
+		manageClient.setManageClientMetrics(metrics);
+		new ParallelAppDeployer(manageClient, new AdminManager(), new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS))
+			.deploy(appConfig);
+
+		assertEquals("The metrics should be reset before the commands are executed", 1, metrics.resetCount.get());
+		assertEquals("The metrics should be logged after the commands are executed", 1, metrics.summaryCount.get());
+	}
+
+	@Test
+	public void mimetypesCommandIsExclusiveByDefault() {
+		ParallelAppDeployer deployer = new ParallelAppDeployer();
+		assertTrue(deployer.isExclusive(new DeployMimetypesCommand()));
+		assertFalse("Deploying mimetypes restarts MarkLogic, so it should not be declared as independent",
+			deployer.getCommandDependencies().containsKey(DeployMimetypesCommand.class));
+		assertFalse(deployer.isExclusive(new DeployTriggersCommand()));
+	}
+
+	@Test
+	public void dependencyOnLaterCommandIsIgnored() {
+		FirstCommand first = new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS);
+		SecondCommand second = new SecondCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 1);
+		ParallelAppDeployer deployer = new ParallelAppDeployer(first, second);
+		deployer.addCommandDependencies(FirstCommand.class, SecondCommand.class);
+		deployer.addCommandDependencies(SecondCommand.class);
+		deployer.deploy(appConfig);
+
+		assertTrue(first.overlaps(second));
+	}
+
+	@Test
+	public void commandInLaterBandWaitsForEarlierBand() {
+		FirstCommand first = new FirstCommand(SortOrderConstants.LOAD_MODULES);
+		SecondCommand second = new SecondCommand(SortOrderConstants.DEPLOY_TRIGGERS);
+		ParallelAppDeployer deployer = new ParallelAppDeployer(first, second);
+		deployer.addCommandDependencies(SecondCommand.class);
+		deployer.deploy(appConfig);
+
+		assertTrue(first.finishedBefore(second));
+	}
+
+	@Test
+	public void threadCountOfOne() {
+		FirstCommand first = new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS);
+		SecondCommand second = new SecondCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 1);
+		ParallelAppDeployer deployer = new ParallelAppDeployer(first, second);
+		deployer.addCommandDependencies(SecondCommand.class);
+		deployer.setThreadCount(1);
+		deployer.deploy(appConfig);
+
+		assertFalse(first.overlaps(second));
+	}
+
+	@Test
+	public void failedCommandStopsDeployment() {
+		FailingCommand failing = new FailingCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS);
+		FirstCommand running = new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 1);
+		SecondCommand later = new SecondCommand(SortOrderConstants.DEPLOY_TRIGGERS + 100);
+		ParallelAppDeployer deployer = new ParallelAppDeployer(failing, running, later);
+		deployer.addCommandDependencies(FirstCommand.class);
+
+		try {
+			deployer.deploy(appConfig);
+			fail("Expected the command's exception to be rethrown");
+		} catch (IllegalStateException ex) {
+			assertEquals("Failed on purpose", ex.getMessage());
+		}
+		assertTrue("A command that was already running should be allowed to finish", running.end > 0);
+		assertEquals("A command in a later band should not have been started", 0, later.start);
+	}
+
+	@Test
+	public void caughtExceptionDoesNotStopDeployment() {
+		FailingCommand failing = new FailingCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS);
+		FirstCommand later = new FirstCommand(SortOrderConstants.DEPLOY_TRIGGERS + 100);
+		appConfig.setCatchDeployExceptions(true);
+		new ParallelAppDeployer(failing, later).deploy(appConfig);
+
+		assertTrue(later.end > 0);
+	}
+
+	@Test
+	public void listenersAreInvokedForEachCommand() {
+		FirstCommand first = new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS);
+		SecondCommand second = new SecondCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS + 1);
+		ParallelAppDeployer deployer = new ParallelAppDeployer(first, second);
+		deployer.addCommandDependencies(SecondCommand.class);
+
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		deployer.setDeployerListeners(Arrays.asList(new DeployerListenerSupport() {
+			@Override
+			public void beforeCommandsExecuted(DeploymentContext deploymentContext) {
+				events.add("start");
+			}
+
+			@Override
+			public void beforeCommandExecuted(Command command, DeploymentContext deploymentContext, List<Command> remainingCommands) {
+				assertFalse("Remaining commands are those that have not been started yet", remainingCommands.contains(command));
+				events.add("before-" + command.getClass().getSimpleName());
+			}
+
+			@Override
+			public void afterCommandExecuted(Command command, DeploymentContext deploymentContext, List<Command> remainingCommands) {
+				events.add("after-" + command.getClass().getSimpleName());
+			}
+		}));
+		deployer.deploy(appConfig);
+
+		assertEquals(5, events.size());
+		assertEquals("start", events.get(0));
+		assertTrue(events.indexOf("before-FirstCommand") < events.indexOf("after-FirstCommand"));
+		assertTrue(events.indexOf("before-SecondCommand") < events.indexOf("after-SecondCommand"));
+	}
+
+	@Test
+	public void customTokensAreRestored() {
+		appConfig.getCustomTokens().put("%%original%%", "value");
+		Command command = new FirstCommand(SortOrderConstants.DEPLOY_SCHEDULED_TASKS) {
+			@Override
+			public void execute(CommandContext context) {
+				context.getAppConfig().getCustomTokens().put("%%added%%", "added");
+			}
+		};
+		new ParallelAppDeployer(command).deploy(appConfig);
+
+		assertEquals("value", appConfig.getCustomTokens().get("%%original%%"));
+		assertEquals("added", appConfig.getCustomTokens().get("%%added%%"));
+	}
+}
+
+class SleepingCommand implements Command {
+
+	private int sortOrder;
+	volatile long start;
+	volatile long end;
+
+	SleepingCommand(int sortOrder) {
+		this.sortOrder = sortOrder;
+	}
+
+	@Override
+	public void execute(CommandContext context) {
+		start = System.nanoTime();
+		try {
+			Thread.sleep(200);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		end = System.nanoTime();
+	}
+
+	@Override
+	public Integer getExecuteSortOrder() {
+		return sortOrder;
+	}
+
+	boolean finishedBefore(SleepingCommand other) {
+		return end > 0 && end <= other.start;
+	}
+
+	boolean overlaps(SleepingCommand other) {
+		return start < other.end && other.start < end;
+	}
+}
+
+class FirstCommand extends SleepingCommand {
+	FirstCommand(int sortOrder) {
+		super(sortOrder);
+	}
+}
+
+class SecondCommand extends SleepingCommand {
+	SecondCommand(int sortOrder) {
+		super(sortOrder);
+	}
+}
+
+class ThirdCommand extends SleepingCommand {
+	ThirdCommand(int sortOrder) {
+		super(sortOrder);
+	}
+}
+
+class FailingCommand extends SleepingCommand {
+	FailingCommand(int sortOrder) {
+		super(sortOrder);
+	}
+
+	@Override
+	public void execute(CommandContext context) {
+		throw new IllegalStateException("Failed on purpose");
+	}
+}
+
+class CountingMetrics implements ManageClientMetrics {
+	final AtomicInteger resetCount = new AtomicInteger();
+	final AtomicInteger summaryCount = new AtomicInteger();
+
+	@Override
+	public void recordRequest(String method, String pathTemplate, int statusCode, long durationNanos, long requestBytes, long responseBytes) {
+	}
+
+	@Override
+	public void recordFailure(String method, String pathTemplate, long durationNanos, long requestBytes, Exception cause) {
+	}
+
+	@Override
+	public void reset() {
+		resetCount.incrementAndGet();
+	}
+
+	@Override
+	public String getSummary() {
+		summaryCount.incrementAndGet();
+		return "";
+	}
+}
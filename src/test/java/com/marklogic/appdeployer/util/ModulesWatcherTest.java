@@ -0,0 +1,294 @@
+package com.marklogic.appdeployer.util;
+
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.command.modules.DefaultModulesLoaderFactory;
+import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.ext.modulesloader.ModulesFinder;
+import com.marklogic.client.ext.modulesloader.ModulesLoader;
+import com.marklogic.client.ext.modulesloader.ModulesManager;
+import com.marklogic.client.ext.modulesloader.impl.DefaultModulesLoader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.Resource;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Uses a mock ModulesLoader that walks the modules directory and loads each file that the ModulesManager reports as
+ * modified, along with a ModulesManager that counts how many times it checks a file's timestamp.
+ */
+public class ModulesWatcherTest extends Assert {
+
+	private final static int FILE_COUNT = 200;
+	private final static long MAX_RELOAD_MILLIS = 3000;
+
+	private Path modulesDir;
+	private CountingModulesManager timestampsManager = new CountingModulesManager();
+	private MockModulesLoader loader = new MockModulesLoader();
+	private ModulesWatcher watcher;
+	private Thread watcherThread;
+
+	@Before
+	public void setup() throws IOException {
+		modulesDir = Files.createTempDirectory("modules-watcher");
+		for (int i = 0; i < FILE_COUNT; i++) {
+			Path dir = modulesDir.resolve("root/dir-" + (i % 10));
+			Files.createDirectories(dir);
+			Files.write(dir.resolve("module-" + i + ".xqy"), "xquery version '1.0-ml';".getBytes());
+		}
+
+		AppConfig appConfig = new AppConfig();
+		appConfig.setModulePaths(Arrays.asList(modulesDir.toString()));
+		watcher = new ModulesWatcher(appConfig);
+		watcher.setModulesLoaderFactory(new DefaultModulesLoaderFactory() {
+			@Override
+			public ModulesLoader newModulesLoader(AppConfig appConfig, ModulesManager modulesManager) {
+				loader.modulesManager = modulesManager;
+				return loader;
+			}
+
+			@Override
+			public ModulesManager newModulesManager(AppConfig appConfig) {
+				return timestampsManager;
+			}
+		});
+		watcher.setDebounceTime(100);
+		watcher.setSleepTime(50);
+	}
+
+	@After
+	public void teardown() throws Exception {
+		if (watcher != null) {
+			watcher.stop();
+		}
+		if (watcherThread != null) {
+			watcherThread.interrupt();
+			watcherThread.join(5000);
+		}
+	}
+
+	@Test
+	public void onlyChangedFilesAreLoaded() throws Exception {
+		startWatcher();
+		waitFor(() -> loader.loadedFiles.size() == FILE_COUNT, "initial load");
+		assertEquals("Every file should have been checked during the initial load", FILE_COUNT, timestampsManager.statCount.get());
+		// Give the watcher a moment to begin waiting for changes
+		Thread.sleep(100);
+
+		final int loadCount = loader.loadCount.get();
+		loader.visitedCount.set(0);
+		Path changedFile = modulesDir.resolve("root/dir-3/module-3.xqy");
+		long start = System.currentTimeMillis();
+		Files.write(changedFile, "xquery version '1.0-ml'; 1".getBytes());
+		waitFor(() -> loader.loadCount.get() == loadCount + 1, "reload of changed file");
+		long reloadTime = System.currentTimeMillis() - start;
+
+		assertTrue("Reload took " + reloadTime + "ms", reloadTime < MAX_RELOAD_MILLIS);
+		assertEquals(Collections.singleton(changedFile.toFile().getAbsolutePath()), loader.lastLoadedFiles);
+		assertEquals("The timestamps of unchanged files should not have been checked",
+			FILE_COUNT, timestampsManager.statCount.get());
+		assertEquals("The timestamp of the loaded file should still be saved", FILE_COUNT + 1, timestampsManager.saveCount.get());
+		assertEquals("Only the files in the changed file's directory should have been visited, as the directories not " +
+			"leading to it are skipped", FILE_COUNT / 10, loader.visitedCount.get());
+	}
+
+	@Test
+	public void deletedFilesAreNotLoaded() throws Exception {
+		startWatcher();
+		waitFor(() -> loader.loadedFiles.size() == FILE_COUNT, "initial load");
+		Thread.sleep(100);
+
+		final int loadCount = loader.loadCount.get();
+		Path deletedFile = modulesDir.resolve("root/dir-1/module-1.xqy");
+		Path shortLivedFile = modulesDir.resolve("root/dir-2/short-lived.xqy");
+		Path changedFile = modulesDir.resolve("root/dir-3/module-3.xqy");
+		Files.write(shortLivedFile, "xquery version '1.0-ml';".getBytes());
+		Files.write(deletedFile, "xquery version '1.0-ml'; 1".getBytes());
+		Files.delete(shortLivedFile);
+		Files.delete(deletedFile);
+		Files.write(changedFile, "xquery version '1.0-ml'; 1".getBytes());
+
+		waitFor(() -> loader.loadCount.get() == loadCount + 1, "reload of changed file");
+		assertEquals("Files deleted before their changes were loaded should not be loaded",
+			Collections.singleton(changedFile.toFile().getAbsolutePath()), loader.lastLoadedFiles);
+	}
+
+	@Test
+	public void changedFilesFilterIsAddedToAssetFileLoader() {
+		AppConfig appConfig = new AppConfig();
+		ModulesWatcher defaultWatcher = new ModulesWatcher(appConfig);
+		ChangedFilesModulesManager modulesManager = new ChangedFilesModulesManager(null);
+		DefaultModulesLoader modulesLoader = (DefaultModulesLoader) defaultWatcher.newModulesLoader(modulesManager);
+		assertSame(modulesManager, modulesLoader.getModulesManager());
+		assertTrue(modulesLoader.getAssetFileLoader().getFileFilters().contains(modulesManager));
+
+		File changedFile = modulesDir.resolve("root/dir-3/module-3.xqy").toFile();
+		modulesManager.setChangedFiles(Collections.singleton(changedFile.toPath()));
+		assertTrue(modulesManager.accept(changedFile));
+		assertTrue(modulesManager.accept(changedFile.getParentFile()));
+		assertTrue(modulesManager.accept(modulesDir.resolve("root").toFile()));
+		assertFalse(modulesManager.accept(modulesDir.resolve("root/dir-4").toFile()));
+		assertFalse(modulesManager.accept(modulesDir.resolve("root/dir-3/module-13.xqy").toFile()));
+	}
+
+	@Test
+	public void burstOfChangesIsDebounced() throws Exception {
+		startWatcher();
+		waitFor(() -> loader.loadedFiles.size() == FILE_COUNT, "initial load");
+		Thread.sleep(100);
+
+		final int loadCount = loader.loadCount.get();
+		Set<String> expectedFiles = new HashSet<>();
+		for (int i = 0; i < 10; i++) {
+			Path file = modulesDir.resolve("root/dir-" + i + "/module-" + i + ".xqy");
+			Files.write(file, ("xquery version '1.0-ml'; " + i).getBytes());
+			expectedFiles.add(file.toFile().getAbsolutePath());
+		}
+		Path newDir = modulesDir.resolve("root/new-dir/nested");
+		Files.createDirectories(newDir);
+		Path newFile = newDir.resolve("new-module.xqy");
+		Files.write(newFile, "xquery version '1.0-ml';".getBytes());
+		expectedFiles.add(newFile.toFile().getAbsolutePath());
+
+		waitFor(() -> loader.loadedFiles.containsAll(expectedFiles), "reload of changed files");
+		assertEquals("The changes should have been loaded together", loadCount + 1, loader.loadCount.get());
+		assertEquals(expectedFiles, loader.lastLoadedFiles);
+		assertEquals(FILE_COUNT, timestampsManager.statCount.get());
+	}
+
+	@Test
+	public void pollingFallback() throws Exception {
+		watcher.setUseWatchService(false);
+		startWatcher();
+		waitFor(() -> loader.loadedFiles.size() == FILE_COUNT, "initial load");
+
+		final int loadCount = loader.loadCount.get();
+		File changedFile = modulesDir.resolve("root/dir-3/module-3.xqy").toFile();
+		Files.write(changedFile.toPath(), "xquery version '1.0-ml'; 1".getBytes());
+		changedFile.setLastModified(System.currentTimeMillis() + 10000);
+		long start = System.currentTimeMillis();
+		waitFor(() -> loader.loadCount.get() == loadCount + 1, "reload of changed file");
+		assertTrue(System.currentTimeMillis() - start < MAX_RELOAD_MILLIS);
+		assertEquals(Collections.singleton(changedFile.getAbsolutePath()), loader.lastLoadedFiles);
+		assertTrue("When polling, every file is checked on each pass", timestampsManager.statCount.get() > FILE_COUNT);
+	}
+
+	private void startWatcher() {
+		watcherThread = new Thread(watcher);
+		watcherThread.setDaemon(true);
+		watcherThread.start();
+	}
+
+	private void waitFor(BooleanSupplier condition, String description) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + MAX_RELOAD_MILLIS * 2;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("Timed out waiting for " + description);
+			}
+			Thread.sleep(10);
+		}
+	}
+}
+
+class MockModulesLoader implements ModulesLoader {
+
+	volatile ModulesManager modulesManager;
+	final Set<String> loadedFiles = ConcurrentHashMap.newKeySet();
+	volatile Set<String> lastLoadedFiles = Collections.emptySet();
+	final AtomicInteger loadCount = new AtomicInteger();
+	final AtomicInteger visitedCount = new AtomicInteger();
+
+	/**
+	 * Like an AssetFileLoader, this applies the ModulesManager - if it's a FileFilter - to each directory and file.
+	 */
+	@Override
+	public Set<Resource> loadModules(String baseDir, ModulesFinder modulesFinder, DatabaseClient client) {
+		Set<String> loaded = new HashSet<>();
+		FileFilter filter = modulesManager instanceof FileFilter ? (FileFilter) modulesManager : file -> true;
+		List<File> files = new ArrayList<>();
+		try {
+			Files.walkFileTree(new File(baseDir).toPath(), new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					return filter.accept(dir.toFile()) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					visitedCount.incrementAndGet();
+					if (filter.accept(file.toFile())) {
+						files.add(file.toFile());
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		for (File file : files) {
+			if (modulesManager.hasFileBeenModifiedSinceLastLoaded(file)) {
+				modulesManager.saveLastLoadedTimestamp(file, new Date());
+				loaded.add(file.getAbsolutePath());
+			}
+		}
+		if (!loaded.isEmpty()) {
+			lastLoadedFiles = loaded;
+			loadedFiles.addAll(loaded);
+			loadCount.incrementAndGet();
+		}
+		return new HashSet<>();
+	}
+
+	@Override
+	public Set<Resource> loadModules(DatabaseClient client, ModulesFinder modulesFinder, String... paths) {
+		Set<Resource> resources = new HashSet<>();
+		for (String path : paths) {
+			resources.addAll(loadModules(path, modulesFinder, client));
+		}
+		return resources;
+	}
+}
+
+class CountingModulesManager implements ModulesManager {
+
+	final AtomicInteger statCount = new AtomicInteger();
+	final AtomicInteger saveCount = new AtomicInteger();
+	private final Map<String, Long> timestamps = new ConcurrentHashMap<>();
+
+	@Override
+	public void initialize() {
+	}
+
+	@Override
+	public boolean hasFileBeenModifiedSinceLastLoaded(File file) {
+		statCount.incrementAndGet();
+		Long timestamp = timestamps.get(file.getAbsolutePath());
+		return timestamp == null || file.lastModified() > timestamp;
+	}
+
+	@Override
+	public void saveLastLoadedTimestamp(File file, Date date) {
+		saveCount.incrementAndGet();
+		timestamps.put(file.getAbsolutePath(), file.lastModified());
+	}
+}
@@ -98,6 +98,46 @@ public class DefaultManageConfigFactoryTest extends Assert {
 	}
 
 
+	@Test
+	public void pooledConnectionProperties() {
+		ManageConfig config = configure();
+		assertFalse(config.isUsePooledConnections());
+
+		config = configure(
+			"mlManagePooledConnections", "true",
+			"mlManageMaxConnections", "8",
+			"mlManageMaxConnectionsPerRoute", "4",
+			"mlManageIdleConnectionTimeout", "5000",
+			"mlManageValidateAfterInactivity", "500"
+		);
+
+		assertTrue(config.isUsePooledConnections());
+		assertEquals(8, config.getMaxConnectionsTotal());
+		assertEquals(4, config.getMaxConnectionsPerRoute());
+		assertEquals(5000, config.getIdleConnectionTimeout());
+		assertEquals(500, config.getValidateAfterInactivity());
+	}
+
+	@Test
+	public void recordMetrics() {
+		assertFalse(configure().isRecordMetrics());
+		assertTrue(configure("mlManageRecordMetrics", "true").isRecordMetrics());
+	}
+
+	@Test
+	public void retryProperties() {
+		ManageConfig config = configure();
+		assertEquals(4, config.getRetryPolicy().getMaxAttempts());
+		assertEquals(500, config.getRetryPolicy().getInitialDelay());
+
+		config = configure(
+			"mlManageRetryMaxAttempts", "1",
+			"mlManageRetryInitialDelay", "2000"
+		);
+		assertEquals(1, config.getRetryPolicy().getMaxAttempts());
+		assertEquals(2000, config.getRetryPolicy().getInitialDelay());
+	}
+
 	private ManageConfig configure(String... properties) {
 		return new DefaultManageConfigFactory(new SimplePropertySource(properties)).newManageConfig();
 	}
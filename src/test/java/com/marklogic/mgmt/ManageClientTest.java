@@ -1,8 +1,15 @@
 package com.marklogic.mgmt;
 
+import com.marklogic.mgmt.mock.MockManageServer;
+import com.marklogic.rest.util.ResourceList;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class ManageClientTest extends Assert {
 
 	@Test
@@ -17,4 +24,23 @@ public class ManageClientTest extends Assert {
 		config.setSecurityUsername(null);
 		assertEquals("someone", client.determineUsernameForSecurityUserRequest());
 	}
+
+	@Test
+	public void getResourceList() throws Exception {
+		String body = new String(Files.readAllBytes(Paths.get("src/test/resources/resource-lists/role-list.xml")), StandardCharsets.UTF_8);
+		AtomicReference<String> acceptHeader = new AtomicReference<>();
+		MockManageServer server = new MockManageServer().withHandler("GET", "/manage/v2/roles", request -> {
+			acceptHeader.set(request.getAccept());
+			return new MockManageServer.MockResponse(200, "application/xml", body);
+		}).start();
+		try {
+			ResourceList list = server.newManageClient().getResourceList("/manage/v2/roles");
+			assertEquals("application/xml", acceptHeader.get());
+			assertEquals(5, list.size());
+			assertTrue(list.contains("sample-app-role"));
+			assertEquals("7089338530631756591", list.getIdForNameOrId("admin"));
+		} finally {
+			server.stop();
+		}
+	}
 }
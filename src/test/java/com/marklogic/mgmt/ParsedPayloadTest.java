@@ -0,0 +1,217 @@
+package com.marklogic.mgmt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.marklogic.mgmt.resource.security.AmpManager;
+import com.marklogic.mgmt.resource.security.RoleManager;
+import com.marklogic.rest.util.Fragment;
+import com.marklogic.rest.util.ResourceList;
+import com.marklogic.rest.util.StaxResourceListReader;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Uses a spy PayloadParser to verify that a payload is only parsed once while it's being saved.
+ */
+public class ParsedPayloadTest extends Assert {
+
+	private CountingPayloadParser parser = new CountingPayloadParser();
+	private StubManageClient client = new StubManageClient();
+
+	@Test
+	public void saveJsonRole() {
+		RoleManager mgr = new RoleManager(client);
+		mgr.payloadParser = parser;
+
+		mgr.save("{\"role-name\":\"existing-role\", \"description\":\"updated\"}");
+		assertEquals(1, parser.jsonParseCount);
+		assertEquals("PUT", client.lastMethod);
+
+		mgr.save("{\"role-name\":\"new-role\"}");
+		assertEquals(2, parser.jsonParseCount);
+		assertEquals("POST", client.lastMethod);
+	}
+
+	@Test
+	public void saveXmlRole() {
+		RoleManager mgr = new RoleManager(client);
+		mgr.payloadParser = parser;
+
+		mgr.save("<role-properties xmlns='http://marklogic.com/manage/role/properties'><role-name>existing-role</role-name></role-properties>");
+		assertEquals(1, parser.xmlParseCount);
+		assertEquals(0, parser.jsonParseCount);
+		assertEquals("PUT", client.lastMethod);
+	}
+
+	@Test
+	public void saveAmp() {
+		AmpManager mgr = new AmpManager(client);
+		mgr.payloadParser = parser;
+
+		String payload = "{\"local-name\":\"my-amp\", \"document-uri\":\"/my-lib.xqy\", \"namespace\":\"urn:test\", " +
+			"\"modules-database\":\"Modules\"}";
+		mgr.save(payload);
+		assertEquals("The payload should have been parsed once for the resource ID, existence check, and update params",
+			1, parser.jsonParseCount);
+		assertEquals("PUT", client.lastMethod);
+		assertTrue(client.lastPath.contains("document-uri=/my-lib.xqy"));
+
+		mgr.save(new ParsedPayload(payload.replace("my-amp", "new-amp"), parser));
+		assertEquals(2, parser.jsonParseCount);
+		assertEquals("POST", client.lastMethod);
+	}
+
+	@Test
+	public void overriddenStringResourceIdIsHonored() {
+		RoleManager mgr = new RoleManager(client) {
+			@Override
+			protected String getResourceId(String payload) {
+				return "existing-role";
+			}
+		};
+		mgr.payloadParser = parser;
+
+		mgr.save("{\"role-name\":\"renamed-role\"}");
+		assertEquals("The resource ID from the overridden method should have been used to find the existing role",
+			"PUT", client.lastMethod);
+		assertTrue(client.lastPath.contains("existing-role"));
+	}
+
+	@Test
+	public void includeAndExcludeDoNotModifyParsedPayload() {
+		ParsedPayload payload = new ParsedPayload("{\"role-name\":\"test\", \"description\":\"d\", \"role\":[\"a\"]}", parser);
+		assertEquals("{\"role\":[\"a\"]}", parser.includeProperties(payload, "role"));
+		assertEquals("{\"role-name\":\"test\",\"description\":\"d\"}", parser.excludeProperties(payload, "role"));
+		assertEquals("test", parser.getPayloadFieldValue(payload, "role-name"));
+		assertEquals(3, payload.getJsonNode().size());
+
+		ParsedPayload xml = new ParsedPayload("<test><hello>world</hello><keep>this</keep></test>", parser);
+		assertEquals("<test><keep>this</keep></test>", parser.excludeProperties(xml, "/test/hello"));
+		assertEquals("world", parser.getPayloadFieldValue(xml, "hello"));
+		assertEquals(1, parser.jsonParseCount);
+		assertEquals(1, parser.xmlParseCount);
+	}
+
+	@Test
+	public void format() {
+		assertTrue(new ParsedPayload("  \n\t{}").isJson());
+		assertTrue(new ParsedPayload("[1]").isJson());
+		assertFalse(new ParsedPayload(" <a/>").isJson());
+		assertFalse(new ParsedPayload("").isJson());
+		assertFalse(new ParsedPayload(null).isJson());
+	}
+
+	@Test
+	public void missingXmlField() {
+		ParsedPayload xml = new ParsedPayload("<test><hello>world</hello></test>", parser);
+		assertNull(parser.getPayloadFieldValue(xml, "missing", false));
+		try {
+			parser.getPayloadFieldValue(xml, "missing");
+			fail("Expected an error because the field doesn't exist");
+		} catch (RuntimeException ex) {
+			assertTrue(ex.getMessage().startsWith("Cannot get field value from XML"));
+		}
+	}
+
+	private static class CountingPayloadParser extends PayloadParser {
+
+		int jsonParseCount;
+		int xmlParseCount;
+
+		@Override
+		public JsonNode parseJson(String json) {
+			jsonParseCount++;
+			return super.parseJson(json);
+		}
+
+		@Override
+		public Fragment parseXml(String xml) {
+			xmlParseCount++;
+			return super.parseXml(xml);
+		}
+	}
+
+	/**
+	 * Reports "existing-role" and the "my-amp" amp as existing, and records the method and path of the last write.
+	 */
+	private static class StubManageClient extends ManageClient {
+
+		private final static String ROLES = "<role-default-list xmlns='http://marklogic.com/manage/role/properties'>" +
+			"<list-items><list-count>1</list-count><list-item><idref>1</idref><nameref>existing-role</nameref></list-item>" +
+			"</list-items></role-default-list>";
+
+		private final static String AMPS = "<amp-default-list xmlns='http://marklogic.com/manage/amp/properties'>" +
+			"<list-items><list-count>1</list-count><list-item><idref>2</idref><nameref>my-amp</nameref>" +
+			"<namespace>urn:test</namespace><document-uri>/my-lib.xqy</document-uri>" +
+			"<modules-database>Modules</modules-database></list-item></list-items></amp-default-list>";
+
+		String lastMethod;
+		String lastPath;
+
+		StubManageClient() {
+			super(new RestTemplate());
+		}
+
+		private String listXml(String path) {
+			return path.contains("amps") ? AMPS : ROLES;
+		}
+
+		@Override
+		public Fragment getXml(String path, String... namespacePrefixesAndUris) {
+			return new Fragment(listXml(path));
+		}
+
+		@Override
+		public Fragment getXmlAsSecurityUser(String path, String... namespacePrefixesAndUris) {
+			return getXml(path);
+		}
+
+		@Override
+		public ResourceList getResourceList(String path) {
+			return new StaxResourceListReader().read(listXml(path));
+		}
+
+		@Override
+		public ResourceList getResourceListAsSecurityUser(String path) {
+			return getResourceList(path);
+		}
+
+		private ResponseEntity<String> record(String method, String path) {
+			lastMethod = method;
+			lastPath = path;
+			return new ResponseEntity<>(HttpStatus.OK);
+		}
+
+		@Override
+		public ResponseEntity<String> putJson(String path, String json) {
+			return record("PUT", path);
+		}
+
+		@Override
+		public ResponseEntity<String> putJsonAsSecurityUser(String path, String json) {
+			return record("PUT", path);
+		}
+
+		@Override
+		public ResponseEntity<String> putXml(String path, String xml) {
+			return record("PUT", path);
+		}
+
+		@Override
+		public ResponseEntity<String> putXmlAsSecurityUser(String path, String xml) {
+			return record("PUT", path);
+		}
+
+		@Override
+		public ResponseEntity<String> postJson(String path, String json) {
+			return record("POST", path);
+		}
+
+		@Override
+		public ResponseEntity<String> postJsonAsSecurityUser(String path, String json) {
+			return record("POST", path);
+		}
+	}
+}
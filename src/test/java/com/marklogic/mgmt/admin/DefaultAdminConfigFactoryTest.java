@@ -55,6 +55,26 @@ public class DefaultAdminConfigFactoryTest extends Assert {
 		assertEquals("PKIX", config.getTrustManagementAlgorithm());
 	}
 
+	@Test
+	public void pooledConnectionProperties() {
+		AdminConfig config = configure();
+		assertFalse(config.isUsePooledConnections());
+
+		config = configure(
+			"mlAdminPooledConnections", "true",
+			"mlAdminMaxConnections", "8",
+			"mlAdminMaxConnectionsPerRoute", "4",
+			"mlAdminIdleConnectionTimeout", "5000",
+			"mlAdminValidateAfterInactivity", "500"
+		);
+
+		assertTrue(config.isUsePooledConnections());
+		assertEquals(8, config.getMaxConnectionsTotal());
+		assertEquals(4, config.getMaxConnectionsPerRoute());
+		assertEquals(5000, config.getIdleConnectionTimeout());
+		assertEquals(500, config.getValidateAfterInactivity());
+	}
+
 	private AdminConfig configure(String... properties) {
 		return new DefaultAdminConfigFactory(new SimplePropertySource(properties)).newAdminConfig();
 	}
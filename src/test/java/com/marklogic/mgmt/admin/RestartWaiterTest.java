@@ -0,0 +1,138 @@
+package com.marklogic.mgmt.admin;
+
+import com.marklogic.mgmt.mock.MockManageServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Set;
+
+/**
+ * Simulates restarts against the /admin/v1/timestamp endpoint of a MockManageServer. After a restart is triggered,
+ * the endpoint keeps returning the old timestamp for 100ms - as MarkLogic may not have begun restarting yet - then
+ * returns a 503 until the restart has finished, and then returns a new timestamp.
+ */
+public class RestartWaiterTest extends Assert {
+
+	private final static long NOT_YET_RESTARTING_MILLIS = 100;
+
+	private MockManageServer server;
+	private AdminManager adminManager;
+
+	private volatile long restartTriggeredAt;
+	private volatile long restartDurationMillis;
+	private volatile String timestampSuffix = "";
+
+	@Before
+	public void setup() {
+		server = new MockManageServer().withHandler("GET", "/admin/v1/timestamp", request -> {
+			String timestamp = "2018-10-01T10:00:00.000000-04:00";
+			if (restartTriggeredAt > 0) {
+				long elapsed = (System.nanoTime() - restartTriggeredAt) / 1000000;
+				if (elapsed >= restartDurationMillis) {
+					timestamp = "2018-10-01T11:00:00.000000-04:00";
+				} else if (elapsed >= NOT_YET_RESTARTING_MILLIS) {
+					return new MockManageServer.MockResponse(503, "text/plain", "");
+				}
+			}
+			return new MockManageServer.MockResponse(200, "text/plain", timestamp + timestampSuffix);
+		}).start();
+		adminManager = server.newAdminManager();
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void shortRestart() {
+		long latency = restartAndMeasureDetectionLatency(300);
+		assertTrue("A short restart should be detected well before the previous fixed 1s interval; latency: " + latency,
+			latency < 500);
+	}
+
+	@Test
+	public void longRestart() {
+		long latency = restartAndMeasureDetectionLatency(5000);
+		assertTrue("The detection latency should be bounded by the maximum delay; latency: " + latency,
+			latency < adminManager.getRestartWaiter().getMaxDelay() + 500);
+	}
+
+	@Test
+	public void restartThatCompletesBeforeFirstCheck() {
+		long latency = restartAndMeasureDetectionLatency(0);
+		assertTrue("latency: " + latency, latency < 200);
+	}
+
+	@Test
+	public void restartThatNeverFinishes() {
+		adminManager.setWaitForRestartTimeout(1000);
+		long start = System.nanoTime();
+		restartDurationMillis = Long.MAX_VALUE;
+		adminManager.invokeActionRequiringRestart(() -> {
+			restartTriggeredAt = System.nanoTime();
+			return true;
+		});
+		long duration = (System.nanoTime() - start) / 1000000;
+		assertTrue("Should have stopped waiting once the timeout was reached; duration: " + duration,
+			duration >= 1000 && duration < 2000);
+	}
+
+	@Test
+	public void newlineTerminatedTimestampIsComparedToTimestampsFromResponse() {
+		timestampSuffix = "\n";
+		restartDurationMillis = 300;
+		restartTriggeredAt = System.nanoTime();
+		adminManager.waitForRestart(new ResponseEntity<>("<restart xmlns=\"http://marklogic.com/manage\">" +
+			"<last-startup host-id=\"1\">2018-10-01T10:00:00.000000-04:00</last-startup></restart>", HttpStatus.ACCEPTED));
+		long elapsed = (System.nanoTime() - restartTriggeredAt) / 1000000;
+		assertTrue("The previous timestamp, returned with a trailing newline, should not have been mistaken for a new " +
+			"one; elapsed: " + elapsed, elapsed >= 300);
+		assertEquals("2018-10-01T11:00:00.000000-04:00", adminManager.getLastRestartTimestamp());
+	}
+
+	@Test
+	public void restartTimestampsFromXmlResponse() {
+		Set<String> timestamps = adminManager.getLastStartupTimestamps("<restart xmlns=\"http://marklogic.com/manage\">" +
+			"<last-startup host-id=\"1\">2018-10-01T10:00:00.000000-04:00</last-startup>" +
+			"<last-startup host-id=\"2\">2018-10-01T10:00:05.000000-04:00</last-startup>" +
+			"<link><kindref>timestamp</kindref><uriref>/admin/v1/timestamp</uriref></link>" +
+			"<message>Check for new timestamp to verify host restart.</message></restart>");
+		assertEquals(2, timestamps.size());
+		assertTrue(timestamps.contains("2018-10-01T10:00:00.000000-04:00"));
+		assertTrue(timestamps.contains("2018-10-01T10:00:05.000000-04:00"));
+	}
+
+	@Test
+	public void restartTimestampsFromJsonResponse() {
+		Set<String> timestamps = adminManager.getLastStartupTimestamps("{\"restart\":{\"last-startup\":[" +
+			"{\"value\":\"2018-10-01T10:00:00.000000-04:00\", \"host-id\":\"1\"}]," +
+			"\"link\":[{\"kindref\":\"timestamp\", \"uriref\":\"/admin/v1/timestamp\"}]," +
+			"\"message\":\"Check for new timestamp to verify host restart.\"}}");
+		assertEquals(1, timestamps.size());
+		assertTrue(timestamps.contains("2018-10-01T10:00:00.000000-04:00"));
+
+		assertTrue(adminManager.getLastStartupTimestamps(null).isEmpty());
+		assertTrue(adminManager.getLastStartupTimestamps("").isEmpty());
+	}
+
+	/**
+	 * @param durationMillis
+	 * @return the number of milliseconds between the restart finishing and the restart being detected
+	 */
+	private long restartAndMeasureDetectionLatency(long durationMillis) {
+		restartDurationMillis = durationMillis;
+		adminManager.invokeActionRequiringRestart(() -> {
+			restartTriggeredAt = System.nanoTime();
+			return true;
+		});
+		long restartFinishedAt = restartTriggeredAt + durationMillis * 1000000;
+		long latency = (System.nanoTime() - restartFinishedAt) / 1000000;
+		assertTrue("The restart should not be considered finished before it actually finished", latency >= 0);
+		return latency;
+	}
+}
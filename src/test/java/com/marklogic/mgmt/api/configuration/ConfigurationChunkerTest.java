@@ -0,0 +1,241 @@
+package com.marklogic.mgmt.api.configuration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.marklogic.mgmt.mock.MockManageServer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConfigurationChunkerTest extends Assert {
+
+	@Test
+	public void configurationWithinLimitsIsNotSplit() {
+		Configurations configs = new Configurations(newConfiguration(5, 5, 5));
+
+		List<ConfigurationChunker.Stage> stages = new ConfigurationChunker(15, 0).buildStages(configs);
+		assertEquals(1, stages.size());
+		assertNull(stages.get(0).getResourceType());
+		assertSame("The configuration should be submitted as-is", configs, stages.get(0).getChunks().get(0));
+
+		assertTrue(new ConfigurationChunker().buildStages(new Configurations(new Configuration())).isEmpty());
+	}
+
+	@Test
+	public void chunksByResourceCount() {
+		Configuration first = newConfiguration(2, 15, 0);
+		Configuration second = new Configuration();
+		second.addRole(newRole(15));
+		for (int i = 0; i < 7; i++) {
+			second.addUser(newUser(i));
+		}
+
+		List<ConfigurationChunker.Stage> stages = new ConfigurationChunker(10, 0).buildStages(new Configurations(first, second));
+		assertEquals(3, stages.size());
+
+		ConfigurationChunker.Stage privileges = stages.get(0);
+		assertEquals("privilege", privileges.getResourceType());
+		assertEquals(1, privileges.getChunks().size());
+		assertTrue(privileges.isConcurrent());
+
+		ConfigurationChunker.Stage roles = stages.get(1);
+		assertEquals("role", roles.getResourceType());
+		assertFalse("Roles can reference other roles, so their chunks must be submitted in order", roles.isConcurrent());
+		assertEquals(2, roles.getChunks().size());
+		List<ObjectNode> firstRoles = roles.getChunks().get(0).getConfigs().get(0).getRoles();
+		List<ObjectNode> secondRoles = roles.getChunks().get(1).getConfigs().get(0).getRoles();
+		assertEquals(10, firstRoles.size());
+		assertEquals(6, secondRoles.size());
+		assertEquals("role-0", firstRoles.get(0).get("role-name").asText());
+		assertEquals("role-10", secondRoles.get(0).get("role-name").asText());
+		assertEquals("Resources from each Configuration should be chunked in the order in which they were added",
+			"role-15", secondRoles.get(5).get("role-name").asText());
+		assertNull(roles.getChunks().get(0).getConfigs().get(0).getUsers());
+
+		ConfigurationChunker.Stage users = stages.get(2);
+		assertEquals("user", users.getResourceType());
+		assertTrue(users.isConcurrent());
+		assertEquals(7, users.getChunks().get(0).getConfigs().get(0).getUsers().size());
+	}
+
+	@Test
+	public void privilegesWithRolesAreSubmittedAgainAfterRoles() {
+		Configuration config = newConfiguration(3, 2, 0);
+		ObjectNode privilege = config.getPrivileges().get(1);
+		privilege.putArray("role").add("role-1");
+
+		List<ConfigurationChunker.Stage> stages = new ConfigurationChunker(2, 0).buildStages(new Configurations(config));
+		assertEquals(3, stages.size());
+
+		List<ObjectNode> privileges = new ArrayList<>();
+		stages.get(0).getChunks().forEach(chunk -> privileges.addAll(chunk.getConfigs().get(0).getPrivileges()));
+		assertEquals("privilege", stages.get(0).getResourceType());
+		assertEquals(3, privileges.size());
+		privileges.forEach(p -> assertFalse("Roles don't exist yet, so privileges are first created without them", p.has("role")));
+		assertTrue("The given privilege should not be modified", privilege.has("role"));
+
+		assertEquals("role", stages.get(1).getResourceType());
+
+		ConfigurationChunker.Stage privilegeRoles = stages.get(2);
+		assertEquals("privilege", privilegeRoles.getResourceType());
+		assertEquals(1, privilegeRoles.getChunks().size());
+		assertEquals(privilege, privilegeRoles.getChunks().get(0).getConfigs().get(0).getPrivileges().get(0));
+		assertEquals(1, privilegeRoles.getChunks().get(0).getConfigs().get(0).getPrivileges().size());
+	}
+
+	@Test
+	public void chunksByByteSize() {
+		Configuration config = new Configuration();
+		for (int i = 0; i < 10; i++) {
+			config.addRole(newRole(i));
+		}
+		ObjectNode largeRole = newRole(10);
+		largeRole.put("description", new String(new char[500]).replace('\0', 'x'));
+		config.addRole(largeRole);
+		config.addRole(newRole(11));
+
+		ConfigurationChunker chunker = new ConfigurationChunker(0, 0);
+		final long roleSize = chunker.measureSize(newRole(0));
+		chunker.setMaxBytesPerChunk(roleSize * 4);
+
+		List<Configurations> chunks = chunker.buildStages(new Configurations(config)).get(0).getChunks();
+		assertEquals(5, chunks.size());
+		assertEquals(4, chunks.get(0).getConfigs().get(0).getRoles().size());
+		assertEquals(4, chunks.get(1).getConfigs().get(0).getRoles().size());
+		assertEquals(2, chunks.get(2).getConfigs().get(0).getRoles().size());
+		assertEquals("A resource larger than the maximum should be in a chunk by itself",
+			largeRole, chunks.get(3).getConfigs().get(0).getRoles().get(0));
+		assertEquals(1, chunks.get(3).getConfigs().get(0).getRoles().size());
+		assertEquals(1, chunks.get(4).getConfigs().get(0).getRoles().size());
+	}
+
+	@Test
+	public void submitTenThousandRolesInChunks() {
+		List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		ManagementFactory.getMemoryPoolMXBeans().stream()
+			.filter(pool -> pool.getType() == MemoryType.HEAP)
+			.forEach(pool -> {
+				pool.resetPeakUsage();
+				heapPools.add(pool);
+			});
+		long usedBefore = heapPools.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+
+		Configurations configs = new Configurations(newConfiguration(50, 10000, 500));
+		ConfigurationChunker chunker = new ConfigurationChunker(1000, 0);
+		chunker.setThreadCount(4);
+		List<ConfigurationChunker.Stage> stages = chunker.buildStages(configs);
+
+		long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+		LoggerFactory.getLogger(getClass()).info(String.format("Peak heap while building and chunking configuration " +
+			"with 10000 roles: %d MB (%d MB before)", peak / (1024 * 1024), usedBefore / (1024 * 1024)));
+		assertEquals(3, stages.size());
+		assertEquals(10, stages.get(1).getChunks().size());
+
+		MockManageServer server = new MockManageServer().start();
+		try {
+			configs.submit(server.newManageClient(), chunker);
+
+			List<JsonNode> submitted = server.getSubmittedConfigurations();
+			assertEquals(12, submitted.size());
+			assertEquals(50, submitted.get(0).path("config").get(0).path("privilege").size());
+			for (int i = 0; i < 10; i++) {
+				JsonNode roles = submitted.get(i + 1).path("config").get(0).path("role");
+				assertEquals(1000, roles.size());
+				assertEquals("Role chunks should be submitted in order", "role-" + (i * 1000),
+					roles.get(0).get("role-name").asText());
+			}
+			assertEquals(500, submitted.get(11).path("config").get(0).path("user").size());
+
+			assertTrue(server.resourceExists("roles", "role-9999"));
+			assertTrue(server.resourceExists("users", "user-499"));
+			assertTrue(server.resourceExists("privileges", "privilege-49"));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void independentChunksAreSubmittedConcurrently() {
+		MockManageServer server = new MockManageServer().start();
+		try {
+			server.withLatency("POST", "/manage/v3", 200);
+			ConfigurationChunker chunker = new ConfigurationChunker(10, 0);
+			chunker.setThreadCount(4);
+
+			long start = System.currentTimeMillis();
+			new Configurations(newConfiguration(0, 0, 40)).submit(server.newManageClient(), chunker);
+			long duration = System.currentTimeMillis() - start;
+
+			assertEquals(4, server.getRequestCount("POST", "/manage/v3"));
+			assertTrue("The 4 chunks of users should have been submitted at the same time; duration: " + duration,
+				duration < 800);
+			assertEquals(40, server.getResourceNames("users").stream().filter(name -> name.startsWith("user-")).count());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void failedChunkStopsLaterStages() {
+		MockManageServer server = new MockManageServer().start();
+		try {
+			server.failRequests("POST", "/manage/v3", 400, 1);
+			try {
+				new Configurations(newConfiguration(0, 20, 20)).submit(server.newManageClient(), new ConfigurationChunker(10, 0));
+				fail("Expected the failure of the first chunk to be thrown");
+			} catch (RuntimeException ex) {
+				// Expected
+			}
+			assertEquals("Role chunks are submitted in order, so no chunk should follow the failed one",
+				1, server.getRequestCount("POST", "/manage/v3"));
+			assertFalse(server.resourceExists("users", "user-0"));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void resourceSummary() {
+		assertEquals("6 resources (privilege: 1, role: 2, user: 3)", new Configurations(newConfiguration(1, 2, 3)).getResourceSummary());
+		assertFalse(new Configurations(newConfiguration(1, 2, 3)).getWireJson().contains("resource-summary"));
+	}
+
+	private Configuration newConfiguration(int privilegeCount, int roleCount, int userCount) {
+		Configuration config = new Configuration();
+		for (int i = 0; i < privilegeCount; i++) {
+			ObjectNode privilege = JsonNodeFactory.instance.objectNode();
+			privilege.put("privilege-name", "privilege-" + i);
+			privilege.put("action", "urn:privilege-" + i);
+			privilege.put("kind", "execute");
+			config.addPrivilege(privilege);
+		}
+		for (int i = 0; i < roleCount; i++) {
+			config.addRole(newRole(i));
+		}
+		for (int i = 0; i < userCount; i++) {
+			config.addUser(newUser(i));
+		}
+		return config;
+	}
+
+	private ObjectNode newRole(int index) {
+		ObjectNode role = JsonNodeFactory.instance.objectNode();
+		role.put("role-name", "role-" + index);
+		role.putArray("role").add("rest-reader");
+		return role;
+	}
+
+	private ObjectNode newUser(int index) {
+		ObjectNode user = JsonNodeFactory.instance.objectNode();
+		user.put("user-name", "user-" + index);
+		user.putArray("role").add("role-" + index);
+		return user;
+	}
+}
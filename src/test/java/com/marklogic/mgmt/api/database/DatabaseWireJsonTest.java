@@ -0,0 +1,107 @@
+package com.marklogic.mgmt.api.database;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Populates every property of a Database, including nested objects and lists, and verifies that the compact JSON sent
+ * to MarkLogic is semantically identical to the pretty-printed JSON that was previously sent.
+ */
+public class DatabaseWireJsonTest extends Assert {
+
+	private int counter = 1;
+
+	@Test
+	public void wireJsonMatchesDisplayJson() throws Exception {
+		Database db = new Database();
+		populate(db, 0);
+
+		String displayJson = db.getJson();
+		String wireJson = db.getWireJson();
+		assertTrue("The display JSON should still be pretty-printed", displayJson.contains("\n"));
+		assertFalse("The wire JSON should not be indented", wireJson.contains("\n"));
+		assertTrue(wireJson.length() < displayJson.length());
+
+		ObjectMapper mapper = ObjectMapperFactory.getObjectMapper();
+		JsonNode expected = mapper.readTree(displayJson);
+		assertEquals("Expected every property to be populated", 96, expected.size());
+		assertEquals(expected, mapper.readTree(wireJson));
+		assertEquals(expected, ObjectMapperFactory.getWireObjectMapper().readTree(wireJson));
+	}
+
+	@Test
+	public void toObjectNode() throws Exception {
+		Database db = new Database();
+		populate(db, 0);
+
+		ObjectNode node = db.toObjectNode();
+		assertEquals(db.getWireJson(), ObjectMapperFactory.getWireWriter().writeValueAsString(node));
+		assertEquals(ObjectMapperFactory.getObjectMapper().readTree(db.getJson()),
+			ObjectMapperFactory.getObjectMapper().readTree(node.toString()));
+	}
+
+	@Test
+	public void customObjectMapper() {
+		Database db = new Database();
+		db.setDatabaseName("my-db");
+		db.setObjectMapper(new ObjectMapper());
+		assertEquals("A custom ObjectMapper should still be used for the wire JSON",
+			db.getJson(), db.getWireJson());
+		assertTrue(db.getWireJson().contains("\"databaseName\":\"my-db\""));
+	}
+
+	private void populate(Object bean, int depth) throws Exception {
+		BeanWrapper wrapper = new BeanWrapperImpl(bean);
+		for (PropertyDescriptor pd : wrapper.getPropertyDescriptors()) {
+			if (pd.getReadMethod() == null || pd.getWriteMethod() == null ||
+				pd.getReadMethod().isAnnotationPresent(JsonIgnore.class) ||
+				!pd.getReadMethod().getDeclaringClass().getPackage().getName().startsWith("com.marklogic.mgmt.api.database")) {
+				continue;
+			}
+			Object value = buildValue(pd.getName(), pd.getReadMethod().getGenericReturnType(), depth);
+			if (value != null) {
+				wrapper.setPropertyValue(pd.getName(), value);
+			}
+		}
+	}
+
+	private Object buildValue(String name, Type type, int depth) throws Exception {
+		if (type instanceof ParameterizedType) {
+			Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+			List<Object> list = new ArrayList<>();
+			list.add(buildValue(name, elementType, depth));
+			list.add(buildValue(name, elementType, depth));
+			return list;
+		}
+		Class<?> clazz = (Class<?>) type;
+		if (String.class.equals(clazz)) {
+			return name + "-" + counter++;
+		} else if (Integer.class.equals(clazz) || int.class.equals(clazz)) {
+			return counter++;
+		} else if (Long.class.equals(clazz) || long.class.equals(clazz)) {
+			return Integer.MAX_VALUE + (long) counter++;
+		} else if (Double.class.equals(clazz) || double.class.equals(clazz)) {
+			return counter++ + 0.25;
+		} else if (Boolean.class.equals(clazz) || boolean.class.equals(clazz)) {
+			return counter++ % 2 == 0;
+		} else if (depth < 4 && clazz.getPackage() != null && clazz.getPackage().getName().startsWith("com.marklogic.mgmt.api")) {
+			Object child = clazz.newInstance();
+			populate(child, depth + 1);
+			return child;
+		}
+		return null;
+	}
+}
@@ -29,4 +29,22 @@ public class SortDatabasesTest extends Assert {
 		assertEquals("db2", sortedNames[1]);
 		assertEquals("db1", sortedNames[2]);
 	}
+
+	@Test
+	public void layers() {
+		Database triggersDb = new Database(null, "triggers-db");
+		Database schemasDb = new Database(null, "schemas-db");
+		Database contentDb = new Database(null, "content-db");
+		Database otherDb = new Database(null, "other-db");
+		schemasDb.setTriggersDatabase(triggersDb.getDatabaseName());
+		contentDb.setSchemaDatabase(schemasDb.getDatabaseName());
+		contentDb.setTriggersDatabase(triggersDb.getDatabaseName());
+
+		List<List<String>> layers = new DatabaseSorter().sortDatabasesIntoLayers(
+			Arrays.asList(contentDb, schemasDb, otherDb, triggersDb));
+		assertEquals(3, layers.size());
+		assertEquals(Arrays.asList("triggers-db", "other-db"), layers.get(0));
+		assertEquals(Arrays.asList("schemas-db"), layers.get(1));
+		assertEquals(Arrays.asList("content-db"), layers.get(2));
+	}
 }
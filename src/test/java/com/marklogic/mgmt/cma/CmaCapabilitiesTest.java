@@ -0,0 +1,150 @@
+package com.marklogic.mgmt.cma;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.command.Command;
+import com.marklogic.appdeployer.command.appservers.DeployOtherServersCommand;
+import com.marklogic.appdeployer.command.databases.DeployOtherDatabasesCommand;
+import com.marklogic.appdeployer.command.groups.DeployGroupsCommand;
+import com.marklogic.appdeployer.command.restapis.DeployRestApiServersCommand;
+import com.marklogic.appdeployer.command.security.DeployAmpsCommand;
+import com.marklogic.appdeployer.command.security.DeployPrivilegesCommand;
+import com.marklogic.appdeployer.command.security.DeployRolesCommand;
+import com.marklogic.appdeployer.command.security.DeployUsersCommand;
+import com.marklogic.appdeployer.impl.SimpleAppDeployer;
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.api.configuration.Configuration;
+import com.marklogic.mgmt.api.configuration.Configurations;
+import com.marklogic.mgmt.mock.MockManageServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class CmaCapabilitiesTest extends Assert {
+
+	private MockManageServer server;
+	private ManageClient manageClient;
+
+	@Before
+	public void setup() {
+		server = new MockManageServer("host1").start();
+		manageClient = server.newManageClient();
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void endpointIsProbedOnceDuringDeployment() {
+		AppConfig appConfig = new AppConfig(new File("src/test/resources/sample-app"));
+		appConfig.setName("sample-app");
+		appConfig.setRestPort(8540);
+		appConfig.getCustomTokens().put("%%GROUP%%", "Default");
+		appConfig.getCmaConfig().enableAll();
+
+		Command[] commands = new Command[]{
+			new DeployRolesCommand(), new DeployUsersCommand(), new DeployPrivilegesCommand(), new DeployAmpsCommand(),
+			new DeployGroupsCommand(), new DeployRestApiServersCommand(), new DeployOtherDatabasesCommand(),
+			new DeployOtherServersCommand()
+		};
+		new SimpleAppDeployer(manageClient, server.newAdminManager(), commands).deploy(appConfig);
+
+		assertEquals("Several commands use CMA, but the endpoint should only have been probed once",
+			1, countProbes());
+		assertTrue(server.resourceExists("roles", "sample-app-role1"));
+		assertTrue(server.resourceExists("servers", "sample-app-odbc"));
+	}
+
+	@Test
+	public void capabilitiesAreMemoizedUntilRefreshed() {
+		CmaCapabilities capabilities = manageClient.getCmaCapabilities();
+		assertTrue(capabilities.isEndpointAvailable());
+		assertEquals("localhost", capabilities.getHost());
+		assertEquals("Only the endpoint should have been probed", 1, server.getRequestCount());
+
+		assertSame(capabilities, manageClient.getCmaCapabilities());
+		assertEquals(1, countProbes());
+
+		CmaCapabilities refreshed = manageClient.refreshCmaCapabilities();
+		assertNotSame(capabilities, refreshed);
+		assertTrue(refreshed.isEndpointAvailable());
+		assertEquals(2, countProbes());
+	}
+
+	@Test
+	public void concurrentCallersShareOneProbe() throws Exception {
+		server.withLatency("POST", "/manage/v3", 200);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<CmaCapabilities>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> manageClient.getCmaCapabilities()));
+			}
+			CmaCapabilities capabilities = futures.get(0).get();
+			for (Future<CmaCapabilities> future : futures) {
+				assertSame(capabilities, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, countProbes());
+	}
+
+	@Test
+	public void failedProbeIsNotMemoized() {
+		server.failRequests("POST", "/manage/v3", MockManageServer.CLOSE_CONNECTION, 10);
+		manageClient.getRetryPolicy().setMaxAttempts(1);
+		try {
+			manageClient.getCmaCapabilities();
+			fail("Expected the probe to fail");
+		} catch (RuntimeException ex) {
+			// Expected
+		}
+
+		server.clearBehaviors();
+		assertTrue("The failure should not have been memoized", manageClient.getCmaCapabilities().isEndpointAvailable());
+	}
+
+	@Test
+	public void unavailableEndpoint() {
+		server.failRequests("POST", "/manage/v3", 404, 1);
+		CmaCapabilities capabilities = manageClient.getCmaCapabilities();
+		assertFalse(capabilities.isEndpointAvailable());
+		assertSame(capabilities, manageClient.getCmaCapabilities());
+	}
+
+	@Test
+	public void notFoundFromCmaRequestInvalidatesCapabilities() {
+		CmaCapabilities capabilities = manageClient.getCmaCapabilities();
+
+		server.failRequests("POST", "/manage/v3", 404, 1);
+		Configuration config = new Configuration();
+		config.addRole(JsonNodeFactory.instance.objectNode().put("role-name", "my-role"));
+		try {
+			new Configurations(config).submit(manageClient);
+			fail("Expected the 404 to be thrown");
+		} catch (HttpClientErrorException ex) {
+			assertEquals(404, ex.getRawStatusCode());
+		}
+
+		CmaCapabilities afterNotFound = manageClient.getCmaCapabilities();
+		assertNotSame("A 404 should have caused the endpoint to be probed again", capabilities, afterNotFound);
+		assertTrue(afterNotFound.isEndpointAvailable());
+		assertEquals(2, countProbes());
+	}
+
+	private long countProbes() {
+		return server.getSubmittedConfigurations().stream().filter(payload -> !payload.has("config")).count();
+	}
+}
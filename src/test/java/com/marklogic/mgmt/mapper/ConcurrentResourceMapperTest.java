@@ -0,0 +1,223 @@
+package com.marklogic.mgmt.mapper;
+
+import com.marklogic.mgmt.api.API;
+import com.marklogic.mgmt.api.Resource;
+import com.marklogic.mgmt.api.database.Database;
+import com.marklogic.mgmt.api.forest.Forest;
+import com.marklogic.mgmt.api.server.HttpServer;
+import com.marklogic.mgmt.api.server.OdbcServer;
+import com.marklogic.mgmt.api.server.Server;
+import com.marklogic.mgmt.api.server.XdbcServer;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads Database, Server and Forest payloads - both XML and JSON - from many threads at once via a single
+ * DefaultResourceMapper, and verifies that every resource is read correctly.
+ */
+public class ConcurrentResourceMapperTest extends Assert {
+
+	private final static int THREAD_COUNT = 16;
+	private final static int ITERATIONS = 500;
+
+	@Test
+	public void concurrentReads() throws Exception {
+		final DefaultResourceMapper mapper = new DefaultResourceMapper(new API(null, ObjectMapperFactory.getObjectMapper()));
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int t = 0; t < THREAD_COUNT; t++) {
+				final int threadIndex = t;
+				futures.add(executor.submit((Callable<Integer>) () -> {
+					startSignal.await();
+					int count = 0;
+					for (int i = 0; i < ITERATIONS; i++) {
+						readAndVerify(mapper, threadIndex * ITERATIONS + i);
+						count++;
+					}
+					return count;
+				}));
+			}
+			startSignal.countDown();
+
+			int total = 0;
+			for (Future<Integer> future : futures) {
+				total += future.get(60, TimeUnit.SECONDS);
+			}
+			assertEquals(THREAD_COUNT * ITERATIONS, total);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Reading an HTTP server first used to cache its JAXBContext under Server.class, which then caused an XDBC or ODBC
+	 * server payload to be unmarshalled with the HTTP server context.
+	 */
+	@Test
+	public void serverTypesAreCachedSeparately() {
+		DefaultResourceMapper mapper = new DefaultResourceMapper();
+		assertTrue(mapper.readResource(serverXml("http", 1), Server.class) instanceof HttpServer);
+
+		Server server = mapper.readResource(serverXml("xdbc", 2), Server.class);
+		assertTrue(server instanceof XdbcServer);
+		assertEquals("server-2", server.getServerName());
+
+		server = mapper.readResource(serverXml("odbc", 3), Server.class);
+		assertTrue(server instanceof OdbcServer);
+		assertEquals("server-3", server.getServerName());
+	}
+
+	@Test
+	public void invalidPayloadDoesNotBreakSubsequentReads() {
+		DefaultResourceMapper mapper = new DefaultResourceMapper();
+		try {
+			mapper.readResource("<database-properties xmlns=\"http://marklogic.com/manage/database/properties\">", Database.class);
+			fail("Expected the incomplete payload to fail");
+		} catch (RuntimeException ex) {
+			assertTrue(ex.getMessage().startsWith("Unable to read resource payload"));
+		}
+		assertEquals("db-1", mapper.readResource(databaseXml(1), Database.class).getDatabaseName());
+	}
+
+	@Test
+	public void writeAndReadXml() {
+		DefaultResourceMapper mapper = new DefaultResourceMapper();
+		Forest forest = mapper.readResource(forestXml(5), Forest.class);
+		String xml = mapper.writeResourceAsXml(forest);
+		Forest copy = mapper.readResource(xml, Forest.class);
+		assertEquals("forest-5", copy.getForestName());
+		assertEquals("host-5", copy.getHost());
+		assertEquals("db-5", copy.getDatabase());
+	}
+
+	/**
+	 * Loads the classes in the package of Forest - including its package-info, which defines the namespace - via a
+	 * separate ClassLoader, as a build tool's plugin ClassLoader would, and verifies that mapping a Forest doesn't keep
+	 * that ClassLoader from being garbage collected.
+	 */
+	@Test
+	public void classLoaderOfResourceClassCanBeCollected() throws Exception {
+		WeakReference<ClassLoader> loaderRef = mapWithSeparateClassLoader();
+		for (int i = 0; i < 20 && loaderRef.get() != null; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		assertNull("The ClassLoader of the resource class should have been collected", loaderRef.get());
+	}
+
+	private WeakReference<ClassLoader> mapWithSeparateClassLoader() throws Exception {
+		ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+			@Override
+			protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+				if (!name.startsWith(Forest.class.getPackage().getName() + ".")) {
+					return super.loadClass(name, resolve);
+				}
+				synchronized (getClassLoadingLock(name)) {
+					Class<?> c = findLoadedClass(name);
+					return c != null ? c : findClass(name);
+				}
+			}
+
+			// Package annotations are read by loading package-info via findClass
+			@Override
+			protected Class<?> findClass(String name) throws ClassNotFoundException {
+				try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+					if (in == null) {
+						throw new ClassNotFoundException(name);
+					}
+					byte[] bytes = in.readAllBytes();
+					return defineClass(name, bytes, 0, bytes.length);
+				} catch (IOException ex) {
+					throw new ClassNotFoundException(name, ex);
+				}
+			}
+		};
+		Class<? extends Resource> forestClass = loader.loadClass(Forest.class.getName()).asSubclass(Resource.class);
+		assertNotSame(Forest.class, forestClass);
+
+		DefaultResourceMapper mapper = new DefaultResourceMapper();
+		Resource forest = mapper.readResource(forestXml(1), forestClass);
+		assertTrue(mapper.writeResourceAsXml(forest).contains("forest-1"));
+		return new WeakReference<>(loader);
+	}
+
+	private void readAndVerify(DefaultResourceMapper mapper, int index) {
+		switch (index % 8) {
+			case 0:
+				assertEquals("db-" + index, mapper.readResource(databaseXml(index), Database.class).getDatabaseName());
+				break;
+			case 1:
+				assertEquals("db-" + index, mapper.readResource(
+					"{\"database-name\":\"db-" + index + "\"}", Database.class).getDatabaseName());
+				break;
+			case 2:
+				verifyServer(mapper.readResource(serverXml("http", index), Server.class), HttpServer.class, index);
+				break;
+			case 3:
+				verifyServer(mapper.readResource(serverXml("xdbc", index), Server.class), XdbcServer.class, index);
+				break;
+			case 4:
+				verifyServer(mapper.readResource(serverXml("odbc", index), Server.class), OdbcServer.class, index);
+				break;
+			case 5:
+				Server server = mapper.readResource("{\"server-name\":\"server-" + index + "\", \"port\":" + index + "}", Server.class);
+				assertEquals("server-" + index, server.getServerName());
+				assertEquals(Integer.valueOf(index), server.getPort());
+				break;
+			case 6:
+				Forest forest = mapper.readResource(forestXml(index), Forest.class);
+				assertEquals("forest-" + index, forest.getForestName());
+				assertEquals("host-" + index, forest.getHost());
+				assertEquals("db-" + index, forest.getDatabase());
+				break;
+			default:
+				forest = mapper.readResource("{\"forest-name\":\"forest-" + index + "\", \"host\":\"host-" + index + "\"}", Forest.class);
+				assertEquals("forest-" + index, forest.getForestName());
+				assertEquals("host-" + index, forest.getHost());
+		}
+	}
+
+	private void verifyServer(Server server, Class<? extends Server> expectedType, int index) {
+		assertEquals(expectedType, server.getClass());
+		assertEquals("server-" + index, server.getServerName());
+		assertEquals(Integer.valueOf(index), server.getPort());
+	}
+
+	private String databaseXml(int index) {
+		return "<database-properties xmlns=\"http://marklogic.com/manage/database/properties\">" +
+			"<database-name>db-" + index + "</database-name>" +
+			"<triggers-database>triggers-" + index + "</triggers-database>" +
+			"</database-properties>";
+	}
+
+	private String serverXml(String type, int index) {
+		return "<" + type + "-server-properties xmlns=\"http://marklogic.com/manage\">" +
+			"<server-name>server-" + index + "</server-name>" +
+			"<group-name>Default</group-name>" +
+			"<port>" + index + "</port>" +
+			"</" + type + "-server-properties>";
+	}
+
+	private String forestXml(int index) {
+		return "<forest-properties xmlns=\"http://marklogic.com/manage\">" +
+			"<forest-name>forest-" + index + "</forest-name>" +
+			"<host>host-" + index + "</host>" +
+			"<database>db-" + index + "</database>" +
+			"</forest-properties>";
+	}
+}
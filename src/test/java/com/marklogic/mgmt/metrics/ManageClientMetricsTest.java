@@ -0,0 +1,186 @@
+package com.marklogic.mgmt.metrics;
+
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.command.Command;
+import com.marklogic.appdeployer.command.CommandContext;
+import com.marklogic.appdeployer.impl.SimpleAppDeployer;
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.ManageConfig;
+import com.marklogic.mgmt.admin.AdminManager;
+import com.marklogic.mgmt.mock.MockManageServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.URI;
+
+/**
+ * Uses a MockManageServer that delays each response by the number of milliseconds in the "delay" query parameter,
+ * which allows for asserting on the percentiles of the recorded latencies.
+ */
+public class ManageClientMetricsTest extends Assert {
+
+	private final static String RESPONSE = "{\"database-name\":\"example\"}";
+
+	private MockManageServer server;
+	private ManageClient manageClient;
+	private DefaultManageClientMetrics metrics;
+
+	@Before
+	public void setup() {
+		server = new MockManageServer().withHandler(null, "/manage/v2/.*", request -> {
+			String delay = request.getParam("delay");
+			if (delay != null) {
+				try {
+					Thread.sleep(Long.parseLong(delay));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return new MockManageServer.MockResponse(request.getPath().contains("missing") ? 404 : 200,
+				"application/json", RESPONSE);
+		}).start();
+
+		ManageConfig config = new ManageConfig("localhost", server.getPort(), "admin", "admin");
+		config.setRecordMetrics(true);
+		config.getRetryPolicy().setInitialDelay(10);
+		manageClient = new ManageClient(config);
+		metrics = (DefaultManageClientMetrics) manageClient.getManageClientMetrics();
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void latencyPercentiles() {
+		for (int i = 0; i < 50; i++) {
+			long delay = i % 10 == 9 ? 200 : 10;
+			manageClient.getJson("/manage/v2/databases/db-" + i + "/properties?delay=" + delay);
+		}
+
+		RequestStats stats = metrics.getStats("GET", "/manage/v2/databases/{id}/properties");
+		assertNotNull("Requests for different databases should be grouped together", stats);
+		assertEquals(50, stats.getCount());
+		assertEquals(0, stats.getErrorCount());
+		assertEquals(50 * RESPONSE.length(), stats.getResponseBytes());
+
+		LogBucketHistogram h = stats.getLatencyMicros();
+		assertBetween("p50", h.getValueAtPercentile(50), 10000, 60000);
+		assertBetween("p90", h.getValueAtPercentile(90), 10000, 60000);
+		assertBetween("p99", h.getValueAtPercentile(99), 200000, 280000);
+		assertBetween("max", h.getMax(), 200000, 280000);
+		assertTrue(h.getValueAtPercentile(99) <= h.getMax());
+
+		String summary = metrics.getSummary();
+		assertTrue(summary, summary.startsWith("Manage API requests: 50 requests"));
+		assertTrue(summary, summary.contains("GET /manage/v2/databases/{id}/properties"));
+	}
+
+	@Test
+	public void requestBytesAndErrors() {
+		String payload = "{\"database-name\":\"new-db\"}";
+		manageClient.postJson("/manage/v2/databases", payload);
+		try {
+			manageClient.putJson("/manage/v2/databases/missing/properties", payload);
+			fail("Expected a 404");
+		} catch (HttpClientErrorException ex) {
+			assertEquals(404, ex.getRawStatusCode());
+		}
+
+		RequestStats post = metrics.getStats("POST", "/manage/v2/databases");
+		assertEquals(1, post.getCount());
+		assertEquals(payload.length(), post.getRequestBytes());
+		assertEquals(0, post.getErrorCount());
+
+		RequestStats put = metrics.getStats("PUT", "/manage/v2/databases/{id}/properties");
+		assertEquals(1, put.getCount());
+		assertEquals(1, put.getErrorCount());
+		assertTrue(metrics.getSummary().contains("2 requests"));
+		assertTrue(metrics.getSummary().contains("1 errors"));
+	}
+
+	@Test
+	public void connectionFailure() {
+		server.stop();
+		try {
+			manageClient.getJson("/manage/v2/forests/some-forest");
+			fail("Expected the request to fail since the server was stopped");
+		} catch (ResourceAccessException ex) {
+			// Expected
+		}
+		RequestStats stats = metrics.getStats("GET", "/manage/v2/forests/{id}");
+		assertEquals(1, stats.getCount());
+		assertEquals(1, stats.getErrorCount());
+	}
+
+	@Test
+	public void metricsAreResetForEachDeployment() {
+		manageClient.getJson("/manage/v2/servers/before-deploy/properties");
+		Command command = new Command() {
+			@Override
+			public void execute(CommandContext context) {
+				context.getManageClient().getJson("/manage/v2/databases/my-db/properties");
+			}
+
+			@Override
+			public Integer getExecuteSortOrder() {
+				return 1;
+			}
+		};
+
+		new SimpleAppDeployer(manageClient, new AdminManager(), command).deploy(new AppConfig());
+		assertNull(metrics.getStats("GET", "/manage/v2/servers/{id}/properties"));
+		assertEquals(1, metrics.getStats("GET", "/manage/v2/databases/{id}/properties").getCount());
+	}
+
+	@Test
+	public void disableMetrics() {
+		manageClient.setManageClientMetrics(null);
+		manageClient.getJson("/manage/v2/databases/db/properties");
+		assertNull(metrics.getStats("GET", "/manage/v2/databases/{id}/properties"));
+		assertFalse(manageClient.getRestTemplate().getInterceptors().stream()
+			.anyMatch(interceptor -> interceptor instanceof ManageClientMetricsInterceptor));
+	}
+
+	@Test
+	public void pathTemplates() {
+		ManageClientMetricsInterceptor interceptor = new ManageClientMetricsInterceptor(metrics);
+		assertEquals("/manage/v2/databases", interceptor.buildPathTemplate(URI.create("/manage/v2/databases?format=json")));
+		assertEquals("/manage/v2/databases/{id}/view-schemas/{id}/views/{id}",
+			interceptor.buildPathTemplate(URI.create("/manage/v2/databases/db/view-schemas/schema/views/view")));
+		assertEquals("/manage/v2/roles/{id}/properties", interceptor.buildPathTemplate(URI.create("/manage/v2/roles/my%20role/properties")));
+		assertEquals("/manage/v3", interceptor.buildPathTemplate(URI.create("/manage/v3")));
+		assertEquals("/admin/v1/timestamp", interceptor.buildPathTemplate(URI.create("/admin/v1/timestamp")));
+	}
+
+	@Test
+	public void histogramPrecision() {
+		LogBucketHistogram h = new LogBucketHistogram();
+		assertEquals(0, h.getValueAtPercentile(50));
+		for (long value = 1; value <= 100000; value++) {
+			h.recordValue(value);
+		}
+		for (double p : new double[]{1, 10, 50, 90, 99, 99.9}) {
+			long expected = (long) (p * 1000);
+			long actual = h.getValueAtPercentile(p);
+			assertTrue("p" + p + ": " + actual, actual >= expected && actual <= expected * 17 / 16);
+		}
+		assertEquals(100000, h.getValueAtPercentile(100));
+		assertEquals(1, h.getMin());
+		assertEquals(50000.5, h.getMean(), 0.001);
+
+		for (int i = 0; i < 960; i++) {
+			assertEquals(i, LogBucketHistogram.bucketIndex(LogBucketHistogram.highestEquivalentValue(i)));
+		}
+		assertEquals(959, LogBucketHistogram.bucketIndex(Long.MAX_VALUE));
+	}
+
+	private void assertBetween(String label, long value, long min, long max) {
+		assertTrue(label + " should be between " + min + " and " + max + " but was " + value, value >= min && value <= max);
+	}
+}
@@ -0,0 +1,1317 @@
+package com.marklogic.mgmt.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.ManageConfig;
+import com.marklogic.mgmt.ParsedPayload;
+import com.marklogic.mgmt.admin.AdminConfig;
+import com.marklogic.mgmt.admin.AdminManager;
+import com.marklogic.mgmt.util.ObjectMapperFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Local stand-in for the parts of the Manage API, the Admin API, and the REST API instance endpoint that are used when
+ * deploying an application, so that deployments can be run and measured without a MarkLogic cluster.
+ * <p>
+ * Resources are kept in memory. Paths under /manage/v2 are assumed to alternate between a resource type and a
+ * resource name or ID - e.g. /manage/v2/databases/Documents/properties - so any resource type can be listed, created,
+ * read, updated, and deleted, including ones scoped to a database such as triggers. A few resource types have
+ * additional behavior to mimic MarkLogic: forests are attached to databases, servers and tasks are scoped to a group,
+ * and updating a group's cache sizes causes a restart. Configurations submitted to /manage/v3 are applied as though
+ * each resource had been saved individually.
+ * </p>
+ * <p>
+ * Each endpoint can be configured to respond slowly or to fail a number of times via withLatency and failRequests,
+ * and every request is recorded so that a test can assert on how many requests a deployment made, how many of them
+ * were in flight at the same time, and how many connections they used. Requests for paths that the server doesn't
+ * know how to handle receive a 404 and are also available via getUnhandledRequests. A test that needs a response the
+ * server doesn't provide - e.g. a scripted sequence of restart timestamps - can add its own via withHandler.
+ * </p>
+ */
+public class MockManageServer extends LoggingObject {
+
+	/**
+	 * Used as a status for failRequests to close the connection without sending a response.
+	 */
+	public final static int CLOSE_CONNECTION = -1;
+
+	private final static String MANAGE_PATH = "/manage/v2";
+	private final static String MANAGE_NAMESPACE = "http://marklogic.com/manage";
+	private final static String DEFAULT_GROUP = "Default";
+
+	// Resource types whose ID field is not the singular form of the type plus "-name"
+	private final static Map<String, String> ID_FIELDS = new HashMap<>();
+
+	static {
+		ID_FIELDS.put("amps", "local-name");
+		ID_FIELDS.put("axes", "axis-name");
+		ID_FIELDS.put("certificate-templates", "template-name");
+		ID_FIELDS.put("mimetypes", "name");
+		ID_FIELDS.put("protected-paths", "path-expression");
+		ID_FIELDS.put("query-rolesets", "query-roleset-id");
+		ID_FIELDS.put("tasks", "task-id");
+	}
+
+	// Resource types in a /manage/v3 configuration, mapped to their resource type in /manage/v2
+	private final static Map<String, String> CMA_TYPES = new LinkedHashMap<>();
+
+	static {
+		Arrays.asList("group", "role", "user", "privilege", "amp", "protected-path", "query-roleset", "database",
+			"forest", "server").forEach(type -> CMA_TYPES.put(type, type + "s"));
+	}
+
+	private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+	private final String username;
+	private final String password;
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	// Keyed on the path of each resource type - e.g. /manage/v2/databases - and then on the name of each resource
+	private final Map<String, Map<String, MockResource>> collections = new LinkedHashMap<>();
+	private final ObjectNode clusterProperties = JsonNodeFactory.instance.objectNode();
+	private final AtomicLong idSequence = new AtomicLong(1000000000000L);
+	private String lastStartup = "2020-01-01T00:00:00.000000-00:00";
+	private String version = "10.0-4";
+
+	private final List<EndpointBehavior> behaviors = new CopyOnWriteArrayList<>();
+	private final List<EndpointHandler> handlers = new CopyOnWriteArrayList<>();
+	private final List<String> requests = new CopyOnWriteArrayList<>();
+	private final Set<String> connections = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger inFlightCount = new AtomicInteger();
+	private final AtomicInteger maxInFlightCount = new AtomicInteger();
+	private final List<String> unhandledRequests = new CopyOnWriteArrayList<>();
+	private final List<JsonNode> submittedConfigurations = new CopyOnWriteArrayList<>();
+
+	public MockManageServer() {
+		this("localhost");
+	}
+
+	/**
+	 * @param hostNames the hosts in the mock cluster, all of which are in the Default group
+	 */
+	public MockManageServer(String... hostNames) {
+		this.username = "admin";
+		this.password = "admin";
+		initializeCluster(hostNames);
+	}
+
+	/**
+	 * Creates the resources that exist in a new MarkLogic cluster and that a deployment is likely to reference.
+	 *
+	 * @param hostNames
+	 */
+	protected void initializeCluster(String... hostNames) {
+		clusterProperties.put("cluster-name", "mock-cluster");
+		addResource("groups", "{\"group-name\":\"Default\"}");
+		addResource("task-servers", "{\"task-server-name\":\"TaskServer\", \"threads\":16}");
+		for (String hostName : hostNames) {
+			addHost(hostName);
+		}
+		for (String name : new String[]{"Documents", "Security", "Modules", "Schemas", "Triggers", "App-Services",
+			"Meters", "Extensions", "Fab", "Last-Login"}) {
+			addResource("databases", format("{\"database-name\":\"%s\"}", name));
+			addResource("forests", format("{\"forest-name\":\"%s\", \"host\":\"%s\", \"database\":\"%s\"}",
+				name, hostNames[0], name));
+		}
+		addResource("servers", "{\"server-name\":\"Admin\", \"group-name\":\"Default\", \"port\":8001, \"server-type\":\"http\"}");
+		addResource("servers", "{\"server-name\":\"Manage\", \"group-name\":\"Default\", \"port\":8002, \"server-type\":\"http\"}");
+		addResource("servers", "{\"server-name\":\"App-Services\", \"group-name\":\"Default\", \"port\":8000, " +
+			"\"server-type\":\"http\", \"content-database\":\"Documents\", \"modules-database\":\"Modules\"}");
+		for (String role : new String[]{"admin", "manage-admin", "manage-user", "security", "rest-admin",
+			"rest-reader", "rest-writer", "rest-extension-user", "qconsole-user", "app-user"}) {
+			addResource("roles", format("{\"role-name\":\"%s\"}", role));
+		}
+		addResource("users", "{\"user-name\":\"admin\", \"role\":[\"admin\"]}");
+		addResource("users", "{\"user-name\":\"nobody\"}");
+	}
+
+	public MockManageServer start() {
+		try {
+			server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		} catch (IOException ex) {
+			throw new RuntimeException("Unable to start mock Manage server: " + ex.getMessage(), ex);
+		}
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+		if (logger.isInfoEnabled()) {
+			logger.info("Started mock Manage server on port " + getPort());
+		}
+		return this;
+	}
+
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+		}
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return a ManageClient for this server that waits only briefly before retrying a failed request
+	 */
+	public ManageClient newManageClient() {
+		ManageConfig config = new ManageConfig("localhost", getPort(), username, password);
+		config.getRetryPolicy().setInitialDelay(10);
+		config.getRetryPolicy().setMaxDelay(50);
+		return new ManageClient(config);
+	}
+
+	public AdminManager newAdminManager() {
+		return new AdminManager(new AdminConfig("localhost", getPort(), username, password));
+	}
+
+	/**
+	 * Delays every matching request by the given number of milliseconds before it is handled.
+	 *
+	 * @param method    the HTTP method to match, or null to match any method
+	 * @param pathRegex regular expression that the request path, without its query string, must match
+	 * @param millis
+	 * @return
+	 */
+	public MockManageServer withLatency(String method, String pathRegex, long millis) {
+		behaviors.add(new EndpointBehavior(method, pathRegex, millis, 0, 0));
+		return this;
+	}
+
+	/**
+	 * Fails the next count matching requests with the given status code, or by closing the connection if the status
+	 * is CLOSE_CONNECTION. A failed request has no effect on the resources in the server.
+	 *
+	 * @param method    the HTTP method to match, or null to match any method
+	 * @param pathRegex regular expression that the request path, without its query string, must match
+	 * @param status
+	 * @param count
+	 * @return
+	 */
+	public MockManageServer failRequests(String method, String pathRegex, int status, int count) {
+		behaviors.add(new EndpointBehavior(method, pathRegex, 0, status, count));
+		return this;
+	}
+
+	/**
+	 * Responds to every matching request via the given handler instead of the server's own handling, unless the
+	 * handler returns null. Handlers are invoked after any latency and failures have been applied, in the order in
+	 * which they were added, and are not synchronized on the server, so they may be invoked concurrently.
+	 *
+	 * @param method    the HTTP method to match, or null to match any method
+	 * @param pathRegex regular expression that the request path, without its query string, must match
+	 * @param handler
+	 * @return
+	 */
+	public MockManageServer withHandler(String method, String pathRegex, Function<MockRequest, MockResponse> handler) {
+		handlers.add(new EndpointHandler(new EndpointBehavior(method, pathRegex, 0, 0, 0), handler));
+		return this;
+	}
+
+	public void clearBehaviors() {
+		behaviors.clear();
+		handlers.clear();
+	}
+
+	public void addHost(String hostName) {
+		addResource("hosts", format("{\"host-name\":\"%s\", \"group\":\"Default\", \"bind-port\":7999}", hostName));
+	}
+
+	/**
+	 * Adds or replaces a resource without recording a request.
+	 *
+	 * @param resourcesPath the path of the resource type relative to /manage/v2, e.g. "roles" or "databases/Documents/triggers"
+	 * @param json
+	 */
+	public synchronized void addResource(String resourcesPath, String json) {
+		saveResource(MANAGE_PATH + "/" + resourcesPath, readJson(json), null);
+	}
+
+	public synchronized boolean resourceExists(String resourcesPath, String nameOrId) {
+		return findResource(MANAGE_PATH + "/" + resourcesPath, nameOrId) != null;
+	}
+
+	/**
+	 * @param resourcesPath
+	 * @param nameOrId
+	 * @return a copy of the resource's properties, or null if the resource doesn't exist
+	 */
+	public synchronized ObjectNode getProperties(String resourcesPath, String nameOrId) {
+		MockResource resource = findResource(MANAGE_PATH + "/" + resourcesPath, nameOrId);
+		return resource != null ? resource.properties.deepCopy() : null;
+	}
+
+	public synchronized List<String> getResourceNames(String resourcesPath) {
+		return getCollection(MANAGE_PATH + "/" + resourcesPath).values().stream()
+			.map(resource -> resource.name).distinct().collect(Collectors.toList());
+	}
+
+	/**
+	 * @return each request that has been received, as the HTTP method followed by the path and query string
+	 */
+	public List<String> getRequests() {
+		return new ArrayList<>(requests);
+	}
+
+	public int getRequestCount() {
+		return requests.size();
+	}
+
+	/**
+	 * @param method    the HTTP method to match, or null to match any method
+	 * @param pathRegex regular expression that the request path, without its query string, must match
+	 * @return
+	 */
+	public int getRequestCount(String method, String pathRegex) {
+		EndpointBehavior matcher = new EndpointBehavior(method, pathRegex, 0, 0, 0);
+		return (int) requests.stream().filter(request -> {
+			String[] tokens = request.split(" ", 2);
+			return matcher.matches(tokens[0], stripQuery(tokens[1]));
+		}).count();
+	}
+
+	/**
+	 * @return the number of requests for each endpoint, where an endpoint is the HTTP method followed by the request
+	 * path with resource names and IDs replaced by "{id}"
+	 */
+	public Map<String, Integer> getRequestCountsByEndpoint() {
+		Map<String, Integer> counts = new TreeMap<>();
+		for (String request : requests) {
+			String[] tokens = request.split(" ", 2);
+			counts.merge(tokens[0] + " " + toPathTemplate(stripQuery(tokens[1])), 1, Integer::sum);
+		}
+		return counts;
+	}
+
+	/**
+	 * @return a multi-line description of the number of requests for each endpoint, ordered from most to least
+	 */
+	public String getRequestSummary() {
+		StringBuilder sb = new StringBuilder(format("%d requests", getRequestCount()));
+		getRequestCountsByEndpoint().entrySet().stream()
+			.sorted((a, b) -> b.getValue().compareTo(a.getValue()))
+			.forEach(entry -> sb.append(format("%n  %5d %s", entry.getValue(), entry.getKey())));
+		return sb.toString();
+	}
+
+	/**
+	 * @return each request for a path that this server doesn't know how to handle
+	 */
+	public List<String> getUnhandledRequests() {
+		return new ArrayList<>(unhandledRequests);
+	}
+
+	/**
+	 * @return each configuration that has been submitted to /manage/v3, in the order in which they were applied
+	 */
+	public List<JsonNode> getSubmittedConfigurations() {
+		return new ArrayList<>(submittedConfigurations);
+	}
+
+	/**
+	 * @return the largest number of requests that were being handled at the same time since the server started or
+	 * clearRequests was last called
+	 */
+	public int getMaxConcurrentRequests() {
+		return maxInFlightCount.get();
+	}
+
+	/**
+	 * @return the number of distinct client connections that requests have been received on since the server started
+	 * or clearRequests was last called; each connection is identified by its remote address, which includes the
+	 * client's ephemeral port
+	 */
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	public void clearRequests() {
+		maxInFlightCount.set(0);
+		connections.clear();
+		requests.clear();
+		unhandledRequests.clear();
+		submittedConfigurations.clear();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		final String method = exchange.getRequestMethod();
+		final String path = exchange.getRequestURI().getPath();
+		final String query = exchange.getRequestURI().getRawQuery();
+		final String body;
+		try (InputStream in = exchange.getRequestBody()) {
+			body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		requests.add(method + " " + path + (query != null ? "?" + query : ""));
+		connections.add(String.valueOf(exchange.getRemoteAddress()));
+		maxInFlightCount.accumulateAndGet(inFlightCount.incrementAndGet(), Math::max);
+
+		// The request is no longer counted as in flight once its response has been determined; a client may send its
+		// next request as soon as it has read a response, so counting the writing of the response would make serial
+		// requests appear to overlap
+		MockResponse response;
+		try {
+			response = process(exchange, method, path, query, body);
+		} finally {
+			inFlightCount.decrementAndGet();
+		}
+		if (response != null) {
+			respond(exchange, response);
+		} else {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @return the response to send, or null if the connection should be closed without a response
+	 */
+	private MockResponse process(HttpExchange exchange, String method, String path, String query, String body) {
+		try {
+			for (EndpointBehavior behavior : behaviors) {
+				if (behavior.matches(method, path) && behavior.latencyMillis > 0) {
+					Thread.sleep(behavior.latencyMillis);
+				}
+			}
+			for (EndpointBehavior behavior : behaviors) {
+				if (behavior.matches(method, path) && behavior.shouldFail()) {
+					return behavior.failureStatus == CLOSE_CONNECTION ? null :
+						new MockResponse(behavior.failureStatus, "application/json",
+							format("{\"errorResponse\":{\"statusCode\":%d, \"message\":\"Mock failure\"}}", behavior.failureStatus));
+				}
+			}
+
+			MockRequest request = new MockRequest(method, path, parseQuery(query), body,
+				exchange.getRequestHeaders().getFirst("Accept"), exchange.getRequestHeaders().getFirst("Content-Type"));
+			MockResponse response = null;
+			for (EndpointHandler handler : handlers) {
+				if (response == null && handler.matcher.matches(method, path)) {
+					response = handler.handler.apply(request);
+				}
+			}
+			if (response == null) {
+				synchronized (this) {
+					response = route(request);
+				}
+			}
+			if (response == null) {
+				unhandledRequests.add(method + " " + path);
+				logger.warn("Mock Manage server does not handle request: " + method + " " + path);
+				response = notFound(path);
+			}
+			return response;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (RuntimeException ex) {
+			logger.error("Unexpected error in mock Manage server: " + ex.getMessage(), ex);
+			return new MockResponse(500, "application/json",
+				format("{\"errorResponse\":{\"statusCode\":500, \"message\":%s}}", TextNode.valueOf(String.valueOf(ex.getMessage()))));
+		}
+	}
+
+	/**
+	 * @param request
+	 * @return null if the request is not for a path that this server handles
+	 */
+	protected MockResponse route(MockRequest request) {
+		final String path = request.path;
+		if ("/admin/v1/timestamp".equals(path)) {
+			return new MockResponse(200, "text/plain", lastStartup);
+		}
+		if ("/manage/v3".equals(path) && "POST".equals(request.method)) {
+			return applyConfiguration(request);
+		}
+		if (path.equals("/v1/rest-apis") || path.startsWith("/v1/rest-apis/")) {
+			return handleRestApis(request);
+		}
+		if (path.equals(MANAGE_PATH) || path.equals(MANAGE_PATH + "/")) {
+			return handleCluster(request);
+		}
+		if (path.equals(MANAGE_PATH + "/properties")) {
+			if ("PUT".equals(request.method)) {
+				merge(clusterProperties, readPayload(request.body));
+				return noContent();
+			}
+			return properties(request, "cluster", clusterProperties);
+		}
+		if (!path.startsWith(MANAGE_PATH + "/")) {
+			return null;
+		}
+
+		List<String> segments = new ArrayList<>(Arrays.asList(path.substring(MANAGE_PATH.length() + 1).split("/")));
+		final boolean propertiesRequest = segments.size() > 1 && "properties".equals(segments.get(segments.size() - 1));
+		if (propertiesRequest) {
+			segments.remove(segments.size() - 1);
+		}
+
+		if (segments.size() % 2 == 1) {
+			if (propertiesRequest) {
+				return null;
+			}
+			String resourcesPath = MANAGE_PATH + "/" + String.join("/", segments);
+			if ("GET".equals(request.method)) {
+				return list(request, resourcesPath);
+			}
+			if ("POST".equals(request.method)) {
+				return create(request, resourcesPath);
+			}
+			return null;
+		}
+
+		String resourcesPath = MANAGE_PATH + "/" + String.join("/", segments.subList(0, segments.size() - 1));
+		MockResource resource = findResource(resourcesPath, segments.get(segments.size() - 1), request.params.get("group-id"));
+		if (resource == null) {
+			return notFound(path);
+		}
+		switch (request.method) {
+			case "GET":
+				return propertiesRequest ? properties(request, resource.getSingularType(), resource.properties) : view(request, resource);
+			case "PUT":
+				return propertiesRequest ? update(request, resource) : null;
+			case "DELETE":
+				deleteResource(resource, request.params.containsKey("forest-delete"));
+				return noContent();
+			case "POST":
+				return propertiesRequest ? null : operation(request, resource);
+			default:
+				return null;
+		}
+	}
+
+	protected MockResponse handleCluster(MockRequest request) {
+		if ("POST".equals(request.method)) {
+			// Currently the only supported operation is "restart-local-cluster"
+			return restart();
+		}
+		if (request.wantsJson()) {
+			return json(200, format("{\"local-cluster-default\":{\"id\":\"1\", \"name\":\"%s\", \"version\":\"%s\"}}",
+				clusterProperties.path("cluster-name").asText(), version));
+		}
+		Element root = new Element("local-cluster-default", Namespace.getNamespace("http://marklogic.com/manage/clusters"));
+		addChild(root, "id", "1");
+		addChild(root, "name", clusterProperties.path("cluster-name").asText());
+		addChild(root, "version", version);
+		return xml(200, root);
+	}
+
+	protected MockResponse list(MockRequest request, String resourcesPath) {
+		final String type = resourcesPath.substring(resourcesPath.lastIndexOf('/') + 1);
+		final String group = request.params.get("group-id");
+		List<MockResource> resources = getCollection(resourcesPath).values().stream()
+			.filter(resource -> group == null || !resource.isGroupScoped() || group.equals(resource.getGroupName()))
+			.collect(Collectors.toList());
+
+		final String rootName = "tasks".equals(type) ? "tasks-default-list" : singular(type) + "-default-list";
+		if (request.wantsJson()) {
+			ObjectNode root = JsonNodeFactory.instance.objectNode();
+			ObjectNode listItems = root.putObject(rootName).putObject("list-items");
+			listItems.putObject("list-count").put("value", resources.size());
+			ArrayNode items = listItems.putArray("list-item");
+			resources.forEach(resource -> {
+				ObjectNode item = items.addObject();
+				resource.getListItemValues().forEach(item::put);
+			});
+			return json(200, root.toString());
+		}
+
+		Namespace ns = Namespace.getNamespace(MANAGE_NAMESPACE + "/" + type);
+		Element root = new Element(rootName, ns);
+		Element listItems = new Element("list-items", ns);
+		root.addContent(listItems);
+		addChild(listItems, "list-count", String.valueOf(resources.size()));
+		for (MockResource resource : resources) {
+			Element item = new Element("list-item", ns);
+			resource.getListItemValues().forEach((name, value) -> addChild(item, name, value));
+			listItems.addContent(item);
+		}
+		return xml(200, root);
+	}
+
+	protected MockResponse create(MockRequest request, String resourcesPath) {
+		ObjectNode payload = readPayload(request.body);
+		String group = request.params.getOrDefault("group-id", payload.path("group-name").asText(DEFAULT_GROUP));
+		MockResource existing = findResource(resourcesPath, getIdFieldValue(resourcesPath, payload), group);
+		if (existing != null) {
+			return json(400, format("{\"errorResponse\":{\"statusCode\":400, \"messageCode\":\"MANAGE-EXISTS\", " +
+				"\"message\":\"Resource already exists: %s\"}}", existing.name));
+		}
+		MockResource resource = saveResource(resourcesPath, payload, group);
+		if ("groups".equals(resource.type)) {
+			// MarkLogic creates an Admin server in each new group
+			saveResource(MANAGE_PATH + "/servers", readJson(format("{\"server-name\":\"Admin\", \"port\":8001, " +
+				"\"server-type\":\"http\", \"group-name\":\"%s\"}", resource.name)), resource.name);
+		}
+		MockResponse response = new MockResponse(201, "application/json", "");
+		response.location = resourcesPath + "/" + resource.id;
+		return response;
+	}
+
+	protected MockResponse update(MockRequest request, MockResource resource) {
+		ObjectNode payload = readPayload(request.body);
+		boolean restartRequired = "groups".equals(resource.type) && changesCacheSize(resource.properties, payload);
+		merge(resource.properties, payload);
+		resource.name = resource.computeName();
+		if ("forests".equals(resource.type) && payload.has("database")) {
+			attachForest(resource, payload.get("database").asText());
+		}
+		if ("databases".equals(resource.type) && payload.has("forest")) {
+			detachForestsNotInDatabase(resource);
+		}
+		return restartRequired ? restart() : noContent();
+	}
+
+	/**
+	 * Handles a POST to a resource, such as attaching a forest to a database or clearing a database.
+	 */
+	protected MockResponse operation(MockRequest request, MockResource resource) {
+		Map<String, String> form = request.isForm() ? parseQuery(request.body) : new HashMap<>();
+		if ("forests".equals(resource.type) && "attach".equals(form.get("state"))) {
+			attachForest(resource, form.get("database"));
+		} else if ("forests".equals(resource.type) && "detach".equals(form.get("state"))) {
+			detachForest(resource);
+		}
+		return noContent();
+	}
+
+	protected MockResponse view(MockRequest request, MockResource resource) {
+		final String view = request.params.get("view");
+		final Namespace ns = Namespace.getNamespace(MANAGE_NAMESPACE + "/" + resource.type);
+		final String singularType = resource.getSingularType();
+
+		if ("forests".equals(resource.type) && "status".equals(view)) {
+			Element root = new Element("forest-status", ns);
+			addChild(root, "id", resource.id);
+			addChild(root, "name", resource.name);
+			root.addContent(new Element("status-properties", ns));
+			return xml(200, root);
+		}
+		if ("forests".equals(resource.type) && "config".equals(view)) {
+			Element root = new Element("forest-config", ns);
+			Element config = new Element("config-properties", ns);
+			config.addContent(new Element("forest-replicas", ns));
+			root.addContent(config);
+			return xml(200, root);
+		}
+
+		Element root = new Element(singularType + "-default", ns);
+		addChild(root, "id", resource.id);
+		addChild(root, "name", resource.name);
+		Element relations = new Element("relations", ns);
+		root.addContent(relations);
+		if ("databases".equals(resource.type)) {
+			addRelations(relations, "forests", getCollection(MANAGE_PATH + "/forests").values().stream()
+				.filter(forest -> resource.name.equals(forest.properties.path("database").asText(null)))
+				.collect(Collectors.toList()));
+		} else if ("forests".equals(resource.type)) {
+			String database = resource.properties.path("database").asText(null);
+			MockResource db = database != null ? findResource(MANAGE_PATH + "/databases", database) : null;
+			if (db != null) {
+				addRelations(relations, "databases", Arrays.asList(db));
+			}
+			MockResource host = findResource(MANAGE_PATH + "/hosts", resource.properties.path("host").asText(null));
+			if (host != null) {
+				addRelations(relations, "hosts", Arrays.asList(host));
+			}
+		} else if ("groups".equals(resource.type)) {
+			addRelations(relations, "hosts", getCollection(MANAGE_PATH + "/hosts").values().stream()
+				.filter(host -> resource.name.equals(host.properties.path("group").asText(null)))
+				.collect(Collectors.toList()));
+		}
+
+		if (request.wantsJson()) {
+			ObjectNode json = JsonNodeFactory.instance.objectNode();
+			json.putObject(singularType + "-default").put("id", resource.id).put("name", resource.name);
+			return json(200, json.toString());
+		}
+		return xml(200, root);
+	}
+
+	protected MockResponse properties(MockRequest request, String singularType, ObjectNode properties) {
+		if (request.wantsJson()) {
+			return json(200, properties.toString());
+		}
+		Element root = new Element(singularType + "-properties", Namespace.getNamespace(MANAGE_NAMESPACE));
+		addJsonToElement(root, properties);
+		return xml(200, root);
+	}
+
+	/**
+	 * Applies each resource in a /manage/v3 configuration; resources are created if they don't exist and updated
+	 * otherwise. An empty configuration is accepted, as ConfigurationManager uses one to check that the endpoint
+	 * exists.
+	 */
+	protected MockResponse applyConfiguration(MockRequest request) {
+		JsonNode payload = readJson(request.body);
+		submittedConfigurations.add(payload);
+		JsonNode configs = payload.path("config");
+		for (JsonNode config : configs) {
+			for (Map.Entry<String, String> entry : CMA_TYPES.entrySet()) {
+				String resourcesPath = MANAGE_PATH + "/" + entry.getValue();
+				for (JsonNode node : config.path(entry.getKey())) {
+					ObjectNode properties = (ObjectNode) node.deepCopy();
+					MockResource existing = findResource(resourcesPath, getIdFieldValue(resourcesPath, properties),
+						properties.path("group-name").asText(DEFAULT_GROUP));
+					if (existing != null) {
+						merge(existing.properties, properties);
+						if ("forests".equals(existing.type) && properties.has("database")) {
+							attachForest(existing, properties.get("database").asText());
+						}
+					} else {
+						saveResource(resourcesPath, properties, null);
+					}
+				}
+			}
+		}
+		return json(200, "{}");
+	}
+
+	/**
+	 * Creating a REST API server creates its content and modules databases as well, along with forests for the
+	 * content database on each host.
+	 */
+	protected MockResponse handleRestApis(MockRequest request) {
+		String name = request.path.startsWith("/v1/rest-apis/") ? request.path.substring("/v1/rest-apis/".length()) : null;
+		if ("POST".equals(request.method) && name == null) {
+			JsonNode restApi = readJson(request.body).path("rest-api");
+			name = restApi.path("name").asText();
+			if (findResource(MANAGE_PATH + "/servers", name, restApi.path("group").asText(DEFAULT_GROUP)) != null) {
+				return json(400, "{\"errorResponse\":{\"statusCode\":400, \"message\":\"REST API server already exists\"}}");
+			}
+			String database = restApi.path("database").asText(name + "-content");
+			String modulesDatabase = restApi.path("modules-database").asText(name + "-modules");
+			int forestsPerHost = restApi.path("forests-per-host").asInt(1);
+			createDatabaseWithForests(database, forestsPerHost);
+			createDatabaseWithForests(modulesDatabase, 1);
+			ObjectNode server = JsonNodeFactory.instance.objectNode();
+			server.put("server-name", name);
+			server.put("server-type", "http");
+			server.put("group-name", restApi.path("group").asText(DEFAULT_GROUP));
+			server.put("port", restApi.path("port").asText());
+			server.put("content-database", database);
+			server.put("modules-database", modulesDatabase);
+			server.put("url-rewriter", "/MarkLogic/rest-api/rewriter.xml");
+			saveResource(MANAGE_PATH + "/servers", server, null);
+			return json(201, "{}");
+		}
+
+		if (name == null) {
+			return null;
+		}
+		MockResource server = findResource(MANAGE_PATH + "/servers", name, request.params.getOrDefault("group-id", DEFAULT_GROUP));
+		if (server == null) {
+			return notFound(request.path);
+		}
+		if ("GET".equals(request.method)) {
+			return json(200, format("{\"name\":\"%s\", \"group\":\"%s\", \"database\":\"%s\", \"modules-database\":\"%s\", \"port\":\"%s\"}",
+				server.name, server.getGroupName(), server.properties.path("content-database").asText(),
+				server.properties.path("modules-database").asText(), server.properties.path("port").asText()));
+		}
+		if ("DELETE".equals(request.method)) {
+			String include = request.params.getOrDefault("include", "");
+			deleteResource(server, false);
+			if (include.contains("content")) {
+				deleteDatabase(server.properties.path("content-database").asText(null));
+			}
+			if (include.contains("modules")) {
+				deleteDatabase(server.properties.path("modules-database").asText(null));
+			}
+			return restart();
+		}
+		return null;
+	}
+
+	private void createDatabaseWithForests(String database, int forestsPerHost) {
+		if (findResource(MANAGE_PATH + "/databases", database) != null) {
+			return;
+		}
+		saveResource(MANAGE_PATH + "/databases", readJson(format("{\"database-name\":\"%s\"}", database)), null);
+		int forestNumber = 1;
+		for (MockResource host : getCollection(MANAGE_PATH + "/hosts").values()) {
+			for (int i = 0; i < forestsPerHost; i++) {
+				ObjectNode forest = JsonNodeFactory.instance.objectNode();
+				forest.put("forest-name", database + "-" + forestNumber++);
+				forest.put("host", host.name);
+				forest.put("database", database);
+				saveResource(MANAGE_PATH + "/forests", forest, null);
+			}
+		}
+	}
+
+	private void deleteDatabase(String database) {
+		MockResource db = database != null ? findResource(MANAGE_PATH + "/databases", database) : null;
+		if (db != null) {
+			deleteResource(db, true);
+		}
+	}
+
+	/**
+	 * Updating a group with a different cache size causes MarkLogic to restart; the response identifies the startup
+	 * timestamp of each host before the restart.
+	 */
+	private boolean changesCacheSize(ObjectNode existing, ObjectNode payload) {
+		Iterator<String> names = payload.fieldNames();
+		while (names.hasNext()) {
+			String name = names.next();
+			if (name.endsWith("cache-size") && !payload.get(name).asText().equals(existing.path(name).asText(null))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private MockResponse restart() {
+		Namespace ns = Namespace.getNamespace(MANAGE_NAMESPACE);
+		Element root = new Element("restart", ns);
+		for (MockResource host : getCollection(MANAGE_PATH + "/hosts").values()) {
+			Element lastStartupElement = new Element("last-startup", ns).setText(lastStartup);
+			lastStartupElement.setAttribute("host-id", host.id);
+			root.addContent(lastStartupElement);
+		}
+		lastStartup = OffsetDateTime.now().toString();
+		return xml(202, root);
+	}
+
+	private MockResource saveResource(String resourcesPath, ObjectNode properties, String group) {
+		MockResource resource = new MockResource(resourcesPath, String.valueOf(idSequence.incrementAndGet()), properties);
+		if (resource.isGroupScoped() && !properties.has("group-name")) {
+			properties.put("group-name", group != null ? group : DEFAULT_GROUP);
+		}
+		if ("tasks".equals(resource.type)) {
+			properties.put("task-id", resource.id);
+		}
+		if ("query-rolesets".equals(resource.type)) {
+			properties.put("query-roleset-id", resource.id);
+		}
+		resource.name = resource.computeName();
+		getCollection(resourcesPath).put(resource.getKey(), resource);
+		if ("forests".equals(resource.type)) {
+			if (!properties.has("host")) {
+				getCollection(MANAGE_PATH + "/hosts").values().stream().findFirst()
+					.ifPresent(host -> properties.put("host", host.name));
+			}
+			if (properties.has("database")) {
+				attachForest(resource, properties.get("database").asText());
+			}
+		}
+		return resource;
+	}
+
+	private void deleteResource(MockResource resource, boolean deleteForests) {
+		getCollection(resource.resourcesPath).remove(resource.getKey());
+		final String prefix = resource.resourcesPath + "/" + resource.name + "/";
+		collections.keySet().removeIf(path -> path.startsWith(prefix));
+		if ("forests".equals(resource.type)) {
+			detachForest(resource);
+		} else if ("databases".equals(resource.type)) {
+			List<MockResource> forests = getCollection(MANAGE_PATH + "/forests").values().stream()
+				.filter(forest -> resource.name.equals(forest.properties.path("database").asText(null)))
+				.collect(Collectors.toList());
+			for (MockResource forest : forests) {
+				if (deleteForests) {
+					getCollection(MANAGE_PATH + "/forests").remove(forest.name);
+				} else {
+					forest.properties.remove("database");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keeps the forest's "database" property and the database's "forest" property consistent, as MarkLogic does.
+	 */
+	private void attachForest(MockResource forest, String databaseName) {
+		detachForest(forest);
+		MockResource database = findResource(MANAGE_PATH + "/databases", databaseName);
+		if (database != null) {
+			forest.properties.put("database", database.name);
+			ArrayNode forests = database.properties.has("forest") && database.properties.get("forest").isArray() ?
+				(ArrayNode) database.properties.get("forest") : database.properties.putArray("forest");
+			forests.add(forest.name);
+		}
+	}
+
+	private void detachForest(MockResource forest) {
+		String databaseName = forest.properties.path("database").asText(null);
+		MockResource database = databaseName != null ? findResource(MANAGE_PATH + "/databases", databaseName) : null;
+		if (database != null && database.properties.get("forest") instanceof ArrayNode) {
+			ArrayNode forests = (ArrayNode) database.properties.get("forest");
+			for (int i = forests.size() - 1; i >= 0; i--) {
+				if (forest.name.equals(forests.get(i).asText())) {
+					forests.remove(i);
+				}
+			}
+		}
+		forest.properties.remove("database");
+	}
+
+	private void detachForestsNotInDatabase(MockResource database) {
+		List<String> forestNames = new ArrayList<>();
+		database.properties.path("forest").forEach(node -> forestNames.add(node.asText()));
+		for (MockResource forest : getCollection(MANAGE_PATH + "/forests").values()) {
+			if (database.name.equals(forest.properties.path("database").asText(null))) {
+				if (!forestNames.contains(forest.name)) {
+					forest.properties.remove("database");
+				}
+			} else if (forestNames.contains(forest.name)) {
+				forest.properties.put("database", database.name);
+			}
+		}
+	}
+
+	private Map<String, MockResource> getCollection(String resourcesPath) {
+		return collections.computeIfAbsent(resourcesPath, path -> new LinkedHashMap<>());
+	}
+
+	private MockResource findResource(String resourcesPath, String nameOrId) {
+		return findResource(resourcesPath, nameOrId, null);
+	}
+
+	/**
+	 * @param resourcesPath
+	 * @param nameOrId
+	 * @param group        if not null, a resource that is scoped to a group must be in this group
+	 * @return
+	 */
+	private MockResource findResource(String resourcesPath, String nameOrId, String group) {
+		if (nameOrId == null) {
+			return null;
+		}
+		Map<String, MockResource> collection = getCollection(resourcesPath);
+		MockResource resource = collection.get(nameOrId);
+		if (resource != null) {
+			return resource;
+		}
+		for (MockResource r : collection.values()) {
+			boolean inGroup = group == null || !r.isGroupScoped() || group.equals(r.getGroupName());
+			boolean matches = nameOrId.equals(r.name) || nameOrId.equals(r.id) ||
+				("tasks".equals(r.type) && nameOrId.equals(r.properties.path("task-path").asText(null)));
+			if (inGroup && matches) {
+				return r;
+			}
+		}
+		return null;
+	}
+
+	private String getIdFieldValue(String resourcesPath, ObjectNode properties) {
+		String type = resourcesPath.substring(resourcesPath.lastIndexOf('/') + 1);
+		JsonNode value = properties.get(getIdField(type));
+		return value != null ? value.asText() : null;
+	}
+
+	private static String getIdField(String type) {
+		return ID_FIELDS.getOrDefault(type, singular(type) + "-name");
+	}
+
+	private static String singular(String type) {
+		if (type.endsWith("ies")) {
+			return type.substring(0, type.length() - 3) + "y";
+		}
+		if (type.endsWith("xes")) {
+			return type.substring(0, type.length() - 2);
+		}
+		return type.endsWith("s") ? type.substring(0, type.length() - 1) : type;
+	}
+
+	private static String plural(String name) {
+		return name.endsWith("x") ? name + "es" : name + "s";
+	}
+
+	/**
+	 * Replaces fields in the existing properties with the fields in the payload, which is what a PUT does.
+	 */
+	private void merge(ObjectNode existing, ObjectNode payload) {
+		payload.fields().forEachRemaining(entry -> existing.set(entry.getKey(), entry.getValue()));
+	}
+
+	private ObjectNode readPayload(String payload) {
+		if (payload == null || payload.trim().isEmpty()) {
+			return JsonNodeFactory.instance.objectNode();
+		}
+		if (ParsedPayload.startsLikeJson(payload)) {
+			return readJson(payload);
+		}
+		try {
+			Element root = new SAXBuilder().build(new StringReader(payload)).getRootElement();
+			return (ObjectNode) elementToJson(root);
+		} catch (Exception ex) {
+			throw new RuntimeException("Unable to parse XML payload: " + ex.getMessage(), ex);
+		}
+	}
+
+	private ObjectNode readJson(String json) {
+		try {
+			return (ObjectNode) objectMapper.readTree(new ParsedPayload(json).getPayload());
+		} catch (IOException ex) {
+			throw new RuntimeException("Unable to parse JSON payload: " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Converts XML properties into the equivalent JSON properties. An element whose children all have the singular
+	 * form of its name - e.g. "roles" containing "role" elements - becomes an array named after the children, which
+	 * is how the Manage API represents such properties in JSON.
+	 */
+	private JsonNode elementToJson(Element element) {
+		List<Element> children = element.getChildren();
+		if (children.isEmpty()) {
+			return new TextNode(element.getTextTrim());
+		}
+		ObjectNode node = JsonNodeFactory.instance.objectNode();
+		for (Element child : children) {
+			List<Element> grandchildren = child.getChildren();
+			if (!grandchildren.isEmpty() && grandchildren.stream().allMatch(gc -> plural(gc.getName()).equals(child.getName()))) {
+				ArrayNode array = node.putArray(grandchildren.get(0).getName());
+				grandchildren.forEach(gc -> array.add(elementToJson(gc)));
+			} else {
+				node.set(child.getName(), elementToJson(child));
+			}
+		}
+		return node;
+	}
+
+	private void addJsonToElement(Element element, JsonNode node) {
+		Namespace ns = element.getNamespace();
+		node.fields().forEachRemaining(entry -> {
+			JsonNode value = entry.getValue();
+			if (value.isArray()) {
+				Element wrapper = new Element(plural(entry.getKey()), ns);
+				for (JsonNode item : value) {
+					Element child = new Element(entry.getKey(), ns);
+					if (item.isObject()) {
+						addJsonToElement(child, item);
+					} else {
+						child.setText(item.asText());
+					}
+					wrapper.addContent(child);
+				}
+				element.addContent(wrapper);
+			} else if (value.isObject()) {
+				Element child = new Element(entry.getKey(), ns);
+				addJsonToElement(child, value);
+				element.addContent(child);
+			} else {
+				addChild(element, entry.getKey(), value.asText());
+			}
+		});
+	}
+
+	private void addRelations(Element relations, String type, List<MockResource> resources) {
+		Namespace ns = relations.getNamespace();
+		Element group = new Element("relation-group", ns);
+		addChild(group, "typeref", type);
+		for (MockResource resource : resources) {
+			Element relation = new Element("relation", ns);
+			addChild(relation, "idref", resource.id);
+			addChild(relation, "nameref", resource.name);
+			group.addContent(relation);
+		}
+		relations.addContent(group);
+	}
+
+	private static void addChild(Element parent, String name, String value) {
+		parent.addContent(new Element(name, parent.getNamespace()).setText(value));
+	}
+
+	private static String stripQuery(String path) {
+		int index = path.indexOf('?');
+		return index > -1 ? path.substring(0, index) : path;
+	}
+
+	private static String toPathTemplate(String path) {
+		if (!path.startsWith(MANAGE_PATH + "/")) {
+			return path;
+		}
+		String[] segments = path.substring(MANAGE_PATH.length() + 1).split("/");
+		StringBuilder sb = new StringBuilder(MANAGE_PATH);
+		for (int i = 0; i < segments.length; i++) {
+			boolean isIdentifier = i % 2 == 1 && !"properties".equals(segments[i]);
+			sb.append('/').append(isIdentifier ? "{id}" : segments[i]);
+		}
+		return sb.toString();
+	}
+
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> params = new LinkedHashMap<>();
+		if (query != null && !query.isEmpty()) {
+			for (String pair : query.split("&")) {
+				String[] tokens = pair.split("=", 2);
+				params.put(decode(tokens[0]), tokens.length > 1 ? decode(tokens[1]) : "");
+			}
+		}
+		return params;
+	}
+
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, "UTF-8");
+		} catch (UnsupportedEncodingException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	private MockResponse json(int status, String body) {
+		return new MockResponse(status, "application/json", body);
+	}
+
+	private MockResponse xml(int status, Element root) {
+		String body = new XMLOutputter(Format.getRawFormat()).outputString(new Document(root));
+		return new MockResponse(status, "application/xml", body);
+	}
+
+	private MockResponse noContent() {
+		return new MockResponse(204, "application/json", "");
+	}
+
+	private MockResponse notFound(String path) {
+		return json(404, format("{\"errorResponse\":{\"statusCode\":404, \"status\":\"Not Found\", " +
+			"\"messageCode\":\"RESTAPI-NODOCUMENT\", \"message\":\"Resource not found: %s\"}}", path));
+	}
+
+	private void respond(HttpExchange exchange, MockResponse response) throws IOException {
+		byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", response.contentType + "; charset=UTF-8");
+		if (response.location != null) {
+			exchange.getResponseHeaders().set("Location", response.location);
+		}
+		if (bytes.length == 0) {
+			// Writing even zero bytes to a response sent without a body fails, which causes the connection to be closed
+			exchange.sendResponseHeaders(response.status, -1);
+			exchange.close();
+			return;
+		}
+		exchange.sendResponseHeaders(response.status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public void setVersion(String version) {
+		this.version = version;
+	}
+
+	/**
+	 * A resource at a path such as /manage/v2/roles/my-role, whose properties are stored as JSON regardless of the
+	 * format of the payload that created it.
+	 */
+	private static class MockResource {
+
+		final String resourcesPath;
+		final String type;
+		final String id;
+		final ObjectNode properties;
+		String name;
+
+		MockResource(String resourcesPath, String id, ObjectNode properties) {
+			this.resourcesPath = resourcesPath;
+			this.type = resourcesPath.substring(resourcesPath.lastIndexOf('/') + 1);
+			this.id = id;
+			this.properties = properties;
+		}
+
+		String computeName() {
+			JsonNode value = properties.get(getIdField(type));
+			return value != null && !value.asText().isEmpty() ? value.asText() : id;
+		}
+
+		String getSingularType() {
+			return singular(type);
+		}
+
+		boolean isGroupScoped() {
+			return "servers".equals(type) || "tasks".equals(type);
+		}
+
+		String getGroupName() {
+			return properties.path("group-name").asText(DEFAULT_GROUP);
+		}
+
+		/**
+		 * @return the key of the resource within its collection; resources scoped to a group are unique only within
+		 * their group
+		 */
+		String getKey() {
+			return isGroupScoped() ? getGroupName() + "/" + name : name;
+		}
+
+		Map<String, String> getListItemValues() {
+			Map<String, String> values = new LinkedHashMap<>();
+			values.put("idref", id);
+			values.put("nameref", name);
+			if ("servers".equals(type)) {
+				values.put("groupnameref", getGroupName());
+			} else if ("tasks".equals(type)) {
+				values.put("task-path", properties.path("task-path").asText());
+				values.put("task-database", properties.path("task-database").asText());
+			} else if ("amps".equals(type)) {
+				values.put("namespace", properties.path("namespace").asText());
+				values.put("document-uri", properties.path("document-uri").asText());
+				values.put("modules-database", properties.path("modules-database").asText("filesystem"));
+				values.put("uriref", MANAGE_PATH + "/amps/" + name + "?namespace=" + values.get("namespace") +
+					"&document-uri=" + values.get("document-uri") + "&modules-database=" + values.get("modules-database"));
+			} else if ("privileges".equals(type)) {
+				values.put("kind", properties.path("kind").asText("execute"));
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * A request received by the server, as given to a handler added via withHandler.
+	 */
+	public static class MockRequest {
+
+		final String method;
+		final String path;
+		final Map<String, String> params;
+		final String body;
+		final String accept;
+		final String contentType;
+
+		MockRequest(String method, String path, Map<String, String> params, String body, String accept, String contentType) {
+			this.method = method;
+			this.path = path;
+			this.params = params;
+			this.body = body;
+			this.accept = accept;
+			this.contentType = contentType;
+		}
+
+		boolean wantsJson() {
+			String format = params.get("format");
+			if (format != null) {
+				return "json".equals(format);
+			}
+			return accept != null && accept.startsWith("application/json");
+		}
+
+		boolean isForm() {
+			return contentType != null && contentType.startsWith("application/x-www-form-urlencoded");
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @param name
+		 * @return the value of the given query string parameter, or null if the request doesn't have it
+		 */
+		public String getParam(String name) {
+			return params.get(name);
+		}
+
+		public String getBody() {
+			return body;
+		}
+
+		public String getAccept() {
+			return accept;
+		}
+	}
+
+	public static class MockResponse {
+
+		final int status;
+		final String contentType;
+		final String body;
+		String location;
+
+		/**
+		 * @param status
+		 * @param contentType the content type without a charset, which is always UTF-8
+		 * @param body        may be empty, in which case no body is sent
+		 */
+		public MockResponse(int status, String contentType, String body) {
+			this.status = status;
+			this.contentType = contentType;
+			this.body = body;
+		}
+	}
+
+	private static class EndpointHandler {
+
+		final EndpointBehavior matcher;
+		final Function<MockRequest, MockResponse> handler;
+
+		EndpointHandler(EndpointBehavior matcher, Function<MockRequest, MockResponse> handler) {
+			this.matcher = matcher;
+			this.handler = handler;
+		}
+	}
+
+	private static class EndpointBehavior {
+
+		final String method;
+		final Pattern pathPattern;
+		final long latencyMillis;
+		final int failureStatus;
+		final AtomicInteger failuresRemaining;
+
+		EndpointBehavior(String method, String pathRegex, long latencyMillis, int failureStatus, int failureCount) {
+			this.method = method;
+			this.pathPattern = Pattern.compile(pathRegex);
+			this.latencyMillis = latencyMillis;
+			this.failureStatus = failureStatus;
+			this.failuresRemaining = new AtomicInteger(failureCount);
+		}
+
+		boolean matches(String requestMethod, String path) {
+			return (method == null || method.equalsIgnoreCase(requestMethod)) && pathPattern.matcher(path).matches();
+		}
+
+		boolean shouldFail() {
+			return failuresRemaining.getAndUpdate(count -> count > 0 ? count - 1 : 0) > 0;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.marklogic.mgmt.mock;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.marklogic.appdeployer.AppConfig;
+import com.marklogic.appdeployer.CmaConfig;
+import com.marklogic.appdeployer.command.Command;
+import com.marklogic.appdeployer.command.appservers.DeployOtherServersCommand;
+import com.marklogic.appdeployer.command.databases.DeployOtherDatabasesCommand;
+import com.marklogic.appdeployer.command.groups.DeployGroupsCommand;
+import com.marklogic.appdeployer.command.restapis.DeployRestApiServersCommand;
+import com.marklogic.appdeployer.command.security.DeployAmpsCommand;
+import com.marklogic.appdeployer.command.security.DeployPrivilegesCommand;
+import com.marklogic.appdeployer.command.security.DeployRolesCommand;
+import com.marklogic.appdeployer.command.security.DeployUsersCommand;
+import com.marklogic.appdeployer.command.tasks.DeployScheduledTasksCommand;
+import com.marklogic.appdeployer.command.taskservers.UpdateTaskServerCommand;
+import com.marklogic.appdeployer.impl.SimpleAppDeployer;
+import com.marklogic.mgmt.ManageClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Deploys the sample application against a MockManageServer, both with and without the Configuration Management API.
+ */
+public class MockManageServerTest extends Assert {
+
+	private MockManageServer server;
+	private ManageClient manageClient;
+	private AppConfig appConfig;
+
+	@Before
+	public void setup() {
+		server = new MockManageServer("host1", "host2").start();
+		manageClient = server.newManageClient();
+
+		appConfig = new AppConfig(new File("src/test/resources/sample-app"));
+		appConfig.setName("sample-app");
+		appConfig.setRestPort(8540);
+		appConfig.getCustomTokens().put("%%GROUP%%", "Default");
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void deploySampleAppWithoutCma() {
+		appConfig.setCmaConfig(new CmaConfig());
+		deploySampleApp();
+
+		assertTrue(server.resourceExists("roles", "sample-app-role1"));
+		assertTrue("The XML role payload should have been stored as JSON", server.resourceExists("roles", "sample-app-role2"));
+		assertTrue(server.resourceExists("users", "sample-app-jane"));
+		assertTrue(server.resourceExists("privileges", "sample-app-execute-1"));
+		assertTrue(server.resourceExists("groups", "sample-app-group"));
+		assertTrue(server.resourceExists("servers", "sample-app"));
+		assertTrue(server.resourceExists("servers", "sample-app-odbc"));
+		assertEquals(32, server.getProperties("task-servers", "TaskServer").get("threads").asInt());
+		assertEquals(0, server.getRequestCount("POST", "/manage/v3"));
+
+		ObjectNode content = server.getProperties("databases", "sample-app-content");
+		assertTrue(content.get("triple-index").asBoolean());
+		assertEquals("The REST API server's content database should have 3 forests on each host",
+			6, content.get("forest").size());
+		assertTrue(server.resourceExists("databases", "sample-app-schemas"));
+		assertTrue(server.resourceExists("databases", "sample-app-triggers"));
+		assertEquals(2, server.getProperties("databases", "sample-app-schemas").get("forest").size());
+
+		int firstDeployCount = server.getRequestCount();
+		server.clearRequests();
+		deploySampleApp();
+		assertEquals("Deploying again should not create any resources other than the scheduled task, which " +
+			"TaskManager deletes and recreates: " + server.getRequests(), 1, server.getRequestCount("POST", "/manage/v2/.*"));
+		assertEquals(1, server.getRequestCount("DELETE", "/manage/v2/tasks/.*"));
+		assertEquals(1, server.getResourceNames("tasks").size());
+		assertTrue(server.getRequestCount() <= firstDeployCount);
+	}
+
+	@Test
+	public void deploySampleAppWithCma() {
+		deploySampleApp();
+
+		assertTrue(server.getRequestCount("POST", "/manage/v3") > 0);
+		assertTrue(server.resourceExists("roles", "sample-app-role1"));
+		assertTrue(server.resourceExists("users", "sample-app-john"));
+		assertTrue(server.resourceExists("privileges", "sample-app-execute-2"));
+		assertTrue(server.resourceExists("servers", "sample-app-odbc"));
+		assertEquals("Forests for each database created via CMA should be attached to it",
+			2, server.getProperties("databases", "sample-app-triggers").get("forest").size());
+	}
+
+	@Test
+	public void transientFailuresAreRetried() {
+		server.failRequests("GET", "/manage/v2/roles", 503, 2);
+		server.failRequests("PUT", "/manage/v2/task-servers/.*", MockManageServer.CLOSE_CONNECTION, 1);
+		appConfig.setCmaConfig(new CmaConfig());
+		deploySampleApp();
+
+		assertTrue(server.resourceExists("roles", "sample-app-role1"));
+		assertEquals(32, server.getProperties("task-servers", "TaskServer").get("threads").asInt());
+		assertTrue(server.getRequestCount("GET", "/manage/v2/roles") >= 3);
+	}
+
+	@Test
+	public void failuresBeyondRetriesAreThrown() {
+		server.failRequests("GET", "/manage/v2/databases/.*", 503, 100);
+		try {
+			manageClient.getJson("/manage/v2/databases/Documents/properties");
+			fail("Expected the failure to be thrown once retries were exhausted");
+		} catch (HttpServerErrorException ex) {
+			assertEquals(503, ex.getRawStatusCode());
+		}
+		assertEquals(manageClient.getManageConfig().getRetryPolicy().getMaxAttempts(),
+			server.getRequestCount("GET", "/manage/v2/databases/Documents/properties"));
+	}
+
+	@Test
+	public void latency() {
+		server.withLatency("GET", "/manage/v2/databases/.*", 100);
+		long start = System.currentTimeMillis();
+		manageClient.getJson("/manage/v2/databases/Documents/properties");
+		assertTrue(System.currentTimeMillis() - start >= 100);
+
+		start = System.currentTimeMillis();
+		manageClient.getJson("/manage/v2/servers/Admin/properties?group-id=Default");
+		assertTrue("Latency should only apply to matching requests", System.currentTimeMillis() - start < 100);
+	}
+
+	@Test
+	public void requestCounts() {
+		manageClient.getJson("/manage/v2/databases/Documents/properties");
+		manageClient.getJson("/manage/v2/databases/Security/properties");
+		manageClient.putJson("/manage/v2/roles/rest-reader/properties", "{\"description\":\"Changed\"}");
+		try {
+			manageClient.getJson("/v1/unknown");
+			fail("Expected a 404 for a path that the mock server doesn't handle");
+		} catch (HttpClientErrorException ex) {
+			assertEquals(404, ex.getRawStatusCode());
+		}
+
+		Map<String, Integer> counts = server.getRequestCountsByEndpoint();
+		assertEquals(2, counts.get("GET /manage/v2/databases/{id}/properties").intValue());
+		assertEquals(1, counts.get("PUT /manage/v2/roles/{id}/properties").intValue());
+		assertEquals("Changed", server.getProperties("roles", "rest-reader").get("description").asText());
+		assertEquals(1, server.getUnhandledRequests().size());
+		assertTrue(server.getRequestSummary().startsWith("4 requests"));
+	}
+
+	private void deploySampleApp() {
+		Command[] commands = new Command[]{
+			new DeployRolesCommand(), new DeployUsersCommand(), new DeployPrivilegesCommand(), new DeployAmpsCommand(),
+			new DeployGroupsCommand(), new DeployRestApiServersCommand(), new DeployOtherDatabasesCommand(),
+			new DeployOtherServersCommand(), new DeployScheduledTasksCommand(), new UpdateTaskServerCommand()
+		};
+		new SimpleAppDeployer(manageClient, server.newAdminManager(), commands).deploy(appConfig);
+		assertTrue("Unexpected requests: " + server.getUnhandledRequests(), server.getUnhandledRequests().isEmpty());
+	}
+}
@@ -0,0 +1,168 @@
+package com.marklogic.mgmt.resource;
+
+import com.marklogic.mgmt.ParsedPayload;
+import com.marklogic.mgmt.mock.MockManageServer;
+import com.marklogic.mgmt.resource.security.RoleManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class RemoteStateSnapshotTest extends Assert {
+
+	private final static String EXISTING_DATABASE = "{\"database-name\":\"my-db\", \"enabled\":true, \"in-memory-limit\":262144, " +
+		"\"triple-index\":true, \"schema-database\":\"Schemas\", " +
+		"\"range-element-index\":[" +
+		"{\"scalar-type\":\"string\", \"namespace-uri\":\"\", \"localname\":\"id\", \"collation\":\"http://marklogic.com/collation/\", \"range-value-positions\":false, \"invalid-values\":\"reject\"}," +
+		"{\"scalar-type\":\"int\", \"namespace-uri\":\"\", \"localname\":\"count\", \"collation\":\"\", \"range-value-positions\":false, \"invalid-values\":\"reject\"}" +
+		"]}";
+
+	private RemoteStateSnapshot snapshot = new RemoteStateSnapshot();
+
+	@Test
+	public void onlyPropertiesInPayloadAreCompared() {
+		assertTrue(isUnchanged(EXISTING_DATABASE, "{\"database-name\":\"my-db\", \"triple-index\":true}"));
+		assertFalse(isUnchanged(EXISTING_DATABASE, "{\"database-name\":\"my-db\", \"triple-index\":false}"));
+		assertFalse("A property the existing resource doesn't have, such as a password, must be sent",
+			isUnchanged(EXISTING_DATABASE, "{\"database-name\":\"my-db\", \"password\":\"secret\"}"));
+	}
+
+	@Test
+	public void scalarsAreComparedAsText() {
+		assertTrue(isUnchanged(EXISTING_DATABASE, "{\"database-name\":\"my-db\", \"in-memory-limit\":\"262144\", \"enabled\":\"true\"}"));
+		assertFalse(isUnchanged(EXISTING_DATABASE, "{\"database-name\":\"my-db\", \"in-memory-limit\":\"262145\"}"));
+	}
+
+	@Test
+	public void arrayOrderAndFieldOrderAreIgnored() {
+		String payload = "{\"database-name\":\"my-db\", \"range-element-index\":[" +
+			"{\"localname\":\"count\", \"scalar-type\":\"int\", \"namespace-uri\":\"\", \"collation\":\"\", \"range-value-positions\":\"false\", \"invalid-values\":\"reject\"}," +
+			"{\"range-value-positions\":false, \"invalid-values\":\"reject\", \"scalar-type\":\"string\", \"namespace-uri\":\"\", \"localname\":\"id\", \"collation\":\"http://marklogic.com/collation/\"}" +
+			"]}";
+		assertTrue(isUnchanged(EXISTING_DATABASE, payload));
+	}
+
+	@Test
+	public void arrayWithMissingOrAdditionalItemIsChanged() {
+		String oneIndex = "{\"database-name\":\"my-db\", \"range-element-index\":[" +
+			"{\"scalar-type\":\"int\", \"namespace-uri\":\"\", \"localname\":\"count\", \"collation\":\"\", \"range-value-positions\":false, \"invalid-values\":\"reject\"}]}";
+		assertFalse("A PUT replaces the array, so removing an index is a change", isUnchanged(EXISTING_DATABASE, oneIndex));
+
+		String indexWithDefaultsOmitted = "{\"database-name\":\"my-db\", \"range-element-index\":[" +
+			"{\"scalar-type\":\"int\", \"namespace-uri\":\"\", \"localname\":\"count\", \"collation\":\"\", \"range-value-positions\":false, \"invalid-values\":\"reject\"}," +
+			"{\"scalar-type\":\"string\", \"namespace-uri\":\"\", \"localname\":\"id\", \"collation\":\"http://marklogic.com/collation/\"}]}";
+		assertFalse("Objects in an array are compared in full, as omitted values revert to their defaults",
+			isUnchanged(EXISTING_DATABASE, indexWithDefaultsOmitted));
+	}
+
+	@Test
+	public void xmlPayload() {
+		String existing = "<role-properties xmlns=\"http://marklogic.com/manage/role/properties\">" +
+			"<role-name>my-role</role-name><description>Example</description><compartment/>" +
+			"<roles><role>rest-reader</role><role>rest-writer</role></roles>" +
+			"<privileges><privilege><privilege-name>any-uri</privilege-name><action>http://marklogic.com/xdmp/privileges/any-uri</action><kind>execute</kind></privilege></privileges>" +
+			"</role-properties>";
+
+		String payload = "<role-properties xmlns=\"http://marklogic.com/manage/role/properties\">\n" +
+			"  <role-name>my-role</role-name>\n" +
+			"  <roles>\n    <role>rest-writer</role>\n    <role>rest-reader</role>\n  </roles>\n" +
+			"  <privileges><privilege><kind>execute</kind><privilege-name>any-uri</privilege-name>" +
+			"<action>http://marklogic.com/xdmp/privileges/any-uri</action></privilege></privileges>\n" +
+			"</role-properties>";
+		assertTrue(isUnchanged(existing, payload));
+
+		assertFalse(isUnchanged(existing, payload.replace("rest-reader", "rest-admin")));
+		assertFalse(isUnchanged(existing, payload.replace("<role>rest-reader</role>", "")));
+		assertFalse(isUnchanged(existing, payload.replace("</role-properties>", "<description>Changed</description></role-properties>")));
+	}
+
+	@Test
+	public void xmlNamespacesAndAttributesAreCompared() {
+		String existing = "<role-properties xmlns=\"http://marklogic.com/manage/role/properties\">" +
+			"<role-name>my-role</role-name><description lang=\"en\">Example</description></role-properties>";
+
+		assertTrue("Prefixes don't matter, only namespace URIs", isUnchanged(existing,
+			"<r:role-properties xmlns:r=\"http://marklogic.com/manage/role/properties\"><r:role-name>my-role</r:role-name>" +
+				"<r:description lang=\"en\">Example</r:description></r:role-properties>"));
+		assertFalse(isUnchanged(existing, existing.replace("lang=\"en\"", "lang=\"fr\"")));
+		assertFalse(isUnchanged(existing, existing.replace("<role-name>", "<role-name lang=\"en\">")));
+		assertFalse(isUnchanged(existing, existing.replace("role-properties", "user-properties")));
+		assertFalse(isUnchanged(existing, existing.replace("<role-name>my-role</role-name>",
+			"<role-name xmlns=\"urn:other\">my-role</role-name>")));
+	}
+
+	@Test
+	public void propertiesNamespaceMatchesManageNamespace() {
+		String existing = "<role-properties xmlns=\"http://marklogic.com/manage\">" +
+			"<role-name>my-role</role-name><description>Example</description></role-properties>";
+
+		assertTrue("The Manage API returns properties in the manage namespace, regardless of the namespace they were " +
+			"sent in", isUnchanged(existing, existing.replace("http://marklogic.com/manage", "http://marklogic.com/manage/role/properties")));
+		assertFalse(isUnchanged(existing, existing.replace("http://marklogic.com/manage", "http://marklogic.com/manage/roles")));
+	}
+
+	@Test
+	public void savingSameResourceTwiceComparesAgainstUpdatedProperties() {
+		MockManageServer server = new MockManageServer().start();
+		try {
+			server.addResource("roles", "{\"role-name\":\"my-role\", \"description\":\"Original\"}");
+			RoleManager roleManager = new RoleManager(server.newManageClient());
+			roleManager.setRemoteStateSnapshot(snapshot);
+			roleManager.prefetchRemoteState(Arrays.asList("{\"role-name\":\"my-role\"}"));
+
+			roleManager.save("{\"role-name\":\"my-role\", \"description\":\"Changed\"}");
+			roleManager.save("{\"role-name\":\"my-role\", \"description\":\"Original\"}");
+			roleManager.save("{\"role-name\":\"my-role\", \"description\":\"Original\"}");
+
+			assertEquals("The second save should have been compared against the properties from the first save, and " +
+				"the third should have been skipped", 2, server.getRequestCount("PUT", "/manage/v2/roles/my-role/properties"));
+			assertEquals("Original", server.getProperties("roles", "my-role").get("description").asText());
+			assertEquals(2, snapshot.getUpdatedCount());
+			assertEquals(1, snapshot.getSkippedCount());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void fetchFailureIsTreatedAsChanged() {
+		Supplier<String> failingFetcher = () -> {
+			throw new RuntimeException("Simulated failure");
+		};
+		assertFalse(snapshot.isUnchanged("/manage/v2/databases/my-db/properties",
+			new ParsedPayload("{\"database-name\":\"my-db\"}"), failingFetcher));
+	}
+
+	@Test
+	public void prefetchFetchesEachPathOnce() {
+		AtomicInteger fetchCount = new AtomicInteger();
+		Map<String, Supplier<String>> fetchers = new LinkedHashMap<>();
+		for (int i = 0; i < 20; i++) {
+			final String name = "db-" + i;
+			fetchers.put("/manage/v2/databases/" + name + "/properties", () -> {
+				fetchCount.incrementAndGet();
+				return "{\"database-name\":\"" + name + "\"}";
+			});
+		}
+
+		snapshot.setThreadCount(4);
+		snapshot.prefetch(fetchers);
+		snapshot.prefetch(fetchers);
+		assertEquals(20, fetchCount.get());
+
+		Supplier<String> unexpectedFetcher = () -> {
+			throw new AssertionError("Properties should have been prefetched");
+		};
+		assertTrue(snapshot.isUnchanged("/manage/v2/databases/db-3/properties",
+			new ParsedPayload("{\"database-name\":\"db-3\"}"), unexpectedFetcher));
+	}
+
+	private boolean isUnchanged(String existing, String payload) {
+		snapshot.clear();
+		return snapshot.isUnchanged("/manage/v2/example/properties", new ParsedPayload(payload), () -> existing);
+	}
+}
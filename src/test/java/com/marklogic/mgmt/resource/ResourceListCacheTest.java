@@ -0,0 +1,198 @@
+package com.marklogic.mgmt.resource;
+
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.resource.security.RoleManager;
+import com.marklogic.mgmt.resource.security.UserManager;
+import com.marklogic.rest.util.Fragment;
+import com.marklogic.rest.util.ResourceList;
+import com.marklogic.rest.util.ResourcesFragment;
+import com.marklogic.rest.util.StaxResourceListReader;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResourceListCacheTest extends Assert {
+
+	private MockManageClient client = new MockManageClient();
+	private ResourceListCache cache = new ResourceListCache();
+
+	@Test
+	public void oneListRequestPerResourceType() {
+		RoleManager roleManager = new RoleManager(client);
+		roleManager.setResourceListCache(cache);
+		UserManager userManager = new UserManager(client);
+		userManager.setResourceListCache(cache);
+
+		for (int i = 0; i < 200; i++) {
+			roleManager.save(format("{\"role-name\":\"role-%d\"}", i));
+			userManager.save(format("{\"user-name\":\"user-%d\"}", i));
+		}
+
+		assertEquals(1, client.countRequests("GET /manage/v2/roles"));
+		assertEquals(1, client.countRequests("GET /manage/v2/users"));
+		assertEquals("role-0 and role-1 exist already, so the rest should have been created", 198,
+			client.countRequests("POST /manage/v2/roles"));
+		assertEquals(2, client.countRequests("PUT /manage/v2/roles/role-0/properties") +
+			client.countRequests("PUT /manage/v2/roles/role-1/properties"));
+		assertEquals(198, client.countRequests("POST /manage/v2/users"));
+	}
+
+	@Test
+	public void cacheIsUpdatedOnCreateAndDelete() {
+		RoleManager roleManager = new RoleManager(client);
+		roleManager.setResourceListCache(cache);
+
+		roleManager.save("{\"role-name\":\"new-role\"}");
+		assertEquals(1, client.countRequests("POST /manage/v2/roles"));
+
+		roleManager.save("{\"role-name\":\"new-role\"}");
+		assertEquals("The role should be known to exist now, so it's updated", 1,
+			client.countRequests("PUT /manage/v2/roles/new-role/properties"));
+
+		roleManager.deleteByIdField("new-role");
+		assertEquals(1, client.countRequests("DELETE /manage/v2/roles/new-role"));
+		assertFalse(roleManager.exists("new-role"));
+
+		roleManager.deleteByIdField("role-0");
+		assertFalse("Removing by name should also remove the ID from the cache", roleManager.exists("1001"));
+
+		assertEquals(1, client.countRequests("GET /manage/v2/roles"));
+	}
+
+	@Test
+	public void existsWithoutCache() {
+		RoleManager roleManager = new RoleManager(client);
+		assertTrue(roleManager.exists("role-0"));
+		assertTrue(roleManager.exists("1001"));
+		assertFalse(roleManager.exists("role-2"));
+		assertEquals("Without a cache, the list is fetched for every check", 3, client.countRequests("GET /manage/v2/roles"));
+	}
+
+	@Test
+	public void clear() {
+		RoleManager roleManager = new RoleManager(client);
+		roleManager.setResourceListCache(cache);
+		roleManager.exists("role-0");
+		cache.clear();
+		roleManager.exists("role-0");
+		assertEquals(2, client.countRequests("GET /manage/v2/roles"));
+	}
+
+	@Test
+	public void existsHonorsOverriddenGetAsXml() {
+		List<String> calls = new ArrayList<>();
+		RoleManager roleManager = new RoleManager(client) {
+			@Override
+			public String getResourcesPath() {
+				return "/manage/v2/roles";
+			}
+
+			@Override
+			public ResourcesFragment getAsXml() {
+				calls.add("getAsXml");
+				return super.getAsXml();
+			}
+		};
+		roleManager.setResourceListCache(cache);
+
+		assertTrue(roleManager.exists("role-0"));
+		assertTrue(roleManager.exists("1002"));
+		assertFalse(roleManager.exists("role-2"));
+		assertEquals("The overridden getAsXml should have been used to fetch the list once", 1, calls.size());
+		assertEquals(1, client.countRequests("GET /manage/v2/roles"));
+
+		ResourceList list = roleManager.getResourceList();
+		assertEquals(2, list.getListCount());
+		assertEquals("role-1", list.getNameForId("1002"));
+	}
+
+	private String format(String s, Object... args) {
+		return String.format(s, args);
+	}
+
+	/**
+	 * Records each request instead of sending it. Each list endpoint returns two resources, with names ending in
+	 * "-0" and "-1".
+	 */
+	private static class MockManageClient extends ManageClient {
+
+		private List<String> requests = new ArrayList<>();
+
+		MockManageClient() {
+			super(new RestTemplate());
+		}
+
+		int countRequests(String request) {
+			return (int) requests.stream().filter(r -> r.equals(request)).count();
+		}
+
+		@Override
+		public Fragment getXml(String path, String... namespacePrefixesAndUris) {
+			requests.add("GET " + path);
+			return new Fragment(buildListXml(path));
+		}
+
+		@Override
+		public Fragment getXmlAsSecurityUser(String path, String... namespacePrefixesAndUris) {
+			return getXml(path, namespacePrefixesAndUris);
+		}
+
+		@Override
+		public ResourceList getResourceList(String path) {
+			requests.add("GET " + path);
+			return new StaxResourceListReader().read(buildListXml(path));
+		}
+
+		@Override
+		public ResourceList getResourceListAsSecurityUser(String path) {
+			return getResourceList(path);
+		}
+
+		private String buildListXml(String path) {
+			String type = path.substring(path.lastIndexOf('/') + 1, path.length() - 1);
+			return format("<%s-default-list xmlns='http://marklogic.com/manage/%s'><list-items>" +
+					"<list-count units='quantity'>2</list-count>" +
+					"<list-item><idref>1001</idref><nameref>%s-0</nameref></list-item>" +
+					"<list-item><idref>1002</idref><nameref>%s-1</nameref></list-item>" +
+					"</list-items></%s-default-list>",
+				type, type, type, type, type);
+		}
+
+		@Override
+		public ResponseEntity<String> postJson(String path, String json) {
+			requests.add("POST " + path);
+			return new ResponseEntity<>(HttpStatus.CREATED);
+		}
+
+		@Override
+		public ResponseEntity<String> postJsonAsSecurityUser(String path, String json) {
+			return postJson(path, json);
+		}
+
+		@Override
+		public ResponseEntity<String> putJson(String path, String json) {
+			requests.add("PUT " + path);
+			return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+		}
+
+		@Override
+		public ResponseEntity<String> putJsonAsSecurityUser(String path, String json) {
+			return putJson(path, json);
+		}
+
+		@Override
+		public void delete(String path) {
+			requests.add("DELETE " + path);
+		}
+
+		@Override
+		public void deleteAsSecurityUser(String path) {
+			delete(path);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.marklogic.mgmt.resource.forests;
+
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.ManageConfig;
+import com.marklogic.mgmt.api.forest.Forest;
+import com.marklogic.mgmt.mock.MockManageServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class GetPropertiesForForestsTest extends Assert {
+
+	private final static int FOREST_COUNT = 40;
+	private final static String PROPERTIES_PATH = "/manage/v2/forests/.*/properties";
+
+	private MockManageServer server;
+	private ForestManager forestManager;
+	private List<String> forestNames = new ArrayList<>();
+
+	@Before
+	public void setup() {
+		server = new MockManageServer().withLatency("GET", PROPERTIES_PATH, 20).start();
+		for (int i = 0; i < FOREST_COUNT; i++) {
+			String name = "forest-" + (1000 + i);
+			server.addResource("forests", "{\"forest-name\":\"" + name + "\", \"host\":\"localhost\", " +
+				"\"database\":\"Documents\", \"data-directory\":\"/data/" + i + "\", \"updates-allowed\":\"all\"}");
+			forestNames.add(name);
+		}
+		forestManager = new ForestManager(server.newManageClient());
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void sameResultAsSerialRequests() {
+		forestManager.setPropertiesThreadCount(1);
+		Map<String, Forest> serialForests = forestManager.getPropertiesForForests(forestNames);
+		assertEquals(FOREST_COUNT, server.getRequestCount("GET", PROPERTIES_PATH));
+		assertEquals(1, server.getMaxConcurrentRequests());
+
+		server.clearRequests();
+		forestManager.setPropertiesThreadCount(8);
+		Map<String, Forest> forests = forestManager.getPropertiesForForests(forestNames);
+		assertEquals("There should still be one request per forest", FOREST_COUNT, server.getRequestCount("GET", PROPERTIES_PATH));
+		assertTrue(server.getMaxConcurrentRequests() > 1);
+		assertTrue("The thread count should be capped to the number of connections the client allows; max in flight: " +
+			server.getMaxConcurrentRequests(), server.getMaxConcurrentRequests() <= forestManager.determinePropertiesThreadCount());
+
+		assertEquals("The forests should be in the order in which their names were given",
+			forestNames, new ArrayList<>(forests.keySet()));
+		for (String name : forestNames) {
+			Forest forest = forests.get(name);
+			assertEquals(name, forest.getForestName());
+			assertEquals(serialForests.get(name).getJson(), forest.getJson());
+		}
+	}
+
+	@Test
+	public void threadCountDefaultsToConnectionLimit() {
+		ManageConfig config = new ManageConfig("localhost", server.getPort(), "admin", "admin");
+		config.setUsePooledConnections(true);
+		config.setMaxConnectionsPerRoute(3);
+		forestManager = new ForestManager(new ManageClient(config));
+
+		forestManager.getPropertiesForForests(forestNames);
+		assertEquals(FOREST_COUNT, server.getRequestCount("GET", PROPERTIES_PATH));
+		assertTrue(server.getMaxConcurrentRequests() > 1);
+		assertTrue("No more requests should be in flight than the pool allows per route; max in flight: " +
+			server.getMaxConcurrentRequests(), server.getMaxConcurrentRequests() <= 3);
+	}
+
+	@Test
+	public void noForests() {
+		assertTrue(forestManager.getPropertiesForForests(new ArrayList<>()).isEmpty());
+		assertEquals(0, server.getRequestCount());
+	}
+
+	@Test
+	public void failedRequest() {
+		forestNames.add("unknown-forest");
+		try {
+			forestManager.getPropertiesForForests(forestNames);
+			fail("Expected the failed request to result in an exception");
+		} catch (HttpClientErrorException ex) {
+			assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+		}
+	}
+}
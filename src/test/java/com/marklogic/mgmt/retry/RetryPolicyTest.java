@@ -0,0 +1,209 @@
+package com.marklogic.mgmt.retry;
+
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.ManageConfig;
+import com.marklogic.mgmt.mock.MockManageServer;
+import com.marklogic.mgmt.resource.forests.ForestManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uses a MockManageServer that is scripted to fail the first N requests, either with a particular status code or by
+ * closing the connection without sending a response.
+ */
+public class RetryPolicyTest extends Assert {
+
+	private final static String FOREST_PATH = "/manage/v2/forests/my-forest";
+
+	private MockManageServer server;
+	private ManageClient manageClient;
+	private RetryPolicy retryPolicy;
+
+	@Before
+	public void setup() {
+		server = new MockManageServer().start();
+		server.addResource("forests", "{\"forest-name\":\"my-forest\", \"host\":\"localhost\"}");
+		server.addResource("roles", "{\"role-name\":\"my-role\"}");
+		manageClient = server.newManageClient();
+		retryPolicy = manageClient.getRetryPolicy();
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void getSucceedsAfterServiceUnavailable() {
+		failFirst(2, 503);
+		assertTrue(manageClient.getJson("/manage/v2/databases/Documents/properties").contains("Documents"));
+		assertEquals(3, server.getRequestCount());
+	}
+
+	@Test
+	public void putFailsAfterMaxAttempts() {
+		failFirst(10, 503);
+		try {
+			manageClient.putJson("/manage/v2/databases/Documents/properties", "{}");
+			fail("Expected the last 503 to be thrown");
+		} catch (HttpServerErrorException ex) {
+			assertEquals(503, ex.getRawStatusCode());
+		}
+		assertEquals(retryPolicy.getMaxAttempts(), server.getRequestCount());
+	}
+
+	@Test
+	public void deleteSucceedsAfterConnectionIsClosed() {
+		failFirst(1, MockManageServer.CLOSE_CONNECTION);
+		manageClient.delete("/manage/v2/roles/my-role");
+		assertEquals(2, server.getRequestCount());
+		assertFalse(server.resourceExists("roles", "my-role"));
+	}
+
+	@Test
+	public void postIsNotRetried() {
+		failFirst(1, 503);
+		try {
+			manageClient.postJson("/manage/v2/databases", "{\"database-name\":\"new-db\"}");
+			fail("Expected the 503 to be thrown");
+		} catch (HttpServerErrorException ex) {
+			assertEquals(503, ex.getRawStatusCode());
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	public void postMarkedAsRetryable() {
+		retryPolicy.setRetryablePostPredicate(request -> request.getURI().getPath().equals("/manage/v2/databases/Documents"));
+		failFirst(1, 503);
+		manageClient.postJson("/manage/v2/databases/Documents", "{\"operation\":\"clear-database\"}");
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	public void clientErrorIsNotRetried() {
+		failFirst(1, 400);
+		try {
+			manageClient.putJson("/manage/v2/databases/Documents/properties", "{}");
+			fail("Expected the 400 to be thrown");
+		} catch (HttpClientErrorException ex) {
+			assertEquals(400, ex.getRawStatusCode());
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	public void retryingDisabled() {
+		manageClient.setRetryPolicy(null);
+		failFirst(1, 503);
+		try {
+			manageClient.getJson("/manage/v2/databases");
+			fail("Expected the 503 to be thrown");
+		} catch (HttpServerErrorException ex) {
+			assertEquals(503, ex.getRawStatusCode());
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	public void forestDeleteIsRetriedOnBadRequest() {
+		ForestManager forestManager = new ForestManager(manageClient);
+		forestManager.setDeleteSleepPeriod(10);
+		failFirst(2, 400, "DELETE");
+		forestManager.delete("my-forest", ForestManager.DELETE_LEVEL_FULL);
+		assertEquals(3, server.getRequestCount("DELETE", FOREST_PATH));
+		assertFalse(server.resourceExists("forests", "my-forest"));
+	}
+
+	@Test
+	public void forestDeleteIsNotRetriedByClientRetryPolicy() {
+		ForestManager forestManager = new ForestManager(manageClient);
+		forestManager.setDeleteSleepPeriod(10);
+		forestManager.setDeleteRetryAttempts(2);
+		failFirst(100, 503, "DELETE");
+		try {
+			forestManager.delete("my-forest", ForestManager.DELETE_LEVEL_FULL);
+			fail("Expected the last 503 to be thrown");
+		} catch (HttpServerErrorException ex) {
+			assertEquals(503, ex.getRawStatusCode());
+		}
+		assertEquals("Each attempt by the ForestManager should send the request only once", 3,
+			server.getRequestCount("DELETE", FOREST_PATH));
+	}
+
+	@Test
+	public void forestDeleteIsRetriedAfterAnyException() {
+		AtomicInteger deleteCount = new AtomicInteger();
+		ManageClient failingClient = new ManageClient(manageClient.getManageConfig()) {
+			@Override
+			public void delete(String path) {
+				if (deleteCount.incrementAndGet() == 1) {
+					throw new IllegalStateException("Scripted failure");
+				}
+				super.delete(path);
+			}
+		};
+		ForestManager forestManager = new ForestManager(failingClient);
+		forestManager.setDeleteSleepPeriod(10);
+		forestManager.delete("my-forest", ForestManager.DELETE_LEVEL_FULL);
+		assertEquals(2, deleteCount.get());
+		assertEquals(1, server.getRequestCount("DELETE", FOREST_PATH));
+		assertFalse(server.resourceExists("forests", "my-forest"));
+	}
+
+	@Test
+	public void eachClientHasItsOwnRetryPolicy() {
+		ManageConfig config = manageClient.getManageConfig();
+		ManageClient otherClient = new ManageClient(config);
+		assertNotSame(manageClient.getRetryPolicy(), otherClient.getRetryPolicy());
+		assertNotSame(config.getRetryPolicy(), manageClient.getRetryPolicy());
+		assertEquals(10, otherClient.getRetryPolicy().getInitialDelay());
+
+		manageClient.getRetryPolicy().setMaxAttempts(1);
+		config.getRetryPolicy().setMaxAttempts(2);
+		assertEquals(4, otherClient.getRetryPolicy().getMaxAttempts());
+		assertNotSame("Each ManageConfig should have its own default policy", config.getRetryPolicy(),
+			new ManageConfig().getRetryPolicy());
+	}
+
+	@Test
+	public void delays() {
+		RetryPolicy policy = new RetryPolicy(5, 100);
+		policy.setMaxDelay(300);
+		for (int i = 0; i < 100; i++) {
+			assertBetween(policy.getDelay(1, 0), 50, 100);
+			assertBetween(policy.getDelay(2, 0), 100, 200);
+			assertBetween(policy.getDelay(3, 0), 150, 300);
+			assertBetween(policy.getDelay(10, 0), 150, 300);
+		}
+		assertEquals("Retry-After should be honored up to the max delay", 300, policy.getDelay(1, 5000));
+		assertTrue(policy.isRetryableException(new ConnectException()));
+		assertFalse(policy.isRetryableException(new UnknownHostException()));
+		assertFalse(policy.isRetryableException(new IllegalStateException()));
+	}
+
+	/**
+	 * @param count  the number of requests to fail
+	 * @param status the status code to fail with, or MockManageServer.CLOSE_CONNECTION
+	 * @param method if not null, only requests with this method are failed
+	 */
+	private void failFirst(int count, int status, String method) {
+		server.failRequests(method, ".*", status, count);
+	}
+
+	private void failFirst(int count, int status) {
+		failFirst(count, status, null);
+	}
+
+	private void assertBetween(long value, long min, long max) {
+		assertTrue(value + " should be between " + min + " and " + max, value >= min && value <= max);
+	}
+}
@@ -0,0 +1,193 @@
+package com.marklogic.mgmt.selector;
+
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.mock.MockManageServer;
+import com.marklogic.mgmt.resource.security.PrivilegeManager;
+import com.marklogic.rest.util.ResourcesFragment;
+import org.jdom2.Namespace;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResourceInventoryTest extends Assert {
+
+	private final static int PRIVILEGE_COUNT = 5000;
+
+	private MockManageServer server;
+	private ManageClient manageClient;
+
+	@Before
+	public void setup() {
+		server = new MockManageServer().start();
+		manageClient = server.newManageClient();
+		for (int i = 0; i < PRIVILEGE_COUNT; i++) {
+			String kind = i % 3 == 0 ? "uri" : "execute";
+			server.addResource("privileges", String.format("{\"privilege-name\":\"priv-%d\", \"action\":\"urn:priv-%d\", \"kind\":\"%s\"}", i, i, kind));
+		}
+		server.addResource("roles", "{\"role-name\":\"priv-role\"}");
+		server.addResource("amps", "{\"local-name\":\"priv-amp\", \"namespace\":\"urn:amp\", \"document-uri\":\"/amp.xqy\"}");
+	}
+
+	@After
+	public void teardown() {
+		server.stop();
+	}
+
+	@Test
+	public void selectionMatchesPerNameLookup() {
+		PrefixResourceSelector selector = new PrefixResourceSelector("priv-49");
+		ResourceSelection selection = selector.selectResources(manageClient);
+
+		List<String> expectedExecute = new ArrayList<>();
+		List<String> expectedUri = new ArrayList<>();
+		ResourcesFragment privileges = new PrivilegeManager(manageClient).getAsXml();
+		// This is how privileges were selected before ResourceInventory; each lookup scans every list item
+		for (String name : privileges.getListItemNameRefs()) {
+			if (name.startsWith("priv-49")) {
+				if ("uri".equals(privileges.getListItemValue(name, "kind"))) {
+					expectedUri.add(name);
+				} else {
+					expectedExecute.add(name);
+				}
+			}
+		}
+
+		assertEquals(111, expectedExecute.size() + expectedUri.size());
+		assertEquals(expectedExecute, Arrays.asList(selection.getPrivilegeExecuteNames()));
+		assertEquals(expectedUri, Arrays.asList(selection.getPrivilegeUriNames()));
+		assertEquals(0, selection.getRoleNames().length);
+	}
+
+	@Test
+	public void everyTypeIsSelected() {
+		ResourceSelection selection = new RegexResourceSelector("priv-(role|amp|41)").selectResources(manageClient);
+		assertEquals("priv-role", selection.getRoleNames()[0]);
+		assertEquals("priv-41", selection.getPrivilegeExecuteNames()[0]);
+		assertEquals(0, selection.getPrivilegeUriNames().length);
+		assertEquals(1, selection.getAmpUriRefs().length);
+		assertTrue(selection.getAmpUriRefs()[0].startsWith("/manage/v2/amps/"));
+	}
+
+	@Test
+	public void eachListIsFetchedOnceAndConcurrently() throws Exception {
+		PrefixResourceSelector selector = new PrefixResourceSelector("priv-");
+		selector.setThreadCount(8);
+		final int expectedThreads = Math.min(8, manageClient.getMaxConcurrentRequests());
+		assertTrue(expectedThreads > 1);
+
+		// Each list request waits until as many list requests as there are threads have arrived, which can only happen
+		// if they are in flight at the same time
+		CountDownLatch latch = new CountDownLatch(expectedThreads);
+		AtomicInteger overlapping = new AtomicInteger();
+		server.withHandler("GET", "/manage/v2/[a-z]+", request -> {
+			latch.countDown();
+			try {
+				if (latch.await(10, TimeUnit.SECONDS)) {
+					overlapping.incrementAndGet();
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+
+		ResourceInventory inventory = selector.buildResourceInventory(manageClient);
+
+		assertTrue("The lists should have been fetched concurrently", overlapping.get() >= expectedThreads);
+		assertTrue("No more lists should be fetched at once than the client allows; max in flight: " +
+			server.getMaxConcurrentRequests(), server.getMaxConcurrentRequests() <= expectedThreads);
+		assertEquals(1, server.getRequestCount("GET", "/manage/v2/privileges"));
+		assertEquals(PRIVILEGE_COUNT, inventory.getEntries(ResourceInventory.PRIVILEGES).size());
+		assertEquals("uri", inventory.getEntry(ResourceInventory.PRIVILEGES, "priv-3").getValue("kind"));
+
+		int requestCount = server.getRequestCount();
+		new RegexResourceSelector("priv-4.*").selectResources(inventory);
+		assertEquals("Selecting from an inventory should not send any requests", requestCount, server.getRequestCount());
+	}
+
+	@Test
+	public void threadCountIsCappedToConnectionLimit() {
+		PrefixResourceSelector selector = new PrefixResourceSelector("priv-");
+		final int limit = manageClient.getMaxConcurrentRequests();
+		assertEquals(limit, selector.determineThreadCount(manageClient));
+		selector.setThreadCount(limit + 10);
+		assertEquals(limit, selector.determineThreadCount(manageClient));
+		selector.setThreadCount(1);
+		assertEquals(1, selector.determineThreadCount(manageClient));
+	}
+
+	@Test
+	public void namesAndIdsAreIndexedSeparately() {
+		ResourceInventory inventory = new ResourceInventory();
+		inventory.addResources(ResourceInventory.PRIVILEGES, new ResourcesFragment(
+			"<privilege-default-list xmlns='http://marklogic.com/manage/privileges'><list-items><list-count>2</list-count>" +
+				"<list-item><idref>123</idref><nameref>first</nameref><kind>execute</kind></list-item>" +
+				"<list-item><idref>456</idref><nameref>123</nameref><kind>uri</kind></list-item>" +
+				"</list-items></privilege-default-list>", new Namespace[]{}));
+
+		assertEquals("first", inventory.getEntryById(ResourceInventory.PRIVILEGES, "123").getName());
+		assertEquals("456", inventory.getEntryByName(ResourceInventory.PRIVILEGES, "123").getId());
+		assertEquals("A name takes precedence over an ID", "456", inventory.getEntry(ResourceInventory.PRIVILEGES, "123").getId());
+		assertEquals("first", inventory.getEntry(ResourceInventory.PRIVILEGES, "first").getName());
+		assertNull(inventory.getEntryByName(ResourceInventory.PRIVILEGES, "456"));
+		assertNull(inventory.getEntry(MapResourceSelection.ROLES, "first"));
+	}
+
+	@Test
+	public void includedTypesAreTheOnlyOnesFetched() {
+		PrefixResourceSelector selector = new PrefixResourceSelector("priv-");
+		selector.setIncludeTypes("privileges", "roles");
+		ResourceInventory inventory = selector.buildResourceInventory(manageClient);
+
+		assertTrue(inventory.hasType(ResourceInventory.PRIVILEGES));
+		assertTrue(inventory.hasType(MapResourceSelection.ROLES));
+		assertFalse(inventory.hasType(MapResourceSelection.DATABASES));
+		assertEquals(0, server.getRequestCount("GET", "/manage/v2/databases"));
+	}
+
+	@Test
+	public void eachNameIsMatchedOnce() {
+		ResourcesFragment privileges = buildPrivilegeList(PRIVILEGE_COUNT);
+		CountingSelector selector = new CountingSelector();
+		ResourceSelection selection = selector.selectResources(newInventory(privileges));
+
+		assertEquals("Each privilege name should have been matched exactly once, so matching is linear in the number of " +
+			"privileges", PRIVILEGE_COUNT, selector.calls.get());
+		assertEquals(PRIVILEGE_COUNT / 10, selection.getPrivilegeExecuteNames().length + selection.getPrivilegeUriNames().length);
+	}
+
+	private ResourceInventory newInventory(ResourcesFragment privileges) {
+		ResourceInventory inventory = new ResourceInventory();
+		inventory.addResources(ResourceInventory.PRIVILEGES, privileges);
+		return inventory;
+	}
+
+	private ResourcesFragment buildPrivilegeList(int count) {
+		StringBuilder xml = new StringBuilder("<privilege-default-list xmlns='http://marklogic.com/manage/privileges'>" +
+			"<list-items><list-count>" + count + "</list-count>");
+		for (int i = 0; i < count; i++) {
+			xml.append(String.format("<list-item><idref>%d</idref><nameref>priv-%d</nameref><kind>%s</kind></list-item>",
+				i, i, i % 3 == 0 ? "uri" : "execute"));
+		}
+		xml.append("</list-items></privilege-default-list>");
+		return new ResourcesFragment(xml.toString(), new Namespace[]{});
+	}
+
+	private static class CountingSelector extends AbstractNameMatchingResourceSelector {
+		final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		protected boolean nameMatches(String resourceName) {
+			calls.incrementAndGet();
+			return resourceName.endsWith("7");
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package com.marklogic.mgmt.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentTaskRunnerTest extends Assert {
+
+	@Test
+	public void resultsAreInOrderOfInputs() {
+		final int threadCount = 4;
+		CountDownLatch latch = new CountDownLatch(threadCount);
+		List<String> results = ConcurrentTaskRunner.map(Arrays.asList(1, 2, 3, 4), threadCount, input -> {
+			latch.countDown();
+			try {
+				assertTrue("Each input should have been processed at the same time", latch.await(10, TimeUnit.SECONDS));
+			} catch (InterruptedException ex) {
+				throw new RuntimeException(ex);
+			}
+			return "result-" + input;
+		});
+		assertEquals(Arrays.asList("result-1", "result-2", "result-3", "result-4"), results);
+	}
+
+	@Test
+	public void singleThreadUsesCallingThread() {
+		Thread caller = Thread.currentThread();
+		List<Boolean> results = ConcurrentTaskRunner.map(Arrays.asList(1, 2), 1, input -> Thread.currentThread() == caller);
+		assertEquals(Arrays.asList(true, true), results);
+	}
+
+	@Test
+	public void everyInputIsProcessedBeforeFirstFailureIsThrown() {
+		AtomicInteger processed = new AtomicInteger();
+		try {
+			ConcurrentTaskRunner.map(Arrays.asList(1, 2, 3, 4), 2, input -> {
+				processed.incrementAndGet();
+				if (input % 2 == 0) {
+					throw new IllegalStateException("Failed: " + input);
+				}
+				return input;
+			});
+			fail("Expected the first failure to be thrown");
+		} catch (IllegalStateException ex) {
+			assertEquals("Failed: 2", ex.getMessage());
+			assertEquals(1, ex.getSuppressed().length);
+			assertEquals("Failed: 4", ex.getSuppressed()[0].getMessage());
+		}
+		assertEquals(4, processed.get());
+	}
+
+	@Test
+	public void checkedExceptionIsWrapped() {
+		try (ConcurrentTaskRunner<String> runner = new ConcurrentTaskRunner<>(2)) {
+			Future<String> future = runner.submit(() -> {
+				throw new IOException("Unable to read");
+			});
+			runner.get(future);
+			fail("Expected a RuntimeException");
+		} catch (RuntimeException ex) {
+			assertTrue(ex.getCause() instanceof IOException);
+			assertTrue(ex.getMessage().contains("Unable to read"));
+		}
+	}
+
+	@Test
+	public void tasksAreTakenInOrderOfCompletion() {
+		CountDownLatch firstMayFinish = new CountDownLatch(1);
+		try (ConcurrentTaskRunner<String> runner = new ConcurrentTaskRunner<>(2)) {
+			runner.submit(() -> {
+				firstMayFinish.await(10, TimeUnit.SECONDS);
+				return "first";
+			});
+			runner.submit(() -> "second");
+			assertEquals("second", runner.get(runner.takeCompleted()));
+			firstMayFinish.countDown();
+			assertEquals("first", runner.get(runner.takeCompleted()));
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.marklogic.mgmt.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class LayeredTopologicalSorterTest extends Assert {
+
+	@Test
+	public void sameOrderAsTopologicalSorter() {
+		LayeredTopologicalSorter<String> sorter = new LayeredTopologicalSorter<>();
+		for (String vertex : new String[]{"A", "B", "C", "D", "E", "F", "G", "H"}) {
+			sorter.addVertex(vertex);
+		}
+		sorter.addEdge(0, 3); // AD
+		sorter.addEdge(0, 4); // AE
+		sorter.addEdge(1, 4); // BE
+		sorter.addEdge(2, 5); // CF
+		sorter.addEdge(3, 6); // DG
+		sorter.addEdge(4, 6); // EG
+		sorter.addEdge(5, 7); // FH
+		sorter.addEdge(6, 7); // GH
+
+		assertEquals(Arrays.asList("B", "A", "E", "D", "G", "C", "F", "H"), sorter.sort());
+
+		List<List<String>> layers = sorter.sortIntoLayers();
+		assertEquals(4, layers.size());
+		assertEquals(Arrays.asList("B", "A", "C"), layers.get(0));
+		assertEquals(Arrays.asList("E", "D", "F"), layers.get(1));
+		assertEquals(Arrays.asList("G"), layers.get(2));
+		assertEquals(Arrays.asList("H"), layers.get(3));
+	}
+
+	@Test
+	public void noVertices() {
+		LayeredTopologicalSorter<String> sorter = new LayeredTopologicalSorter<>();
+		assertTrue(sorter.sort().isEmpty());
+		assertTrue(sorter.sortIntoLayers().isEmpty());
+	}
+
+	@Test
+	public void cycleIsReported() {
+		LayeredTopologicalSorter<String> sorter = new LayeredTopologicalSorter<>();
+		sorter.addVertex("independent");
+		sorter.addVertex("a");
+		sorter.addVertex("b");
+		sorter.addVertex("c");
+		sorter.addVertex("depends-on-cycle");
+		sorter.addEdge(1, 2);
+		sorter.addEdge(2, 3);
+		sorter.addEdge(3, 1);
+		sorter.addEdge(3, 4);
+
+		try {
+			sorter.sort();
+			fail("Expected the cycle to be reported");
+		} catch (IllegalStateException ex) {
+			assertEquals("Graph has cycles; vertices in a cycle: [a, b, c]", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void selfReferenceIsCycle() {
+		LayeredTopologicalSorter<String> sorter = new LayeredTopologicalSorter<>();
+		sorter.addVertex("a");
+		sorter.addEdge(0, 0);
+		try {
+			sorter.sortIntoLayers();
+			fail("Expected the cycle to be reported");
+		} catch (IllegalStateException ex) {
+			assertEquals("Graph has cycles; vertices in a cycle: [a]", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void invalidEdge() {
+		LayeredTopologicalSorter<String> sorter = new LayeredTopologicalSorter<>();
+		sorter.addVertex("a");
+		try {
+			sorter.addEdge(0, 1);
+			fail("Expected an edge to a vertex that doesn't exist to be rejected");
+		} catch (IllegalArgumentException ex) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Builds random DAGs - including ones with duplicate edges and no edges at all - and verifies that the sorted order
+	 * is identical to that of TopologicalSorter, and that the layers are consistent with every edge.
+	 */
+	@Test
+	public void randomGraphsMatchTopologicalSorter() {
+		Random random = new Random(20181017);
+		for (int run = 0; run < 500; run++) {
+			final int vertexCount = random.nextInt(40);
+			final int edgeCount = vertexCount < 2 ? 0 : random.nextInt(vertexCount * 3);
+
+			// Shuffle the vertices so that edges don't always point from an earlier vertex to a later one
+			List<Integer> rank = new ArrayList<>();
+			for (int i = 0; i < vertexCount; i++) {
+				rank.add(i);
+			}
+			Collections.shuffle(rank, random);
+
+			TopologicalSorter oldSorter = new TopologicalSorter(vertexCount);
+			LayeredTopologicalSorter<String> sorter = new LayeredTopologicalSorter<>();
+			for (int i = 0; i < vertexCount; i++) {
+				oldSorter.addVertex("v" + i);
+				sorter.addVertex("v" + i);
+			}
+
+			List<int[]> edges = new ArrayList<>();
+			for (int e = 0; e < edgeCount; e++) {
+				int a = random.nextInt(vertexCount);
+				int b = random.nextInt(vertexCount);
+				if (a == b) {
+					continue;
+				}
+				int start = rank.get(a) < rank.get(b) ? a : b;
+				int end = start == a ? b : a;
+				oldSorter.addEdge(start, end);
+				sorter.addEdge(start, end);
+				edges.add(new int[]{start, end});
+			}
+
+			List<String> sorted = sorter.sort();
+			assertEquals("Run " + run, Arrays.asList(oldSorter.sort()), sorted);
+
+			List<List<String>> layers = sorter.sortIntoLayers();
+			Map<String, Integer> layerOfVertex = new HashMap<>();
+			List<String> flattened = new ArrayList<>();
+			for (int i = 0; i < layers.size(); i++) {
+				assertFalse(layers.get(i).isEmpty());
+				for (String vertex : layers.get(i)) {
+					layerOfVertex.put(vertex, i);
+					flattened.add(vertex);
+				}
+			}
+			assertEquals(vertexCount, flattened.size());
+			for (int[] edge : edges) {
+				assertTrue("Run " + run, layerOfVertex.get("v" + edge[0]) < layerOfVertex.get("v" + edge[1]));
+			}
+			for (int i = 1; i < layers.size(); i++) {
+				for (String vertex : layers.get(i)) {
+					int index = Integer.parseInt(vertex.substring(1));
+					int layer = i;
+					assertTrue("Each vertex after the first layer should be in the layer right after its latest dependency",
+						edges.stream().anyMatch(edge -> edge[1] == index && layerOfVertex.get("v" + edge[0]) == layer - 1));
+				}
+			}
+		}
+	}
+}
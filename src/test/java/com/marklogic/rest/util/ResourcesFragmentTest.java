@@ -0,0 +1,58 @@
+package com.marklogic.rest.util;
+
+import org.jdom2.Namespace;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResourcesFragmentTest extends Assert {
+
+	private final static String XML = "<role-default-list xmlns='http://marklogic.com/manage/role'><list-items>" +
+		"<list-count units='quantity'>3</list-count>" +
+		"<list-item><uriref>/manage/v2/roles/1</uriref><idref>1</idref><nameref>role-1</nameref></list-item>" +
+		"<list-item><uriref>/manage/v2/roles/2</uriref><idref>2</idref><nameref>role-2</nameref></list-item>" +
+		"<list-item><uriref>/manage/v2/roles/3</uriref><idref>3</idref><nameref>o'brien \"role\"</nameref></list-item>" +
+		"</list-items></role-default-list>";
+
+	private ResourcesFragment fragment = new ResourcesFragment(XML, new Namespace[]{});
+
+	@Test
+	public void lookups() {
+		assertEquals(3, fragment.getResourceCount());
+		assertTrue(fragment.resourceExists("role-1"));
+		assertTrue(fragment.resourceExists("2"));
+		assertFalse(fragment.resourceExists("role-4"));
+		assertFalse(fragment.resourceExists(null));
+
+		assertEquals("2", fragment.getIdForNameOrId("role-2"));
+		assertEquals("/manage/v2/roles/1", fragment.getUriRefForNameRef("role-1"));
+		assertEquals("role-2", fragment.getNameRefForUriRef("/manage/v2/roles/2"));
+		assertNull(fragment.getIdForNameOrId("role-4"));
+
+		assertEquals(3, fragment.getListItemNameRefs().size());
+		assertEquals("3", fragment.getListItemIdRefs().get(2));
+		assertEquals(3, fragment.getListItems().size());
+	}
+
+	/**
+	 * Prior to using Jaxen variables, a name with an apostrophe would produce an invalid XPath expression.
+	 */
+	@Test
+	public void nameWithQuotes() {
+		assertTrue(fragment.resourceExists("o'brien \"role\""));
+		assertEquals("3", fragment.getIdForNameOrId("o'brien \"role\""));
+	}
+
+	@Test
+	public void expressionsAreCompiledOnce() {
+		XPathExpressionCache cache = Fragment.getXpathExpressionCache();
+		fragment.resourceExists("role-1");
+		fragment.getIdForNameOrId("role-1");
+		final long compileCount = cache.getCompileCount();
+
+		for (int i = 0; i < 100; i++) {
+			fragment.resourceExists("role-" + i);
+			fragment.getIdForNameOrId("role-" + i);
+		}
+		assertEquals(compileCount, cache.getCompileCount());
+	}
+}
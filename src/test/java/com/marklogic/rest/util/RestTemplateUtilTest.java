@@ -22,7 +22,7 @@ public class RestTemplateUtilTest extends BaseTestHelper {
 
 	@Test
 	public void configurerList() {
-		assertEquals(4, RestTemplateUtil.DEFAULT_CONFIGURERS.size());
+		assertEquals(5, RestTemplateUtil.DEFAULT_CONFIGURERS.size());
 
 		assertFalse(configurerInvoked);
 		RestTemplateUtil.DEFAULT_CONFIGURERS.add((restConfig, builder) -> {
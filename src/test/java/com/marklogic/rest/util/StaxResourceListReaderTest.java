@@ -0,0 +1,107 @@
+package com.marklogic.rest.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Verifies that StaxResourceListReader produces the same results as ResourcesFragment for list responses recorded from
+ * the Manage API.
+ */
+public class StaxResourceListReaderTest extends Assert {
+
+	private StaxResourceListReader reader = new StaxResourceListReader();
+
+	@Test
+	public void roles() throws IOException {
+		ResourceList list = readFixture("role-list.xml");
+		assertEquals(5, list.getListCount());
+		assertEquals(5, list.size());
+		assertEquals(Arrays.asList("admin", "rest-reader", "rest-writer", "sample-app-role", "o'brien & \"sons\""),
+			list.getNameRefs());
+		assertTrue(list.contains("o'brien & \"sons\""));
+		assertEquals("4170537916263958113", list.getIdForNameOrId("o'brien & \"sons\""));
+		assertEquals("rest-writer", list.getNameForId("12018159932051447917"));
+		assertSameAsResourcesFragment("role-list.xml", list, "admin", "12018159932051447917", "missing", "/manage/v2/roles/admin");
+	}
+
+	@Test
+	public void forests() throws IOException {
+		ResourceList list = readFixture("forest-list.xml");
+		assertEquals(4, list.getListCount());
+		assertEquals(Arrays.asList("Documents", "Modules", "sample-app-content-1", "sample-app-content-2"), list.getNameRefs());
+		assertFalse("The idref of the database in the relations element should not be included",
+			list.contains("10423010826542891483"));
+		assertEquals("13553603374563237829", list.getIdForNameOrId("Documents"));
+		assertSameAsResourcesFragment("forest-list.xml", list, "Documents", "10423010826542891483", "sample-app-content-2");
+	}
+
+	@Test
+	public void amps() throws IOException {
+		ResourceList list = readFixture("amp-list.xml");
+		assertEquals(Arrays.asList("get-sample-data", "update-sample-data"), list.getNameRefs());
+		assertFalse("Only the nameref and idref of each list-item should be indexed", list.contains("Modules"));
+		assertSameAsResourcesFragment("amp-list.xml", list, "get-sample-data", "2771860487813226553", "Modules");
+	}
+
+	@Test
+	public void emptyList() throws IOException {
+		ResourceList list = readFixture("empty-list.xml");
+		assertEquals(0, list.getListCount());
+		assertEquals(0, list.size());
+		assertTrue(list.getNameRefs().isEmpty());
+		assertFalse(list.contains("anything"));
+	}
+
+	@Test
+	public void textSplitAcrossCdataAndComments() {
+		ResourceList list = reader.read("<x-list><list-items><list-count>1</list-count><list-item>" +
+			"<idref>1</idref><nameref><![CDATA[my-]]><!-- comment -->name</nameref></list-item></list-items></x-list>");
+		assertEquals("1", list.getIdForNameOrId("my-name"));
+	}
+
+	@Test
+	public void addAndRemove() throws IOException {
+		ResourceList list = readFixture("role-list.xml");
+		list.add("new-role", null);
+		assertTrue(list.contains("new-role"));
+		assertNull("The ID of a newly added resource is not known", list.getIdForNameOrId("new-role"));
+		assertEquals(6, list.size());
+
+		list.remove("7089338530631756591");
+		assertFalse("Removing by ID should also remove the name", list.contains("admin"));
+		list.remove("rest-reader");
+		assertFalse("Removing by name should also remove the ID", list.contains("7682401138227438470"));
+		assertEquals(4, list.size());
+		assertEquals("list-count reflects the response, not subsequent changes", 5, list.getListCount());
+	}
+
+	private ResourceList readFixture(String filename) throws IOException {
+		try (InputStream in = new FileInputStream(fixture(filename))) {
+			return reader.read(in);
+		}
+	}
+
+	private File fixture(String filename) {
+		return new File("src/test/resources/resource-lists", filename);
+	}
+
+	private void assertSameAsResourcesFragment(String filename, ResourceList list, String... namesOrIds) throws IOException {
+		String xml = FileCopyUtils.copyToString(new FileReader(fixture(filename)));
+		ResourcesFragment fragment = new ResourcesFragment(new Fragment(xml));
+		assertEquals(fragment.getResourceCount(), list.getListCount());
+		assertEquals(fragment.getListItemNameRefs(), list.getNameRefs());
+		assertEquals(fragment.getListItemIdRefs(), list.getIdRefs());
+		for (String nameOrId : namesOrIds) {
+			assertEquals(fragment.resourceExists(nameOrId), list.contains(nameOrId));
+			assertEquals(fragment.getIdForNameOrId(nameOrId), list.getIdForNameOrId(nameOrId));
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.marklogic.rest.util;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class XPathExpressionCacheTest extends Assert {
+
+	private Document doc = new Fragment("<items><item>1</item><item>2</item><item>3</item></items>").getInternalDoc();
+	private Namespace[] namespaces = new Namespace[]{};
+	private String namespacesKey = XPathExpressionCache.buildNamespacesKey(namespaces);
+
+	@Test
+	public void leastRecentlyUsedExpressionsAreEvicted() {
+		XPathExpressionCache cache = new XPathExpressionCache(2);
+		cache.evaluate("/items/item[1]", null, namespaces, namespacesKey, doc);
+		cache.evaluate("/items/item[2]", null, namespaces, namespacesKey, doc);
+		cache.evaluate("/items/item[1]", null, namespaces, namespacesKey, doc);
+		cache.evaluate("/items/item[3]", null, namespaces, namespacesKey, doc);
+		assertEquals(2, cache.size());
+		assertEquals(3, cache.getCompileCount());
+
+		cache.evaluate("/items/item[1]", null, namespaces, namespacesKey, doc);
+		assertEquals("item[1] was used more recently than item[2], so it should not have been evicted",
+			3, cache.getCompileCount());
+
+		cache.evaluate("/items/item[2]", null, namespaces, namespacesKey, doc);
+		assertEquals(4, cache.getCompileCount());
+	}
+
+	@Test
+	public void differentNamespacesAreCachedSeparately() {
+		XPathExpressionCache cache = new XPathExpressionCache();
+		Namespace[] other = new Namespace[]{Namespace.getNamespace("x", "test")};
+		cache.evaluate("/items", null, namespaces, namespacesKey, doc);
+		cache.evaluate("/items", null, other, XPathExpressionCache.buildNamespacesKey(other), doc);
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void concurrentEvaluationWithVariables() throws Exception {
+		XPathExpressionCache cache = new XPathExpressionCache();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < 2000; i++) {
+				final String value = String.valueOf(i % 3 + 1);
+				futures.add(executor.submit(() -> {
+					Map<String, Object> variables = new HashMap<>();
+					variables.put("value", value);
+					List<Element> list = cache.evaluate("/items/item[. = $value]", variables, namespaces, namespacesKey, doc);
+					return list.size() == 1 ? list.get(0).getText() : null;
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				assertEquals(String.valueOf(i % 3 + 1), futures.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue("Expressions should be pooled and reused across threads, but was compiled " +
+			cache.getCompileCount() + " times", cache.getCompileCount() <= 8);
+	}
+}
@@ -0,0 +1,139 @@
+package com.marklogic.rest.util.configurer;
+
+import com.marklogic.mgmt.ManageClient;
+import com.marklogic.mgmt.ManageConfig;
+import com.marklogic.mgmt.mock.MockManageServer;
+import com.marklogic.rest.util.RestConfig;
+import com.marklogic.rest.util.RestTemplateUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uses a MockManageServer to count how many distinct client connections are opened.
+ */
+public class PoolingConnectionConfigurerTest extends Assert {
+
+	private MockManageServer server;
+
+	@Before
+	public void startServer() {
+		server = new MockManageServer().start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+
+	@Test
+	public void pooledConnectionsAreReused() throws Exception {
+		ManageConfig config = newManageConfig();
+		config.setUsePooledConnections(true);
+		config.setMaxConnectionsTotal(4);
+		config.setMaxConnectionsPerRoute(4);
+
+		simulateDeploy(new ManageClient(config), 500, 4);
+
+		assertEquals(500, server.getRequestCount());
+		assertTrue("Expected no more connections than the per-route limit, but found: " + server.getConnectionCount(),
+			server.getConnectionCount() <= 4);
+	}
+
+	@Test
+	public void connectionsAreNotReusedByDefault() throws Exception {
+		simulateDeploy(new ManageClient(newManageConfig()), 50, 1);
+
+		assertEquals(50, server.getRequestCount());
+		assertEquals("Each request should have opened a new connection", 50, server.getConnectionCount());
+	}
+
+	@Test
+	public void sslContextIsBuiltOnceForPooledConnections() {
+		ManageConfig config = newManageConfig();
+		config.setConfigureSimpleSsl(true);
+		config.setUsePooledConnections(true);
+
+		AtomicInteger sslContextCount = new AtomicInteger();
+		SslConfigurer sslConfigurer = new SslConfigurer() {
+			@Override
+			public SSLContext determineSslContext(RestConfig config) {
+				sslContextCount.incrementAndGet();
+				return super.determineSslContext(config);
+			}
+		};
+		PoolingConnectionConfigurer poolingConfigurer = new PoolingConnectionConfigurer();
+		poolingConfigurer.setSslConfigurer(sslConfigurer);
+
+		RestTemplateUtil.newRestTemplate(config, sslConfigurer, poolingConfigurer);
+		assertEquals(1, sslContextCount.get());
+
+		config.setUsePooledConnections(false);
+		RestTemplateUtil.newRestTemplate(config, sslConfigurer, poolingConfigurer);
+		assertEquals(2, sslContextCount.get());
+	}
+
+	@Test
+	public void sslIsConfiguredWhenPoolingConfigurerIsNotUsed() {
+		ManageConfig config = newManageConfig();
+		config.setConfigureSimpleSsl(true);
+		config.setUsePooledConnections(true);
+
+		AtomicInteger sslContextCount = new AtomicInteger();
+		SslConfigurer sslConfigurer = new SslConfigurer() {
+			@Override
+			public SSLContext determineSslContext(RestConfig config) {
+				sslContextCount.incrementAndGet();
+				return super.determineSslContext(config);
+			}
+		};
+
+		RestTemplateUtil.newRestTemplate(config, sslConfigurer, new BasicAuthConfigurer());
+		assertEquals("SslConfigurer must not skip configuring SSL when no connection manager will be set",
+			1, sslContextCount.get());
+	}
+
+	private ManageConfig newManageConfig() {
+		return new ManageConfig("localhost", server.getPort(), "admin", "admin");
+	}
+
+	/**
+	 * Mimics the mix of calls made while deploying resources - checking the list of resources, then creating or
+	 * updating a resource.
+	 */
+	private void simulateDeploy(ManageClient client, int requests, int threads) throws Exception {
+		for (int i = 1; i < requests; i += 3) {
+			server.addResource("roles", "{\"role-name\":\"role" + i + "\"}");
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < requests; i++) {
+				final int index = i;
+				futures.add(executor.submit(() -> {
+					if (index % 3 == 0) {
+						client.getXml("/manage/v2/roles");
+					} else if (index % 3 == 1) {
+						client.putJson("/manage/v2/roles/role" + index + "/properties", "{\"role-name\":\"role" + index + "\"}");
+					} else {
+						client.postJson("/manage/v2/roles", "{\"role-name\":\"role" + index + "\"}");
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}